@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Sink which can process a batch of tuples in one call.
+ * <p>
+ * Streams and reservoirs implement it so that the tuples emitted together with
+ * {@link DefaultOutputPort#emitAll(Object[], int, int)} travel through them as a batch rather than one at a time.
+ * Use {@link Util#putAll(Sink, Object[], int, int)} to put the batch in any sink; the sinks which do not implement this
+ * interface get the tuples one at a time.
+ *
+ * @param <T> type of the tuples
+ * @since 2.2.0
+ */
+public interface BatchSink<T> extends Sink<T>
+{
+  /**
+   * Process the tuples in the given range of the array as if they were put one at a time in the same order. The sink
+   * does not keep the reference to the array.
+   *
+   * @param tuples array containing the tuples
+   * @param offset index of the first tuple
+   * @param length number of tuples
+   */
+  public void putAll(T[] tuples, int offset, int length);
+
+  /**
+   * Puts the batches in the sinks whether or not they are batch sinks.
+   */
+  public static class Util
+  {
+    /**
+     * Put the tuples in the sink in one call if it is a {@link BatchSink}, one at a time otherwise.
+     *
+     * @param <T> type of the tuples
+     * @param sink the sink
+     * @param tuples array containing the tuples
+     * @param offset index of the first tuple
+     * @param length number of tuples
+     */
+    public static <T> void putAll(Sink<T> sink, T[] tuples, int offset, int length)
+    {
+      if (sink instanceof BatchSink) {
+        ((BatchSink<T>)sink).putAll(tuples, offset, length);
+      }
+      else {
+        for (int i = offset, end = offset + length; i < end; i++) {
+          sink.put(tuples[i]);
+        }
+      }
+    }
+
+    private Util()
+    {
+    }
+
+  }
+
+}
@@ -151,6 +151,47 @@ public interface Context
      * a generic codec.
      */
     Attribute<StreamCodec<?>> STREAM_CODEC = new Attribute<StreamCodec<?>>(new Object2String<StreamCodec<?>>());
+    /**
+     * Input port attribute. Deserialize the tuples arriving at the port from the buffer server on a thread of their
+     * own, ahead of the operator thread processing them, so that deserialization and processing overlap. The tuples
+     * are still delivered to the operator in the order they were published.
+     */
+    Attribute<Boolean> DESERIALIZE_AHEAD = new Attribute<Boolean>(false);
+    /**
+     * Input port attribute. Deliver the tuples arriving at the port from the buffer server wrapped in
+     * {@link LazyTuple}, deserializing them only if the operator accesses them. It takes effect only with codecs which
+     * are not stateful as the bytes have to be meaningful outside of the stream they were received on. Set it on the
+     * unifier of an output port to let the unifier forward the tuples without deserializing and serializing them.
+     */
+    Attribute<Boolean> DESERIALIZE_LAZILY = new Attribute<Boolean>(false);
+    /**
+     * Input port attribute. The kind of queue which holds the tuples arriving at the port until the operator processes
+     * them. It applies to the CONTAINER_LOCAL streams and to the window generator feeding the input operators; set on
+     * an input operator it applies to the tuples from the window generator. Default value is
+     * {@link QueueType#CIRCULAR_BUFFER}.
+     */
+    Attribute<QueueType> QUEUE_TYPE = new Attribute<QueueType>(QueueType.CIRCULAR_BUFFER);
+
+    /**
+     * The kinds of queues which can hold the tuples for an input port.
+     */
+    enum QueueType
+    {
+      /**
+       * The circular buffer which publishes each tuple to the consumer as it is added or removed.
+       */
+      CIRCULAR_BUFFER,
+      /**
+       * Lock free ring for a single producer whose indexes are kept on cache lines of their own. The operator takes the
+       * tuples from it in batches.
+       */
+      SPSC_RING,
+      /**
+       * Lock free ring like {@link #SPSC_RING} which the several producers can add to concurrently.
+       */
+      MPSC_RING
+    }
+
     @SuppressWarnings("FieldNameHidesFieldInSuperclass")
     long serialVersionUID = AttributeMap.AttributeInitializer.initialize(PortContext.class);
   }
@@ -169,6 +210,11 @@ public interface Context
      * Default value is 10 milliseconds.
      */
     Attribute<Integer> SPIN_MILLIS = new Attribute<Integer>(10);
+    /**
+     * How the operator thread waits when there are no tuples available on any of the input ports of the operator, or
+     * when the input operator did not emit any tuples. Default value is {@link WaitStrategy#SPIN_PARK}.
+     */
+    Attribute<WaitStrategy> WAIT_STRATEGY = new Attribute<WaitStrategy>(WaitStrategy.SPIN_PARK);
     /**
      * The maximum number of attempts to restart a failing operator before shutting down the application.
      * Until this number is reached, when an operator fails to start it is re-spawned in a new container. Once all the
@@ -292,6 +338,31 @@ public interface Context
      */
     int getId();
 
+    /**
+     * The ways in which the operator thread can wait for the tuples to arrive.
+     */
+    enum WaitStrategy
+    {
+      /**
+       * Keep checking for the tuples without ever giving up the CPU. It has the lowest latency but it occupies a core.
+       */
+      BUSY_SPIN,
+      /**
+       * Keep checking for the tuples for a while and then yield the CPU to the other threads between the checks.
+       */
+      SPIN_YIELD,
+      /**
+       * Keep checking for the tuples for a while and then park until the tuples arrive or
+       * {@link OperatorContext#SPIN_MILLIS} elapse.
+       */
+      SPIN_PARK,
+      /**
+       * Park until the tuples arrive without checking for them first. Input operators are still asked to emit the
+       * tuples every {@link OperatorContext#SPIN_MILLIS}.
+       */
+      BLOCKING
+    }
+
     @SuppressWarnings("FieldNameHidesFieldInSuperclass")
     long serialVersionUID = AttributeMap.AttributeInitializer.initialize(OperatorContext.class);
   }
@@ -28,7 +28,7 @@ import com.datatorrent.api.Operator.Unifier;
  */
 public class DefaultOutputPort<T> implements Operator.OutputPort<T>
 {
-  private transient Sink<Object> sink;
+  transient Sink<Object> sink;
 
   /**
    * <p>Constructor for DefaultOutputPort.</p>
@@ -48,6 +48,31 @@ public class DefaultOutputPort<T> implements Operator.OutputPort<T>
     sink.put(tuple);
   }
 
+  /**
+   * Emit all the given objects in order as if each of them was emitted with {@link #emit(Object)}. The engine passes
+   * them downstream as a batch where it can, which saves the per tuple cost for the operators producing the tuples in
+   * bursts. The array can be reused as soon as the call returns.
+   *
+   * @param tuples payloads which need to be emitted.
+   */
+  public void emitAll(T[] tuples)
+  {
+    emitAll(tuples, 0, tuples.length);
+  }
+
+  /**
+   * Emit the objects in the given range of the array in order as if each of them was emitted with
+   * {@link #emit(Object)}.
+   *
+   * @param tuples array containing the payloads which need to be emitted.
+   * @param offset index of the first payload
+   * @param length number of payloads
+   */
+  public void emitAll(T[] tuples, int offset, int length)
+  {
+    BatchSink.Util.putAll(sink, tuples, offset, length);
+  }
+
   /**
    * {@inheritDoc}
    *
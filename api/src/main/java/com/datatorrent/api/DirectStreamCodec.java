@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * StreamCodec which is able to serialize the tuples directly into a buffer provided by the stream
+ * <p>
+ * The streams which send the tuples over the network frame several of them in a buffer they own and reuse. When the
+ * codec on such a stream implements this interface, the stream asks it to write the serialized tuple right where
+ * the tuple is framed instead of copying the byte array returned by {@link #toByteArray(java.lang.Object)}.
+ * <br />
+ * <br />
+ * The bytes written by {@link #writeTo(java.lang.Object, java.nio.ByteBuffer)} are delivered to
+ * {@link #fromByteArray(com.datatorrent.netlet.util.Slice)} of the deserializing instance the same way as the bytes
+ * returned by toByteArray are.
+ *
+ * @param <T> data type of the tuples on the stream
+ * @since 2.2.0
+ */
+public interface DirectStreamCodec<T> extends StreamCodec<T>
+{
+  /**
+   * Serialize the POJO emitted by the upstream node into the buffer starting at its position and advance the position
+   * past the serialized bytes.
+   *
+   * When the buffer does not have enough space remaining, the codec throws BufferOverflowException and leaves the
+   * position of the buffer unchanged. The bytes between the position and the limit may have been overwritten. The
+   * stream then hands the codec a buffer with more space and the same object again.
+   *
+   * @param o plain old java object
+   * @param buffer buffer to write the serialized representation of the object to
+   * @throws BufferOverflowException if the serialized object does not fit in the space remaining in the buffer
+   */
+  void writeTo(T o, ByteBuffer buffer) throws BufferOverflowException;
+
+}
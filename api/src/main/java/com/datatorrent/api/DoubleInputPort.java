@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Input port for the double tuples which receives them without boxing.
+ * <p>
+ * The operator implements {@link #process(double)}; the tuples which arrive boxed are unboxed before they are handed to
+ * it. The port does not take null tuples.
+ *
+ * @since 2.2.0
+ */
+public abstract class DoubleInputPort extends DefaultInputPort<Double> implements DoubleSink
+{
+  private int count;
+
+  /** {@inheritDoc} */
+  @Override
+  public void putDouble(double tuple)
+  {
+    count++;
+    process(tuple);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void process(Double tuple)
+  {
+    process(tuple.doubleValue());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return super.getCount(reset) + count;
+    }
+    finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  /**
+   * Process the double tuple.
+   *
+   * @param tuple payload to be processed by this port.
+   */
+  public abstract void process(double tuple);
+
+}
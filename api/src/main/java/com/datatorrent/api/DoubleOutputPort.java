@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Output port for the double tuples which emits them without boxing.
+ * <p>
+ * The tuples emitted with {@link #emit(double)} reach the {@link DoubleInputPort} downstream as primitives when the stream
+ * between them is CONTAINER_LOCAL or THREAD_LOCAL. They are boxed when the stream has to handle them as objects, for
+ * example to send them to another container.
+ *
+ * @since 2.2.0
+ */
+public class DoubleOutputPort extends DefaultOutputPort<Double>
+{
+  /**
+   * Emit the given double as a payload for downstream operators interested in this port.
+   *
+   * @param tuple payload which needs to be emitted.
+   */
+  public void emit(double tuple)
+  {
+    final Sink<Object> s = sink;
+    if (s instanceof DoubleSink) {
+      ((DoubleSink)s).putDouble(tuple);
+    }
+    else {
+      s.put(tuple);
+    }
+  }
+
+}
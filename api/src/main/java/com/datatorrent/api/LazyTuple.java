@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * Tuple received over the network which is deserialized only when it is accessed
+ * <p>
+ * Input ports which have {@link Context.PortContext#DESERIALIZE_LAZILY} set receive their tuples wrapped in LazyTuple
+ * instead of the deserialized objects. Operators which pass most of the tuples through without looking at them, such
+ * as unifiers, filters and routers, can emit the LazyTuple as it is. When it is emitted to a stream which uses a codec
+ * of the same class as the one it was received with, the serialized bytes are sent again untouched. Other streams
+ * deserialize it before delivering it further.
+ * <br />
+ * <br />
+ * The LazyTuple refers to the buffer it was received in. Operators which hold on to the tuples across windows should
+ * keep the deserialized objects instead.
+ *
+ * @since 2.2.0
+ */
+public final class LazyTuple
+{
+  private final StreamCodec<?> codec;
+  private final Slice slice;
+  private final int partition;
+  private Object object;
+  private boolean deserialized;
+
+  /**
+   * @param codec codec which serialized the tuple
+   * @param slice serialized form of the tuple
+   * @param partition partition the codec computed for the tuple when it was serialized
+   */
+  public LazyTuple(StreamCodec<?> codec, Slice slice, int partition)
+  {
+    this.codec = codec;
+    this.slice = slice;
+    this.partition = partition;
+  }
+
+  /**
+   * Deserialize the tuple the first time it is called.
+   *
+   * @return the tuple
+   */
+  public Object get()
+  {
+    if (!deserialized) {
+      object = codec.fromByteArray(slice);
+      deserialized = true;
+    }
+    return object;
+  }
+
+  /**
+   * @return true if the tuple has been deserialized already
+   */
+  public boolean isDeserialized()
+  {
+    return deserialized;
+  }
+
+  /**
+   * @return codec which serialized the tuple
+   */
+  public StreamCodec<?> getCodec()
+  {
+    return codec;
+  }
+
+  /**
+   * @return serialized form of the tuple
+   */
+  public Slice getSlice()
+  {
+    return slice;
+  }
+
+  /**
+   * The partition is available without deserializing the tuple.
+   *
+   * @return partition the codec computed for the tuple when it was serialized
+   */
+  public int getPartition()
+  {
+    return partition;
+  }
+
+  /**
+   * Unwraps the tuple if it is lazy.
+   *
+   * @param tuple tuple which may be a LazyTuple
+   * @return the deserialized tuple if the tuple is a LazyTuple, the tuple itself otherwise
+   */
+  public static Object unwrap(Object tuple)
+  {
+    return tuple instanceof LazyTuple ? ((LazyTuple)tuple).get() : tuple;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "LazyTuple{" + "partition=" + partition + ", slice=" + slice + ", deserialized=" + deserialized + '}';
+  }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Input port for the long tuples which receives them without boxing.
+ * <p>
+ * The operator implements {@link #process(long)}; the tuples which arrive boxed are unboxed before they are handed to
+ * it. The port does not take null tuples.
+ *
+ * @since 2.2.0
+ */
+public abstract class LongInputPort extends DefaultInputPort<Long> implements LongSink
+{
+  private int count;
+
+  /** {@inheritDoc} */
+  @Override
+  public void putLong(long tuple)
+  {
+    count++;
+    process(tuple);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public final void process(Long tuple)
+  {
+    process(tuple.longValue());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return super.getCount(reset) + count;
+    }
+    finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  /**
+   * Process the long tuple.
+   *
+   * @param tuple payload to be processed by this port.
+   */
+  public abstract void process(long tuple);
+
+}
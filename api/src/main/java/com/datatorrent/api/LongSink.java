@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.api;
+
+/**
+ * Sink which can process the long tuples without boxing them.
+ * <p>
+ * {@link LongOutputPort} hands its tuples to the sinks implementing this interface as primitives and boxes them only
+ * for the other sinks.
+ *
+ * @since 2.2.0
+ */
+public interface LongSink
+{
+  /**
+   * Process the long tuple.
+   *
+   * @param tuple payload to be processed by this sink.
+   */
+  public void putLong(long tuple);
+
+}
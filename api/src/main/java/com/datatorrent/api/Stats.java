@@ -40,6 +40,14 @@ public interface Stats extends Serializable
     public ArrayList<PortStats> inputPorts;
     public ArrayList<PortStats> outputPorts;
     public long cpuTimeUsed;
+    /**
+     * Nanoseconds the operator thread spent waiting for the tuples to arrive.
+     */
+    public long idleNanos;
+    /**
+     * Nanoseconds out of {@link #idleNanos} the operator thread spent spinning rather than yielding or parked.
+     */
+    public long spinNanos;
     /**
      * @deprecated use {@link #customMetrics}
      */
@@ -59,6 +67,10 @@ public interface Stats extends Serializable
       public int tupleCount;
       public long endWindowTimestamp;
       public long bufferServerBytes;
+      /**
+       * Nanoseconds the operator spent waiting for the buffer server to accept the data emitted on the port.
+       */
+      public long bufferServerBlockedNanos;
       public int queueSize;
       /**
        * If there is a recording on the port, this contains the recording id, otherwise null
@@ -73,7 +85,7 @@ public interface Stats extends Serializable
       @Override
       public String toString()
       {
-        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", queueSize = " + queueSize + ", endWindowTimestamp=" + endWindowTimestamp + '}';
+        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", bufferServerBlockedNanos = " + bufferServerBlockedNanos + ", queueSize = " + queueSize + ", endWindowTimestamp=" + endWindowTimestamp + '}';
       }
 
     }
@@ -81,7 +93,7 @@ public interface Stats extends Serializable
     @Override
     public String toString()
     {
-      return "OperatorStats{" + "windowId=" + windowId + ", checkpointedWindowId=" + checkpoint + ", inputPorts=" + inputPorts + ", outputPorts=" + outputPorts + ", cpuTimeUsed=" + cpuTimeUsed + '}';
+      return "OperatorStats{" + "windowId=" + windowId + ", checkpointedWindowId=" + checkpoint + ", inputPorts=" + inputPorts + ", outputPorts=" + outputPorts + ", cpuTimeUsed=" + cpuTimeUsed + ", idleNanos=" + idleNanos + ", spinNanos=" + spinNanos + '}';
     }
 
     private static final long serialVersionUID = 201309131905L;
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.VarInt;
+
+/**
+ * Appends windows of tuples to a DataList the way the server side publisher does and reads them back the way the
+ * logical nodes do, without the network.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataListBenchmark
+{
+  static final int BASE_SECONDS = 0x7afebabe;
+  static final int BLOCK_SIZE = 64 * 1024;
+  static final int TUPLES_PER_WINDOW = 100;
+  static final int WINDOWS = 1000;
+
+  @Param({"16", "256"})
+  public int payloadSize;
+  /* windows worth of framed tuples the way the publisher sends them */
+  byte[][] windows;
+  DataList dl;
+  byte[] block;
+  int offset;
+  int windowId;
+  /* a data list populated with WINDOWS windows to be iterated */
+  DataList populated;
+
+  static void frame(ByteArrayOutputStream bos, byte[] tuple)
+  {
+    byte[] length = new byte[5];
+    bos.write(length, 0, VarInt.write(tuple.length, length, 0));
+    bos.write(tuple, 0, tuple.length);
+  }
+
+  byte[] window(int windowId)
+  {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    frame(bos, BeginWindowTuple.getSerializedTuple(windowId));
+    for (int i = 0; i < TUPLES_PER_WINDOW; i++) {
+      frame(bos, PayloadTuple.getSerializedTuple(i, payloadSize));
+    }
+    frame(bos, EndWindowTuple.getSerializedTuple(windowId));
+    return bos.toByteArray();
+  }
+
+  static DataList newDataList()
+  {
+    DataList dl = new DataList("benchmark", BLOCK_SIZE, 8);
+    dl.setAutoflushExecutor(MoreExecutors.sameThreadExecutor());
+    dl.setBlockPool(new BlockPool(BLOCK_SIZE, 8));
+    return dl;
+  }
+
+  /**
+   * Append the bytes to the data list the way the server side publisher does; the bytes which do not fit in the
+   * current block are written partially and then copied in their entirety to a new block.
+   */
+  void publish(byte[] bytes)
+  {
+    if (offset + bytes.length <= block.length) {
+      System.arraycopy(bytes, 0, block, offset, bytes.length);
+      offset += bytes.length;
+    }
+    else {
+      int fits = block.length - offset;
+      System.arraycopy(bytes, 0, block, offset, fits);
+      dl.flush(block.length);
+      block = dl.newBuffer();
+      offset = bytes.length;
+      System.arraycopy(bytes, 0, block, 0, offset);
+      dl.addBuffer(block);
+    }
+    dl.flush(offset);
+  }
+
+  void reset(DataList dataList)
+  {
+    dl = dataList;
+    block = dl.getBuffer((long)BASE_SECONDS << 32);
+    offset = dl.getPosition();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    frame(bos, ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publish(bos.toByteArray());
+    windowId = 0;
+  }
+
+  @Setup
+  public void setup()
+  {
+    windows = new byte[WINDOWS][];
+    for (int i = 0; i < WINDOWS; i++) {
+      windows[i] = window(i);
+    }
+
+    reset(newDataList());
+    for (byte[] window : windows) {
+      publish(window);
+    }
+    populated = dl;
+  }
+
+  @Setup(Level.Iteration)
+  public void setupIteration()
+  {
+    reset(newDataList());
+  }
+
+  /**
+   * Flush a window the way it would arrive in a single read from the socket; the data list is started over after
+   * WINDOWS windows so that the memory it holds stays bounded.
+   */
+  @Benchmark
+  @OperationsPerInvocation(TUPLES_PER_WINDOW + 2)
+  public int flush()
+  {
+    if (windowId == WINDOWS) {
+      reset(newDataList());
+    }
+    publish(windows[windowId++]);
+    return offset;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS * (TUPLES_PER_WINDOW + 2))
+  public int iterate()
+  {
+    int length = 0;
+    Iterator<SerializedData> iterator = populated.newIterator("benchmark", 0);
+    while (iterator.hasNext()) {
+      length += iterator.next().length;
+    }
+    populated.delIterator(iterator);
+    return length;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(WINDOWS * (TUPLES_PER_WINDOW + 2))
+  public int iterateRuns()
+  {
+    int length = 0;
+    DataList.DataListIterator iterator = (DataList.DataListIterator)populated.newIterator("benchmark", 0);
+    while (iterator.hasNext()) {
+      length += iterator.nextRun(LogicalNode.MAX_RUN_LENGTH).length;
+    }
+    populated.delIterator(iterator);
+    return length;
+  }
+
+}
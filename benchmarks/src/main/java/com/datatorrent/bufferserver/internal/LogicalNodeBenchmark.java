@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+
+/**
+ * Filters the payloads by the partitions of a logical node the way the node does before sending them to the
+ * subscribers.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogicalNodeBenchmark
+{
+  static final int TUPLES = 1024;
+
+  /**
+   * Number of the partitions the logical node subscribes to.
+   */
+  @Param({"1", "8", "64"})
+  public int partitions;
+  /**
+   * Whether the union of the partition masks is too wide for the lookup table.
+   */
+  @Param({"false", "true"})
+  public boolean wide;
+  LogicalNode ln;
+  final byte[][] tuples = new byte[TUPLES][];
+
+  @Setup
+  public void setup()
+  {
+    DataList dl = new DataList("benchmark", 1024, 1);
+    ln = new LogicalNode("benchmark", "benchmark", dl.newIterator("benchmark", 0), 0);
+
+    /* the node subscribes to every other partition, so about half of the payloads match */
+    int mask = Integer.highestOneBit(partitions) * 2 - 1;
+    if (wide) {
+      mask |= LogicalNode.MAX_PARTITION_TABLE_SIZE;
+    }
+    for (int i = 0; i < partitions; i++) {
+      ln.addPartition(2 * i, mask);
+    }
+
+    Random random = new Random(42);
+    for (int i = 0; i < TUPLES; i++) {
+      tuples[i] = PayloadTuple.getSerializedTuple(random.nextInt(), 16);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TUPLES)
+  public int matches()
+  {
+    int count = 0;
+    for (byte[] tuple : tuples) {
+      if (ln.matches(tuple, 0)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
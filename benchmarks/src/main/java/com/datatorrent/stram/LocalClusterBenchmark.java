@@ -0,0 +1,420 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.InputOperator;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
+import com.datatorrent.common.util.BaseOperator;
+
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.logical.LogicalPlan.StreamMeta;
+import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
+import com.datatorrent.stram.plan.physical.PTOperator;
+
+/**
+ * Runs a synthetic application in StramLocalCluster and reports the sustained throughput, the bytes published on
+ * each stream and the percentiles of the window latency as a JSON document.
+ *
+ * The application consists of width independent pipelines, each made of a source emitting tuples of the given size
+ * at the target rate, depth relays passing the tuples through and a sink. The relays and the sinks are partitioned
+ * into the given number of partitions and all the streams have the given locality. The window latency is the time
+ * from the source beginning a window to a sink ending it, so it includes the width of the streaming window; the
+ * containers run in this JVM so they share the clock.
+ *
+ * <pre>
+ * mvn -Pbenchmarks package
+ * java -cp benchmarks/target/benchmarks.jar com.datatorrent.stram.LocalClusterBenchmark -width 2 -depth 3 -partitions 2 -rate 100000
+ * </pre>
+ *
+ * @since 2.2.0
+ */
+public class LocalClusterBenchmark
+{
+  /*
+   * The operators are deployed in the containers of the local cluster, which are threads of this JVM, so they
+   * report what they observe through the static fields.
+   */
+  static final ConcurrentHashMap<Long, Long> beginWindowNanos = new ConcurrentHashMap<Long, Long>();
+  static final AtomicLong sinkTuples = new AtomicLong();
+  static final List<Long> windowLatencyNanos = Collections.synchronizedList(new ArrayList<Long>());
+
+  public static class Payload
+  {
+    public long sequence;
+    public byte[] data;
+
+    @Override
+    public int hashCode()
+    {
+      return (int)(sequence ^ (sequence >>> 32));
+    }
+
+  }
+
+  /**
+   * Emits the tuples at the target rate, the tuples due while the source was held up are emitted in a burst of up to
+   * a tenth of a second worth of them and the rest of them are dropped.
+   */
+  public static class RateSource extends BaseOperator implements InputOperator
+  {
+    public final transient DefaultOutputPort<Payload> output = new DefaultOutputPort<Payload>();
+    /**
+     * tuples per second, 0 to emit as fast as possible.
+     */
+    private int rate;
+    private int tupleSize;
+    private transient byte[] data;
+    private transient long startNanos;
+    private transient long emitted;
+    private transient long sequence;
+
+    @Override
+    public void setup(OperatorContext context)
+    {
+      data = new byte[tupleSize];
+      startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void beginWindow(long windowId)
+    {
+      beginWindowNanos.putIfAbsent(windowId, System.nanoTime());
+    }
+
+    @Override
+    public void emitTuples()
+    {
+      int burst = Math.max(1000, rate / 10);
+      long due;
+      if (rate == 0) {
+        due = emitted + burst;
+      }
+      else {
+        due = (System.nanoTime() - startNanos) * rate / TimeUnit.SECONDS.toNanos(1);
+        if (due - emitted > burst) {
+          emitted = due - burst;
+        }
+      }
+
+      while (emitted < due) {
+        Payload payload = new Payload();
+        payload.sequence = sequence++;
+        payload.data = data;
+        output.emit(payload);
+        emitted++;
+      }
+    }
+
+    public int getRate()
+    {
+      return rate;
+    }
+
+    public void setRate(int rate)
+    {
+      this.rate = rate;
+    }
+
+    public int getTupleSize()
+    {
+      return tupleSize;
+    }
+
+    public void setTupleSize(int tupleSize)
+    {
+      this.tupleSize = tupleSize;
+    }
+
+  }
+
+  public static class Relay extends BaseOperator
+  {
+    public final transient DefaultOutputPort<Payload> output = new DefaultOutputPort<Payload>();
+    public final transient DefaultInputPort<Payload> input = new DefaultInputPort<Payload>()
+    {
+      @Override
+      public void process(Payload tuple)
+      {
+        output.emit(tuple);
+      }
+
+    };
+  }
+
+  public static class SinkOperator extends BaseOperator
+  {
+    private transient long windowId;
+    private transient long count;
+    public final transient DefaultInputPort<Payload> input = new DefaultInputPort<Payload>()
+    {
+      @Override
+      public void process(Payload tuple)
+      {
+        count++;
+      }
+
+    };
+
+    @Override
+    public void beginWindow(long windowId)
+    {
+      this.windowId = windowId;
+      count = 0;
+    }
+
+    @Override
+    public void endWindow()
+    {
+      sinkTuples.addAndGet(count);
+      Long begin = beginWindowNanos.get(windowId);
+      if (begin != null) {
+        windowLatencyNanos.add(System.nanoTime() - begin);
+      }
+    }
+
+  }
+
+  private int width = 1;
+  private int depth = 1;
+  private int partitions = 1;
+  private Locality locality;
+  private int tupleSize = 64;
+  private int rate;
+  private int containers = Integer.MAX_VALUE;
+  private int warmupSeconds = 10;
+  private int durationSeconds = 30;
+
+  public LogicalPlan createDAG()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, containers);
+    for (int w = 0; w < width; w++) {
+      RateSource source = dag.addOperator("source" + w, RateSource.class);
+      source.setRate(rate);
+      source.setTupleSize(tupleSize);
+
+      DefaultOutputPort<Payload> upstream = source.output;
+      for (int d = 0; d < depth; d++) {
+        Relay relay = dag.addOperator("relay" + w + "_" + d, Relay.class);
+        partition(dag, relay);
+        dag.addStream("stream" + w + "_" + d, upstream, relay.input).setLocality(locality);
+        upstream = relay.output;
+      }
+
+      SinkOperator sink = dag.addOperator("sink" + w, SinkOperator.class);
+      partition(dag, sink);
+      dag.addStream("stream" + w + "_" + depth, upstream, sink.input).setLocality(locality);
+    }
+    return dag;
+  }
+
+  private void partition(LogicalPlan dag, BaseOperator operator)
+  {
+    if (partitions > 1) {
+      dag.setAttribute(operator, OperatorContext.PARTITIONER, new StatelessPartitioner<BaseOperator>(partitions));
+    }
+  }
+
+  /**
+   * Bytes published to the buffer server so far on each of the streams, in the order of the streams in the DAG.
+   */
+  private static long[] getStreamBytes(LogicalPlan dag, StramLocalCluster cluster)
+  {
+    long[] bytes = new long[dag.getAllStreams().size()];
+    int i = 0;
+    for (StreamMeta stream : dag.getAllStreams()) {
+      LogicalPlan.OutputPortMeta source = stream.getSource();
+      for (PTOperator operator : cluster.getStreamingContainerManager().getPhysicalPlan().getAllOperators(source.getOperatorMeta())) {
+        PortStatus ps = operator.stats.outputPortStatusList.get(source.getPortName());
+        if (ps != null) {
+          bytes[i] += ps.totalBufferServerBytes;
+        }
+      }
+      i++;
+    }
+    return bytes;
+  }
+
+  private static long percentile(List<Long> sorted, double percentile)
+  {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    int index = (int)Math.ceil(percentile / 100 * sorted.size()) - 1;
+    return sorted.get(Math.max(index, 0));
+  }
+
+  private static double millis(long nanos)
+  {
+    return nanos / 1e6;
+  }
+
+  public JSONObject run() throws Exception
+  {
+    LogicalPlan dag = createDAG();
+    StramLocalCluster cluster = new StramLocalCluster(dag);
+    Thread master = new Thread(cluster, "master");
+    master.start();
+
+    try {
+      Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+      long[] startBytes = getStreamBytes(dag, cluster);
+      sinkTuples.set(0);
+      windowLatencyNanos.clear();
+      long startNanos = System.nanoTime();
+
+      Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+      long tuples = sinkTuples.get();
+      List<Long> latencies;
+      synchronized (windowLatencyNanos) {
+        latencies = new ArrayList<Long>(windowLatencyNanos);
+      }
+      long[] endBytes = getStreamBytes(dag, cluster);
+      double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+      JSONObject result = new JSONObject();
+      result.put("width", width);
+      result.put("depth", depth);
+      result.put("partitions", partitions);
+      result.put("locality", locality == null ? "NONE" : locality.name());
+      result.put("tupleSize", tupleSize);
+      result.put("streamingWindowMillis", dag.getValue(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS));
+      result.put("targetRate", (long)rate * width);
+      result.put("seconds", seconds);
+      result.put("tuples", tuples);
+      result.put("tuplesPerSecond", tuples / seconds);
+
+      JSONArray streams = new JSONArray();
+      int i = 0;
+      for (StreamMeta stream : dag.getAllStreams()) {
+        long bytes = endBytes[i] - startBytes[i];
+        i++;
+        JSONObject json = new JSONObject();
+        json.put("name", stream.getName());
+        json.put("bytes", bytes);
+        json.put("bytesPerSecond", bytes / seconds);
+        streams.put(json);
+      }
+      result.put("streams", streams);
+
+      Collections.sort(latencies);
+      JSONObject latency = new JSONObject();
+      latency.put("windows", latencies.size());
+      latency.put("p50", millis(percentile(latencies, 50)));
+      latency.put("p90", millis(percentile(latencies, 90)));
+      latency.put("p99", millis(percentile(latencies, 99)));
+      latency.put("max", millis(percentile(latencies, 100)));
+      result.put("windowLatencyMillis", latency);
+      return result;
+    }
+    finally {
+      cluster.shutdown();
+      master.join();
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    Options options = new Options();
+    options.addOption("width", true, "number of independent pipelines, default 1");
+    options.addOption("depth", true, "number of relays in each pipeline, default 1");
+    options.addOption("partitions", true, "number of partitions of each relay and sink, default 1");
+    options.addOption("locality", true, "locality of the streams, one of " + Arrays.toString(Locality.values()) + ", default none");
+    options.addOption("tupleSize", true, "number of bytes carried by each tuple, default 64");
+    options.addOption("rate", true, "tuples per second emitted by each source, default 0 for as fast as possible");
+    options.addOption("containers", true, "maximum number of containers, default one per operator");
+    options.addOption("warmup", true, "seconds to run before measuring, default 10");
+    options.addOption("duration", true, "seconds to measure for, default 30");
+    options.addOption("output", true, "file to write the results to, default standard output");
+    options.addOption("help", false, "print usage");
+
+    CommandLine line;
+    try {
+      line = new GnuParser().parse(options, args);
+    }
+    catch (ParseException ex) {
+      System.err.println(ex.getMessage());
+      new HelpFormatter().printHelp(LocalClusterBenchmark.class.getSimpleName(), options);
+      System.exit(1);
+      return;
+    }
+    if (line.hasOption("help")) {
+      new HelpFormatter().printHelp(LocalClusterBenchmark.class.getSimpleName(), options);
+      return;
+    }
+
+    LocalClusterBenchmark benchmark = new LocalClusterBenchmark();
+    benchmark.width = Integer.parseInt(line.getOptionValue("width", "1"));
+    benchmark.depth = Integer.parseInt(line.getOptionValue("depth", "1"));
+    benchmark.partitions = Integer.parseInt(line.getOptionValue("partitions", "1"));
+    if (line.hasOption("locality")) {
+      benchmark.locality = Locality.valueOf(line.getOptionValue("locality"));
+    }
+    benchmark.tupleSize = Integer.parseInt(line.getOptionValue("tupleSize", "64"));
+    benchmark.rate = Integer.parseInt(line.getOptionValue("rate", "0"));
+    benchmark.containers = Integer.parseInt(line.getOptionValue("containers", String.valueOf(Integer.MAX_VALUE)));
+    benchmark.warmupSeconds = Integer.parseInt(line.getOptionValue("warmup", "10"));
+    benchmark.durationSeconds = Integer.parseInt(line.getOptionValue("duration", "30"));
+
+    JSONObject result = benchmark.run();
+    write(result, line.getOptionValue("output"));
+    /* the event loop and the buffer server of the local cluster are not daemons */
+    System.exit(0);
+  }
+
+  private static void write(JSONObject result, String file) throws IOException, JSONException
+  {
+    byte[] bytes = (result.toString(2) + '\n').getBytes("UTF-8");
+    if (file == null) {
+      System.out.write(bytes);
+      System.out.flush();
+    }
+    else {
+      OutputStream os = new FileOutputStream(file);
+      try {
+        os.write(bytes);
+      }
+      finally {
+        os.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datatorrent.common.codec.JsonStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+
+/**
+ * Serializes and deserializes a flat record with the codecs available to the streams.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamCodecBenchmark
+{
+  public static class Record
+  {
+    public long timestamp;
+    public int id;
+    public double value;
+    public boolean valid;
+    public String name;
+
+    @Override
+    public int hashCode()
+    {
+      return id;
+    }
+
+  }
+
+  Record record;
+  DefaultStatefulStreamCodec<Record> kryoCoder;
+  DefaultStatefulStreamCodec<Record> kryoDecoder;
+  DataStatePair kryoPair;
+  ByteBuffer buffer;
+  JsonStreamCodec<Record> json;
+  Slice jsonSlice;
+  PojoStreamCodec<Record> pojo;
+  Slice pojoSlice;
+
+  @Setup
+  public void setup()
+  {
+    record = new Record();
+    record.timestamp = System.currentTimeMillis();
+    record.id = 42;
+    record.value = Math.PI;
+    record.valid = true;
+    record.name = "benchmark record";
+
+    kryoCoder = new DefaultStatefulStreamCodec<Record>();
+    kryoDecoder = new DefaultStatefulStreamCodec<Record>();
+    DataStatePair dsp = kryoCoder.toDataStatePair(record);
+    kryoDecoder.fromDataStatePair(dsp);
+    kryoPair = kryoCoder.toDataStatePair(record);
+    buffer = ByteBuffer.allocate(64 * 1024);
+
+    json = new JsonStreamCodec<Record>();
+    jsonSlice = json.toByteArray(record);
+
+    pojo = new PojoStreamCodec<Record>(Record.class);
+    pojoSlice = pojo.toByteArray(record);
+  }
+
+  @Benchmark
+  public DataStatePair kryoSerialize()
+  {
+    return kryoCoder.toDataStatePair(record);
+  }
+
+  @Benchmark
+  public int kryoWriteTo()
+  {
+    if (buffer.remaining() < 1024) {
+      buffer.clear();
+    }
+    kryoCoder.writeTo(record, buffer);
+    return buffer.position();
+  }
+
+  @Benchmark
+  public Object kryoDeserialize()
+  {
+    DataStatePair dsp = new DataStatePair();
+    dsp.data = kryoPair.data;
+    return kryoDecoder.fromDataStatePair(dsp);
+  }
+
+  @Benchmark
+  public Slice jsonSerialize()
+  {
+    return json.toByteArray(record);
+  }
+
+  @Benchmark
+  public Object jsonDeserialize()
+  {
+    return json.fromByteArray(jsonSlice);
+  }
+
+  @Benchmark
+  public Slice pojoSerialize()
+  {
+    return pojo.toByteArray(record);
+  }
+
+  @Benchmark
+  public int pojoWriteTo()
+  {
+    if (buffer.remaining() < 1024) {
+      buffer.clear();
+    }
+    pojo.writeTo(record, buffer);
+    return buffer.position();
+  }
+
+  @Benchmark
+  public Object pojoDeserialize()
+  {
+    return pojo.fromByteArray(pojoSlice);
+  }
+
+}
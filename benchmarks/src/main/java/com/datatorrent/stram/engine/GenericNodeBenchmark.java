@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
+import com.datatorrent.api.*;
+import com.datatorrent.api.annotation.InputPortFieldAnnotation;
+import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
+import com.datatorrent.common.util.BaseOperator;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.stram.tuple.EndStreamTuple;
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Feeds windows of tuples to a GenericNode through one or more input ports and waits for the node to end the window.
+ *
+ * This covers the sweep over the reservoirs as well as the synchronization of the control tuples across the ports.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenericNodeBenchmark
+{
+  static final int WINDOW_SIZE = 1000;
+
+  public static class SumOperator extends BaseOperator
+  {
+    long sum;
+
+    class Input extends DefaultInputPort<Integer>
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        sum += tuple;
+      }
+
+    }
+
+    public final transient Input ip1 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip2 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip3 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip4 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip5 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip6 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip7 = new Input();
+    @InputPortFieldAnnotation(optional = true)
+    public final transient Input ip8 = new Input();
+    @OutputPortFieldAnnotation(optional = true)
+    public final transient DefaultOutputPort<Long> op = new DefaultOutputPort<Long>();
+  }
+
+  /**
+   * Remembers the last window ended by the node so that the benchmark thread can wait for it.
+   */
+  static class EndWindowSink implements Sink<Object>
+  {
+    volatile long endWindowId;
+
+    @Override
+    public void put(Object tuple)
+    {
+      if (tuple instanceof Tuple && ((Tuple)tuple).getType() == MessageType.END_WINDOW) {
+        endWindowId = ((Tuple)tuple).getWindowId();
+      }
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return 0;
+    }
+
+  }
+
+  @Param({"1", "2", "4", "8"})
+  public int inputs;
+  GenericNode node;
+  DefaultReservoir[] reservoirs;
+  EndWindowSink sink;
+  Thread thread;
+  long windowId;
+
+  @Setup
+  public void setup()
+  {
+    node = new GenericNode(new SumOperator(), new com.datatorrent.stram.engine.OperatorContext(0, new DefaultAttributeMap(), null));
+    node.setId(1);
+    reservoirs = new DefaultReservoir[inputs];
+    for (int i = 0; i < inputs; i++) {
+      reservoirs[i] = new DefaultReservoir("ip" + (i + 1), 4 * 1024);
+      node.connectInputPort("ip" + (i + 1), reservoirs[i]);
+    }
+    sink = new EndWindowSink();
+    node.connectOutputPort("op", sink);
+
+    thread = new Thread("benchmark-node")
+    {
+      @Override
+      public void run()
+      {
+        node.activate();
+        node.run();
+        node.deactivate();
+      }
+
+    };
+    thread.start();
+  }
+
+  @TearDown
+  public void teardown() throws InterruptedException
+  {
+    for (DefaultReservoir reservoir : reservoirs) {
+      reservoir.put(new EndStreamTuple(windowId));
+    }
+    thread.join(1000);
+    if (thread.isAlive()) {
+      node.shutdown();
+      thread.join();
+    }
+  }
+
+  /**
+   * Sends a window worth of tuples split across the input ports and waits until the node has processed all of them.
+   */
+  @Benchmark
+  @OperationsPerInvocation(WINDOW_SIZE)
+  public long window() throws InterruptedException
+  {
+    windowId++;
+    Tuple beginWindow = new Tuple(MessageType.BEGIN_WINDOW, windowId);
+    for (DefaultReservoir reservoir : reservoirs) {
+      reservoir.put(beginWindow);
+    }
+    for (int i = 0; i < WINDOW_SIZE; i++) {
+      reservoirs[i % inputs].put(i);
+    }
+    Tuple endWindow = new EndWindowTuple(windowId);
+    for (DefaultReservoir reservoir : reservoirs) {
+      reservoir.put(endWindow);
+    }
+
+    while (sink.endWindowId != windowId) {
+      Thread.yield();
+    }
+    return windowId;
+  }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datatorrent.api.Context.PortContext.QueueType;
+import com.datatorrent.api.Sink;
+
+import com.datatorrent.stram.stream.InlineRingStream;
+import com.datatorrent.stram.stream.InlineStream;
+
+/**
+ * Puts the tuples in the reservoirs the operators read from and sweeps them into a sink.
+ *
+ * The single threaded benchmarks measure the cost of the buffer operations, the grouped ones measure the hand off
+ * between the upstream operator thread and the downstream one.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservoirBenchmark
+{
+  static final int BATCH = 1024;
+
+  /**
+   * Keeps the last tuple so that the tuples put in the sink are not optimized away.
+   */
+  static class CountingSink implements Sink<Object>
+  {
+    Object last;
+    int count;
+
+    @Override
+    public void put(Object tuple)
+    {
+      last = tuple;
+      count++;
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return count;
+    }
+
+  }
+
+  @State(Scope.Thread)
+  public static class Local
+  {
+    @Param({"1024", "65536"})
+    public int capacity;
+    DefaultReservoir reservoir;
+    InlineStream stream;
+    InlineRingStream ringStream;
+    final Object[] tuples = new Object[BATCH];
+
+    @Setup
+    public void setup()
+    {
+      reservoir = new DefaultReservoir("benchmark", capacity);
+      reservoir.setSink(new CountingSink());
+      stream = new InlineStream(capacity);
+      stream.setSink(new CountingSink());
+      ringStream = new InlineRingStream(RingReservoir.newRing(QueueType.SPSC_RING, capacity));
+      ringStream.setSink(new CountingSink());
+      for (int i = 0; i < BATCH; i++) {
+        tuples[i] = i;
+      }
+    }
+
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object reservoirPutSweep(Local state)
+  {
+    for (Object tuple : state.tuples) {
+      state.reservoir.add(tuple);
+    }
+    return state.reservoir.sweep();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object inlineStreamPutSweep(Local state)
+  {
+    for (Object tuple : state.tuples) {
+      state.stream.put(tuple);
+    }
+    return state.stream.sweep();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object ringStreamPutSweep(Local state)
+  {
+    for (Object tuple : state.tuples) {
+      state.ringStream.put(tuple);
+    }
+    return state.ringStream.sweep();
+  }
+
+  @State(Scope.Group)
+  public static class Shared
+  {
+    @Param({"1024", "65536"})
+    public int capacity;
+    InlineStream stream;
+    InlineRingStream ringStream;
+    final Integer tuple = 42;
+
+    @Setup
+    public void setup()
+    {
+      stream = new InlineStream(capacity);
+      stream.setSink(new CountingSink());
+      ringStream = new InlineRingStream(RingReservoir.newRing(QueueType.SPSC_RING, capacity));
+      ringStream.setSink(new CountingSink());
+    }
+
+  }
+
+  /**
+   * The producer does not block on a full stream so that it never outlives the consumer at the end of the iteration.
+   */
+  @Benchmark
+  @Group("handoff")
+  public boolean produce(Shared state)
+  {
+    return state.stream.offer(state.tuple);
+  }
+
+  @Benchmark
+  @Group("handoff")
+  public Object consume(Shared state)
+  {
+    return state.stream.sweep();
+  }
+
+  @Benchmark
+  @Group("ringHandoff")
+  public boolean produceRing(Shared state)
+  {
+    return state.ringStream.offer(state.tuple);
+  }
+
+  @Benchmark
+  @Group("ringHandoff")
+  public Object consumeRing(Shared state)
+  {
+    return state.ringStream.sweep();
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Serializes the tuples into the batch buffers of BufferServerPublisher without sending them anywhere.
+ *
+ * @since 2.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BufferServerPublisherBenchmark
+{
+  static final int WINDOW_SIZE = 1000;
+
+  /**
+   * Counts the bytes published instead of handing them over to the event loop, so the batch buffers are always free
+   * to be reused.
+   */
+  static class DisconnectedPublisher extends BufferServerPublisher
+  {
+    long publishedBytes;
+
+    DisconnectedPublisher()
+    {
+      super("benchmark", 1024);
+    }
+
+    @Override
+    public void publish(byte[] buffer, int offset, int length)
+    {
+      publishedBytes += length;
+    }
+
+  }
+
+  public static class Record
+  {
+    public long timestamp;
+    public int id;
+    public String name;
+
+    @Override
+    public int hashCode()
+    {
+      return id;
+    }
+
+  }
+
+  /**
+   * Size of the byte array published, 0 to publish a record instead.
+   */
+  @Param({"0", "64", "1024"})
+  public int payloadSize;
+  DisconnectedPublisher publisher;
+  Object tuple;
+  long windowId;
+
+  @Setup
+  public void setup()
+  {
+    publisher = new DisconnectedPublisher();
+    publisher.setup(new StreamContext("benchmark"));
+
+    if (payloadSize == 0) {
+      Record record = new Record();
+      record.timestamp = System.currentTimeMillis();
+      record.id = 42;
+      record.name = "benchmark record";
+      tuple = record;
+    }
+    else {
+      tuple = new byte[payloadSize];
+    }
+  }
+
+  /**
+   * Publishes a window worth of tuples framed by the control tuples.
+   */
+  @Benchmark
+  @OperationsPerInvocation(WINDOW_SIZE)
+  public long window()
+  {
+    windowId++;
+    publisher.put(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+    for (int i = 0; i < WINDOW_SIZE; i++) {
+      publisher.put(tuple);
+    }
+    publisher.put(new EndWindowTuple(windowId));
+    return publisher.publishedBytes;
+  }
+
+}
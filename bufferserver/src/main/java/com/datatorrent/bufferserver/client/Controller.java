@@ -21,7 +21,9 @@ import org.slf4j.LoggerFactory;
 import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.packet.PurgeRequestTuple;
 import com.datatorrent.bufferserver.packet.ResetRequestTuple;
+import com.datatorrent.bufferserver.packet.StatsRequestTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.util.BufferServerStats;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 import com.datatorrent.netlet.util.Slice;
@@ -34,6 +36,10 @@ import com.datatorrent.netlet.util.Slice;
 public abstract class Controller extends AbstractLengthPrependerClient
 {
   String id;
+  /**
+   * type of the last request sent, the server replies to each request and then disconnects.
+   */
+  private volatile MessageType request;
 
   public Controller(String id)
   {
@@ -43,27 +49,57 @@ public abstract class Controller extends AbstractLengthPrependerClient
 
   public void purge(String version, String sourceId, long windowId)
   {
+    request = MessageType.PURGE_REQUEST;
     write(PurgeRequestTuple.getSerializedRequest(version, sourceId, windowId));
     logger.debug("Sent purge request sourceId = {}, windowId = {}", sourceId, Codec.getStringWindowId(windowId));
   }
 
   public void reset(String version, String sourceId, long windowId)
   {
+    request = MessageType.RESET_REQUEST;
     write(ResetRequestTuple.getSerializedRequest(version, sourceId, windowId));
     logger.debug("Sent reset request sourceId = {}, windowId = {}", sourceId, Codec.getStringWindowId(windowId));
   }
 
+  /**
+   * Request the stats of the buffer server, they are received by {@link #onStats(BufferServerStats)}.
+   *
+   * @param version version of the protocol
+   * @param sourceId identifier of the publisher to get the stats of the data list for, null for all the data lists
+   */
+  public void stats(String version, String sourceId)
+  {
+    request = MessageType.STATS_REQUEST;
+    write(StatsRequestTuple.getSerializedRequest(version, sourceId));
+    logger.debug("Sent stats request sourceId = {}", sourceId);
+  }
+
   @Override
   public void onMessage(byte[] buffer, int offset, int size)
   {
     Tuple t = Tuple.getTuple(buffer, offset, size);
     assert (t.getType() == MessageType.PAYLOAD);
     Slice f = t.getData();
-    onMessage(new String(f.buffer, f.offset, f.length));
+    if (request == MessageType.STATS_REQUEST) {
+      onStats(BufferServerStats.fromByteArray(f.buffer, f.offset, f.length));
+    }
+    else {
+      onMessage(new String(f.buffer, f.offset, f.length));
+    }
   }
 
   public abstract void onMessage(String message);
 
+  /**
+   * Receive the stats requested from the buffer server, by default as a message.
+   *
+   * @param stats stats of the buffer server
+   */
+  public void onStats(BufferServerStats stats)
+  {
+    onMessage(stats.toString());
+  }
+
   @Override
   public String toString()
   {
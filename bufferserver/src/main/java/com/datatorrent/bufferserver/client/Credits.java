@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.client;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bytes a publisher may send to the buffer server<p>
+ * <br>
+ * The server grants a publisher which requests flow control a window of bytes with the publish request and replenishes
+ * it with credit messages as it stores the data received. The thread publishing the data takes the bytes it sends and
+ * parks when the credits run out. The thread receiving the credit messages unparks it, so the publisher resumes as
+ * soon as the server is ready instead of after sleeping for a fixed period. The time spent parked is accumulated.
+ * <br>
+ * The credits are taken by a single thread and granted by another one. When the connection goes away the thread
+ * receiving the credits fails them, and the publishing thread waiting for the credits or for the send buffer gets the
+ * error instead of waiting forever.
+ *
+ * @since 2.2.0
+ */
+public class Credits
+{
+  /**
+   * upper bound on a single park, so a publisher whose connection went away does not park forever.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private final AtomicLong available = new AtomicLong();
+  private final AtomicLong blockedNanos = new AtomicLong();
+  private volatile Thread waiter;
+  private volatile Throwable failure;
+  private final Condition creditsAvailable = new Condition()
+  {
+    @Override
+    public boolean isMet()
+    {
+      return available.get() > 0;
+    }
+
+  };
+
+  public void grant(long bytes)
+  {
+    available.addAndGet(bytes);
+    signal();
+  }
+
+  public void take(long bytes)
+  {
+    available.addAndGet(-bytes);
+  }
+
+  public long getAvailable()
+  {
+    return available.get();
+  }
+
+  /**
+   * Condition the publishing thread waits for.
+   */
+  public interface Condition
+  {
+    /**
+     * Checked once before the thread parks and again after each time it is unparked, so it may also be an attempt
+     * which is retried until it succeeds.
+     *
+     * @return true if the thread should stop waiting
+     */
+    boolean isMet();
+
+  }
+
+  /**
+   * Park the calling thread until there are credits available.
+   */
+  public void await()
+  {
+    if (available.get() <= 0) {
+      await(creditsAvailable);
+    }
+  }
+
+  /**
+   * Park the calling thread until the condition is met, for anything the thread receiving the credits makes progress
+   * on. The thread is registered to be unparked by the next signal before the condition is checked, so a signal which
+   * makes it true is not missed. When called on a thread of a {@link ForkJoinPool} the wait is managed by the pool,
+   * which lets it run the other tasks on a spare thread meanwhile.
+   *
+   * @param condition condition to wait for
+   * @throws RuntimeException if the credits failed or the thread was interrupted while waiting
+   */
+  public void await(Condition condition)
+  {
+    await(condition, MAX_PARK_NANOS);
+  }
+
+  /**
+   * Park the calling thread until the condition is met, checking it at least every parkNanos, for a condition nothing
+   * signals when it becomes true.
+   *
+   * @param condition condition to wait for
+   * @param parkNanos upper bound on a single park
+   * @throws RuntimeException if the credits failed or the thread was interrupted while waiting
+   * @see #await(Condition)
+   */
+  public void await(Condition condition, long parkNanos)
+  {
+    long start = startWaiting();
+    try {
+      if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+        ForkJoinPool.managedBlock(new ConditionBlocker(condition, parkNanos));
+      }
+      else {
+        while (!condition.isMet()) {
+          park(parkNanos);
+        }
+      }
+    }
+    catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    }
+    finally {
+      stopWaiting(start);
+    }
+  }
+
+  private long startWaiting()
+  {
+    waiter = Thread.currentThread();
+    return System.nanoTime();
+  }
+
+  /**
+   * Park the calling thread until it is signaled or for the given time at most.
+   *
+   * @throws RuntimeException if the credits failed, before or while parking
+   */
+  private void park(long nanos)
+  {
+    checkFailure();
+    LockSupport.parkNanos(this, nanos);
+    if (Thread.interrupted()) {
+      throw new RuntimeException(new InterruptedException());
+    }
+    checkFailure();
+  }
+
+  private void checkFailure()
+  {
+    Throwable cause = failure;
+    if (cause != null) {
+      throw new RuntimeException("Connection to the buffer server is gone", cause);
+    }
+  }
+
+  /**
+   * Fail the current and the future waits for the credits since the server will not grant any more.
+   *
+   * @param cause the reason the connection went away
+   */
+  public void fail(Throwable cause)
+  {
+    failure = cause;
+    signal();
+  }
+
+  /**
+   * Let the publishing thread wait for the credits again once the connection is reestablished.
+   */
+  public void clearFailure()
+  {
+    failure = null;
+  }
+
+  private void stopWaiting(long start)
+  {
+    waiter = null;
+    blockedNanos.addAndGet(System.nanoTime() - start);
+  }
+
+  /**
+   * Unpark the thread waiting for the credits if any.
+   */
+  public void signal()
+  {
+    Thread thread = waiter;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  /**
+   * @param reset whether to start accumulating from 0 again
+   * @return nanoseconds the publishing thread spent parked
+   */
+  public long getBlockedNanos(boolean reset)
+  {
+    return reset ? blockedNanos.getAndSet(0) : blockedNanos.get();
+  }
+
+  private class ConditionBlocker implements ForkJoinPool.ManagedBlocker
+  {
+    private final Condition condition;
+    private final long parkNanos;
+
+    ConditionBlocker(Condition condition, long parkNanos)
+    {
+      this.condition = condition;
+      this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException
+    {
+      park(parkNanos);
+      return condition.isMet();
+    }
+
+    @Override
+    public boolean isReleasable()
+    {
+      return condition.isMet();
+    }
+
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Credits{" + "available=" + available + ", blockedNanos=" + blockedNanos + '}';
+  }
+
+}
@@ -15,12 +15,19 @@
  */
 package com.datatorrent.bufferserver.client;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.packet.CreditTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.packet.PublishRequestTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
+import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.util.VarInt;
 
 /**
  * <p>Abstract Publisher class.</p>
@@ -29,7 +36,17 @@ import com.datatorrent.netlet.AbstractLengthPrependerClient;
  */
 public abstract class Publisher extends AbstractLengthPrependerClient
 {
+  /**
+   * default number of the bytes a publisher sends ahead of the server granting it more.
+   */
+  public static final int DEFAULT_CREDIT_WINDOW = 1024 * 1024;
+  /**
+   * upper bound on a single park while the send buffer is full, the event loop does not signal as it drains the buffer.
+   */
+  private static final long SEND_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
   private final String id;
+  private final int creditWindow;
+  protected final Credits credits = new Credits();
 
   public Publisher(String id)
   {
@@ -37,9 +54,21 @@ public abstract class Publisher extends AbstractLengthPrependerClient
   }
 
   public Publisher(String id, int sendBufferCapacity)
+  {
+    this(id, sendBufferCapacity, 0);
+  }
+
+  /**
+   * @param id identifier of the publisher
+   * @param sendBufferCapacity capacity of the send buffer
+   * @param creditWindow number of the bytes the publisher may send before waiting for the server to grant it more, 0 to
+   * publish without the flow control.
+   */
+  public Publisher(String id, int sendBufferCapacity, int creditWindow)
   {
     super(1024, sendBufferCapacity);
     this.id = id;
+    this.creditWindow = creditWindow;
   }
 
   /**
@@ -48,7 +77,120 @@ public abstract class Publisher extends AbstractLengthPrependerClient
    */
   public void activate(String version, long windowId)
   {
-    write(PublishRequestTuple.getSerializedRequest(version, id, windowId));
+    if (creditWindow > 0) {
+      credits.grant(creditWindow);
+      write(PublishRequestTuple.getSerializedRequest(version, id, windowId, creditWindow));
+    }
+    else {
+      write(PublishRequestTuple.getSerializedRequest(version, id, windowId));
+    }
+  }
+
+  /**
+   * Send the message to the server taking the credits for it. When the credits ran out the calling thread is parked
+   * until the server grants more, and when the send buffer is full until the server receives some of the data. The
+   * wait fails with a RuntimeException if the connection goes away meanwhile.
+   *
+   * @param message serialized tuple
+   */
+  public void publish(final byte[] message)
+  {
+    if (creditWindow > 0) {
+      credits.await();
+      credits.take(message.length + VarInt.getSize(message.length));
+    }
+
+    if (!write(message)) {
+      credits.await(new Credits.Condition()
+      {
+        @Override
+        public boolean isMet()
+        {
+          return write(message);
+        }
+
+      }, SEND_BUFFER_PARK_NANOS);
+    }
+  }
+
+  /**
+   * Send the messages already prepended with their lengths, taking the credits for them the same way as
+   * {@link #publish(byte[])} does. The client holds on to the buffer rather than copying it, so the bytes published
+   * should not be modified until {@link #isSendQueueEmpty()} tells that they were handed over to the socket.
+   *
+   * @param buffer buffer containing the framed messages
+   * @param offset offset of the first message in the buffer
+   * @param length number of the bytes the messages occupy
+   */
+  public void publish(final byte[] buffer, final int offset, final int length)
+  {
+    if (creditWindow > 0) {
+      credits.await();
+      credits.take(length);
+    }
+
+    if (!send(buffer, offset, length)) {
+      credits.await(new Credits.Condition()
+      {
+        @Override
+        public boolean isMet()
+        {
+          return send(buffer, offset, length);
+        }
+
+      }, SEND_BUFFER_PARK_NANOS);
+    }
+  }
+
+  /**
+   * @return true if all the data sent so far has been copied out of the buffers it was sent from.
+   */
+  public boolean isSendQueueEmpty()
+  {
+    synchronized (bufferOfBuffers) {
+      return sendBuffer4Offers == sendBuffer4Polls && sendBuffer4Polls.isEmpty();
+    }
+  }
+
+  @Override
+  public void connected()
+  {
+    credits.clearFailure();
+    super.connected();
+  }
+
+  @Override
+  public void disconnected()
+  {
+    credits.fail(new IOException("Publisher " + this + " disconnected"));
+    super.disconnected();
+  }
+
+  @Override
+  public void handleException(Exception cce, EventLoop el)
+  {
+    credits.fail(cce);
+    super.handleException(cce, el);
+  }
+
+  @Override
+  public void onMessage(byte[] buffer, int offset, int size)
+  {
+    if (buffer[offset] == MessageType.CREDIT_VALUE) {
+      credits.grant(new CreditTuple(buffer, offset, size).getCredit());
+    }
+    else {
+      throw new RuntimeException("Publisher " + this + " is not supposed to receive " + Tuple.getTuple(buffer, offset, size));
+    }
+  }
+
+  /**
+   * @param reset whether to start accumulating from 0 again
+   * @return nanoseconds the publishing thread spent waiting for the server
+   */
+  public long getBlockedNanos(boolean reset)
+  {
+    return credits.getBlockedNanos(reset);
   }
 
   @Override
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of the byte arrays backing the blocks of the data lists.<p>
+ * <br>
+ * The blocks are large (64MB by default) so instead of leaving the purged and the spooled blocks to the
+ * garbage collector, they are recycled here and handed out again when a publisher fills its current block.
+ * Only the arrays of the size the pool was created for are retained and at most capacity of them are kept.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class BlockPool
+{
+  private final int blockSize;
+  private final ArrayBlockingQueue<byte[]> blocks;
+
+  public BlockPool(int blockSize, int capacity)
+  {
+    this.blockSize = blockSize;
+    this.blocks = new ArrayBlockingQueue<byte[]>(capacity);
+  }
+
+  public int getBlockSize()
+  {
+    return blockSize;
+  }
+
+  /**
+   * Get an array of blockSize bytes, either a recycled one or a freshly allocated one.
+   * The contents of a recycled array are not cleared.
+   *
+   * @return array of blockSize bytes
+   */
+  public byte[] acquire()
+  {
+    byte[] block = blocks.poll();
+    return block == null ? new byte[blockSize] : block;
+  }
+
+  /**
+   * Return the array to the pool. The caller must guarantee that the array is not referenced anymore.
+   *
+   * @param block array to be recycled
+   * @return true if the array was retained by the pool, false otherwise.
+   */
+  public boolean release(byte[] block)
+  {
+    return block.length == blockSize && blocks.offer(block);
+  }
+
+  public int size()
+  {
+    return blocks.size();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "BlockPool{" + "blockSize=" + blockSize + ", size=" + blocks.size() + '}';
+  }
+
+}
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +30,7 @@ import com.datatorrent.bufferserver.packet.ResetWindowTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.storage.Storage;
 import com.datatorrent.bufferserver.util.BitVector;
+import com.datatorrent.bufferserver.util.BufferServerStats;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.bufferserver.util.SerializedData;
 import com.datatorrent.bufferserver.util.VarInt;
@@ -52,6 +54,11 @@ public class DataList
   protected Storage storage;
   protected ExecutorService autoflushExecutor;
   protected ExecutorService storageExecutor;
+  protected BlockPool blockPool;
+  /**
+   * counts of the blocks of this list written to and read from the secondary storage.
+   */
+  protected final BufferServerStats.SpoolStats spoolStats = new BufferServerStats.SpoolStats();
 
   public int getBlockSize()
   {
@@ -88,10 +95,7 @@ public class DataList
 
     if (storage != null) {
       while (first != null) {
-        if (first.uniqueIdentifier > 0) {
-          logger.debug("discarding {} {} in reset", identifier, first.uniqueIdentifier);
-          storage.discard(identifier, first.uniqueIdentifier);
-        }
+        first.discard();
         first = first.next;
       }
     }
@@ -113,12 +117,7 @@ public class DataList
         break;
       }
 
-      if (storage != null && temp.uniqueIdentifier > 0) {
-        logger.debug("discarding {} {} in purge", identifier, temp.uniqueIdentifier);
-
-        storage.discard(identifier, temp.uniqueIdentifier);
-      }
-
+      temp.recycle();
       prev = temp;
     }
   }
@@ -159,6 +158,7 @@ public class DataList
   long baseSeconds;
   int size;
   int processingOffset;
+  int tupleOffset;
 
   public void flush(final int writeOffset)
   {
@@ -183,30 +183,13 @@ public class DataList
             }
             break flush;
         }
+        tupleOffset = processingOffset;
       }
 
       processingOffset = nextOffset.integer;
 
       if (processingOffset + size <= writeOffset) {
-        switch (last.data[processingOffset]) {
-          case MessageType.BEGIN_WINDOW_VALUE:
-            Tuple bwt = Tuple.getTuple(last.data, processingOffset, size);
-            if (last.starting_window == -1) {
-              last.starting_window = baseSeconds | bwt.getWindowId();
-              last.ending_window = last.starting_window;
-              //logger.debug("assigned both window id {}", last);
-            }
-            else {
-              last.ending_window = baseSeconds | bwt.getWindowId();
-              //logger.debug("assigned last window id {}", last);
-            }
-            break;
-
-          case MessageType.RESET_WINDOW_VALUE:
-            Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
-            baseSeconds = (long)rwt.getBaseSeconds() << 32;
-            break;
-        }
+        index(processingOffset + size);
         processingOffset += size;
         size = 0;
       }
@@ -236,17 +219,80 @@ public class DataList
     });
   }
 
+  /**
+   * Update the window ids of the last block and its index with the tuple which was just found complete.
+   * The tuple starts at tupleOffset, its type is at processingOffset and it ends at the given offset.
+   *
+   * @param endOffset offset past the end of the tuple
+   */
+  void index(int endOffset)
+  {
+    byte type = last.data[processingOffset];
+    switch (type) {
+      case MessageType.BEGIN_WINDOW_VALUE:
+        Tuple bwt = Tuple.getTuple(last.data, processingOffset, endOffset - processingOffset);
+        if (last.starting_window == -1) {
+          last.starting_window = baseSeconds | bwt.getWindowId();
+          last.ending_window = last.starting_window;
+          //logger.debug("assigned both window id {}", last);
+        }
+        else {
+          last.ending_window = baseSeconds | bwt.getWindowId();
+          //logger.debug("assigned last window id {}", last);
+        }
+        synchronized (last.index) {
+          last.index.add(type, last.ending_window, tupleOffset, endOffset - tupleOffset);
+        }
+        break;
+
+      case MessageType.RESET_WINDOW_VALUE:
+        Tuple rwt = Tuple.getTuple(last.data, processingOffset, endOffset - processingOffset);
+        baseSeconds = (long)rwt.getBaseSeconds() << 32;
+        synchronized (last.index) {
+          last.index.add(type, baseSeconds, tupleOffset, endOffset - tupleOffset);
+        }
+        break;
+
+      case MessageType.CHECKPOINT_VALUE:
+      case MessageType.CODEC_STATE_VALUE:
+        synchronized (last.index) {
+          last.index.add(type, tupleOffset, endOffset - tupleOffset);
+        }
+        break;
+    }
+  }
+
   public void setAutoflushExecutor(final ExecutorService es)
   {
     autoflushExecutor = es;
   }
 
+  public ExecutorService getAutoflushExecutor()
+  {
+    return autoflushExecutor;
+  }
+
   public void setSecondaryStorage(Storage storage, ExecutorService es)
   {
     this.storage = storage;
     storageExecutor = es;
   }
 
+  public void setBlockPool(BlockPool pool)
+  {
+    blockPool = pool;
+  }
+
+  /**
+   * Get an array to be used as the data of the next block, preferably a recycled one.
+   *
+   * @return array of block size bytes
+   */
+  public byte[] newBuffer()
+  {
+    return blockPool == null ? new byte[blocksize] : blockPool.acquire();
+  }
+
   /*
    * Iterator related functions.
    */
@@ -359,35 +405,185 @@ public class DataList
     last = last.next;
 
     //logger.debug("addbuffer last = {}", last);
-    int inmemBlockCount;
+    /*
+     * the blocks being spooled stay in memory until they are written out, so only spool as many more as it takes to
+     * get under the limit once those are gone.
+     */
+    int excess = getInMemoryBlockCount() - getSpoolingBlockCount() - MAX_COUNT_OF_INMEM_BLOCKS + 1;
+    if (excess > 0) {
+      spool(excess);
+    }
+  }
 
-    inmemBlockCount = 0;
+  /**
+   * @return the number of blocks held in memory, including the blocks being spooled.
+   */
+  public int getInMemoryBlockCount()
+  {
+    int inmemBlockCount = 0;
     for (Block temp = first; temp != null; temp = temp.next) {
       if (temp.data != null) {
         inmemBlockCount++;
       }
     }
+    return inmemBlockCount;
+  }
+
+  /**
+   * @return the number of blocks which are held in memory until the storage writes them out.
+   */
+  public int getSpoolingBlockCount()
+  {
+    int spoolingBlockCount = 0;
+    for (Block temp = first; temp != null; temp = temp.next) {
+      if (temp.data != null && temp.spooling) {
+        spoolingBlockCount++;
+      }
+    }
+    return spoolingBlockCount;
+  }
+
+  /**
+   * @return the number of bytes held in memory by the blocks of this list, including the blocks being spooled.
+   */
+  public long getMemoryUsage()
+  {
+    long bytes = 0;
+    for (Block temp = first; temp != null; temp = temp.next) {
+      byte[] data = temp.data;
+      if (data != null) {
+        bytes += data.length;
+      }
+    }
+    return bytes;
+  }
 
-    if (inmemBlockCount >= MAX_COUNT_OF_INMEM_BLOCKS) {
-      //logger.debug("InmemBlockCount before releaes {}", inmemBlockCount);
-      for (Block temp = first; temp != null; temp = temp.next) {
-        boolean found = false;
+  /**
+   * @return the number of bytes held in memory by the blocks which the storage is yet to write out.
+   */
+  public long getSpoolingMemoryUsage()
+  {
+    long bytes = 0;
+    for (Block temp = first; temp != null; temp = temp.next) {
+      byte[] data = temp.data;
+      if (data != null && temp.spooling) {
+        bytes += data.length;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the number of bytes of this list which are held by the secondary storage only.
+   */
+  public long getSpooledBytes()
+  {
+    long bytes = 0;
+    for (Block temp = first; temp != null; temp = temp.next) {
+      if (temp.data == null && temp.uniqueIdentifier != 0) {
+        bytes += temp.writingOffset - temp.readingOffset;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @return counts of the blocks of this list written to and read from the secondary storage.
+   */
+  public BufferServerStats.SpoolStats getSpoolStats()
+  {
+    return spoolStats;
+  }
+
+  /**
+   * Count the blocks from the one the slowest subscriber is reading to the last one. If there are no subscribers,
+   * all the blocks are yet to be read.
+   *
+   * @return number of blocks the slowest subscriber lags behind the publisher.
+   */
+  public int getBacklogBlockCount()
+  {
+    int count = 0;
+    boolean counting = iterators.isEmpty();
+    for (Block temp = first; temp != null; temp = temp.next) {
+      if (!counting) {
         for (DataListIterator iterator : iterators.values()) {
           if (iterator.da == temp) {
-            found = true;
+            counting = true;
             break;
           }
         }
+      }
 
-        if (!found && temp.data != null) {
-          temp.release(true);
-          if (--inmemBlockCount < MAX_COUNT_OF_INMEM_BLOCKS) {
-            break;
-          }
+      if (counting) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Release up to blockCount in-memory blocks to the secondary storage asynchronously. Only the blocks which no
+   * iterator is positioned on are released and the block the publisher is writing into is always retained. The blocks
+   * none of the iterators is going to read, the ones behind all of them, are released first, oldest first. They are
+   * followed by the blocks the farthest ahead of the iterators reading them, as those are going to be read last.
+   * Releasing stops when the storage executor does not accept more blocks.
+   *
+   * @param blockCount maximum number of blocks to release
+   * @return number of blocks released
+   */
+  public int spool(int blockCount)
+  {
+    if (storage == null || blockCount <= 0) {
+      return 0;
+    }
+
+    ArrayList<Block> candidates = new ArrayList<Block>();
+    final HashMap<Block, Integer> distances = new HashMap<Block, Integer>();
+    int distance = Integer.MAX_VALUE;
+    for (Block temp = first; temp != null && temp != last; temp = temp.next) {
+      boolean found = false;
+      for (DataListIterator iterator : iterators.values()) {
+        if (iterator.da == temp) {
+          found = true;
+          break;
         }
       }
-      //logger.debug("InmemBlockCount after release {}", inmemBlockCount);
+
+      if (found) {
+        distance = 0;
+      }
+      else {
+        if (distance < Integer.MAX_VALUE) {
+          distance++;
+        }
+        if (temp.data != null && !temp.spooling && temp.refCount <= 1) {
+          candidates.add(temp);
+          distances.put(temp, distance);
+        }
+      }
+    }
+
+    Collections.sort(candidates, new Comparator<Block>()
+    {
+      @Override
+      public int compare(Block o1, Block o2)
+      {
+        return distances.get(o2).compareTo(distances.get(o1));
+      }
+
+    });
+
+    int released = 0;
+    //logger.debug("InmemBlockCount before release {}", getInMemoryBlockCount());
+    for (Block temp : candidates) {
+      if (released == blockCount || !temp.spool()) {
+        break;
+      }
+      released++;
     }
+    //logger.debug("InmemBlockCount after release {}", getInMemoryBlockCount());
+    return released;
   }
 
   public byte[] getBuffer(long windowId)
@@ -413,6 +609,51 @@ public class DataList
     public String slowestConsumer;
   }
 
+  /**
+   * Take a snapshot of the memory held and the data spooled by the list and of the lag of each of its iterators. The
+   * lag is the number of the windows begun and the number of the bytes stored past the position of the iterator.
+   *
+   * @return stats of the list
+   */
+  public BufferServerStats.DataListStats getStats()
+  {
+    BufferServerStats.DataListStats stats = new BufferServerStats.DataListStats();
+    stats.identifier = identifier;
+    for (Block temp = first; temp != null; temp = temp.next) {
+      byte[] data = temp.data;
+      if (data != null) {
+        stats.bytesInMemory += data.length;
+      }
+      else if (temp.uniqueIdentifier != 0) {
+        stats.bytesSpooled += temp.writingOffset - temp.readingOffset;
+      }
+    }
+    stats.spool.add(spoolStats);
+
+    for (Entry<String, DataListIterator> entry : iterators.entrySet()) {
+      DataListIterator iterator = entry.getValue();
+      BufferServerStats.SubscriberStats subscriber = new BufferServerStats.SubscriberStats();
+      subscriber.identifier = entry.getKey();
+      Block temp = iterator.da;
+      if (temp != null) {
+        int readOffset = iterator.getReadOffset();
+        subscriber.lagBytes = Math.max(temp.writingOffset - readOffset, 0);
+        synchronized (temp.index) {
+          subscriber.lagWindows = temp.index.count(MessageType.BEGIN_WINDOW_VALUE, temp.index.searchOffset(readOffset));
+        }
+        for (temp = temp.next; temp != null; temp = temp.next) {
+          subscriber.lagBytes += temp.writingOffset - temp.readingOffset;
+          synchronized (temp.index) {
+            subscriber.lagWindows += temp.index.count(MessageType.BEGIN_WINDOW_VALUE, temp.index.first());
+          }
+        }
+      }
+      stats.subscribers.add(subscriber);
+    }
+
+    return stats;
+  }
+
   public Status getStatus()
   {
     Status status = new Status();
@@ -501,6 +742,31 @@ public class DataList
      * how count of references to this block.
      */
     int refCount;
+    /**
+     * whether an iterator ever acquired this block, if so the subscribers may still refer to the data.
+     */
+    boolean acquired;
+    /**
+     * offsets of the windows and the other control tuples in the data.
+     */
+    final WindowIndex index = new WindowIndex();
+    /**
+     * the readingOffset at which the data was stored, the offsets in the index are relative to it once the data is
+     * retrieved.
+     */
+    int storedReadingOffset;
+    /**
+     * whether the data is being written to the secondary storage.
+     */
+    volatile boolean spooling;
+    /**
+     * whether the block was dropped from the list, the storer then discards what it stores.
+     */
+    boolean discarded;
+    /**
+     * whether the data changed while it was being stored, the storer then discards what it stores.
+     */
+    boolean stale;
 
     public Block(String id, int size)
     {
@@ -530,27 +796,33 @@ public class DataList
     public long rewind(long windowId)
     {
       long bs = starting_window & 0x7fffffff00000000L;
-      DataListIterator dli = getIterator(this);
-      done:
-      while (dli.hasNext()) {
-        SerializedData sd = dli.next();
-        switch (sd.buffer[sd.dataOffset]) {
-          case MessageType.RESET_WINDOW_VALUE:
-            ResetWindowTuple rwt = (ResetWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
-            bs = (long)rwt.getBaseSeconds() << 32;
-            if (bs > windowId) {
-              writingOffset = sd.offset;
-              break done;
-            }
+      acquire(true);
+      synchronized (index) {
+        /*
+         * the data is truncated before the first window at or after the windowId or before the first reset to the
+         * base seconds later than the windowId, whichever comes first.
+         */
+        int cut = -1;
+        for (int i = index.searchWindow(windowId - 1); i < index.size(); i++) {
+          byte type = index.getType(i);
+          if (type == MessageType.BEGIN_WINDOW_VALUE || type == MessageType.RESET_WINDOW_VALUE && index.getWindowId(i) > windowId) {
+            cut = i;
             break;
+          }
+        }
 
-          case MessageType.BEGIN_WINDOW_VALUE:
-            BeginWindowTuple bwt = (BeginWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
-            if ((bs | bwt.getWindowId()) >= windowId) {
-              writingOffset = sd.offset;
-              break done;
-            }
-            break;
+        int reset;
+        if (cut == -1) {
+          reset = index.lastReset(index.size());
+        }
+        else {
+          reset = index.getType(cut) == MessageType.RESET_WINDOW_VALUE ? cut : index.lastReset(cut);
+          writingOffset = index.getOffset(cut);
+          index.removeFrom(writingOffset);
+        }
+
+        if (reset != -1) {
+          bs = index.getWindowId(reset);
         }
       }
 
@@ -564,10 +836,7 @@ public class DataList
         //logger.debug("assigned end window id {}", this);
       }
 
-      if (uniqueIdentifier != 0) {
-        storage.discard(identifier, uniqueIdentifier);
-        uniqueIdentifier = 0;
-      }
+      discardStoredCopy();
 
       return bs;
     }
@@ -576,89 +845,88 @@ public class DataList
     {
 //    logger.debug("starting_window = {}, longWindowId = {}, ending_window = {}",
 //                 new Object[] {VarInt.getStringWindowId(starting_window), VarInt.getStringWindowId(longWindowId), VarInt.getStringWindowId(ending_window)});
-      boolean found = false;
-      long bs = starting_window & 0xffffffff00000000L;
-      SerializedData lastReset = null;
-
-      DataListIterator dli = getIterator(this);
-      done:
-      while (dli.hasNext()) {
-        SerializedData sd = dli.next();
-        switch (sd.buffer[sd.dataOffset]) {
-          case MessageType.RESET_WINDOW_VALUE:
-            ResetWindowTuple rwt = (ResetWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
-            bs = (long)rwt.getBaseSeconds() << 32;
-            lastReset = sd;
-            break;
-
-          case MessageType.BEGIN_WINDOW_VALUE:
-            BeginWindowTuple bwt = (BeginWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
-            if ((bs | bwt.getWindowId()) > longWindowId) {
-              found = true;
-              if (lastReset != null) {
-                /*
-                 * Restore the last Reset tuple if there was any and adjust the writingOffset to the beginning of the reset tuple.
-                 */
-                if (sd.offset >= lastReset.length) {
-                  sd.offset -= lastReset.length;
-                  if (!(sd.buffer == lastReset.buffer && sd.offset == lastReset.offset)) {
-                    System.arraycopy(lastReset.buffer, lastReset.offset, sd.buffer, sd.offset, lastReset.length);
-                  }
-                }
+      acquire(true);
+      synchronized (index) {
+        int found = index.searchWindow(longWindowId);
+        while (found < index.size() && index.getType(found) != MessageType.BEGIN_WINDOW_VALUE) {
+          found++;
+        }
 
-                this.starting_window = bs | bwt.getWindowId();
-                this.readingOffset = sd.offset;
-                //logger.debug("assigned starting window id {}", this);
+        if (found < index.size()) {
+          int reset = index.lastReset(found);
+          if (reset != -1) {
+            /*
+             * Restore the last Reset tuple and adjust the readingOffset to the beginning of the reset tuple.
+             */
+            int offset = index.getOffset(found);
+            int resetOffset = index.getOffset(reset);
+            int resetLength = index.getLength(reset);
+            long resetBaseSeconds = index.getWindowId(reset);
+            if (offset >= resetLength) {
+              offset -= resetLength;
+              if (offset != resetOffset) {
+                System.arraycopy(data, resetOffset, data, offset, resetLength);
               }
+            }
 
-              break done;
+            this.starting_window = index.getWindowId(found);
+            this.readingOffset = offset;
+            //logger.debug("assigned starting window id {}", this);
+
+            index.removeBefore(offset);
+            if (index.getOffset(index.first()) != offset) {
+              index.prepend(MessageType.RESET_WINDOW_VALUE, resetBaseSeconds, offset, resetLength);
             }
+            discardStoredCopy();
+          }
+
+          return;
         }
-      }
 
-      /**
-       * If we ended up purging all the data from the current Block then,
-       * it also makes sense to start all over.
-       * It helps with better utilization of the RAM.
-       */
-      if (!found) {
+        /**
+         * If we ended up purging all the data from the current Block then,
+         * it also makes sense to start all over.
+         * It helps with better utilization of the RAM.
+         */
         //logger.debug("we could not find a tuple which is in a window later than the window to be purged, so this has to be the last window published so far");
-        if (lastReset != null && lastReset.offset != 0) {
-          this.readingOffset = this.writingOffset - lastReset.length;
-          System.arraycopy(lastReset.buffer, lastReset.offset, this.data, this.readingOffset, lastReset.length);
+        int reset = index.lastReset(index.size());
+        if (reset != -1 && index.getOffset(reset) != 0) {
+          int resetLength = index.getLength(reset);
+          long bs = index.getWindowId(reset);
+          this.readingOffset = this.writingOffset - resetLength;
+          System.arraycopy(this.data, index.getOffset(reset), this.data, this.readingOffset, resetLength);
           this.starting_window = this.ending_window = bs;
+          index.clear();
+          index.add(MessageType.RESET_WINDOW_VALUE, bs, this.readingOffset, resetLength);
           //logger.debug("=20140220= reassign the windowids {}", this);
         }
         else {
           this.readingOffset = this.writingOffset;
           this.starting_window = this.ending_window = longWindowId;
+          index.clear();
           //logger.debug("=20140220= avoid the windowids {}", this);
         }
+      }
 
+      SerializedData sd = new SerializedData(this.data, readingOffset, 0);
 
-        SerializedData sd = new SerializedData(this.data, readingOffset, 0);
-
-        // the rest of it is just a copy from beginWindow case here to wipe the data - refactor
-        int i = 1;
-        while (i < VarInt.getSize(sd.offset - i)) {
-          i++;
-        }
-
-        if (i <= sd.offset) {
-          sd.length = sd.offset;
-          sd.offset = 0;
-          sd.dataOffset = VarInt.write(sd.length - i, sd.buffer, sd.offset, i);
-          sd.buffer[sd.dataOffset] = MessageType.NO_MESSAGE_VALUE;
-        }
-        else {
-          logger.warn("Unhandled condition while purging the data purge to offset {}", sd.offset);
-        }
+      // the rest of it is just a copy from beginWindow case here to wipe the data - refactor
+      int i = 1;
+      while (i < VarInt.getSize(sd.offset - i)) {
+        i++;
+      }
 
-        if (uniqueIdentifier != 0) {
-          storage.discard(identifier, uniqueIdentifier);
-          uniqueIdentifier = 0;
-        }
+      if (i <= sd.offset) {
+        sd.length = sd.offset;
+        sd.offset = 0;
+        sd.dataOffset = VarInt.write(sd.length - i, sd.buffer, sd.offset, i);
+        sd.buffer[sd.dataOffset] = MessageType.NO_MESSAGE_VALUE;
       }
+      else {
+        logger.warn("Unhandled condition while purging the data purge to offset {}", sd.offset);
+      }
+
+      discardStoredCopy();
     }
 
     private Runnable getRetriever(final int uniqueIdentifier, final Storage storage)
@@ -668,11 +936,19 @@ public class DataList
         @Override
         public void run()
         {
+          long start = System.nanoTime();
           byte[] lData = storage.retrieve(identifier, uniqueIdentifier);
+          spoolStats.addRead(lData.length, System.nanoTime() - start);
           synchronized (Block.this) {
             data = lData;
             readingOffset = 0;
             writingOffset = data.length;
+            if (storedReadingOffset != 0) {
+              synchronized (index) {
+                index.rebase(storedReadingOffset);
+              }
+              storedReadingOffset = 0;
+            }
             if (refCount > 1) {
               Block.this.notifyAll();
             }
@@ -684,13 +960,19 @@ public class DataList
 
     synchronized void acquire(boolean wait)
     {
+      acquired = true;
       if (refCount++ == 0 && uniqueIdentifier > 0 && storage != null) {
         assert (data == null);
         if (wait) {
           getRetriever(uniqueIdentifier, storage).run();
         }
         else {
-          storageExecutor.submit(getRetriever(uniqueIdentifier, storage));
+          try {
+            storageExecutor.submit(getRetriever(uniqueIdentifier, storage));
+          }
+          catch (RejectedExecutionException ex) {
+            getRetriever(uniqueIdentifier, storage).run();
+          }
         }
       }
       else if (wait && data == null) {
@@ -710,14 +992,33 @@ public class DataList
         @Override
         public void run()
         {
+          long start = System.nanoTime();
           int i = storage.store(identifier, data, readingOffset, writingOffset);
+          spoolStats.addWrite(writingOffset - readingOffset, System.nanoTime() - start);
           if (i == 0) {
             logger.warn("Storage returned unexpectedly, please check the status of the spool directory!");
           }
-          else {
-            synchronized (Block.this) {
+          synchronized (Block.this) {
+            spooling = false;
+            if (discarded || stale) {
+              /* the block was dropped or changed while it was being stored, nobody is going to retrieve the copy */
+              stale = false;
+              if (i != 0) {
+                logger.debug("discarding {} {} stored after the purge", identifier, i);
+                storage.discard(identifier, i);
+              }
+              if (discarded && !acquired && blockPool != null && Block.this.data == data) {
+                blockPool.release(data);
+                Block.this.data = null;
+              }
+            }
+            else if (i != 0) {
               Block.this.uniqueIdentifier = i;
+              Block.this.storedReadingOffset = readingOffset;
               if (refCount == 0) {
+                if (!acquired && blockPool != null && Block.this.data == data) {
+                  blockPool.release(data);
+                }
                 Block.this.data = null;
               }
             }
@@ -738,9 +1039,118 @@ public class DataList
           getStorer(data, readingOffset, writingOffset, storage).run();
         }
         else {
-          storageExecutor.submit(getStorer(data, readingOffset, writingOffset, storage));
+          spooling = true;
+          try {
+            storageExecutor.submit(getStorer(data, readingOffset, writingOffset, storage));
+          }
+          catch (RejectedExecutionException ex) {
+            spooling = false;
+            logger.debug("Retaining {} in memory as the storage is busy", this);
+          }
+        }
+      }
+    }
+
+    /**
+     * Release the data held by the list to the secondary storage without waiting for it to be written.
+     *
+     * @return true if the data was released, false if the block is in use or the storage executor is busy.
+     */
+    synchronized boolean spool()
+    {
+      if (refCount > 1 || data == null || spooling) {
+        return false;
+      }
+
+      if (uniqueIdentifier != 0) {
+        refCount = 0;
+        data = null;
+        return true;
+      }
+
+      int count = refCount;
+      refCount = 0;
+      spooling = true;
+      try {
+        storageExecutor.submit(getStorer(data, readingOffset, writingOffset, storage));
+      }
+      catch (RejectedExecutionException ex) {
+        spooling = false;
+        refCount = count;
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Find the offset from which reading the block gets to the first window after the given one the fastest, without
+     * skipping any of the reset window, checkpoint and codec state tuples.
+     *
+     * @param offset offset of the tuple to start searching at
+     * @param windowId the window to skip
+     * @return the offset of the first tuple which cannot be skipped if it is known, otherwise the offset of the last
+     * window known not to be after the given window.
+     */
+    int seek(int offset, long windowId)
+    {
+      synchronized (index) {
+        for (int i = index.searchOffset(offset); i < index.size() && index.getOffset(i) < writingOffset; i++) {
+          if (index.getType(i) != MessageType.BEGIN_WINDOW_VALUE || index.getWindowId(i) > windowId) {
+            return index.getOffset(i);
+          }
+          offset = index.getOffset(i);
         }
       }
+
+      return offset;
+    }
+
+    /**
+     * Remove the copy of the dropped block from the secondary storage. A block being spooled is discarded by the
+     * storer once it is done.
+     */
+    synchronized void discard()
+    {
+      discarded = true;
+      discardStoredCopy();
+    }
+
+    /**
+     * Remove the copy of the data from the secondary storage as the data changed, including the copy being stored.
+     */
+    private synchronized void discardStoredCopy()
+    {
+      if (spooling) {
+        stale = true;
+      }
+      if (uniqueIdentifier != 0) {
+        logger.debug("discarding {} {}", identifier, uniqueIdentifier);
+        storage.discard(identifier, uniqueIdentifier);
+        uniqueIdentifier = 0;
+      }
+    }
+
+    /**
+     * Discard the purged block and hand its data over to the block pool. The purged windows are committed so the
+     * subscribers are done with the data, still the data of a block an iterator is positioned on is left alone. The
+     * data of a block being spooled is handed over by the storer once it is done reading it.
+     */
+    synchronized void recycle()
+    {
+      discard();
+      if (spooling) {
+        return;
+      }
+      if (data != null && blockPool != null) {
+        for (DataListIterator dli : iterators.values()) {
+          if (dli.da == this) {
+            return;
+          }
+        }
+
+        blockPool.release(data);
+        data = null;
+      }
     }
 
     @Override
@@ -882,6 +1292,80 @@ public class DataList
       current.buffer[current.dataOffset] = MessageType.NO_MESSAGE_VALUE;
     }
 
+    /**
+     * Get the data returned by next extended with the complete tuples following it in the same block, so that
+     * they can be sent to the subscriber at once. The run ends before the first reset window tuple or the tuple with
+     * no message. Has to be called after hasNext returned true.
+     *
+     * @param maxLength number of bytes after which the run is not extended anymore
+     * @return data containing one or more framed tuples
+     */
+    public synchronized SerializedData nextRun(int maxLength)
+    {
+      SerializedData run = next();
+      if (run.length == 0 || run.offset == run.dataOffset || !isRunnable(buffer[run.dataOffset])) {
+        return run;
+      }
+
+      int end = run.offset + run.length;
+      int limit = da.writingOffset;
+      while (end - run.offset < maxLength) {
+        int tupleEnd = getTupleEnd(end, limit);
+        if (tupleEnd == -1 || !isRunnable(buffer[nextOffset.integer])) {
+          break;
+        }
+        end = tupleEnd;
+      }
+
+      run.length = end - run.offset;
+      readOffset = end;
+      return run;
+    }
+
+    private boolean isRunnable(byte type)
+    {
+      switch (type) {
+        case MessageType.RESET_WINDOW_VALUE:
+        case MessageType.NO_MESSAGE_VALUE:
+        case MessageType.NO_MESSAGE_ODD_VALUE:
+          return false;
+
+        default:
+          return true;
+      }
+    }
+
+    /**
+     * Find the end of the tuple framed at the offset and leave the offset of its type in nextOffset.
+     *
+     * @param offset offset of the framed tuple
+     * @param limit offset up to which the data is valid
+     * @return offset past the end of the tuple, -1 if the tuple is not complete
+     */
+    protected int getTupleEnd(int offset, int limit)
+    {
+      int length = VarInt.read(buffer, offset, limit, nextOffset);
+      if (nextOffset.integer > 0 && length > 0 && nextOffset.integer + length <= limit) {
+        return nextOffset.integer + length;
+      }
+      return -1;
+    }
+
+    /**
+     * Skip the tuples of the current block which precede the first window after the given window, except for the
+     * control tuples the subscribers need. It's a faster alternative to iterating over the tuples when catching up.
+     *
+     * @param windowId the window to skip
+     */
+    public synchronized void seek(long windowId)
+    {
+      int offset = da.seek(readOffset, windowId);
+      if (offset > readOffset) {
+        readOffset = offset;
+        size = 0;
+      }
+    }
+
     void rewind(int processingOffset)
     {
       readOffset = processingOffset;
@@ -18,8 +18,6 @@ package com.datatorrent.bufferserver.internal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.datatorrent.bufferserver.packet.MessageType;
-import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.util.SerializedData;
 
 /**
@@ -57,6 +55,7 @@ public class FastDataList extends DataList
           size = last.data[processingOffset];
           size |= (last.data[processingOffset + 1] << 8);
 //          logger.debug("read item = {} of size = {} at offset = {}", item++, size, processingOffset);
+          tupleOffset = processingOffset;
         }
         else {
           if (writeOffset == last.data.length) {
@@ -70,23 +69,7 @@ public class FastDataList extends DataList
       processingOffset += 2;
 
       if (processingOffset + size <= writeOffset) {
-        switch (last.data[processingOffset]) {
-          case MessageType.BEGIN_WINDOW_VALUE:
-            Tuple btw = Tuple.getTuple(last.data, processingOffset, size);
-            if (last.starting_window == -1) {
-              last.starting_window = baseSeconds | btw.getWindowId();
-              last.ending_window = last.starting_window;
-            }
-            else {
-              last.ending_window = baseSeconds | btw.getWindowId();
-            }
-            break;
-
-          case MessageType.RESET_WINDOW_VALUE:
-            Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
-            baseSeconds = (long)rwt.getBaseSeconds() << 32;
-            break;
-        }
+        index(processingOffset + size);
         processingOffset += size;
         size = 0;
       }
@@ -187,6 +170,20 @@ public class FastDataList extends DataList
       super(da);
     }
 
+    @Override
+    protected int getTupleEnd(int offset, int limit)
+    {
+      if (limit - offset >= 2) {
+        int length = buffer[offset];
+        length |= (buffer[offset + 1] << 8);
+        nextOffset.integer = offset + 2;
+        if (length > 0 && nextOffset.integer + length <= limit) {
+          return nextOffset.integer + length;
+        }
+      }
+      return -1;
+    }
+
     @Override
     public synchronized boolean hasNext()
     {
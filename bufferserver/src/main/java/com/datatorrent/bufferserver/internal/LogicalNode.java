@@ -15,6 +15,7 @@
  */
 package com.datatorrent.bufferserver.internal;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -24,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
 import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.policy.GiveAll;
 import com.datatorrent.bufferserver.policy.Policy;
@@ -44,10 +46,26 @@ import com.datatorrent.netlet.EventLoop;
  */
 public class LogicalNode implements DataListener
 {
+  /**
+   * Largest union of the partition masks for which the partitions are matched using a lookup table.
+   */
+  static final int MAX_PARTITION_TABLE_SIZE = 1 << 16;
+  /**
+   * Number of bytes of consecutive tuples after which they are not sent together anymore.
+   */
+  static final int MAX_RUN_LENGTH = 64 * 1024;
   private final String upstream;
   private final String group;
   private final HashSet<PhysicalNode> physicalNodes;
   private final HashSet<BitVector> partitions;
+  /**
+   * union of the masks of all the partitions.
+   */
+  private int partitionMask;
+  /**
+   * whether the partition masked with partitionMask matches any of the partitions, null if the table would be too big.
+   */
+  private BitSet partitionTable;
   private final Policy policy = GiveAll.getInstance();
   private final DataListIterator iterator;
   private final long skipWindowId;
@@ -130,6 +148,51 @@ public class LogicalNode implements DataListener
   public void addPartition(int partition, int mask)
   {
     partitions.add(new BitVector(partition, mask));
+
+    /*
+     * All the partition masks are subsets of their union, so whether a payload matches depends only on the bits of its
+     * partition in the union, which lets us answer it with a single lookup instead of testing every partition.
+     */
+    partitionMask |= mask;
+    if (partitionMask >= 0 && partitionMask < MAX_PARTITION_TABLE_SIZE) {
+      partitionTable = new BitSet(partitionMask + 1);
+      for (int value = partitionMask; value >= 0; value = (value - 1) & partitionMask) {
+        for (BitVector bv : partitions) {
+          if (bv.matches(value)) {
+            partitionTable.set(value);
+            break;
+          }
+        }
+        if (value == 0) {
+          break;
+        }
+      }
+    }
+    else {
+      partitionTable = null;
+    }
+  }
+
+  /**
+   * Check whether the payload belongs to any of the partitions of this node without deserializing it.
+   *
+   * @param buffer array containing the serialized payload
+   * @param offset offset of the payload type in the array
+   * @return true if the payload matches any of the partitions, false otherwise
+   */
+  boolean matches(byte[] buffer, int offset)
+  {
+    int value = PayloadTuple.getPartition(buffer, offset);
+    if (partitionTable != null) {
+      return partitionTable.get(value & partitionMask);
+    }
+
+    for (BitVector bv : partitions) {
+      if (bv.matches(value)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   boolean ready = true;
@@ -169,7 +232,12 @@ public class LogicalNode implements DataListener
          * fast forward to catch up with the windowId without consuming
          */
         outer:
-        while (ready && iterator.hasNext()) {
+        while (ready) {
+          iterator.seek(skipWindowId);
+          if (!iterator.hasNext()) {
+            break;
+          }
+
           SerializedData data = iterator.next();
           switch (data.buffer[data.dataOffset]) {
             case MessageType.RESET_WINDOW_VALUE:
@@ -229,8 +297,11 @@ public class LogicalNode implements DataListener
            * consume as much data as you can before running out of steam
            */
           if (partitions.isEmpty()) {
+            /*
+             * the tuples are stored framed the same way they are sent, so the runs of them go out as they are
+             */
             while (ready && iterator.hasNext()) {
-              SerializedData data = iterator.next();
+              SerializedData data = iterator.nextRun(MAX_RUN_LENGTH);
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
                   ready = policy.distribute(physicalNodes, data);
@@ -256,13 +327,8 @@ public class LogicalNode implements DataListener
               SerializedData data = iterator.next();
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
-                  Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
-                  int value = tuple.getPartition();
-                  for (BitVector bv : partitions) {
-                    if (bv.matches(value)) {
-                      ready = policy.distribute(physicalNodes, data);
-                      break;
-                    }
+                  if (matches(data.buffer, data.dataOffset)) {
+                    ready = policy.distribute(physicalNodes, data);
                   }
                   break;
 
@@ -271,7 +337,7 @@ public class LogicalNode implements DataListener
                   break;
 
                 case MessageType.RESET_WINDOW_VALUE:
-                  tuple = Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
+                  Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
                   baseSeconds = (long)tuple.getBaseSeconds() << 32;
 
                 default:
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Arrays;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+
+/**
+ * Index of the control tuples stored in the data of a block<p>
+ * <br>
+ * For every begin window, reset window, checkpoint and codec state tuple the index keeps the type, the offset and the
+ * length of the tuple as it is framed in the block along with a window id. For the begin window it is the window id
+ * including the base seconds, for the reset window it is the base seconds and the other tuples inherit it from the
+ * preceding entry. The entries are in the order of the offsets, and as the window ids grow monotonically in a stream,
+ * in the order of the window ids too, so locating a window is a binary search instead of a walk over all the tuples.
+ * <br>
+ * The index is not thread safe, the users synchronize on it.
+ *
+ * @since 2.2.0
+ */
+class WindowIndex
+{
+  private static final int INITIAL_CAPACITY = 16;
+  private byte[] types = new byte[INITIAL_CAPACITY];
+  private long[] windowIds = new long[INITIAL_CAPACITY];
+  private int[] offsets = new int[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  /**
+   * entries between first (inclusive) and size (exclusive) are valid.
+   */
+  private int first;
+  private int size;
+
+  void add(byte type, long windowId, int offset, int length)
+  {
+    if (size == types.length) {
+      grow();
+    }
+
+    types[size] = type;
+    windowIds[size] = windowId;
+    offsets[size] = offset;
+    lengths[size] = length;
+    size++;
+  }
+
+  /**
+   * Add the entry for a tuple which does not carry a window id of its own.
+   */
+  void add(byte type, int offset, int length)
+  {
+    add(type, size > first ? windowIds[size - 1] : Long.MIN_VALUE, offset, length);
+  }
+
+  /**
+   * Add the entry in front of all the other entries, its offset has to be smaller than the offset of the first one.
+   */
+  void prepend(byte type, long windowId, int offset, int length)
+  {
+    if (first == 0) {
+      if (size == types.length) {
+        grow();
+      }
+      System.arraycopy(types, 0, types, 1, size);
+      System.arraycopy(windowIds, 0, windowIds, 1, size);
+      System.arraycopy(offsets, 0, offsets, 1, size);
+      System.arraycopy(lengths, 0, lengths, 1, size);
+      size++;
+    }
+    else {
+      first--;
+    }
+
+    types[first] = type;
+    windowIds[first] = windowId;
+    offsets[first] = offset;
+    lengths[first] = length;
+  }
+
+  private void grow()
+  {
+    int count = size - first;
+    if (first > 0 && count < types.length / 2) {
+      System.arraycopy(types, first, types, 0, count);
+      System.arraycopy(windowIds, first, windowIds, 0, count);
+      System.arraycopy(offsets, first, offsets, 0, count);
+      System.arraycopy(lengths, first, lengths, 0, count);
+    }
+    else {
+      int capacity = types.length * 2;
+      types = Arrays.copyOfRange(types, first, first + capacity);
+      windowIds = Arrays.copyOfRange(windowIds, first, first + capacity);
+      offsets = Arrays.copyOfRange(offsets, first, first + capacity);
+      lengths = Arrays.copyOfRange(lengths, first, first + capacity);
+    }
+    first = 0;
+    size = count;
+  }
+
+  void clear()
+  {
+    first = size = 0;
+  }
+
+  /**
+   * Drop the entries of the tuples placed before the offset.
+   */
+  void removeBefore(int offset)
+  {
+    first = searchOffset(offset);
+  }
+
+  /**
+   * Drop the entries of the tuples placed at or after the offset.
+   */
+  void removeFrom(int offset)
+  {
+    size = searchOffset(offset);
+  }
+
+  /**
+   * Make the offsets relative to the given offset, used when the data before it is dropped from the block.
+   */
+  void rebase(int offset)
+  {
+    removeBefore(offset);
+    for (int i = first; i < size; i++) {
+      offsets[i] -= offset;
+    }
+  }
+
+  /**
+   * @return the index of the first entry at or after the offset.
+   */
+  int searchOffset(int offset)
+  {
+    int low = first;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (offsets[mid] < offset) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the index of the first entry with the window id greater than the given one.
+   */
+  int searchWindow(long windowId)
+  {
+    int low = first;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (windowIds[mid] <= windowId) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the index of the last reset window entry before the given index, -1 if there is none.
+   */
+  int lastReset(int index)
+  {
+    for (int i = index; i-- > first;) {
+      if (types[i] == MessageType.RESET_WINDOW_VALUE) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the number of the entries of the given type from the given index on.
+   */
+  int count(byte type, int index)
+  {
+    int count = 0;
+    for (int i = Math.max(index, first); i < size; i++) {
+      if (types[i] == type) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int first()
+  {
+    return first;
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  byte getType(int index)
+  {
+    return types[index];
+  }
+
+  long getWindowId(int index)
+  {
+    return windowIds[index];
+  }
+
+  int getOffset(int index)
+  {
+    return offsets[index];
+  }
+
+  int getLength(int index)
+  {
+    return lengths[index];
+  }
+
+  @Override
+  public String toString()
+  {
+    return "WindowIndex{" + "first=" + first + ", size=" + size + '}';
+  }
+
+}
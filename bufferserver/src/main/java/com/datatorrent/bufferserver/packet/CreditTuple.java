@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+
+/**
+ * Sent by the server to a publisher which requested flow control, grants the publisher the number of bytes it may send
+ * in addition to the ones it was granted before.
+ *
+ * @since 2.2.0
+ */
+public class CreditTuple extends Tuple
+{
+  public CreditTuple(byte[] array, int offset, int length)
+  {
+    super(array, offset, length);
+  }
+
+  public int getCredit()
+  {
+    return readVarInt(offset + 1, offset + length);
+  }
+
+  @Override
+  public MessageType getType()
+  {
+    return MessageType.CREDIT;
+  }
+
+  @Override
+  public int getWindowId()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getPartition()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public Slice getData()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getBaseSeconds()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getWindowWidth()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CreditTuple{" + getCredit() + '}';
+  }
+
+  public static byte[] getSerializedTuple(int credit)
+  {
+    byte[] array = new byte[1 + VarInt.getSize(credit)];
+    array[0] = MessageType.CREDIT_VALUE;
+    VarInt.write(credit, array, 1);
+    return array;
+  }
+
+}
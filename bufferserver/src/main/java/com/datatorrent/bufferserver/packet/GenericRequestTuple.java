@@ -37,6 +37,10 @@ public class GenericRequestTuple extends RequestTuple
   protected String identifier;
   protected int baseSeconds;
   protected int windowId;
+  /**
+   * offset just past the fields parsed, the subclasses may follow them with fields of their own.
+   */
+  protected int parsedOffset;
 
   public GenericRequestTuple(byte[] buffer, int offset, int length)
   {
@@ -101,6 +105,7 @@ public class GenericRequestTuple extends RequestTuple
       while (buffer[dataOffset++] < 0) {
       }
 
+      parsedOffset = dataOffset;
       valid = true;
     }
     catch (NumberFormatException nfe) {
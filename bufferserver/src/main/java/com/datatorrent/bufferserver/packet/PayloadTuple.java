@@ -37,6 +37,18 @@ public class PayloadTuple extends Tuple
 
   @Override
   public int getPartition()
+  {
+    return getPartition(buffer, offset);
+  }
+
+  /**
+   * Read the partition of the serialized payload tuple without creating the tuple.
+   *
+   * @param buffer array containing the serialized tuple
+   * @param offset offset of the tuple type in the array
+   * @return the partition of the payload
+   */
+  public static int getPartition(byte[] buffer, int offset)
   {
     int p = buffer[offset + 1];
     p |= buffer[offset + 2] << 8;
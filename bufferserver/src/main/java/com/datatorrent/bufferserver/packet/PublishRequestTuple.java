@@ -15,6 +15,10 @@
  */
 package com.datatorrent.bufferserver.packet;
 
+import java.util.Arrays;
+
+import com.datatorrent.netlet.util.VarInt;
+
 /**
  * <p>PublishRequestTuple class.</p>
  *
@@ -22,14 +26,45 @@ package com.datatorrent.bufferserver.packet;
  */
 public class PublishRequestTuple extends GenericRequestTuple
 {
+  private int creditWindow;
+
   public PublishRequestTuple(byte[] array, int offset, int len)
   {
     super(array, offset, len);
   }
 
+  @Override
+  public void parse()
+  {
+    super.parse();
+    /*
+     * the publishers which do not take part in the flow control do not send the credit window.
+     */
+    if (valid && parsedOffset < offset + length) {
+      creditWindow = readVarInt(parsedOffset, offset + length);
+    }
+  }
+
+  /**
+   * @return number of the bytes the publisher may send before it waits for the server to grant it more, 0 if the
+   * publisher does not wait for the server.
+   */
+  public int getCreditWindow()
+  {
+    return creditWindow;
+  }
+
   public static byte[] getSerializedRequest(String version, String identifier, long startingWindowId)
   {
     return GenericRequestTuple.getSerializedRequest(version, identifier, startingWindowId, MessageType.PUBLISHER_REQUEST_VALUE);
   }
 
+  public static byte[] getSerializedRequest(String version, String identifier, long startingWindowId, int creditWindow)
+  {
+    byte[] request = getSerializedRequest(version, identifier, startingWindowId);
+    byte[] array = Arrays.copyOf(request, request.length + VarInt.getSize(creditWindow));
+    VarInt.write(creditWindow, array, request.length);
+    return array;
+  }
+
 }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+/**
+ * Request for the stats of the buffer server, the identifier names the publisher whose data list to report on or is
+ * empty to report on all of them.
+ *
+ * @since 2.2.0
+ */
+public class StatsRequestTuple extends GenericRequestTuple
+{
+  public StatsRequestTuple(byte[] array, int offset, int length)
+  {
+    super(array, offset, length);
+  }
+
+  public static byte[] getSerializedRequest(String version, String identifier)
+  {
+    return GenericRequestTuple.getSerializedRequest(version, identifier == null ? EMPTY_STRING : identifier, 0, MessageType.STATS_REQUEST_VALUE);
+  }
+
+}
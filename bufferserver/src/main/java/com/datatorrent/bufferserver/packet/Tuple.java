@@ -58,6 +58,9 @@ public abstract class Tuple
       case CODEC_STATE:
         return new DataTuple(buffer, offset, length);
 
+      case CREDIT:
+        return new CreditTuple(buffer, offset, length);
+
       case PAYLOAD:
         return new PayloadTuple(buffer, offset, length);
 
@@ -97,6 +100,14 @@ public abstract class Tuple
         }
         return resetrt;
 
+      case STATS_REQUEST:
+        StatsRequestTuple statsrt = new StatsRequestTuple(buffer, offset, length);
+        statsrt.parse();
+        if (!statsrt.isValid()) {
+          logger.error("Unparseable Stats Request Tuple of type {} received!", MessageType.valueOf(buffer[offset]));
+        }
+        return statsrt;
+
       case SUBSCRIBER_REQUEST:
         SubscribeRequestTuple srt = new SubscribeRequestTuple(buffer, offset, length);
         srt.parse();
@@ -15,6 +15,7 @@
  */
 package com.datatorrent.bufferserver.server;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -23,19 +24,25 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.internal.BlockPool;
 import com.datatorrent.bufferserver.internal.DataList;
 import com.datatorrent.bufferserver.internal.FastDataList;
 import com.datatorrent.bufferserver.internal.LogicalNode;
 import com.datatorrent.bufferserver.packet.*;
 import com.datatorrent.bufferserver.storage.Storage;
+import com.datatorrent.bufferserver.util.BufferServerStats;
 import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.netlet.util.VarInt;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
@@ -53,13 +60,62 @@ public class Server implements ServerListener
 {
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024 * 1024;
   public static final int DEFAULT_NUMBER_OF_CACHED_BLOCKS = 8;
+  public static final int DEFAULT_NUMBER_OF_DELIVERY_THREADS = 1;
   private final int port;
   private String identity;
   private Storage storage;
   private EventLoop eventloop;
   private InetSocketAddress address;
-  private final ExecutorService serverHelperExecutor;
-  private final ExecutorService storageHelperExecutor;
+  private final ThreadPoolExecutor serverHelperExecutor;
+  /**
+   * Executors delivering the data to the subscribers, each data list is assigned to one of them so the data of a
+   * list is delivered in order while the different lists are delivered in parallel.
+   */
+  private final ThreadPoolExecutor[] deliveryExecutors;
+  private int nextDeliveryExecutor;
+  private final ThreadPoolExecutor storageHelperExecutor;
+  private final BlockPool blockPool;
+  private final long memoryLimit;
+  /**
+   * memory usage at which the blocks start being spooled, ahead of reaching the memory limit.
+   */
+  private final long spoolWatermark;
+  /**
+   * publishers which are not read from until the spooled blocks bring the memory usage below the limit.
+   */
+  private final HashSet<Publisher> throttledPublishers = new HashSet<Publisher>();
+  private volatile boolean throttling;
+  /**
+   * counts of all the blocks written to and read from the secondary storage.
+   */
+  private final BufferServerStats.SpoolStats spoolStats = new BufferServerStats.SpoolStats();
+  /**
+   * memory held and data spooled by all the data lists together, measured on the event loop for the stats.
+   */
+  private volatile long bytesInMemory;
+  private volatile long bytesSpooled;
+  private final AtomicBoolean measuring = new AtomicBoolean();
+  private final Runnable measurement = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      try {
+        long inMemory = 0;
+        long spooled = 0;
+        for (DataList dl : publisherBuffers.values()) {
+          inMemory += dl.getMemoryUsage();
+          spooled += dl.getSpooledBytes();
+        }
+        bytesInMemory = inMemory;
+        bytesSpooled = spooled;
+      }
+      finally {
+        measuring.set(false);
+      }
+    }
+
+  };
 
   /**
    * @param port - port number to bind to or 0 to auto select a free port
@@ -71,11 +127,59 @@ public class Server implements ServerListener
 
   public Server(int port, int blocksize, int numberOfCacheBlocks)
   {
+    this(port, blocksize, numberOfCacheBlocks, DEFAULT_NUMBER_OF_DELIVERY_THREADS);
+  }
+
+  /**
+   * @param port - port number to bind to or 0 to auto select a free port
+   * @param blocksize - size of the blocks the published data is stored in
+   * @param numberOfCacheBlocks - number of blocks which are kept in memory before spooling
+   * @param numberOfDeliveryThreads - number of threads delivering the data to the subscribers
+   */
+  public Server(int port, int blocksize, int numberOfCacheBlocks, int numberOfDeliveryThreads)
+  {
+    if (numberOfDeliveryThreads < 1) {
+      throw new IllegalArgumentException("Number of delivery threads must be positive: " + numberOfDeliveryThreads);
+    }
     this.port = port;
     this.blockSize = blocksize;
     this.numberOfCacheBlocks = numberOfCacheBlocks;
-    serverHelperExecutor = Executors.newSingleThreadExecutor(new NameableThreadFactory("ServerHelper"));
-    storageHelperExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(numberOfCacheBlocks), new NameableThreadFactory("StorageHelper"), new ThreadPoolExecutor.CallerRunsPolicy());
+    /*
+     * single thread executors whose queues are visible for the stats.
+     */
+    serverHelperExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new NameableThreadFactory("ServerHelper"));
+    deliveryExecutors = new ThreadPoolExecutor[numberOfDeliveryThreads];
+    deliveryExecutors[0] = serverHelperExecutor;
+    for (int i = 1; i < numberOfDeliveryThreads; i++) {
+      deliveryExecutors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new NameableThreadFactory("ServerHelper" + i));
+    }
+    /*
+     * the storage requests beyond the capacity of the queue are rejected rather than run by the caller which is often
+     * the event loop, the blocks are then retained in memory and the publishers are throttled instead.
+     */
+    storageHelperExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(numberOfCacheBlocks), new NameableThreadFactory("StorageHelper"))
+    {
+      @Override
+      protected void afterExecute(Runnable r, Throwable t)
+      {
+        super.afterExecute(r, t);
+        if (throttling) {
+          eventloop.submit(new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              releaseThrottledPublishers();
+            }
+
+          });
+        }
+      }
+
+    };
+    blockPool = new BlockPool(blocksize, numberOfCacheBlocks);
+    memoryLimit = (long)blocksize * numberOfCacheBlocks;
+    spoolWatermark = memoryLimit - memoryLimit / 4;
   }
 
   public void setSpoolStorage(Storage storage)
@@ -95,14 +199,28 @@ public class Server implements ServerListener
   @Override
   public void unregistered(SelectionKey key)
   {
-    serverHelperExecutor.shutdown();
+    for (ExecutorService es : deliveryExecutors) {
+      es.shutdown();
+    }
     storageHelperExecutor.shutdown();
     try {
-      serverHelperExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+      for (ExecutorService es : deliveryExecutors) {
+        es.awaitTermination(5000, TimeUnit.MILLISECONDS);
+      }
+      storageHelperExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
     }
     catch (InterruptedException ex) {
       logger.debug("Executor Termination", ex);
     }
+    if (storage instanceof Closeable) {
+      /* the executors no longer touch the storage, so it can release the memory and the files it holds */
+      try {
+        ((Closeable)storage).close();
+      }
+      catch (IOException ex) {
+        logger.warn("Closing the storage {} failed", storage, ex);
+      }
+    }
     logger.info("Server stopped listening at {}", address);
   }
 
@@ -256,6 +374,7 @@ public class Server implements ServerListener
       }
       else {
         dl = Tuple.FAST_VERSION.equals(request.getVersion()) ? new FastDataList(upstream_identifier, blockSize, numberOfCacheBlocks, 0) : new DataList(upstream_identifier, blockSize, numberOfCacheBlocks, 0);
+        dl.setAutoflushExecutor(getDeliveryExecutor());
         publisherBuffers.put(upstream_identifier, dl);
         //logger.debug("new list = {}", dl);
       }
@@ -312,13 +431,234 @@ public class Server implements ServerListener
     }
     else {
       dl = Tuple.FAST_VERSION.equals(request.getVersion()) ? new FastDataList(identifier, blockSize, numberOfCacheBlocks) : new DataList(identifier, blockSize, numberOfCacheBlocks);
+      dl.setAutoflushExecutor(getDeliveryExecutor());
       publisherBuffers.put(identifier, dl);
     }
     dl.setSecondaryStorage(storage, storageHelperExecutor);
+    dl.setBlockPool(blockPool);
+    dl.getSpoolStats().setTotal(spoolStats);
 
     return dl;
   }
 
+  /**
+   * Assign the delivery executors to the data lists in round robin fashion.
+   */
+  private ExecutorService getDeliveryExecutor()
+  {
+    ExecutorService es = deliveryExecutors[nextDeliveryExecutor];
+    nextDeliveryExecutor = (nextDeliveryExecutor + 1) % deliveryExecutors.length;
+    return es;
+  }
+
+  /**
+   * Memory used by the blocks of all the data lists together, including the blocks which are being spooled.
+   *
+   * @return number of bytes
+   */
+  public long getMemoryUsage()
+  {
+    long usage = 0;
+    for (DataList dl : publisherBuffers.values()) {
+      usage += dl.getMemoryUsage();
+    }
+    return usage;
+  }
+
+  /**
+   * Memory which is going to be freed once the storage writes out the blocks queued for spooling.
+   *
+   * @return number of bytes
+   */
+  public long getSpoolingMemoryUsage()
+  {
+    long usage = 0;
+    for (DataList dl : publisherBuffers.values()) {
+      usage += dl.getSpoolingMemoryUsage();
+    }
+    return usage;
+  }
+
+  public long getMemoryLimit()
+  {
+    return memoryLimit;
+  }
+
+  /**
+   * Summarize the stats of the server without the data lists, for the stats to be sent along with every heartbeat. The
+   * summary is read off the counters without waiting for the event loop, the memory held and the data spooled are the
+   * ones measured on the event loop after the previous call.
+   *
+   * @return summary of the stats of the server
+   */
+  public BufferServerStats getStats()
+  {
+    BufferServerStats stats = new BufferServerStats();
+    stats.memoryLimit = memoryLimit;
+    stats.bytesInMemory = bytesInMemory;
+    stats.bytesSpooled = bytesSpooled;
+    stats.throttling = throttling;
+    stats.storageQueueDepth = storageHelperExecutor.getQueue().size();
+    stats.deliveryQueueDepths = new int[deliveryExecutors.length];
+    for (int i = 0; i < deliveryExecutors.length; i++) {
+      stats.deliveryQueueDepths[i] = deliveryExecutors[i].getQueue().size();
+    }
+    stats.spool.add(spoolStats);
+
+    if (eventloop != null && measuring.compareAndSet(false, true)) {
+      eventloop.submit(measurement);
+    }
+    return stats;
+  }
+
+  /**
+   * @param identifier identifier of the publisher whose data list to report on, null or empty for all the data lists
+   */
+  private BufferServerStats collectStats(String identifier)
+  {
+    BufferServerStats stats = new BufferServerStats();
+    stats.memoryLimit = memoryLimit;
+    stats.throttling = throttling;
+    stats.storageQueueDepth = storageHelperExecutor.getQueue().size();
+    stats.deliveryQueueDepths = new int[deliveryExecutors.length];
+    for (int i = 0; i < deliveryExecutors.length; i++) {
+      stats.deliveryQueueDepths[i] = deliveryExecutors[i].getQueue().size();
+    }
+
+    for (Entry<String, DataList> entry : publisherBuffers.entrySet()) {
+      if (identifier == null || identifier.isEmpty() || identifier.equals(entry.getKey())) {
+        BufferServerStats.DataListStats dls = entry.getValue().getStats();
+        stats.bytesInMemory += dls.bytesInMemory;
+        stats.bytesSpooled += dls.bytesSpooled;
+        stats.spool.add(dls.spool);
+        stats.dataLists.add(dls);
+      }
+    }
+    return stats;
+  }
+
+  private void handleStatsRequest(StatsRequestTuple request, final AbstractLengthPrependerClient ctx)
+  {
+    byte[] message = collectStats(request.getIdentifier()).toByteArray();
+    final byte[] tuple = PayloadTuple.getSerializedTuple(0, message.length);
+    System.arraycopy(message, 0, tuple, tuple.length - message.length, message.length);
+    serverHelperExecutor.submit(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        ctx.write(tuple);
+        eventloop.disconnect(ctx);
+      }
+
+    });
+  }
+
+  /**
+   * The memory limit applies to all the data lists together since the number of the publishers is not known upfront.
+   * Spooling starts at the watermark below the limit so that the blocks are written out in the background before the
+   * memory runs out. The blocks of the data lists whose subscribers lag the most are spooled first, as those blocks are
+   * going to be read last. The blocks queued for spooling occupy the memory until they are written out, so they count
+   * toward the limit but not toward what remains to be spooled.
+   *
+   * @return true if the memory usage is below the limit or the storage cannot help it, false if the publishers need to
+   * wait for the spooled blocks to be written out.
+   */
+  boolean enforceMemoryLimit()
+  {
+    if (storage == null) {
+      return true;
+    }
+
+    /*
+     * a busy storage may reject the blocks and then catch up before the usage is checked, it completes another request
+     * afterwards though, so it's worth waiting for.
+     */
+    boolean busy = !storageHelperExecutor.getQueue().isEmpty() || storageHelperExecutor.getActiveCount() > 0;
+    long usage = getMemoryUsage();
+    long excess = usage - getSpoolingMemoryUsage() - spoolWatermark;
+    if (excess > 0) {
+      ArrayList<DataList> lists = new ArrayList<DataList>(publisherBuffers.values());
+      final HashMap<DataList, Integer> backlogs = new HashMap<DataList, Integer>(lists.size());
+      for (DataList dl : lists) {
+        backlogs.put(dl, dl.getBacklogBlockCount());
+      }
+      Collections.sort(lists, new Comparator<DataList>()
+      {
+        @Override
+        public int compare(DataList o1, DataList o2)
+        {
+          return backlogs.get(o2).compareTo(backlogs.get(o1));
+        }
+
+      });
+
+      for (DataList dl : lists) {
+        excess -= (long)dl.spool((int)((excess + blockSize - 1) / blockSize)) * blockSize;
+        if (excess <= 0) {
+          break;
+        }
+      }
+      usage = getMemoryUsage();
+    }
+
+    /*
+     * there is no point in waiting for the storage if it's not writing anything out.
+     */
+    return usage <= memoryLimit || !busy && getSpoolingMemoryUsage() == 0;
+  }
+
+  /**
+   * Stop reading from the publisher until the storage catches up.
+   */
+  void throttle(Publisher publisher)
+  {
+    if (throttledPublishers.add(publisher)) {
+      logger.debug("Throttling {} as the memory usage {} exceeds {}", publisher, getMemoryUsage(), memoryLimit);
+      publisher.suspendRead();
+      throttling = true;
+      /*
+       * the storage may have completed its last request before noticing the throttling, so make sure it completes
+       * one more. If it does not accept it, it is busy and is going to complete plenty.
+       */
+      try {
+        storageHelperExecutor.execute(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+          }
+
+        });
+      }
+      catch (RejectedExecutionException ex) {
+        logger.debug("Storage is busy", ex);
+      }
+    }
+  }
+
+  /**
+   * Called on the event loop each time the storage completes a request while some publishers are throttled.
+   */
+  void releaseThrottledPublishers()
+  {
+    if (!throttledPublishers.isEmpty() && enforceMemoryLimit()) {
+      throttling = false;
+      ArrayList<Publisher> publishers = new ArrayList<Publisher>(throttledPublishers);
+      throttledPublishers.clear();
+      for (Publisher publisher : publishers) {
+        logger.debug("Resuming {}", publisher);
+        publisher.resumeRead();
+        publisher.grantCredits();
+      }
+    }
+  }
+
+  public boolean isThrottling()
+  {
+    return throttling;
+  }
+
   @Override
   public ClientListener getClientConnection(SocketChannel sc, ServerSocketChannel ssc)
   {
@@ -364,11 +704,10 @@ public class Server implements ServerListener
           PublishRequestTuple publisherRequest = (PublishRequestTuple)request;
 
           DataList dl = handlePublisherRequest(publisherRequest, this);
-          dl.setAutoflushExecutor(serverHelperExecutor);
 
           Publisher publisher;
           if (publisherRequest.getVersion().equals(Tuple.FAST_VERSION)) {
-            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId())
+            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId(), publisherRequest.getCreditWindow())
             {
               @Override
               public int readSize()
@@ -384,7 +723,7 @@ public class Server implements ServerListener
             };
           }
           else {
-            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId());
+            publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId(), publisherRequest.getCreditWindow());
           }
 
           key.attach(publisher);
@@ -439,7 +778,12 @@ public class Server implements ServerListener
           subscriber.registered(key);
 
           final LogicalNode logicalNode = handleSubscriberRequest(subscriberRequest, subscriber);
-          serverHelperExecutor.submit(new Runnable()
+          /*
+           * catch up on the executor delivering the data of the list so the iterator is used by one thread at a time.
+           */
+          DataList upstream = publisherBuffers.get(logicalNode.getUpstream());
+          ExecutorService es = upstream == null ? serverHelperExecutor : upstream.getAutoflushExecutor();
+          es.submit(new Runnable()
           {
             @Override
             public void run()
@@ -470,6 +814,11 @@ public class Server implements ServerListener
           }
           break;
 
+        case STATS_REQUEST:
+          logger.debug("Received stats request: {}", request);
+          handleStatsRequest((StatsRequestTuple)request, this);
+          break;
+
         default:
           throw new RuntimeException("unexpected message: " + request.toString());
       }
@@ -563,11 +912,33 @@ public class Server implements ServerListener
   {
     private final DataList datalist;
     boolean dirty;
-
-    Publisher(DataList dl, long windowId)
+    /**
+     * number of the bytes the publisher sends ahead of the credits granted, 0 if it does not wait for the credits.
+     */
+    private final int creditWindow;
+    /**
+     * number of the bytes received since the credits were last granted.
+     */
+    private int received;
+
+    Publisher(DataList dl, long windowId, int creditWindow)
     {
       super(dl.getBuffer(windowId), dl.getPosition(), 1024);
       this.datalist = dl;
+      this.creditWindow = creditWindow;
+      super.write = false;
+    }
+
+    /**
+     * Grant the publisher the credits for the data received once it adds up to a quarter of the window. The credits
+     * are withheld while the publisher is throttled, so it parks instead of filling up the socket buffers.
+     */
+    void grantCredits()
+    {
+      if (creditWindow > 0 && received >= creditWindow / 4 && !throttledPublishers.contains(this)) {
+        write(CreditTuple.getSerializedTuple(received));
+        received = 0;
+      }
     }
 
     public void transferBuffer(byte[] array, int offset, int len)
@@ -604,6 +975,17 @@ public class Server implements ServerListener
     {
       //logger.debug("read {} bytes", len);
       writeOffset += len;
+      received += len;
+      try {
+        readMessages();
+      }
+      finally {
+        grantCredits();
+      }
+    }
+
+    private void readMessages()
+    {
       do {
         if (size <= 0) {
           switch (size = readSize()) {
@@ -658,7 +1040,7 @@ public class Server implements ServerListener
 
     public void switchToNewBuffer(byte[] array, int offset)
     {
-      byte[] newBuffer = new byte[datalist.getBlockSize()];
+      byte[] newBuffer = datalist.newBuffer();
       byteBuffer = ByteBuffer.wrap(newBuffer);
       if (array == null || array.length - offset == 0) {
         writeOffset = 0;
@@ -671,6 +1053,9 @@ public class Server implements ServerListener
       buffer = newBuffer;
       readOffset = 0;
       datalist.addBuffer(buffer);
+      if (!enforceMemoryLimit()) {
+        throttle(this);
+      }
     }
 
     @Override
@@ -709,6 +1094,7 @@ public class Server implements ServerListener
         return;
       }
       torndown = true;
+      throttledPublishers.remove(this);
 
       /*
        * if the publisher unregistered, all the downstream guys are going to be unregistered anyways
@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage which appends the spooled blocks to a small number of large, preallocated, memory mapped segment files.
+ *
+ * Unlike {@link DiskStorage} which creates a file per block, this storage keeps an in-memory index of the
+ * location of each block so storing and retrieving a block is a single copy to or from the mapped memory.
+ * The blocks are retrieved as copies since the {@link Storage} interface hands out byte arrays.
+ * A segment is recycled as soon as all the blocks stored in it are discarded. Blocks larger than the segment
+ * size get a dedicated segment of their own, which is unmapped and deleted once its block is discarded.
+ * {@link #close()} releases the mappings and the files of all the segments.
+ *
+ * @since 2.2.0
+ */
+public class MappedSegmentStorage implements Storage, Closeable
+{
+  public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+  private final String basePath;
+  private final File directory;
+  private final int segmentSize;
+  private final ArrayList<Segment> segments = new ArrayList<Segment>();
+  private final HashMap<Integer, Location> index = new HashMap<Integer, Location>();
+  private Segment current;
+  private int uniqueIdentifier;
+  /* names the segment files, never reused since the oversized segments are dropped from the list of segments */
+  private int segmentCount;
+  private boolean closed;
+
+  public MappedSegmentStorage(String baseDirectory, int segmentSize) throws IOException
+  {
+    if (segmentSize <= 0) {
+      throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+    }
+
+    basePath = baseDirectory;
+    this.segmentSize = segmentSize;
+
+    File tempFile = File.createTempFile("segments", "msp", new File(basePath));
+    directory = new File(basePath, tempFile.getName() + ".d");
+    tempFile.delete();
+    if (!directory.mkdir()) {
+      throw new IOException("directory " + directory.getAbsolutePath() + " could not be created!");
+    }
+    directory.deleteOnExit();
+    logger.info("Using {} with segments of {} bytes for spooling.", directory, segmentSize);
+  }
+
+  public MappedSegmentStorage(int segmentSize) throws IOException
+  {
+    this(getTempDirectory(), segmentSize);
+  }
+
+  public MappedSegmentStorage() throws IOException
+  {
+    this(DEFAULT_SEGMENT_SIZE);
+  }
+
+  private static String getTempDirectory() throws IOException
+  {
+    File tempFile = File.createTempFile("msp", "msp");
+    String path = tempFile.getParent();
+    tempFile.delete();
+    return path;
+  }
+
+  @Override
+  public Storage getInstance() throws IOException
+  {
+    return new MappedSegmentStorage(basePath, segmentSize);
+  }
+
+  @Override
+  public synchronized int store(String identifier, byte[] bytes, int startingOffset, int endingOffset)
+  {
+    if (closed) {
+      throw new IllegalStateException("Storage " + directory + " is closed!");
+    }
+
+    int length = endingOffset - startingOffset;
+    Segment segment = current;
+    if (segment == null || segment.capacity() - segment.writeOffset < length) {
+      try {
+        segment = getSegment(length);
+      }
+      catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+      if (segment.capacity() == segmentSize) {
+        current = segment;
+      }
+    }
+
+    ByteBuffer bb = segment.buffer.duplicate();
+    bb.position(segment.writeOffset);
+    bb.put(bytes, startingOffset, length);
+
+    index.put(++uniqueIdentifier, new Location(identifier, segment, segment.writeOffset, length));
+    segment.writeOffset += length;
+    segment.blockCount++;
+
+    return uniqueIdentifier;
+  }
+
+  @Override
+  public synchronized byte[] retrieve(String identifier, int uniqueIdentifier)
+  {
+    Location location = getLocation(identifier, uniqueIdentifier);
+
+    byte[] bytes = new byte[location.length];
+    ByteBuffer bb = location.segment.buffer.duplicate();
+    bb.position(location.offset);
+    bb.get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public synchronized void discard(String identifier, int uniqueIdentifier)
+  {
+    Location location = getLocation(identifier, uniqueIdentifier);
+    index.remove(uniqueIdentifier);
+
+    Segment segment = location.segment;
+    if (--segment.blockCount == 0) {
+      segment.writeOffset = 0;
+      if (segment.capacity() > segmentSize) {
+        /* oversized segments are not reused since the blocks are normally smaller than the segment */
+        segments.remove(segment);
+        segment.close();
+      }
+    }
+  }
+
+  /**
+   * Unmap and delete all the segments. The blocks still stored are lost and the storage cannot be used any more.
+   */
+  @Override
+  public synchronized void close()
+  {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    index.clear();
+    current = null;
+    for (Segment segment : segments) {
+      segment.close();
+    }
+    segments.clear();
+    if (!directory.delete()) {
+      logger.warn("Directory {} could not be deleted!", directory);
+    }
+  }
+
+  private Location getLocation(String identifier, int uniqueIdentifier)
+  {
+    Location location = index.get(uniqueIdentifier);
+    if (location == null) {
+      throw new RuntimeException("Block " + uniqueIdentifier + " for " + identifier + " does not exist in " + directory);
+    }
+
+    if (!location.identifier.equals(identifier)) {
+      throw new RuntimeException("Collision in identifier name, the block " + uniqueIdentifier + " was stored for [" + location.identifier + "] and not for [" + identifier + "].");
+    }
+
+    return location;
+  }
+
+  /**
+   * Find a segment which has room for length bytes, allocating a new one if none of the existing segments is empty.
+   */
+  private Segment getSegment(int length) throws IOException
+  {
+    if (length <= segmentSize) {
+      for (Segment segment : segments) {
+        if (segment.blockCount == 0 && segment.capacity() == segmentSize) {
+          segment.writeOffset = 0;
+          return segment;
+        }
+      }
+    }
+
+    Segment segment = new Segment(new File(directory, String.valueOf(segmentCount++)), Math.max(length, segmentSize));
+    segments.add(segment);
+    return segment;
+  }
+
+  static class Segment
+  {
+    final File file;
+    final MappedByteBuffer buffer;
+    int writeOffset;
+    int blockCount;
+
+    Segment(File file, int size) throws IOException
+    {
+      this.file = file;
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.setLength(size);
+        FileChannel channel = raf.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+      finally {
+        raf.close();
+      }
+      file.deleteOnExit();
+      logger.debug("allocated segment {} of {} bytes", file, size);
+    }
+
+    int capacity()
+    {
+      return buffer.capacity();
+    }
+
+    /**
+     * Unmap the segment before deleting its file, so that neither the memory nor the disk space is held on to until
+     * the buffer is garbage collected.
+     */
+    void close()
+    {
+      unmap(buffer);
+      if (!file.delete()) {
+        logger.warn("Segment file {} could not be deleted!", file);
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Segment{" + "file=" + file + ", writeOffset=" + writeOffset + ", blockCount=" + blockCount + '}';
+    }
+
+  }
+
+  /**
+   * Release the mapped memory right away through the cleaner of the buffer, where the JVM exposes it.
+   */
+  private static void unmap(MappedByteBuffer buffer)
+  {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    }
+    catch (Exception ex) {
+      logger.debug("Could not unmap the segment, it is released when garbage collected.", ex);
+    }
+  }
+
+  static class Location
+  {
+    final String identifier;
+    final Segment segment;
+    final int offset;
+    final int length;
+
+    Location(String identifier, Segment segment, int offset, int length)
+    {
+      this.identifier = identifier;
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedSegmentStorage.class);
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Snapshot of the internals of a buffer server<p>
+ * <br>
+ * Reports the memory held and the data spooled by each data list, how far behind the subscribers of each list are and
+ * how busy the threads delivering and spooling the data are. The snapshot is returned in response to the stats request
+ * in the binary layout of {@link #toByteArray()}, and a summary without the data lists is sent along with the container
+ * heartbeats.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class BufferServerStats implements Serializable
+{
+  private static final long serialVersionUID = 201510170000L;
+  /**
+   * version of the binary layout, bumped whenever a field is added or removed.
+   */
+  public static final int LAYOUT_VERSION = 1;
+  public long memoryLimit;
+  public long bytesInMemory;
+  public long bytesSpooled;
+  /**
+   * whether the publishers are throttled as the memory limit is exceeded.
+   */
+  public boolean throttling;
+  /**
+   * number of the blocks waiting to be written to or read from the spool.
+   */
+  public int storageQueueDepth;
+  /**
+   * number of the deliveries waiting on each of the delivery threads.
+   */
+  public int[] deliveryQueueDepths = new int[0];
+  public SpoolStats spool = new SpoolStats();
+  public ArrayList<DataListStats> dataLists = new ArrayList<DataListStats>();
+
+  /**
+   * Cumulative counts of the spool I/O, the latency and the throughput are derived from them.
+   */
+  public static class SpoolStats implements Serializable
+  {
+    private static final long serialVersionUID = 201510170000L;
+    public long writes;
+    public long bytesWritten;
+    public long writeNanos;
+    public long reads;
+    public long bytesRead;
+    public long readNanos;
+    /**
+     * counts which the counts recorded here are added to as well.
+     */
+    private transient SpoolStats total;
+
+    public synchronized void setTotal(SpoolStats total)
+    {
+      this.total = total;
+    }
+
+    public void addWrite(long bytes, long nanos)
+    {
+      SpoolStats t;
+      synchronized (this) {
+        writes++;
+        bytesWritten += bytes;
+        writeNanos += nanos;
+        t = total;
+      }
+      if (t != null) {
+        t.addWrite(bytes, nanos);
+      }
+    }
+
+    public void addRead(long bytes, long nanos)
+    {
+      SpoolStats t;
+      synchronized (this) {
+        reads++;
+        bytesRead += bytes;
+        readNanos += nanos;
+        t = total;
+      }
+      if (t != null) {
+        t.addRead(bytes, nanos);
+      }
+    }
+
+    public synchronized void add(SpoolStats other)
+    {
+      synchronized (other) {
+        writes += other.writes;
+        bytesWritten += other.bytesWritten;
+        writeNanos += other.writeNanos;
+        reads += other.reads;
+        bytesRead += other.bytesRead;
+        readNanos += other.readNanos;
+      }
+    }
+
+    void write(DataOutput out) throws IOException
+    {
+      out.writeLong(writes);
+      out.writeLong(bytesWritten);
+      out.writeLong(writeNanos);
+      out.writeLong(reads);
+      out.writeLong(bytesRead);
+      out.writeLong(readNanos);
+    }
+
+    void readFields(DataInput in) throws IOException
+    {
+      writes = in.readLong();
+      bytesWritten = in.readLong();
+      writeNanos = in.readLong();
+      reads = in.readLong();
+      bytesRead = in.readLong();
+      readNanos = in.readLong();
+    }
+
+    /**
+     * @return average time in nanoseconds a block takes to be written to the spool.
+     */
+    public long getWriteLatency()
+    {
+      return writes == 0 ? 0 : writeNanos / writes;
+    }
+
+    /**
+     * @return average time in nanoseconds a block takes to be read from the spool.
+     */
+    public long getReadLatency()
+    {
+      return reads == 0 ? 0 : readNanos / reads;
+    }
+
+    /**
+     * @return bytes written per second of the time spent writing to the spool.
+     */
+    public long getWriteThroughput()
+    {
+      return writeNanos == 0 ? 0 : (long)(bytesWritten * 1e9 / writeNanos);
+    }
+
+    /**
+     * @return bytes read per second of the time spent reading from the spool.
+     */
+    public long getReadThroughput()
+    {
+      return readNanos == 0 ? 0 : (long)(bytesRead * 1e9 / readNanos);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "SpoolStats{" + "writes=" + writes + ", bytesWritten=" + bytesWritten + ", writeLatency=" + getWriteLatency() + ", writeThroughput=" + getWriteThroughput()
+             + ", reads=" + reads + ", bytesRead=" + bytesRead + ", readLatency=" + getReadLatency() + ", readThroughput=" + getReadThroughput() + '}';
+    }
+
+  }
+
+  public static class DataListStats implements Serializable
+  {
+    private static final long serialVersionUID = 201510170000L;
+    public String identifier;
+    public long bytesInMemory;
+    public long bytesSpooled;
+    public SpoolStats spool = new SpoolStats();
+    public ArrayList<SubscriberStats> subscribers = new ArrayList<SubscriberStats>();
+
+    void write(DataOutput out) throws IOException
+    {
+      out.writeUTF(identifier);
+      out.writeLong(bytesInMemory);
+      out.writeLong(bytesSpooled);
+      spool.write(out);
+      out.writeInt(subscribers.size());
+      for (SubscriberStats subscriber : subscribers) {
+        subscriber.write(out);
+      }
+    }
+
+    void readFields(DataInput in) throws IOException
+    {
+      identifier = in.readUTF();
+      bytesInMemory = in.readLong();
+      bytesSpooled = in.readLong();
+      spool.readFields(in);
+      int count = in.readInt();
+      subscribers = new ArrayList<SubscriberStats>(count);
+      for (int i = 0; i < count; i++) {
+        SubscriberStats subscriber = new SubscriberStats();
+        subscriber.readFields(in);
+        subscribers.add(subscriber);
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return "DataListStats{" + "identifier=" + identifier + ", bytesInMemory=" + bytesInMemory + ", bytesSpooled=" + bytesSpooled + ", spool=" + spool + ", subscribers=" + subscribers + '}';
+    }
+
+  }
+
+  public static class SubscriberStats implements Serializable
+  {
+    private static final long serialVersionUID = 201510170000L;
+    public String identifier;
+    /**
+     * number of the windows stored which the subscriber has not been sent yet.
+     */
+    public long lagWindows;
+    /**
+     * number of the bytes stored which the subscriber has not been sent yet.
+     */
+    public long lagBytes;
+
+    void write(DataOutput out) throws IOException
+    {
+      out.writeUTF(identifier);
+      out.writeLong(lagWindows);
+      out.writeLong(lagBytes);
+    }
+
+    void readFields(DataInput in) throws IOException
+    {
+      identifier = in.readUTF();
+      lagWindows = in.readLong();
+      lagBytes = in.readLong();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "SubscriberStats{" + "identifier=" + identifier + ", lagWindows=" + lagWindows + ", lagBytes=" + lagBytes + '}';
+    }
+
+  }
+
+  /**
+   * Serialize the stats in a fixed binary layout: the layout version followed by the fields in the order they are
+   * declared, the arrays and the lists prefixed with their length and the strings in modified UTF-8.
+   *
+   * @return the serialized stats
+   */
+  public byte[] toByteArray()
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(LAYOUT_VERSION);
+      out.writeLong(memoryLimit);
+      out.writeLong(bytesInMemory);
+      out.writeLong(bytesSpooled);
+      out.writeBoolean(throttling);
+      out.writeInt(storageQueueDepth);
+      out.writeInt(deliveryQueueDepths.length);
+      for (int depth : deliveryQueueDepths) {
+        out.writeInt(depth);
+      }
+      spool.write(out);
+      out.writeInt(dataLists.size());
+      for (DataListStats dataList : dataLists) {
+        dataList.write(out);
+      }
+      out.flush();
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Deserialize the stats serialized by {@link #toByteArray()}.
+   *
+   * @param buffer buffer holding the serialized stats
+   * @param offset offset of the serialized stats in the buffer
+   * @param length length of the serialized stats
+   * @return the stats
+   * @throws IllegalArgumentException if the buffer does not hold the stats in the known layout
+   */
+  public static BufferServerStats fromByteArray(byte[] buffer, int offset, int length)
+  {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+    BufferServerStats stats = new BufferServerStats();
+    try {
+      int version = in.readInt();
+      if (version != LAYOUT_VERSION) {
+        throw new IllegalArgumentException("Unsupported layout version " + version + " of the buffer server stats");
+      }
+      stats.memoryLimit = in.readLong();
+      stats.bytesInMemory = in.readLong();
+      stats.bytesSpooled = in.readLong();
+      stats.throttling = in.readBoolean();
+      stats.storageQueueDepth = in.readInt();
+      stats.deliveryQueueDepths = new int[in.readInt()];
+      for (int i = 0; i < stats.deliveryQueueDepths.length; i++) {
+        stats.deliveryQueueDepths[i] = in.readInt();
+      }
+      stats.spool.readFields(in);
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        DataListStats dataList = new DataListStats();
+        dataList.readFields(in);
+        stats.dataLists.add(dataList);
+      }
+    }
+    catch (IOException ex) {
+      throw new IllegalArgumentException("Malformed buffer server stats", ex);
+    }
+    return stats;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "BufferServerStats{" + "memoryLimit=" + memoryLimit + ", bytesInMemory=" + bytesInMemory + ", bytesSpooled=" + bytesSpooled + ", throttling=" + throttling
+           + ", storageQueueDepth=" + storageQueueDepth + ", deliveryQueueDepths=" + Arrays.toString(deliveryQueueDepths) + ", spool=" + spool + ", dataLists=" + dataLists + '}';
+  }
+
+}
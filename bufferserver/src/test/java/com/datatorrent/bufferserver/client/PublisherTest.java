@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.client;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+/**
+ * Tests the publisher waiting for the credits on a connection which goes away.
+ */
+public class PublisherTest
+{
+  static final int CREDIT_WINDOW = 4096;
+  static int spinCount = 500;
+  static DefaultEventLoop eventloopClient;
+
+  @BeforeClass
+  public static void setupClient() throws Exception
+  {
+    eventloopClient = new DefaultEventLoop("client");
+    eventloopClient.start();
+  }
+
+  @AfterClass
+  public static void teardownClient()
+  {
+    eventloopClient.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testServerClosedWhileOutOfCredits() throws Exception
+  {
+    /* a server which accepts the connection but never grants any credits */
+    ServerSocket server = new ServerSocket(0);
+    final Publisher publisher = new Publisher("ClosedPublisher", CREDIT_WINDOW);
+    eventloopClient.connect(new InetSocketAddress("localhost", server.getLocalPort()), publisher);
+    Socket connection = server.accept();
+    publisher.activate(null, 0x7afebabe, 0);
+
+    final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+    Thread thread = new Thread("ClosedPublisher")
+    {
+      @Override
+      public void run()
+      {
+        try {
+          while (true) {
+            publisher.publish(PayloadTuple.getSerializedTuple(0, 64));
+          }
+        }
+        catch (RuntimeException ex) {
+          failure.set(ex);
+        }
+      }
+
+    };
+    thread.start();
+
+    for (int i = 0; i < spinCount && publisher.getCredits().getAvailable() > 0; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(publisher.getCredits().getAvailable() <= 0, "credits ran out " + publisher.getCredits());
+    Thread.sleep(50);
+    Assert.assertTrue(thread.isAlive(), "publisher waiting for the credits");
+
+    connection.close();
+    server.close();
+
+    thread.join(spinCount * 10);
+    Assert.assertFalse(thread.isAlive(), "publisher gave up on the closed connection");
+    Assert.assertNotNull(failure.get(), "publisher failed");
+    eventloopClient.disconnect(publisher);
+  }
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class BlockPoolTest
+{
+  @Test
+  public void testRecycle()
+  {
+    BlockPool pool = new BlockPool(16, 2);
+
+    byte[] first = pool.acquire();
+    byte[] second = pool.acquire();
+    byte[] third = pool.acquire();
+    assertEquals(first.length, 16);
+    assertNotSame(first, second);
+
+    assertTrue(pool.release(first));
+    assertTrue(pool.release(second));
+    assertFalse(pool.release(third), "pool is full");
+    assertFalse(pool.release(new byte[8]), "wrong size");
+    assertEquals(pool.size(), 2);
+
+    assertSame(pool.acquire(), first);
+    assertSame(pool.acquire(), second);
+    assertEquals(pool.size(), 0);
+  }
+
+}
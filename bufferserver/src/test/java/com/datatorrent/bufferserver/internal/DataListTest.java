@@ -0,0 +1,471 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.storage.MappedSegmentStorage;
+import com.datatorrent.bufferserver.storage.Storage;
+import com.datatorrent.bufferserver.util.BufferServerStats;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.VarInt;
+
+/**
+ * Exercises the DataList the same way the server side publisher does, but without the network.
+ */
+public class DataListTest
+{
+  static final int BASE_SECONDS = 0x7afebabe;
+  static final int BLOCK_SIZE = 256;
+  DataList dl;
+  BlockPool pool;
+  byte[] block;
+  int offset;
+
+  @BeforeMethod
+  public void setup()
+  {
+    dl = new DataList("DataListTest", BLOCK_SIZE, 8);
+    dl.setAutoflushExecutor(MoreExecutors.sameThreadExecutor());
+    pool = new BlockPool(BLOCK_SIZE, 8);
+    dl.setBlockPool(pool);
+    block = dl.getBuffer((long)BASE_SECONDS << 32);
+    offset = dl.getPosition();
+  }
+
+  /**
+   * Frame the tuple with its length and append it to the data list. Like the server side publisher, a tuple which
+   * does not fit in the current block is written partially and then copied in its entirety to a new block.
+   */
+  void publish(byte[] tuple)
+  {
+    byte[] framed = new byte[VarInt.getSize(tuple.length) + tuple.length];
+    System.arraycopy(tuple, 0, framed, VarInt.write(tuple.length, framed, 0), tuple.length);
+
+    if (offset + framed.length <= block.length) {
+      System.arraycopy(framed, 0, block, offset, framed.length);
+      offset += framed.length;
+    }
+    else {
+      int fits = block.length - offset;
+      System.arraycopy(framed, 0, block, offset, fits);
+      dl.flush(block.length);
+      block = dl.newBuffer();
+      offset = framed.length;
+      System.arraycopy(framed, 0, block, 0, offset);
+      dl.addBuffer(block);
+    }
+    dl.flush(offset);
+  }
+
+  void publishWindows(int from, int to, int tuplesPerWindow)
+  {
+    for (int window = from; window < to; window++) {
+      publish(BeginWindowTuple.getSerializedTuple(window));
+      for (int i = 0; i < tuplesPerWindow; i++) {
+        byte[] payload = PayloadTuple.getSerializedTuple(i, 8);
+        payload[payload.length - 1] = (byte)window;
+        publish(payload);
+      }
+      publish(EndWindowTuple.getSerializedTuple(window));
+    }
+  }
+
+  int countBlocks()
+  {
+    int count = 0;
+    for (DataList.Block temp = dl.first; temp != null; temp = temp.next) {
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void testPurgeRecyclesBlocks()
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    int blocks = countBlocks();
+    assertTrue(blocks > 3, "blocks " + blocks);
+    assertEquals(pool.size(), 0, "nothing to recycle before purge");
+
+    dl.purge(BASE_SECONDS, 15);
+    int purged = blocks - countBlocks();
+    assertTrue(purged > 0, "purged blocks");
+    assertEquals(pool.size(), purged, "recycled blocks");
+
+    byte[] recycled = dl.newBuffer();
+    assertEquals(pool.size(), purged - 1, "recycled block handed out");
+    pool.release(recycled);
+
+    publishWindows(20, 40, 4);
+    assertEquals(pool.size(), 0, "recycled blocks reused");
+
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", (long)BASE_SECONDS << 32 | 30);
+    int windows = 0;
+    while (iterator.hasNext()) {
+      SerializedData sd = iterator.next();
+      if (sd.buffer[sd.dataOffset] == MessageType.BEGIN_WINDOW_VALUE) {
+        windows++;
+      }
+    }
+    assertTrue(windows >= 10, "windows after recycling " + windows);
+  }
+
+  @Test
+  public void testSpoolLaggingBlocks() throws Exception
+  {
+    dl.setSecondaryStorage(new MappedSegmentStorage(4096), MoreExecutors.sameThreadExecutor());
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    int blocks = countBlocks();
+    assertEquals(dl.getBacklogBlockCount(), blocks, "no subscribers");
+    assertEquals(dl.getInMemoryBlockCount(), blocks);
+
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", 0);
+    assertEquals(dl.getBacklogBlockCount(), blocks, "subscriber at the first block");
+
+    assertEquals(dl.spool(2), 2);
+    assertEquals(dl.getInMemoryBlockCount(), blocks - 2);
+    assertEquals(dl.getMemoryUsage(), (long)(blocks - 2) * BLOCK_SIZE);
+    assertTrue(dl.first.data != null, "block under the iterator is not spooled");
+    assertTrue(dl.last.data != null, "block being written is not spooled");
+
+    assertEquals(dl.spool(blocks), blocks - 4, "all but the first and the last block spooled");
+
+    int windows = 0;
+    while (iterator.hasNext()) {
+      SerializedData sd = iterator.next();
+      if (sd.buffer[sd.dataOffset] == MessageType.BEGIN_WINDOW_VALUE) {
+        windows++;
+      }
+    }
+    assertEquals(windows, 20, "windows read back from the storage");
+    assertEquals(dl.getBacklogBlockCount(), 1, "subscriber at the last block");
+  }
+
+  @Test
+  public void testPurgeWhileSpooling() throws Exception
+  {
+    final CountDownLatch gate = new CountDownLatch(1);
+    final Set<Integer> stored = Collections.synchronizedSet(new HashSet<Integer>());
+    Storage storage = new MappedSegmentStorage(4096)
+    {
+      @Override
+      public int store(String identifier, byte[] bytes, int startingOffset, int endingOffset)
+      {
+        try {
+          gate.await();
+        }
+        catch (InterruptedException ex) {
+          throw new RuntimeException(ex);
+        }
+        int id = super.store(identifier, bytes, startingOffset, endingOffset);
+        stored.add(id);
+        return id;
+      }
+
+      @Override
+      public synchronized void discard(String identifier, int uniqueIdentifier)
+      {
+        super.discard(identifier, uniqueIdentifier);
+        stored.remove(uniqueIdentifier);
+      }
+
+    };
+    ExecutorService storer = Executors.newSingleThreadExecutor();
+    dl.setSecondaryStorage(storage, storer);
+    pool = new BlockPool(BLOCK_SIZE, 64);
+    dl.setBlockPool(pool);
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    int blocks = countBlocks();
+    int spooled = dl.spool(blocks);
+    assertTrue(spooled > 1, "spooled blocks " + spooled);
+    dl.purge(BASE_SECONDS, 15);
+    int purged = blocks - countBlocks();
+    assertTrue(purged > 0, "purged blocks");
+    assertEquals(pool.size(), 0, "arrays being stored are not recycled");
+
+    gate.countDown();
+    storer.shutdown();
+    assertTrue(storer.awaitTermination(10, TimeUnit.SECONDS), "storer done");
+
+    int remaining = 0;
+    for (DataList.Block temp = dl.first; temp != null; temp = temp.next) {
+      if (temp.uniqueIdentifier != 0) {
+        remaining++;
+      }
+    }
+    assertEquals(stored.size(), remaining, "blocks stored after the purge are discarded");
+    assertTrue(pool.size() >= purged, "purged arrays recycled once stored " + pool);
+
+    /* the windows left in the partially purged block are still there, read from memory or from the storage */
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", 0);
+    int window = -1;
+    while (iterator.hasNext()) {
+      SerializedData sd = iterator.next();
+      Tuple tuple = Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
+      if (tuple.getType() == MessageType.BEGIN_WINDOW) {
+        if (window == -1) {
+          assertTrue(tuple.getWindowId() <= 16, "first window " + tuple.getWindowId());
+        }
+        else {
+          assertEquals(tuple.getWindowId(), window + 1, "next window");
+        }
+        window = tuple.getWindowId();
+      }
+    }
+    assertEquals(window, 19, "last window");
+  }
+
+  @Test
+  public void testSpoolingBlocksCountTowardMemory() throws Exception
+  {
+    final CountDownLatch gate = new CountDownLatch(1);
+    Storage storage = new MappedSegmentStorage(4096)
+    {
+      @Override
+      public int store(String identifier, byte[] bytes, int startingOffset, int endingOffset)
+      {
+        try {
+          gate.await();
+        }
+        catch (InterruptedException ex) {
+          throw new RuntimeException(ex);
+        }
+        return super.store(identifier, bytes, startingOffset, endingOffset);
+      }
+
+    };
+    ExecutorService storer = Executors.newSingleThreadExecutor();
+    dl.setSecondaryStorage(storage, storer);
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    int blocks = countBlocks();
+    assertEquals(dl.spool(2), 2);
+    assertEquals(dl.getInMemoryBlockCount(), blocks, "blocks being spooled are still in memory");
+    assertEquals(dl.getMemoryUsage(), (long)blocks * BLOCK_SIZE);
+    assertEquals(dl.getSpoolingBlockCount(), 2);
+    assertEquals(dl.getSpoolingMemoryUsage(), 2L * BLOCK_SIZE);
+
+    gate.countDown();
+    storer.shutdown();
+    assertTrue(storer.awaitTermination(10, TimeUnit.SECONDS), "storer done");
+
+    assertEquals(dl.getInMemoryBlockCount(), blocks - 2, "spooled blocks released");
+    assertEquals(dl.getMemoryUsage(), (long)(blocks - 2) * BLOCK_SIZE);
+    assertEquals(dl.getSpoolingBlockCount(), 0);
+    assertEquals(dl.getSpoolingMemoryUsage(), 0L);
+  }
+
+  @Test
+  public void testStats() throws Exception
+  {
+    dl.setSecondaryStorage(new MappedSegmentStorage(4096), MoreExecutors.sameThreadExecutor());
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", 0);
+    BufferServerStats.DataListStats stats = dl.getStats();
+    assertEquals(stats.identifier, "DataListTest");
+    assertEquals(stats.subscribers.size(), 1);
+    assertEquals(stats.subscribers.get(0).lagWindows, 20);
+    assertEquals(stats.bytesInMemory, dl.getMemoryUsage());
+
+    long bytes = stats.subscribers.get(0).lagBytes;
+    assertTrue(bytes > 20 * 4 * 8, "lag bytes " + bytes);
+    for (int window = 0; window < 5;) {
+      Tuple tuple = nextTuple(iterator);
+      if (tuple.getType() == MessageType.END_WINDOW) {
+        window++;
+      }
+    }
+    stats = dl.getStats();
+    assertEquals(stats.subscribers.get(0).lagWindows, 15);
+    assertTrue(stats.subscribers.get(0).lagBytes < bytes, "lag bytes " + stats.subscribers.get(0).lagBytes);
+
+    int spooled = dl.spool(countBlocks());
+    stats = dl.getStats();
+    assertEquals(stats.spool.writes, spooled);
+    assertTrue(stats.bytesSpooled > 0, "bytes spooled");
+    assertEquals(stats.subscribers.get(0).lagWindows, 15, "spooled windows");
+  }
+
+  @Test
+  public void testIteratedBlocksAreNotRecycled()
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    DataList.Block oldest = dl.first;
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", 0);
+    assertSame(((DataList.DataListIterator)iterator).da, oldest);
+
+    dl.purge(BASE_SECONDS, 15);
+    assertTrue(oldest.data != null, "block under the iterator retains its data");
+  }
+
+  /**
+   * Get the next tuple skipping the empty data the iterator returns when it moves to the next block.
+   */
+  Tuple nextTuple(Iterator<SerializedData> iterator)
+  {
+    while (iterator.hasNext()) {
+      SerializedData sd = iterator.next();
+      if (sd.length > 0) {
+        return Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void testSeek()
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    DataList.DataListIterator iterator = (DataList.DataListIterator)dl.newIterator("subscriber", 0);
+    long skipWindowId = (long)BASE_SECONDS << 32 | 10;
+    int payloads = 0;
+    Tuple tuple;
+    do {
+      iterator.seek(skipWindowId);
+      tuple = nextTuple(iterator);
+      if (tuple.getType() == MessageType.PAYLOAD) {
+        payloads++;
+      }
+    }
+    while (tuple.getType() != MessageType.BEGIN_WINDOW || tuple.getWindowId() <= 10);
+
+    assertEquals(tuple.getWindowId(), 11, "first window after the skipped one");
+    assertTrue(payloads <= 4 * countBlocks(), "payloads iterated " + payloads);
+  }
+
+  @Test
+  public void testPurgeRestoresReset()
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    for (int window = 0; window < 3; window++) {
+      DataList.Block oldest = dl.first;
+      dl.purge(BASE_SECONDS, window);
+      assertSame(dl.first, oldest, "purged within the first block");
+      assertEquals(dl.first.starting_window, (long)BASE_SECONDS << 32 | (window + 1));
+
+      Iterator<SerializedData> iterator = dl.newIterator("subscriber" + window, 0);
+      Tuple tuple = nextTuple(iterator);
+      assertEquals(tuple.getType(), MessageType.RESET_WINDOW);
+      assertEquals(tuple.getBaseSeconds(), BASE_SECONDS);
+      tuple = nextTuple(iterator);
+      assertEquals(tuple.getType(), MessageType.BEGIN_WINDOW);
+      assertEquals(tuple.getWindowId(), window + 1);
+      dl.delIterator(iterator);
+    }
+  }
+
+  @Test
+  public void testNextRun()
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 10, 4);
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS + 1, 500));
+    publishWindows(0, 10, 4);
+
+    StringBuilder expected = new StringBuilder();
+    Iterator<SerializedData> iterator = dl.newIterator("tuples", 0);
+    for (Tuple tuple = nextTuple(iterator); tuple != null; tuple = nextTuple(iterator)) {
+      expected.append(tuple.getType()).append(' ');
+    }
+
+    StringBuilder actual = new StringBuilder();
+    int runs = 0;
+    DataList.DataListIterator runIterator = (DataList.DataListIterator)dl.newIterator("runs", 0);
+    while (runIterator.hasNext()) {
+      SerializedData run = runIterator.nextRun(100);
+      if (run.length == 0) {
+        continue;
+      }
+
+      runs++;
+      SerializedData sd = new SerializedData(run.buffer, run.offset, 0);
+      int tuples = 0;
+      while (sd.offset < run.offset + run.length) {
+        VarInt.read(sd);
+        Tuple tuple = Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset);
+        if (tuples++ > 0) {
+          assertTrue(tuple.getType() != MessageType.RESET_WINDOW, "reset window starts a new run");
+        }
+        actual.append(tuple.getType()).append(' ');
+        sd.offset += sd.length;
+      }
+      assertEquals(sd.offset, run.offset + run.length, "run ends with a tuple");
+      assertTrue(run.length < 100 + BLOCK_SIZE / 4 || tuples == 1, "run length " + run.length);
+    }
+
+    assertEquals(actual.toString(), expected.toString());
+    assertTrue(runs < countBlocks() * 8, "runs " + runs);
+  }
+
+  @Test
+  public void testRewind() throws Exception
+  {
+    publish(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    publishWindows(0, 20, 4);
+
+    dl.rewind(BASE_SECONDS, 10);
+    block = dl.getBuffer(0);
+    offset = dl.getPosition();
+    publishWindows(10, 15, 4);
+
+    Iterator<SerializedData> iterator = dl.newIterator("subscriber", 0);
+    int expectedWindow = 0;
+    for (Tuple tuple = nextTuple(iterator); tuple != null; tuple = nextTuple(iterator)) {
+      if (tuple.getType() == MessageType.BEGIN_WINDOW) {
+        assertEquals(tuple.getWindowId(), expectedWindow++);
+      }
+    }
+    assertEquals(expectedWindow, 15, "windows after rewind");
+  }
+
+}
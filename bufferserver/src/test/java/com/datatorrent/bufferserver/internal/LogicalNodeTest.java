@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.util.BitVector;
+
+/**
+ *
+ */
+public class LogicalNodeTest
+{
+  private static void assertMatches(LogicalNode ln, BitVector[] partitions, int partition)
+  {
+    byte[] serialized = PayloadTuple.getSerializedTuple(partition, 0);
+    int value = new PayloadTuple(serialized, 0, serialized.length).getPartition();
+    boolean expected = false;
+    for (BitVector bv : partitions) {
+      expected |= bv.matches(value);
+    }
+    assertEquals(ln.matches(serialized, 0), expected, "partition " + partition);
+  }
+
+  /**
+   * @param bitsAndMasks bits and mask of each partition one after the other
+   */
+  private static void testPartitions(int... bitsAndMasks)
+  {
+    DataList dl = new DataList("LogicalNodeTest", 256, 8);
+    LogicalNode ln = new LogicalNode("upstream", "group", dl.newIterator("group", 0), 0);
+    BitVector[] partitions = new BitVector[bitsAndMasks.length / 2];
+    for (int i = 0; i < partitions.length; i++) {
+      ln.addPartition(bitsAndMasks[2 * i], bitsAndMasks[2 * i + 1]);
+      partitions[i] = new BitVector(bitsAndMasks[2 * i], bitsAndMasks[2 * i + 1]);
+    }
+
+    Random random = new Random(partitions.length);
+    for (int i = 0; i < 10000; i++) {
+      assertMatches(ln, partitions, random.nextInt());
+    }
+    for (int i = -512; i < 512; i++) {
+      assertMatches(ln, partitions, i);
+    }
+  }
+
+  @Test
+  public void testPartitionMatching()
+  {
+    testPartitions(3, 0x1f);
+    testPartitions(1, 0x1f, 17, 0x1f, 2, 0x3);
+    testPartitions(0x105, 0x30f, 0x40, 0xf0);
+  }
+
+  @Test
+  public void testWidePartitionMask()
+  {
+    testPartitions(0x7, 0xf, 0x10000001, 0x7fff0003);
+    testPartitions(0x80000001, 0x80000001);
+  }
+
+}
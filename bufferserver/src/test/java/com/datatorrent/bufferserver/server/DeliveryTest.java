@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.net.InetSocketAddress;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+/**
+ * Publishes on several streams to a server which delivers the data with multiple threads.
+ */
+public class DeliveryTest
+{
+  static final int STREAMS = 3;
+  static final int WINDOWS = 10;
+  static final int PAYLOADS = 100;
+  static Server instance;
+  static InetSocketAddress address;
+  static int spinCount = 500;
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = new DefaultEventLoop("server");
+    eventloopClient = new DefaultEventLoop("client");
+    eventloopServer.start();
+    eventloopClient.start();
+
+    instance = new Server(0, 4096, 8, STREAMS);
+    address = instance.run(eventloopServer);
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    eventloopServer.stop(instance);
+    eventloopServer.stop();
+    eventloopClient.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testParallelDelivery() throws InterruptedException
+  {
+    Publisher[] publishers = new Publisher[STREAMS];
+    Subscriber[] subscribers = new Subscriber[STREAMS];
+    for (int i = 0; i < STREAMS; i++) {
+      subscribers[i] = new Subscriber("Subscriber" + i);
+      eventloopClient.connect(address, subscribers[i]);
+      subscribers[i].activate(null, "BufferServerOutput/Subscriber" + i, "Publisher" + i, 0, null, 0L, 0);
+
+      publishers[i] = new Publisher("Publisher" + i);
+      eventloopClient.connect(address, publishers[i]);
+      publishers[i].activate(null, 0x7afebabe, 0);
+    }
+
+    for (int window = 0; window < WINDOWS; window++) {
+      for (Publisher publisher : publishers) {
+        publisher.publishMessage(BeginWindowTuple.getSerializedTuple(window));
+        for (int i = 0; i < PAYLOADS; i++) {
+          byte[] buff = PayloadTuple.getSerializedTuple(0, 1);
+          buff[buff.length - 1] = (byte)i;
+          publisher.publishMessage(buff);
+        }
+        publisher.publishMessage(EndWindowTuple.getSerializedTuple(window));
+      }
+    }
+
+    int expected = WINDOWS * (PAYLOADS + 2);
+    for (int i = 0; i < spinCount; i++) {
+      Thread.sleep(10);
+      boolean done = true;
+      for (Subscriber subscriber : subscribers) {
+        if (subscriber.tupleCount.get() < expected + subscriber.resetPayloads.size()) {
+          done = false;
+          break;
+        }
+      }
+      if (done) {
+        break;
+      }
+    }
+
+    for (int i = 0; i < STREAMS; i++) {
+      eventloopClient.disconnect(publishers[i]);
+      eventloopClient.disconnect(subscribers[i]);
+    }
+
+    for (Subscriber subscriber : subscribers) {
+      assertEquals(subscriber.tupleCount.get(), expected + subscriber.resetPayloads.size(), subscriber.toString());
+      assertEquals(subscriber.firstPayload.getWindowId(), 0);
+      assertEquals(subscriber.lastPayload.getWindowId(), WINDOWS - 1);
+    }
+  }
+
+}
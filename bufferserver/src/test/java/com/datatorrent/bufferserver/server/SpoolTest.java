@@ -0,0 +1,317 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.storage.MappedSegmentStorage;
+import com.datatorrent.bufferserver.storage.Storage;
+import com.datatorrent.bufferserver.support.Controller;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.bufferserver.util.BufferServerStats;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+/**
+ * Publishes more data than the server keeps in memory to a storage which is held up.
+ */
+public class SpoolTest
+{
+  static final int WINDOWS = 40;
+  static final int PAYLOADS = 10;
+  static Server instance;
+  static InetSocketAddress address;
+  static int spinCount = 500;
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+  static GatedStorage storage;
+
+  static class GatedStorage implements Storage
+  {
+    volatile CountDownLatch gate = new CountDownLatch(1);
+    final Storage storage;
+
+    GatedStorage(Storage storage)
+    {
+      this.storage = storage;
+    }
+
+    @Override
+    public Storage getInstance() throws IOException
+    {
+      return this;
+    }
+
+    @Override
+    public int store(String identifier, byte[] bytes, int start, int end)
+    {
+      try {
+        gate.await();
+      }
+      catch (InterruptedException ex) {
+        throw new RuntimeException(ex);
+      }
+      return storage.store(identifier, bytes, start, end);
+    }
+
+    @Override
+    public byte[] retrieve(String identifier, int uniqueIdentifier)
+    {
+      return storage.retrieve(identifier, uniqueIdentifier);
+    }
+
+    @Override
+    public void discard(String identifier, int uniqueIdentifier)
+    {
+      storage.discard(identifier, uniqueIdentifier);
+    }
+
+  }
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = new DefaultEventLoop("server");
+    eventloopClient = new DefaultEventLoop("client");
+    eventloopServer.start();
+    eventloopClient.start();
+
+    storage = new GatedStorage(new MappedSegmentStorage(64 * 1024));
+    instance = new Server(0, 1024, 4);
+    instance.setSpoolStorage(storage);
+    address = instance.run(eventloopServer);
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    storage.gate.countDown();
+    eventloopServer.stop(instance);
+    eventloopServer.stop();
+    eventloopClient.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testThrottledPublisher() throws InterruptedException
+  {
+    Publisher publisher = new Publisher("SpoolPublisher");
+    eventloopClient.connect(address, publisher);
+    publisher.activate(null, 0x7afebabe, 0);
+
+    for (int window = 0; window < WINDOWS; window++) {
+      publisher.publishMessage(BeginWindowTuple.getSerializedTuple(window));
+      for (int i = 0; i < PAYLOADS; i++) {
+        byte[] buff = PayloadTuple.getSerializedTuple(0, 64);
+        buff[buff.length - 1] = (byte)i;
+        publisher.publishMessage(buff);
+      }
+      publisher.publishMessage(EndWindowTuple.getSerializedTuple(window));
+    }
+
+    for (int i = 0; i < spinCount && !instance.isThrottling(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(instance.isThrottling(), "publisher throttled while the storage is held up");
+
+    storage.gate.countDown();
+    for (int i = 0; i < spinCount && instance.isThrottling(); i++) {
+      Thread.sleep(10);
+    }
+    assertFalse(instance.isThrottling(), "publisher resumed once the storage caught up");
+
+    Subscriber subscriber = new Subscriber("SpoolSubscriber");
+    eventloopClient.connect(address, subscriber);
+    subscriber.activate(null, "BufferServerOutput/SpoolSubscriber", "SpoolPublisher", 0, null, 0L, 0);
+
+    int expected = WINDOWS * (PAYLOADS + 2);
+    for (int i = 0; i < spinCount; i++) {
+      Thread.sleep(10);
+      if (subscriber.tupleCount.get() >= expected + subscriber.resetPayloads.size()) {
+        break;
+      }
+    }
+
+    eventloopClient.disconnect(publisher);
+    eventloopClient.disconnect(subscriber);
+
+    assertEquals(subscriber.tupleCount.get(), expected + subscriber.resetPayloads.size());
+    assertEquals(subscriber.lastPayload.getWindowId(), WINDOWS - 1);
+  }
+
+  @Test(dependsOnMethods = {"testThrottledPublisher"})
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testStats() throws InterruptedException
+  {
+    BufferServerStats summary = instance.getStats();
+    assertTrue(summary.dataLists.isEmpty(), "no data lists in the summary");
+    assertTrue(summary.spool.writes > 0, "blocks written to the spool " + summary.spool);
+    assertTrue(summary.spool.reads > 0, "blocks read from the spool " + summary.spool);
+    assertEquals(summary.deliveryQueueDepths.length, 1);
+    for (int i = 0; i < spinCount && summary.bytesInMemory == 0; i++) {
+      Thread.sleep(10);
+      summary = instance.getStats();
+    }
+    assertTrue(summary.bytesInMemory > 0, "memory measured on the event loop");
+    assertTrue(summary.bytesInMemory <= summary.memoryLimit + 1024, "bytes in memory " + summary.bytesInMemory);
+
+    Controller controller = new Controller("SpoolController");
+    eventloopClient.connect(address, controller);
+    controller.stats(null, "SpoolPublisher");
+    for (int i = 0; i < spinCount && controller.stats == null; i++) {
+      Thread.sleep(10);
+    }
+    eventloopClient.disconnect(controller);
+
+    BufferServerStats stats = controller.stats;
+    assertNotNull(stats);
+    assertEquals(stats.memoryLimit, summary.memoryLimit);
+    assertEquals(stats.dataLists.size(), 1);
+    assertEquals(stats.dataLists.get(0).identifier, "SpoolPublisher");
+    assertTrue(stats.dataLists.get(0).spool.writes > 0, "blocks of the list written to the spool " + stats.spool);
+    assertTrue(stats.spool.writes <= summary.spool.writes, "blocks written to the spool " + stats.spool);
+    assertEquals(stats.bytesInMemory, stats.dataLists.get(0).bytesInMemory);
+  }
+
+  @Test(dependsOnMethods = {"testStats"})
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testCreditsWithheldFromThrottledPublisher() throws InterruptedException
+  {
+    storage.gate = new CountDownLatch(1);
+    final Publisher publisher = new Publisher("CreditPublisher", 4096);
+    eventloopClient.connect(address, publisher);
+    publisher.activate(null, 0x7afebabe, 0);
+
+    Thread thread = new Thread("CreditPublisher")
+    {
+      @Override
+      public void run()
+      {
+        for (int window = 0; window < WINDOWS; window++) {
+          publisher.publish(BeginWindowTuple.getSerializedTuple(window));
+          for (int i = 0; i < PAYLOADS; i++) {
+            byte[] buff = PayloadTuple.getSerializedTuple(0, 64);
+            buff[buff.length - 1] = (byte)i;
+            publisher.publish(buff);
+          }
+          publisher.publish(EndWindowTuple.getSerializedTuple(window));
+        }
+      }
+
+    };
+    thread.start();
+
+    for (int i = 0; i < spinCount && !(instance.isThrottling() && publisher.getCredits().getAvailable() <= 0); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(instance.isThrottling(), "publisher throttled while the storage is held up");
+    assertTrue(publisher.getCredits().getAvailable() <= 0, "credits withheld " + publisher.getCredits());
+    assertTrue(thread.isAlive(), "publisher waiting for the credits");
+
+    storage.gate.countDown();
+    thread.join(spinCount * 10);
+    assertFalse(thread.isAlive(), "publisher resumed once the storage caught up");
+    assertTrue(publisher.getBlockedNanos(false) > 0, "time blocked " + publisher.getCredits());
+
+    Subscriber subscriber = new Subscriber("CreditSubscriber");
+    eventloopClient.connect(address, subscriber);
+    subscriber.activate(null, "BufferServerOutput/CreditSubscriber", "CreditPublisher", 0, null, 0L, 0);
+
+    int expected = WINDOWS * (PAYLOADS + 2);
+    for (int i = 0; i < spinCount; i++) {
+      Thread.sleep(10);
+      if (subscriber.tupleCount.get() >= expected + subscriber.resetPayloads.size()) {
+        break;
+      }
+    }
+
+    eventloopClient.disconnect(publisher);
+    eventloopClient.disconnect(subscriber);
+
+    assertEquals(subscriber.tupleCount.get(), expected + subscriber.resetPayloads.size());
+    assertEquals(subscriber.lastPayload.getWindowId(), WINDOWS - 1);
+  }
+
+  @Test(dependsOnMethods = {"testCreditsWithheldFromThrottledPublisher"})
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testStatsOfListCreatedBySubscriber() throws InterruptedException
+  {
+    long writes = instance.getStats().spool.writes;
+
+    Subscriber subscriber = new Subscriber("EarlySubscriber");
+    eventloopClient.connect(address, subscriber);
+    subscriber.activate(null, "BufferServerOutput/EarlySubscriber", "LatePublisher", 0, null, 0L, 0);
+
+    storage.gate = new CountDownLatch(1);
+    Publisher publisher = new Publisher("LatePublisher");
+    eventloopClient.connect(address, publisher);
+    publisher.activate(null, 0x7afebabe, 0);
+
+    for (int window = 0; window < WINDOWS; window++) {
+      publisher.publishMessage(BeginWindowTuple.getSerializedTuple(window));
+      for (int i = 0; i < PAYLOADS; i++) {
+        byte[] buff = PayloadTuple.getSerializedTuple(0, 64);
+        buff[buff.length - 1] = (byte)i;
+        publisher.publishMessage(buff);
+      }
+      publisher.publishMessage(EndWindowTuple.getSerializedTuple(window));
+    }
+
+    for (int i = 0; i < spinCount && !instance.isThrottling(); i++) {
+      Thread.sleep(10);
+    }
+    storage.gate.countDown();
+
+    for (int i = 0; i < spinCount; i++) {
+      Thread.sleep(10);
+      if (subscriber.lastPayload != null && subscriber.lastPayload.getWindowId() == WINDOWS - 1) {
+        break;
+      }
+    }
+    assertEquals(subscriber.lastPayload.getWindowId(), WINDOWS - 1);
+
+    Controller controller = new Controller("LateController");
+    eventloopClient.connect(address, controller);
+    controller.stats(null, "LatePublisher");
+    for (int i = 0; i < spinCount && controller.stats == null; i++) {
+      Thread.sleep(10);
+    }
+    eventloopClient.disconnect(controller);
+    eventloopClient.disconnect(publisher);
+    eventloopClient.disconnect(subscriber);
+
+    BufferServerStats stats = controller.stats;
+    assertNotNull(stats);
+    assertEquals(stats.dataLists.size(), 1);
+    long listWrites = stats.dataLists.get(0).spool.writes;
+    assertTrue(listWrites > 0, "blocks of the list written to the spool " + stats.dataLists.get(0).spool);
+    assertTrue(instance.getStats().spool.writes - writes >= listWrites, "blocks of the list counted in the total");
+  }
+
+}
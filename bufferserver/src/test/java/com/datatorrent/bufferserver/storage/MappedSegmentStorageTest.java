@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.storage;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ *
+ */
+public class MappedSegmentStorageTest
+{
+  private static byte[] getBlock(int size, int seed)
+  {
+    byte[] block = new byte[size];
+    for (int i = 0; i < size; i++) {
+      block[i] = (byte)(seed + i);
+    }
+    return block;
+  }
+
+  @Test
+  public void testStoreRetrieveDiscard() throws Exception
+  {
+    MappedSegmentStorage storage = new MappedSegmentStorage(1024);
+
+    byte[] first = getBlock(400, 1);
+    byte[] second = getBlock(400, 2);
+    byte[] third = getBlock(400, 3);
+
+    int i1 = storage.store("1.output", first, 0, first.length);
+    int i2 = storage.store("2.output", second, 100, second.length);
+    int i3 = storage.store("1.output", third, 0, third.length);
+
+    assertTrue(Arrays.equals(storage.retrieve("1.output", i1), first), "first block");
+    assertTrue(Arrays.equals(storage.retrieve("2.output", i2), Arrays.copyOfRange(second, 100, second.length)), "second block");
+    assertTrue(Arrays.equals(storage.retrieve("1.output", i3), third), "third block");
+
+    try {
+      storage.retrieve("2.output", i1);
+      fail("retrieved the block with the wrong identifier");
+    }
+    catch (RuntimeException ex) {
+      assertTrue(ex.getMessage().startsWith("Collision"), ex.getMessage());
+    }
+
+    storage.discard("1.output", i1);
+    storage.discard("2.output", i2);
+    try {
+      storage.retrieve("1.output", i1);
+      fail("retrieved the discarded block");
+    }
+    catch (RuntimeException ex) {
+      assertTrue(ex.getMessage().contains("does not exist"), ex.getMessage());
+    }
+    assertTrue(Arrays.equals(storage.retrieve("1.output", i3), third), "third block after discards");
+  }
+
+  @Test
+  public void testSegmentReuse() throws Exception
+  {
+    MappedSegmentStorage storage = new MappedSegmentStorage(1024);
+
+    for (int round = 0; round < 100; round++) {
+      byte[] block = getBlock(1000, round);
+      int id = storage.store("reuse", block, 0, block.length);
+      assertTrue(Arrays.equals(storage.retrieve("reuse", id), block), "round " + round);
+      storage.discard("reuse", id);
+    }
+
+    assertEquals(storage.getInstance().getClass(), MappedSegmentStorage.class);
+  }
+
+  @Test
+  public void testOversizedBlock() throws Exception
+  {
+    MappedSegmentStorage storage = new MappedSegmentStorage(1024);
+
+    byte[] small = getBlock(100, 7);
+    byte[] large = getBlock(4096, 8);
+
+    int i1 = storage.store("oversized", small, 0, small.length);
+    int i2 = storage.store("oversized", large, 0, large.length);
+    int i3 = storage.store("oversized", small, 0, small.length);
+
+    assertTrue(Arrays.equals(storage.retrieve("oversized", i2), large), "large block");
+    storage.discard("oversized", i2);
+    assertTrue(Arrays.equals(storage.retrieve("oversized", i1), small), "first small block");
+    assertTrue(Arrays.equals(storage.retrieve("oversized", i3), small), "second small block");
+  }
+
+  @Test
+  public void testSpoolAfterOversizedDiscard() throws Exception
+  {
+    MappedSegmentStorage storage = new MappedSegmentStorage(1024);
+
+    byte[] large = getBlock(4096, 9);
+    byte[] first = getBlock(1000, 10);
+    byte[] second = getBlock(1000, 11);
+
+    int i1 = storage.store("dropped", large, 0, large.length);
+    int i2 = storage.store("dropped", first, 0, first.length);
+    storage.discard("dropped", i1);
+
+    /* the new segment must not map the file of the segment holding the first block */
+    int i3 = storage.store("dropped", second, 0, second.length);
+    assertTrue(Arrays.equals(storage.retrieve("dropped", i2), first), "first block");
+    assertTrue(Arrays.equals(storage.retrieve("dropped", i3), second), "second block");
+  }
+
+  @Test
+  public void testClose() throws Exception
+  {
+    File base = File.createTempFile("close", "msp");
+    base.delete();
+    assertTrue(base.mkdir(), "base directory " + base);
+    try {
+      MappedSegmentStorage storage = new MappedSegmentStorage(base.getPath(), 1024);
+
+      byte[] small = getBlock(100, 12);
+      byte[] large = getBlock(4096, 13);
+      int i1 = storage.store("closed", small, 0, small.length);
+      int i2 = storage.store("closed", large, 0, large.length);
+      storage.discard("closed", i2);
+      storage.close();
+
+      assertEquals(base.list().length, 0, "segments and their directory deleted");
+      try {
+        storage.retrieve("closed", i1);
+        fail("retrieved the block from the closed storage");
+      }
+      catch (RuntimeException ex) {
+        assertTrue(ex.getMessage().contains("does not exist"), ex.getMessage());
+      }
+      try {
+        storage.store("closed", small, 0, small.length);
+        fail("stored the block to the closed storage");
+      }
+      catch (IllegalStateException ex) {
+        assertTrue(ex.getMessage().contains("closed"), ex.getMessage());
+      }
+      storage.close();
+    }
+    finally {
+      base.delete();
+    }
+  }
+
+}
@@ -15,12 +15,15 @@
  */
 package com.datatorrent.bufferserver.support;
 
+import com.datatorrent.bufferserver.util.BufferServerStats;
+
 /**
  *
  */
 public class Controller extends com.datatorrent.bufferserver.client.Controller
 {
   public String data;
+  public BufferServerStats stats;
 
   public Controller(String id)
   {
@@ -41,10 +44,24 @@ public class Controller extends com.datatorrent.bufferserver.client.Controller
     super.reset(version, sourceId, windowId);
   }
 
+  @Override
+  public void stats(String version, String sourceId)
+  {
+    data = null;
+    stats = null;
+    super.stats(version, sourceId);
+  }
+
   @Override
   public void onMessage(String message)
   {
     data = message;
   }
 
+  @Override
+  public void onStats(BufferServerStats stats)
+  {
+    this.stats = stats;
+  }
+
 }
@@ -19,6 +19,9 @@ import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.client.Credits;
+import com.datatorrent.bufferserver.packet.MessageType;
+
 /**
  *
  */
@@ -29,6 +32,11 @@ public class Publisher extends com.datatorrent.bufferserver.client.Publisher
     super(id);
   }
 
+  public Publisher(String id, int creditWindow)
+  {
+    super(id, 1024, creditWindow);
+  }
+
   @Override
   public String toString()
   {
@@ -38,6 +46,10 @@ public class Publisher extends com.datatorrent.bufferserver.client.Publisher
   @Override
   public void onMessage(byte[] buffer, int offset, int size)
   {
+    if (buffer[offset] == MessageType.CREDIT_VALUE) {
+      super.onMessage(buffer, offset, size);
+      return;
+    }
     logger.warn("received data when unexpected {}", Arrays.toString(Arrays.copyOfRange(buffer, offset, size)));
   }
 
@@ -46,6 +58,11 @@ public class Publisher extends com.datatorrent.bufferserver.client.Publisher
     write(payload);
   }
 
+  public Credits getCredits()
+  {
+    return credits;
+  }
+
   public void activate(String version, int baseSeconds, int windowId)
   {
     super.activate(version, (long)baseSeconds << 32 | windowId);
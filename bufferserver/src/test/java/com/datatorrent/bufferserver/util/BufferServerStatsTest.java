@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Serializes the stats in the binary layout and reads them back.
+ */
+public class BufferServerStatsTest
+{
+  @Test
+  public void testRoundTrip()
+  {
+    BufferServerStats stats = new BufferServerStats();
+    stats.memoryLimit = 64L << 20;
+    stats.bytesInMemory = 3L << 20;
+    stats.bytesSpooled = 5L << 30;
+    stats.throttling = true;
+    stats.storageQueueDepth = 7;
+    stats.deliveryQueueDepths = new int[] {1, 0, 12};
+    stats.spool.addWrite(1024, 2000);
+    stats.spool.addRead(512, 3000);
+
+    BufferServerStats.DataListStats dataList = new BufferServerStats.DataListStats();
+    dataList.identifier = "publisher";
+    dataList.bytesInMemory = 3L << 20;
+    dataList.bytesSpooled = 5L << 30;
+    dataList.spool.addWrite(1024, 2000);
+    BufferServerStats.SubscriberStats subscriber = new BufferServerStats.SubscriberStats();
+    subscriber.identifier = "subscriber";
+    subscriber.lagWindows = 42;
+    subscriber.lagBytes = 1L << 33;
+    dataList.subscribers.add(subscriber);
+    stats.dataLists.add(dataList);
+    stats.dataLists.add(new BufferServerStats.DataListStats());
+    stats.dataLists.get(1).identifier = "idle";
+
+    byte[] bytes = stats.toByteArray();
+    byte[] buffer = new byte[bytes.length + 10];
+    java.lang.System.arraycopy(bytes, 0, buffer, 5, bytes.length);
+    BufferServerStats copy = BufferServerStats.fromByteArray(buffer, 5, bytes.length);
+
+    assertEquals(copy.toString(), stats.toString());
+    assertEquals(copy.dataLists.get(0).subscribers.get(0).lagBytes, 1L << 33);
+    assertEquals(copy.spool.readNanos, 3000);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTruncated()
+  {
+    byte[] bytes = new BufferServerStats().toByteArray();
+    BufferServerStats.fromByteArray(bytes, 0, bytes.length - 1);
+  }
+
+}
@@ -24,7 +24,7 @@ import org.slf4j.LoggerFactory;
 import com.datatorrent.bufferserver.client.Controller;
 
 /**
- * Encapsulates buffer server control interface, used by the master for purging data.
+ * Encapsulates buffer server control interface, used by the master for purging data and querying the stats.
  */
 class BufferServerController extends Controller
 {
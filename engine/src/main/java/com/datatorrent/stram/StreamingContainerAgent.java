@@ -28,13 +28,16 @@ import com.google.common.collect.Sets;
 
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.DoubleInputPort;
 import com.datatorrent.api.InputOperator;
+import com.datatorrent.api.LongInputPort;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.ProcessingMode;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.Stateless;
 
+import com.datatorrent.bufferserver.util.BufferServerStats;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.OperatorDeployInfo;
 import com.datatorrent.stram.api.OperatorDeployInfo.InputDeployInfo;
@@ -43,6 +46,8 @@ import com.datatorrent.stram.api.OperatorDeployInfo.OutputDeployInfo;
 import com.datatorrent.stram.api.OperatorDeployInfo.UnifierDeployInfo;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.StramToNodeRequest;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.StreamingContainerContext;
+import com.datatorrent.stram.codec.DoubleStreamCodec;
+import com.datatorrent.stram.codec.LongStreamCodec;
 import com.datatorrent.stram.engine.OperatorContext;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlan.InputPortMeta;
@@ -96,6 +101,7 @@ public class StreamingContainerAgent {
   int memoryMBFree;
   long gcCollectionCount;
   long gcCollectionTime;
+  BufferServerStats bufferServerStats;
   final StreamingContainerManager dnmgr;
 
   private final ConcurrentLinkedQueue<StramToNodeRequest> operatorRequests = new ConcurrentLinkedQueue<StramToNodeRequest>();
@@ -327,6 +333,15 @@ public class StreamingContainerAgent {
       if (codec == null) {
         // it cannot be this object that gets returned. Depending on this value is dangerous 
         codec = inputPortMeta.getPortObject().getStreamCodec();
+        if (codec == null) {
+          /* the primitive ports which do not ask for a codec of their own get the compact one */
+          if (inputPortMeta.getPortObject() instanceof LongInputPort) {
+            codec = new LongStreamCodec();
+          }
+          else if (inputPortMeta.getPortObject() instanceof DoubleInputPort) {
+            codec = new DoubleStreamCodec();
+          }
+        }
         if (codec != null) {
           // don't create codec multiple times - it will assign a new identifier
           inputPortMeta.getAttributes().put(PortContext.STREAM_CODEC, codec);
@@ -438,6 +453,7 @@ public class StreamingContainerAgent {
     ci.memoryMBFree = this.memoryMBFree;
     ci.gcCollectionCount = this.gcCollectionCount;
     ci.gcCollectionTime = this.gcCollectionTime;
+    ci.bufferServerStats = this.bufferServerStats;
     ci.startedTime = container.getStartedTime();
     ci.finishedTime = container.getFinishedTime();
     if (this.container.nodeHttpAddress != null) {
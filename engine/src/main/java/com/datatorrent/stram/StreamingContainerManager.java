@@ -1430,6 +1430,7 @@ public class StreamingContainerManager implements PlanContext
     sca.memoryMBFree = heartbeat.memoryMBFree;
     sca.gcCollectionCount = heartbeat.gcCollectionCount;
     sca.gcCollectionTime = heartbeat.gcCollectionTime;
+    sca.bufferServerStats = heartbeat.bufferServerStats;
 
     sca.undeployOpers.clear();
     sca.deployOpers.clear();
@@ -1524,6 +1525,7 @@ public class StreamingContainerManager implements PlanContext
                 status.inputPortStatusList.put(s.id, ps);
               }
               ps.totalTuples += s.tupleCount;
+              ps.totalBufferServerBytes += s.bufferServerBytes;
               ps.recordingId = s.recordingId;
 
               tuplesProcessed += s.tupleCount;
@@ -1567,6 +1569,8 @@ public class StreamingContainerManager implements PlanContext
                 status.outputPortStatusList.put(s.id, ps);
               }
               ps.totalTuples += s.tupleCount;
+              ps.totalBufferServerBytes += s.bufferServerBytes;
+              ps.totalBufferServerBlockedNanos += s.bufferServerBlockedNanos;
               ps.recordingId = s.recordingId;
 
               tuplesEmitted += s.tupleCount;
@@ -1606,6 +1610,8 @@ public class StreamingContainerManager implements PlanContext
             status.currentWindowId.set(stats.windowId);
           }
           totalCpuTimeUsed += stats.cpuTimeUsed;
+          status.totalIdleNanos += stats.idleNanos;
+          status.totalSpinNanos += stats.spinNanos;
           statCount++;
 
           if (oper.getOperatorMeta().getValue(OperatorContext.COUNTERS_AGGREGATOR) != null) {
@@ -2214,6 +2220,8 @@ public class StreamingContainerManager implements PlanContext
     oi.tuplesProcessedPSMA = os.tuplesProcessedPSMA.get();
     oi.tuplesEmittedPSMA = os.tuplesEmittedPSMA.get();
     oi.cpuPercentageMA = os.cpuNanosPMSMA.getAvg() / 10000;
+    oi.totalIdleNanos = os.totalIdleNanos;
+    oi.totalSpinNanos = os.totalSpinNanos;
     oi.latencyMA = os.latencyMA.getAvg();
     oi.failureCount = operator.failureCount;
     oi.recoveryWindowId = toWsWindowId(operator.getRecoveryCheckpoint().windowId);
@@ -2237,6 +2245,7 @@ public class StreamingContainerManager implements PlanContext
       pinfo.name = ps.portName;
       pinfo.type = "output";
       pinfo.totalTuples = ps.totalTuples;
+      pinfo.totalBufferServerBlockedNanos = ps.totalBufferServerBlockedNanos;
       pinfo.tuplesPSMA = Math.round(ps.tuplesPMSMA.getAvg() * 1000);
       pinfo.bufferServerBytesPSMA = Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
       pinfo.recordingId = ps.recordingId;
@@ -32,6 +32,7 @@ import com.datatorrent.api.Stats;
 import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.StatsListener.OperatorRequest;
 
+import com.datatorrent.bufferserver.util.BufferServerStats;
 import com.datatorrent.stram.util.AbstractWritableAdapter;
 
 /**
@@ -220,6 +221,10 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol {
     public boolean restartRequested;
     public long gcCollectionTime;
     public long gcCollectionCount;
+    /**
+     * Internals of the buffer server deployed in this container, null when there is none.
+     */
+    public BufferServerStats bufferServerStats;
 
     public ContainerStats stats;
 
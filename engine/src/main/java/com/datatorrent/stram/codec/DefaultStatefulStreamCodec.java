@@ -15,9 +15,12 @@
  */
 package com.datatorrent.stram.codec;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Registration;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
@@ -41,11 +44,12 @@ import com.datatorrent.netlet.util.Slice;
  * @param <T>
  * @since 0.3.2
  */
-public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStreamCodec<T>
+public class DefaultStatefulStreamCodec<T> extends Kryo implements DirectStatefulStreamCodec<T>, StableStatefulStreamCodec<T>
 {
   private final Output data;
   private final Output state;
   private final Input input;
+  private final BufferOutput direct;
 
   @SuppressWarnings("OverridableMethodCallInConstructor")
   public DefaultStatefulStreamCodec()
@@ -54,6 +58,7 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     data = new Output(4096, Integer.MAX_VALUE);
     state = new Output(4096, Integer.MAX_VALUE);
     input = new Input();
+    direct = new BufferOutput();
 
     register(Class.class);
     register(ClassIdPair.class);
@@ -73,16 +78,8 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
           classResolver.registerExplicit(pair);
         }
       }
-      catch (Throwable th) {
-        logger.error("Catastrophic Error: Execution halted due to Kryo exception!", th);
-        synchronized (this) {
-          try {
-            wait();
-          }
-          catch (InterruptedException ex) {
-            throw new RuntimeException("Serialization State Error Halt Interrupted", ex);
-          }
-        }
+      catch (ClassNotFoundException ex) {
+        throw new KryoException("Unable to find the class in the codec state", ex);
       }
       finally {
         dspair.state = null;
@@ -90,23 +87,7 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     }
 
     input.setBuffer(dspair.data.buffer, dspair.data.offset, dspair.data.length);
-    // the following code does not need to be in the try-catch block. It can be
-    // taken out of it, once the stability of the code is validated by 4/1/2014.
-    try {
-      return readClassAndObject(input);
-    }
-    catch (Throwable th) {
-      logger.error("Catastrophic Error: Execution halted due to Kryo exception!", th);
-      synchronized (this) {
-        try {
-          wait();
-        }
-        catch (InterruptedException ex) {
-          throw new RuntimeException("Serialization Data Error Halt Interrupted", ex);
-        }
-      }
-      return null;
-    }
+    return readClassAndObject(input);
   }
 
   @Override
@@ -115,22 +96,68 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     DataStatePair pair = new DataStatePair();
     data.setPosition(0);
     writeClassAndObject(data, o);
+    pair.state = drainState();
 
-    if (!pairs.isEmpty()) {
-      state.setPosition(0);
-      for (ClassIdPair cip : pairs) {
-        writeClassAndObject(state, cip);
+    byte[] bytes = data.toBytes();
+    pair.data = new Slice(bytes, 0, bytes.length);
+    return pair;
+  }
+
+  @Override
+  public void writeTo(T o, ByteBuffer buffer) throws BufferOverflowException
+  {
+    if (buffer.hasArray()) {
+      direct.setBuffer(buffer);
+      try {
+        writeClassAndObject(direct, o);
+      }
+      catch (KryoException ex) {
+        /* serializers of the fields wrap the overflow of the buffer */
+        if (ex.getCause() instanceof BufferOverflowException) {
+          throw (BufferOverflowException)ex.getCause();
+        }
+        throw ex;
       }
-      pairs.clear();
+      buffer.position(direct.position() - buffer.arrayOffset());
+    }
+    else {
+      data.setPosition(0);
+      writeClassAndObject(data, o);
+      buffer.put(data.getBuffer(), 0, data.position());
+    }
+  }
 
-      // can we optimize this?
-      byte[] bytes = state.toBytes();
-      pair.state = new Slice(bytes, 0, bytes.length);
+  @Override
+  public Slice drainState()
+  {
+    if (pairs.isEmpty()) {
+      return null;
     }
 
-    byte[] bytes = data.toBytes();
-    pair.data = new Slice(bytes, 0, bytes.length);
-    return pair;
+    state.setPosition(0);
+    for (ClassIdPair cip : pairs) {
+      writeClassAndObject(state, cip);
+    }
+    pairs.clear();
+
+    byte[] bytes = state.toBytes();
+    return new Slice(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public Slice snapshotState()
+  {
+    if (classResolver.registered.isEmpty()) {
+      return null;
+    }
+
+    state.setPosition(0);
+    for (ClassIdPair cip : classResolver.registered) {
+      writeClassAndObject(state, cip);
+    }
+
+    byte[] bytes = state.toBytes();
+    return new Slice(bytes, 0, bytes.length);
   }
 
   @Override
@@ -160,6 +187,30 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
   }
 
+  /**
+   * Output which writes to the backing array of a heap ByteBuffer without ever growing past the limit of the buffer.
+   */
+  static class BufferOutput extends Output
+  {
+    void setBuffer(ByteBuffer buffer)
+    {
+      this.buffer = buffer.array();
+      capacity = maxCapacity = buffer.arrayOffset() + buffer.limit();
+      position = buffer.arrayOffset() + buffer.position();
+      total = 0;
+    }
+
+    @Override
+    protected boolean require(int required)
+    {
+      if (capacity - position < required) {
+        throw new BufferOverflowException();
+      }
+      return false;
+    }
+
+  }
+
   static class ClassIdPair
   {
     final int id;
@@ -184,6 +235,10 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     int firstAvailableRegistrationId;
     int nextAvailableRegistrationId;
     final ArrayList<ClassIdPair> pairs = new ArrayList<ClassIdPair>();
+    /**
+     * All the pairs registered implicitly since the last reset; the snapshot of the state.
+     */
+    final ArrayList<ClassIdPair> registered = new ArrayList<ClassIdPair>();
 
     public void unregister(int classId)
     {
@@ -201,7 +256,9 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
       }
 
       //logger.debug("adding new classid pair {} => {}", nextAvailableRegistrationId, type.getName());
-      pairs.add(new ClassIdPair(nextAvailableRegistrationId, type.getName()));
+      ClassIdPair pair = new ClassIdPair(nextAvailableRegistrationId, type.getName());
+      pairs.add(pair);
+      registered.add(pair);
       return register(new Registration(type, kryo.getDefaultSerializer(type), nextAvailableRegistrationId++));
     }
 
@@ -209,6 +266,12 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
     {
       //logger.debug("registering class {} => {}", pair.classname, pair.id);
       //pairs.add(pair);
+      Registration registration = getRegistration(pair.id);
+      if (registration != null && registration.getType().getName().equals(pair.classname)) {
+        /* the snapshots repeat the pairs delivered earlier */
+        return;
+      }
+
       Class type = Class.forName(pair.classname, false, Thread.currentThread().getContextClassLoader());
       register(new Registration(type, kryo.getDefaultSerializer(type), pair.id));
       if (nextAvailableRegistrationId <= pair.id) {
@@ -227,6 +290,7 @@ public class DefaultStatefulStreamCodec<T> extends Kryo implements StatefulStrea
       while (nextAvailableRegistrationId > firstAvailableRegistrationId) {
         unregister(--nextAvailableRegistrationId);
       }
+      registered.clear();
     }
 
   }
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import com.datatorrent.api.DirectStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * StatefulStreamCodec which is able to serialize the tuples directly into a buffer provided by the stream.
+ *
+ * The state the codec builds while writing a tuple is not part of the bytes written to the buffer. The stream drains
+ * it after each tuple and delivers it to the deserializing instances ahead of the tuple, as it does with the state of
+ * {@link DataStatePair}.
+ *
+ * @param <T>
+ * @since 2.2.0
+ */
+public interface DirectStatefulStreamCodec<T> extends StatefulStreamCodec<T>, DirectStreamCodec<T>
+{
+  /**
+   * Get the incremental state the codec built while writing the tuples to the buffers since the last time it was
+   * drained.
+   *
+   * @return serialized form of the state or null if the state did not change.
+   */
+  Slice drainState();
+
+}
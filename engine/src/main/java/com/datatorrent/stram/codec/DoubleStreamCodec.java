@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.datatorrent.api.DirectStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * StreamCodec for the streams of doubles, used for the {@link com.datatorrent.api.DoubleInputPort} which do not set
+ * a codec of their own.
+ *
+ * The doubles are written as the 8 bytes of their IEEE 754 representation, most significant first, without the class information Kryo writes
+ * along with each tuple. The partition of a double is its hash code, as it is with the default codec.
+ *
+ * @since 2.2.0
+ */
+public class DoubleStreamCodec implements DirectStreamCodec<Double>, Serializable
+{
+  @Override
+  public Object fromByteArray(Slice fragment)
+  {
+    long bits = 0;
+    for (int i = fragment.offset, end = i + 8; i < end; i++) {
+      bits = (bits << 8) | (fragment.buffer[i] & 0xff);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
+  @Override
+  public Slice toByteArray(Double o)
+  {
+    final long bits = Double.doubleToRawLongBits(o);
+    byte[] bytes = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      bytes[i] = (byte)(bits >>> (56 - 8 * i));
+    }
+    return new Slice(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void writeTo(Double o, ByteBuffer buffer) throws BufferOverflowException
+  {
+    final long bits = Double.doubleToRawLongBits(o);
+    if (buffer.remaining() < 8) {
+      throw new BufferOverflowException();
+    }
+    /* byte by byte, as the order of the buffer may be either */
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      buffer.put((byte)(bits >>> shift));
+    }
+  }
+
+  @Override
+  public int getPartition(Double o)
+  {
+    return getPartition(o.doubleValue());
+  }
+
+  /**
+   * Get the partition of the double without boxing it.
+   *
+   * @param value the tuple
+   * @return partition for the tuple
+   */
+  public int getPartition(double value)
+  {
+    long bits = Double.doubleToLongBits(value);
+    return (int)(bits ^ (bits >>> 32));
+  }
+
+  private static final long serialVersionUID = 201510170002L;
+}
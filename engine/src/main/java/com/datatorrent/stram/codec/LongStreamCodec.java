@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.datatorrent.api.DirectStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * StreamCodec for the streams of longs, used for the {@link com.datatorrent.api.LongInputPort} which do not set
+ * a codec of their own.
+ *
+ * The longs are written zigzag encoded in 7 bit groups so that the small counters and ids take a byte or two and the
+ * timestamps take six, without the class information Kryo writes along with each tuple. The partition of a long is
+ * its hash code, as it is with the default codec.
+ *
+ * @since 2.2.0
+ */
+public class LongStreamCodec implements DirectStreamCodec<Long>, Serializable
+{
+  /* the most bytes a long takes */
+  private static final int MAX_LENGTH = 10;
+
+  @Override
+  public Object fromByteArray(Slice fragment)
+  {
+    final byte[] buffer = fragment.buffer;
+    int offset = fragment.offset;
+    long zigzag = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer[offset++];
+      zigzag |= (long)(b & 0x7f) << shift;
+      shift += 7;
+    }
+    while (b < 0);
+
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  @Override
+  public Slice toByteArray(Long o)
+  {
+    byte[] bytes = new byte[MAX_LENGTH];
+    int length = write(o, bytes, 0);
+    return new Slice(bytes, 0, length);
+  }
+
+  @Override
+  public void writeTo(Long o, ByteBuffer buffer) throws BufferOverflowException
+  {
+    final long value = o;
+    if (buffer.hasArray()) {
+      final int offset = buffer.arrayOffset() + buffer.position();
+      if (buffer.remaining() < length(value)) {
+        throw new BufferOverflowException();
+      }
+      buffer.position(write(value, buffer.array(), offset) - buffer.arrayOffset());
+    }
+    else {
+      byte[] bytes = new byte[MAX_LENGTH];
+      int length = write(value, bytes, 0);
+      buffer.put(bytes, 0, length);
+    }
+  }
+
+  @Override
+  public int getPartition(Long o)
+  {
+    return getPartition(o.longValue());
+  }
+
+  /**
+   * Get the partition of the long without boxing it.
+   *
+   * @param value the tuple
+   * @return partition for the tuple
+   */
+  public int getPartition(long value)
+  {
+    return (int)(value ^ (value >>> 32));
+  }
+
+  private static int length(long value)
+  {
+    long zigzag = (value << 1) ^ (value >> 63);
+    int length = 1;
+    while ((zigzag >>>= 7) != 0) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * @return the offset past the written bytes
+   */
+  private static int write(long value, byte[] buffer, int offset)
+  {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7fL) != 0) {
+      buffer[offset++] = (byte)((zigzag & 0x7f) | 0x80);
+      zigzag >>>= 7;
+    }
+    buffer[offset++] = (byte)zigzag;
+    return offset;
+  }
+
+  private static final long serialVersionUID = 201510170001L;
+}
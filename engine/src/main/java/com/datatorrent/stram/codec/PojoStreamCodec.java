@@ -0,0 +1,524 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.DirectStreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec.BufferOutput;
+
+/**
+ * StreamCodec for the streams which carry plain old java objects of a single declared class.
+ *
+ * Instead of describing each tuple with its class and serializing the fields reflectively, the codec generates a
+ * serializer for the declared class at runtime. The serializer writes the properties of the tuple one after the other
+ * in the order of their names; primitives and strings are written as they are, other values are handed to Kryo
+ * which writes the class of the value only when the type of the property is not final. The properties are the public
+ * instance fields and the bean properties with public getters and setters.
+ * <br />
+ * <br />
+ * The declared class has to be public and needs a public no-argument constructor. When it does not qualify or when a
+ * tuple is an instance of a different class, the tuple is serialized with Kryo as a whole. The codec is set on the
+ * input ports of the stream with the {@link com.datatorrent.api.Context.PortContext#STREAM_CODEC} attribute.
+ * <br />
+ * <br />
+ * Like Kryo, instances of this codec are not thread safe.
+ *
+ * @param <T> class of the tuples on the stream
+ * @since 2.2.0
+ */
+public class PojoStreamCodec<T> implements DirectStreamCodec<T>, Serializable
+{
+  /**
+   * Tuple serialized by the generated serializer.
+   */
+  static final byte GENERATED = 0;
+  /**
+   * Tuple serialized by Kryo along with its class.
+   */
+  static final byte KRYO = 1;
+  /**
+   * Serializer classes generated so far, shared by the codecs of the same tuple class. Neither the tuple classes nor
+   * the serializer classes, which refer to the tuple classes, are held strongly so that they can be unloaded.
+   */
+  private static final Map<Class<?>, WeakReference<Class<?>>> serializerClasses = new WeakHashMap<Class<?>, WeakReference<Class<?>>>();
+  private final Class<T> tupleClass;
+  private transient Kryo kryo;
+  private transient Serializer serializer;
+  private transient Output data;
+  private transient Input input;
+  private transient BufferOutput direct;
+
+  /**
+   * @param tupleClass class of the tuples on the stream
+   */
+  public PojoStreamCodec(Class<T> tupleClass)
+  {
+    this.tupleClass = tupleClass;
+  }
+
+  public Class<T> getTupleClass()
+  {
+    return tupleClass;
+  }
+
+  private void init()
+  {
+    kryo = new Kryo();
+    if (tupleClass.getClassLoader() != null) {
+      kryo.setClassLoader(tupleClass.getClassLoader());
+    }
+    data = new Output(4096, Integer.MAX_VALUE);
+    input = new Input();
+    direct = new BufferOutput();
+    serializer = generate(tupleClass);
+  }
+
+  @Override
+  public Object fromByteArray(Slice fragment)
+  {
+    if (kryo == null) {
+      init();
+    }
+
+    input.setBuffer(fragment.buffer, fragment.offset, fragment.length);
+    if (input.readByte() == GENERATED) {
+      return serializer.read(input, kryo);
+    }
+    return kryo.readClassAndObject(input);
+  }
+
+  @Override
+  public Slice toByteArray(T o)
+  {
+    if (kryo == null) {
+      init();
+    }
+
+    data.setPosition(0);
+    write(o, data);
+    byte[] bytes = data.toBytes();
+    return new Slice(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void writeTo(T o, ByteBuffer buffer) throws BufferOverflowException
+  {
+    if (kryo == null) {
+      init();
+    }
+
+    if (buffer.hasArray()) {
+      direct.setBuffer(buffer);
+      try {
+        write(o, direct);
+      }
+      catch (KryoException ex) {
+        /* serializers of the fields wrap the overflow of the buffer */
+        if (ex.getCause() instanceof BufferOverflowException) {
+          throw (BufferOverflowException)ex.getCause();
+        }
+        throw ex;
+      }
+      buffer.position(direct.position() - buffer.arrayOffset());
+    }
+    else {
+      data.setPosition(0);
+      write(o, data);
+      buffer.put(data.getBuffer(), 0, data.position());
+    }
+  }
+
+  private void write(T o, Output output)
+  {
+    if (serializer != null && o != null && o.getClass() == tupleClass) {
+      output.writeByte(GENERATED);
+      serializer.write(o, output, kryo);
+    }
+    else {
+      output.writeByte(KRYO);
+      kryo.writeClassAndObject(output, o);
+    }
+  }
+
+  @Override
+  public int getPartition(T o)
+  {
+    return o.hashCode();
+  }
+
+  /**
+   * Base class of the generated serializers.
+   */
+  public abstract static class Serializer
+  {
+    /**
+     * Write the properties of the object.
+     *
+     * @param o object of the class the serializer was generated for
+     * @param output output to write the properties to
+     * @param kryo kryo to serialize the properties which are neither primitives nor strings
+     */
+    public abstract void write(Object o, Output output, Kryo kryo);
+
+    /**
+     * Create a new object and set its properties to the values read.
+     *
+     * @param input input to read the properties from
+     * @param kryo kryo to deserialize the properties which are neither primitives nor strings
+     * @return the new object
+     */
+    public abstract Object read(Input input, Kryo kryo);
+
+  }
+
+  /**
+   * Property of the tuple class which is accessed either through a public field or through a getter and a setter.
+   */
+  static class Property
+  {
+    final String name;
+    final Class<?> type;
+    final Field field;
+    final Method getter;
+    final Method setter;
+
+    Property(Field field)
+    {
+      this.name = field.getName();
+      this.type = field.getType();
+      this.field = field;
+      this.getter = null;
+      this.setter = null;
+    }
+
+    Property(PropertyDescriptor descriptor)
+    {
+      this.name = descriptor.getName();
+      this.type = descriptor.getPropertyType();
+      this.field = null;
+      this.getter = descriptor.getReadMethod();
+      this.setter = descriptor.getWriteMethod();
+    }
+
+  }
+
+  /**
+   * Get the properties written by the serializer in the order they are written.
+   *
+   * @param clazz class of the tuples
+   * @return properties sorted by their names
+   */
+  static List<Property> getProperties(Class<?> clazz) throws IntrospectionException
+  {
+    Map<String, Property> properties = new HashMap<String, Property>();
+    for (Field field : clazz.getFields()) {
+      int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !Modifier.isTransient(modifiers)) {
+        properties.put(field.getName(), new Property(field));
+      }
+    }
+
+    for (PropertyDescriptor descriptor : Introspector.getBeanInfo(clazz, Object.class).getPropertyDescriptors()) {
+      if (descriptor.getReadMethod() != null && descriptor.getWriteMethod() != null
+              && descriptor.getPropertyType() != null && !properties.containsKey(descriptor.getName())) {
+        properties.put(descriptor.getName(), new Property(descriptor));
+      }
+    }
+
+    ArrayList<Property> list = new ArrayList<Property>(properties.values());
+    Collections.sort(list, new Comparator<Property>()
+    {
+      @Override
+      public int compare(Property o1, Property o2)
+      {
+        return o1.name.compareTo(o2.name);
+      }
+
+    });
+    return list;
+  }
+
+  static boolean isAccessible(Class<?> clazz)
+  {
+    for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers()) || c.getEnclosingClass() != null && !Modifier.isStatic(c.getModifiers())) {
+        return false;
+      }
+    }
+
+    if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) || clazz.isArray() || clazz.isPrimitive()) {
+      return false;
+    }
+
+    try {
+      return Modifier.isPublic(clazz.getConstructor().getModifiers());
+    }
+    catch (NoSuchMethodException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Generate the serializer for the given class.
+   *
+   * @param clazz class of the tuples
+   * @return the serializer or null if the class does not qualify
+   */
+  static Serializer generate(Class<?> clazz)
+  {
+    if (!isAccessible(clazz)) {
+      logger.info("Serializing {} with Kryo since it is not a public class with a public no-arg constructor.", clazz);
+      return null;
+    }
+
+    try {
+      return (Serializer)getSerializerClass(clazz).newInstance();
+    }
+    catch (Exception ex) {
+      logger.warn("Serializing {} with Kryo since the serializer could not be generated.", clazz, ex);
+      return null;
+    }
+    catch (LinkageError error) {
+      logger.warn("Serializing {} with Kryo since the serializer could not be loaded.", clazz, error);
+      return null;
+    }
+  }
+
+  /**
+   * Get the serializer class generated for the given class, generating and loading it the first time.
+   */
+  private static Class<?> getSerializerClass(Class<?> clazz) throws IntrospectionException
+  {
+    synchronized (serializerClasses) {
+      WeakReference<Class<?>> reference = serializerClasses.get(clazz);
+      Class<?> serializerClass = reference == null ? null : reference.get();
+      if (serializerClass == null) {
+        List<Property> properties = getProperties(clazz);
+        String name = PojoStreamCodec.class.getName() + "$Serializer$" + clazz.getName().replace('.', '$');
+        byte[] bytes = generate(name.replace('.', '/'), clazz, properties);
+        serializerClass = new SerializerClassLoader(clazz.getClassLoader()).define(name, bytes);
+        serializerClasses.put(clazz, new WeakReference<Class<?>>(serializerClass));
+      }
+      return serializerClass;
+    }
+  }
+
+  private static byte[] generate(String internalName, Class<?> clazz, List<Property> properties)
+  {
+    String owner = Type.getInternalName(clazz);
+    String serializer = Type.getInternalName(Serializer.class);
+    String output = Type.getInternalName(Output.class);
+    String input = Type.getInternalName(Input.class);
+    String kryo = Type.getInternalName(Kryo.class);
+
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, internalName, null, serializer, null);
+
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, serializer, "<init>", "()V");
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    /* public void write(Object o, Output output, Kryo kryo) */
+    mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "write", Type.getMethodDescriptor(Type.VOID_TYPE, new Type[] {
+      Type.getType(Object.class), Type.getType(Output.class), Type.getType(Kryo.class)}), null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 1);
+    mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+    mv.visitVarInsn(Opcodes.ASTORE, 4);
+    for (Property property : properties) {
+      String method = WRITE_METHODS.get(property.type);
+      if (method == null) {
+        mv.visitVarInsn(Opcodes.ALOAD, 3);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitVarInsn(Opcodes.ALOAD, 4);
+        getValue(mv, owner, property);
+        if (Modifier.isFinal(property.type.getModifiers())) {
+          /* the class of the value is known to the reading side as well */
+          mv.visitLdcInsn(Type.getType(property.type));
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, kryo, "writeObjectOrNull", "(L" + output + ";Ljava/lang/Object;Ljava/lang/Class;)V");
+        }
+        else {
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, kryo, "writeClassAndObject", "(L" + output + ";Ljava/lang/Object;)V");
+        }
+      }
+      else {
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitVarInsn(Opcodes.ALOAD, 4);
+        getValue(mv, owner, property);
+        if (property.type == int.class || property.type == long.class) {
+          /* variable length zigzag encoding like the one FieldSerializer uses */
+          mv.visitInsn(Opcodes.ICONST_0);
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, output, method, "(" + Type.getDescriptor(property.type) + "Z)I");
+          mv.visitInsn(Opcodes.POP);
+        }
+        else {
+          Class<?> type = property.type == short.class ? int.class : property.type;
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, output, method, "(" + Type.getDescriptor(type) + ")V");
+        }
+      }
+    }
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    /* public Object read(Input input, Kryo kryo) */
+    mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "read", Type.getMethodDescriptor(Type.getType(Object.class), new Type[] {
+      Type.getType(Input.class), Type.getType(Kryo.class)}), null, null);
+    mv.visitCode();
+    mv.visitTypeInsn(Opcodes.NEW, owner);
+    mv.visitInsn(Opcodes.DUP);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", "()V");
+    mv.visitVarInsn(Opcodes.ASTORE, 3);
+    for (Property property : properties) {
+      mv.visitVarInsn(Opcodes.ALOAD, 3);
+      String method = READ_METHODS.get(property.type);
+      if (method == null) {
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        if (Modifier.isFinal(property.type.getModifiers())) {
+          mv.visitLdcInsn(Type.getType(property.type));
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, kryo, "readObjectOrNull", "(L" + input + ";Ljava/lang/Class;)Ljava/lang/Object;");
+        }
+        else {
+          mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, kryo, "readClassAndObject", "(L" + input + ";)Ljava/lang/Object;");
+        }
+        if (property.type != Object.class) {
+          mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(property.type));
+        }
+      }
+      else if (property.type == int.class || property.type == long.class) {
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, input, method, "(Z)" + Type.getDescriptor(property.type));
+      }
+      else {
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, input, method, "()" + Type.getDescriptor(property.type));
+      }
+      setValue(mv, owner, property);
+    }
+    mv.visitVarInsn(Opcodes.ALOAD, 3);
+    mv.visitInsn(Opcodes.ARETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private static void getValue(MethodVisitor mv, String owner, Property property)
+  {
+    if (property.field == null) {
+      mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, property.getter.getName(), Type.getMethodDescriptor(property.getter));
+    }
+    else {
+      mv.visitFieldInsn(Opcodes.GETFIELD, owner, property.name, Type.getDescriptor(property.type));
+    }
+  }
+
+  private static void setValue(MethodVisitor mv, String owner, Property property)
+  {
+    if (property.field == null) {
+      mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, property.setter.getName(), Type.getMethodDescriptor(property.setter));
+    }
+    else {
+      mv.visitFieldInsn(Opcodes.PUTFIELD, owner, property.name, Type.getDescriptor(property.type));
+    }
+  }
+
+  /**
+   * Loads the generated serializer so that it sees both the tuple class and the classes of the codec.
+   */
+  static class SerializerClassLoader extends ClassLoader
+  {
+    private final ClassLoader tupleClassLoader;
+
+    SerializerClassLoader(ClassLoader tupleClassLoader)
+    {
+      super(PojoStreamCodec.class.getClassLoader());
+      this.tupleClassLoader = tupleClassLoader;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException
+    {
+      if (tupleClassLoader == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return tupleClassLoader.loadClass(name);
+    }
+
+    Class<?> define(String name, byte[] bytes)
+    {
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+
+  }
+
+  private static final Map<Class<?>, String> WRITE_METHODS = new HashMap<Class<?>, String>();
+  private static final Map<Class<?>, String> READ_METHODS = new HashMap<Class<?>, String>();
+
+  static {
+    Class<?>[] types = new Class<?>[] {
+      boolean.class, byte.class, short.class, char.class, int.class, long.class, float.class, double.class, String.class
+    };
+    String[] names = new String[] {
+      "Boolean", "Byte", "Short", "Char", "Int", "Long", "Float", "Double", "String"
+    };
+    for (int i = 0; i < types.length; i++) {
+      WRITE_METHODS.put(types[i], "write" + names[i]);
+      READ_METHODS.put(types[i], "read" + names[i]);
+    }
+  }
+
+  private static final long serialVersionUID = 201507100918L;
+  private static final Logger logger = LoggerFactory.getLogger(PojoStreamCodec.class);
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * StatefulStreamCodec whose state survives the checkpoints.
+ *
+ * The streams do not reset such a codec when the upstream operator checkpoints. Instead, the serializing instance
+ * delivers a snapshot of its entire state ahead of the first tuple it serializes after each checkpoint, so that a
+ * deserializing instance which starts with the window following any checkpoint is able to rebuild the state. Applying
+ * the state it already has should leave the deserializing instance unaffected.
+ *
+ * @param <T>
+ * @since 2.2.0
+ */
+public interface StableStatefulStreamCodec<T> extends StatefulStreamCodec<T>
+{
+  /**
+   * Get the entire state the codec built while serializing the tuples since it was instantiated.
+   *
+   * @return serialized form of the state or null if the codec has not built any state.
+   */
+  Slice snapshotState();
+
+}
@@ -83,7 +83,8 @@ public interface StatefulStreamCodec<T> extends StreamCodec<T>
    *
    * The state used to serialize/deserialize after resetState is the same as the state codec has after
    * it is instantiated. resetState is called periodically when the upstream operator checkpoints but
-   * should not be confused with the resetState operation of upstream operator.
+   * should not be confused with the resetState operation of upstream operator. The codecs which implement
+   * {@link StableStatefulStreamCodec} are not reset on the checkpoints.
    *
    */
   public void resetState();
@@ -15,6 +15,9 @@
  */
 package com.datatorrent.stram.debug;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LongSink;
 import com.datatorrent.api.Sink;
 import java.lang.reflect.Array;
 import java.util.Arrays;
@@ -26,7 +29,7 @@ import org.slf4j.LoggerFactory;
  *
  * @since 0.3.2
  */
-public class MuxSink implements Sink<Object>
+public class MuxSink implements BatchSink<Object>, LongSink, DoubleSink
 {
   Sink<Object>[] sinks;
   private int count;
@@ -51,6 +54,43 @@ public class MuxSink implements Sink<Object>
     }
   }
 
+  @Override
+  public void putLong(long tuple)
+  {
+    count++;
+    for (int i = sinks.length; i-- > 0;) {
+      if (sinks[i] instanceof LongSink) {
+        ((LongSink)sinks[i]).putLong(tuple);
+      }
+      else {
+        sinks[i].put(tuple);
+      }
+    }
+  }
+
+  @Override
+  public void putDouble(double tuple)
+  {
+    count++;
+    for (int i = sinks.length; i-- > 0;) {
+      if (sinks[i] instanceof DoubleSink) {
+        ((DoubleSink)sinks[i]).putDouble(tuple);
+      }
+      else {
+        sinks[i].put(tuple);
+      }
+    }
+  }
+
+  @Override
+  public void putAll(Object[] tuples, int offset, int length)
+  {
+    count += length;
+    for (int i = sinks.length; i-- > 0;) {
+      BatchSink.Util.putAll(sinks[i], tuples, offset, length);
+    }
+  }
+
   public void add(Sink<Object>... s)
   {
     int i = sinks.length;
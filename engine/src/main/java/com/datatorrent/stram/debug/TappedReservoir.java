@@ -16,6 +16,7 @@
 package com.datatorrent.stram.debug;
 
 import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.engine.WakeupSignal;
 import com.datatorrent.stram.tuple.Tuple;
 import com.datatorrent.api.Sink;
 
@@ -54,6 +55,12 @@ public class TappedReservoir extends MuxSink implements SweepableReservoir
     return reservoir.sweep();
   }
 
+  @Override
+  public void setWakeupSignal(WakeupSignal signal)
+  {
+    reservoir.setWakeupSignal(signal);
+  }
+
   @Override
   public int getCount(boolean reset)
   {
@@ -497,7 +497,7 @@ public class TupleRecorder
         }
       }
       else {
-        writeTuple(payload, portName);
+        writeTuple(LazyTuple.unwrap(payload), portName);
       }
     }
 
@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+/**
+ * Stream which blocks the thread putting the tuples into it while the downstream is not ready to accept them.
+ *
+ * @since 2.2.0
+ */
+public interface BlockedTimeCounterStream extends Stream
+{
+  /**
+   * @param reset whether to start counting from 0 again
+   * @return nanoseconds the thread putting the tuples spent blocked
+   */
+  public long getBlockedNanos(boolean reset);
+}
@@ -41,6 +41,7 @@ public class BufferServerStatsSubscriber
   // key: streamId, value: byte counter stream
   private HashMap<String, ByteCounterStream> inputStreams = new HashMap<String, ByteCounterStream>();
   private HashMap<String, List<ByteCounterStream>> outputStreams = new HashMap<String, List<ByteCounterStream>>();
+  private HashMap<String, List<BlockedTimeCounterStream>> blockingStreams = new HashMap<String, List<BlockedTimeCounterStream>>();
 
   @Handler
   public void handleStreamActivation(StreamActivationEvent sae)
@@ -61,6 +62,14 @@ public class BufferServerStatsSubscriber
         inputStreams.put(portId, (ByteCounterStream)stream.component);
       }
     }
+    if (stream.component instanceof BlockedTimeCounterStream && sinkId.startsWith("tcp:")) {
+      List<BlockedTimeCounterStream> portStreams = blockingStreams.get(portId);
+      if (portStreams == null) {
+        portStreams = new ArrayList<BlockedTimeCounterStream>();
+        blockingStreams.put(portId, portStreams);
+      }
+      portStreams.add((BlockedTimeCounterStream)stream.component);
+    }
   }
 
   @Handler
@@ -83,6 +92,15 @@ public class BufferServerStatsSubscriber
         inputStreams.remove(portId);
       }
     }
+    if (stream.component instanceof BlockedTimeCounterStream && sinkId.startsWith("tcp:")) {
+      List<BlockedTimeCounterStream> portStreams = blockingStreams.get(portId);
+      if (portStreams != null) {
+        portStreams.remove((BlockedTimeCounterStream)stream.component);
+        if (portStreams.isEmpty()) {
+          blockingStreams.remove(portId);
+        }
+      }
+    }
   }
 
   @Handler
@@ -104,12 +122,20 @@ public class BufferServerStatsSubscriber
         if (os.outputPorts != null) {
           for (PortStats ps : os.outputPorts) {
             List<ByteCounterStream> portStreams = outputStreams.get(ps.id);
-            if (outputStreams != null) {
+            if (portStreams != null) {
               ps.bufferServerBytes = 0;
               for (ByteCounterStream stream : portStreams) {
                 ps.bufferServerBytes = stream.getByteCount(true);
               }
             }
+
+            List<BlockedTimeCounterStream> blockingPortStreams = blockingStreams.get(ps.id);
+            if (blockingPortStreams != null) {
+              ps.bufferServerBlockedNanos = 0;
+              for (BlockedTimeCounterStream stream : blockingPortStreams) {
+                ps.bufferServerBlockedNanos += stream.getBlockedNanos(true);
+              }
+            }
           }
         }
       }
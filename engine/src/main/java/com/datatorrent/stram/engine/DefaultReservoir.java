@@ -15,7 +15,10 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.Sink;
 
 import com.datatorrent.netlet.util.CircularBuffer;
@@ -31,6 +34,7 @@ public class DefaultReservoir extends CircularBuffer<Object> implements Sweepabl
   private Sink<Object> sink;
   private String id;
   private int count;
+  private volatile WakeupSignal signal;
 
   public DefaultReservoir(String id, int capacity)
   {
@@ -49,6 +53,80 @@ public class DefaultReservoir extends CircularBuffer<Object> implements Sweepabl
     }
   }
 
+  @Override
+  public void setWakeupSignal(WakeupSignal signal)
+  {
+    this.signal = signal;
+  }
+
+  @Override
+  public boolean add(Object tuple)
+  {
+    boolean added = super.add(tuple);
+    wakeup();
+    return added;
+  }
+
+  @Override
+  public boolean offer(Object tuple)
+  {
+    if (super.offer(tuple)) {
+      wakeup();
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void put(Object tuple) throws InterruptedException
+  {
+    if (!super.offer(tuple)) {
+      waitFor(tuple);
+    }
+    wakeup();
+  }
+
+  /**
+   * Add the tuples in the given range of the array to the reservoir, waiting for the room when it is full. The thread
+   * sweeping the reservoir is woken up once for the batch, or whenever it has to make the room. The {@link LazyTuple}s
+   * go in deserialized.
+   *
+   * @param tuples array containing the tuples
+   * @param offset index of the first tuple
+   * @param length number of tuples
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void putAll(Object[] tuples, int offset, int length) throws InterruptedException
+  {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      final Object tuple = LazyTuple.unwrap(tuples[i]);
+      if (!super.offer(tuple)) {
+        wakeup();
+        waitFor(tuple);
+      }
+    }
+    wakeup();
+  }
+
+  private void waitFor(Object tuple) throws InterruptedException
+  {
+    if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+      /* the node on the scheduler lets the pool run the consumer on another thread while it waits for the room */
+      ForkJoinPool.managedBlock(new FullReservoirBlocker(tuple));
+    }
+    else {
+      super.put(tuple);
+    }
+  }
+
+  private void wakeup()
+  {
+    WakeupSignal s = signal;
+    if (s != null) {
+      s.wakeup();
+    }
+  }
+
   @Override
   public Tuple sweep()
   {
@@ -65,6 +143,30 @@ public class DefaultReservoir extends CircularBuffer<Object> implements Sweepabl
     return null;
   }
 
+  private class FullReservoirBlocker implements ForkJoinPool.ManagedBlocker
+  {
+    private final Object tuple;
+
+    FullReservoirBlocker(Object tuple)
+    {
+      this.tuple = tuple;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException
+    {
+      DefaultReservoir.super.put(tuple);
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable()
+    {
+      return DefaultReservoir.super.offer(tuple);
+    }
+
+  }
+
   @Override
   public String toString()
   {
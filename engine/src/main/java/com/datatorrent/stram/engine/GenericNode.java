@@ -17,12 +17,14 @@ package com.datatorrent.stram.engine;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.commons.lang.UnhandledException;
 
+import com.datatorrent.api.Context.OperatorContext.WaitStrategy;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.IdleTimeHandler;
 import com.datatorrent.api.Operator.InputPort;
@@ -34,7 +36,6 @@ import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.util.DTThrowable;
 import com.datatorrent.netlet.util.CircularBuffer;
-import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
 import com.datatorrent.stram.debug.TappedReservoir;
 import com.datatorrent.stram.tuple.Tuple;
 
@@ -123,6 +124,7 @@ public class GenericNode extends Node<Operator>
       inputPort.setConnected(true);
       inputs.put(port, reservoir);
       reservoir.setSink(inputPort.getSink());
+      reservoir.setWakeupSignal(signal);
     }
   }
 
@@ -160,11 +162,7 @@ public class GenericNode extends Node<Operator>
       }
     }
 
-    ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
-    reportStats(stats, currentWindowId);
-    if (!insideWindow) {
-      stats.customMetrics = collectMetrics();
-    }
+    reportStats(currentWindowId, insideWindow ? null : collectMetrics());
     handleRequests(currentWindowId);
   }
 
@@ -185,6 +183,13 @@ public class GenericNode extends Node<Operator>
   boolean insideWindow;
   boolean doCheckpoint;
   long lastCheckpointWindowId = Stateless.WINDOW_ID;
+  /* the state of the loop over the input ports, kept across the passes */
+  private ArrayList<SweepableReservoir> activeQueues;
+  private LinkedList<TupleTracker> resetTupleTracker;
+  private int totalQueues;
+  private int expectingBeginWindow;
+  private int receivedEndWindow;
+  private boolean handleIdleTime;
 
   @Override
   public void activate()
@@ -199,357 +204,444 @@ public class GenericNode extends Node<Operator>
    * Note that activate does not return as long as there is useful workload for the node.
    */
   @Override
-  @SuppressWarnings({"SleepWhileInLoop", "UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
+  @SuppressWarnings({"UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
   public final void run()
   {
-    doCheckpoint = false;
+    startRun();
+
+    /* the reservoirs which do not signal are still polled every spinMillis unless the node blocks */
+    long parkNanos = idleStrategy.getStrategy() == WaitStrategy.BLOCKING ? 0
+                     : TimeUnit.MILLISECONDS.toNanos(context.getValue(OperatorContext.SPIN_MILLIS));
+
+    try {
+      do {
+        sweepInputs();
+        if (alive && isIdle(activeQueues)) {
+          if (handleIdleTime) {
+            ((IdleTimeHandler) operator).handleIdleTime();
+          }
+          else if (idleStrategy.idle()) {
+            /*
+             * announce that we are about to park before checking one last time, so that the tuple added in between
+             * unparks us.
+             */
+            signal.prepare();
+            if (isIdle(activeQueues) && !shutdown) {
+              idleStrategy.park(parkNanos);
+            }
+            else {
+              signal.cancel();
+            }
+          }
+        }
+        else {
+          idleStrategy.busy();
+        }
+      }
+      while (alive);
+    }
+    catch (Throwable cause) {
+      stopped(cause);
+    }
+
+    finishRun();
+  }
 
-    long spinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
-    final boolean handleIdleTime = operator instanceof IdleTimeHandler;
-    int totalQueues = inputs.size();
+  /**
+   * Make at most the given number of passes over the input ports without waiting for the tuples, the way the
+   * {@link NodeScheduler} runs the node after starting it with {@link #startRun()}.
+   *
+   * @param passes maximum number of passes to make
+   * @return true if the node stopped running, false if it is to be run again
+   */
+  @SuppressWarnings({"UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
+  final boolean runPasses(int passes)
+  {
+    try {
+      while (alive && passes-- > 0) {
+        sweepInputs();
+        if (isIdle(activeQueues)) {
+          if (alive && handleIdleTime) {
+            ((IdleTimeHandler) operator).handleIdleTime();
+          }
+          break;
+        }
+      }
+    }
+    catch (Throwable cause) {
+      stopped(cause);
+    }
+
+    if (alive) {
+      return false;
+    }
+
+    finishRun();
+    return true;
+  }
+
+  /**
+   * @return true if none of the input ports the node is waiting on has tuples
+   */
+  final boolean isIdle()
+  {
+    return isIdle(activeQueues);
+  }
 
-    ArrayList<SweepableReservoir> activeQueues = new ArrayList<SweepableReservoir>();
+  final boolean isIdleTimeHandler()
+  {
+    return handleIdleTime;
+  }
+
+  /**
+   * Prepare the loop over the input ports before the first pass.
+   */
+  final void startRun()
+  {
+    doCheckpoint = false;
+    handleIdleTime = operator instanceof IdleTimeHandler;
+    totalQueues = inputs.size();
+
+    activeQueues = new ArrayList<SweepableReservoir>();
     activeQueues.addAll(inputs.values());
 
-    int expectingBeginWindow = activeQueues.size();
-    int receivedEndWindow = 0;
+    expectingBeginWindow = activeQueues.size();
+    receivedEndWindow = 0;
 
-    TupleTracker tracker;
-    LinkedList<TupleTracker> resetTupleTracker = new LinkedList<TupleTracker>();
+    resetTupleTracker = new LinkedList<TupleTracker>();
+  }
 
-    try {
-      do {
-        Iterator<SweepableReservoir> buffers = activeQueues.iterator();
+  /**
+   * Make a pass over the input ports the node is waiting on and process the tuples available on them.
+   */
+  private void sweepInputs()
+  {
+    TupleTracker tracker;
+    /* the ports are visited by index as the iterators would be allocated on every pass */
+    int index = 0;
   activequeue:
-        while (buffers.hasNext()) {
-          SweepableReservoir activePort = buffers.next();
-          Tuple t = activePort.sweep();
-          if (t != null) {
-            switch (t.getType()) {
-              case BEGIN_WINDOW:
-                if (expectingBeginWindow == totalQueues) {
-                  activePort.remove();
-                  expectingBeginWindow--;
-                  currentWindowId = t.getWindowId();
-                  for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(t);
-                  }
-                  controlTupleCount++;
+    while (index < activeQueues.size()) {
+      SweepableReservoir activePort = activeQueues.get(index++);
+      Tuple t = activePort.sweep();
+      if (t != null) {
+        switch (t.getType()) {
+          case BEGIN_WINDOW:
+            if (expectingBeginWindow == totalQueues) {
+              activePort.remove();
+              expectingBeginWindow--;
+              currentWindowId = t.getWindowId();
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(t);
+              }
+              controlTupleCount++;
+
+              if (applicationWindowCount == 0) {
+                insideWindow = true;
+                operator.beginWindow(currentWindowId);
+              }
+              receivedEndWindow = 0;
+            }
+            else if (t.getWindowId() == currentWindowId) {
+              activePort.remove();
+              expectingBeginWindow--;
+            }
+            else {
+              activeQueues.remove(--index);
 
-                  if (applicationWindowCount == 0) {
-                    insideWindow = true;
-                    operator.beginWindow(currentWindowId);
-                  }
-                  receivedEndWindow = 0;
+              /* find the name of the port which got out of sequence tuple */
+              String port = null;
+              for (Entry<String, SweepableReservoir> e : inputs.entrySet()) {
+                if (e.getValue() == activePort) {
+                  port = e.getKey();
                 }
-                else if (t.getWindowId() == currentWindowId) {
-                  activePort.remove();
-                  expectingBeginWindow--;
+              }
+
+              assert (port != null); /* we should always find the port */
+
+              if (PROCESSING_MODE == ProcessingMode.AT_MOST_ONCE) {
+                if (t.getWindowId() < currentWindowId) {
+                  /*
+                   * we need to fast forward this stream till we find the current
+                   * window or the window which is bigger than the current window.
+                   */
+
+                  /* lets move the current reservoir in the background */
+                  Sink<Object> sink = activePort.setSink(Sink.BLACKHOLE);
+                  deferredInputConnections.add(0, new DeferredInputConnection(port, activePort));
+
+                  /* replace it with the reservoir which blocks the tuples in the past */
+                  WindowIdActivatedReservoir wiar = new WindowIdActivatedReservoir(port, activePort, currentWindowId);
+                  wiar.setSink(sink);
+                  inputs.put(port, wiar);
+                  activeQueues.add(wiar);
+                  break activequeue;
                 }
                 else {
-                  buffers.remove();
-
-                  /* find the name of the port which got out of sequence tuple */
-                  String port = null;
-                  for (Entry<String, SweepableReservoir> e : inputs.entrySet()) {
-                    if (e.getValue() == activePort) {
-                      port = e.getKey();
-                    }
-                  }
-
-                  assert (port != null); /* we should always find the port */
-
-                  if (PROCESSING_MODE == ProcessingMode.AT_MOST_ONCE) {
-                    if (t.getWindowId() < currentWindowId) {
-                      /*
-                       * we need to fast forward this stream till we find the current
-                       * window or the window which is bigger than the current window.
-                       */
-
-                      /* lets move the current reservoir in the background */
-                      Sink<Object> sink = activePort.setSink(Sink.BLACKHOLE);
-                      deferredInputConnections.add(0, new DeferredInputConnection(port, activePort));
-
-                      /* replace it with the reservoir which blocks the tuples in the past */
-                      WindowIdActivatedReservoir wiar = new WindowIdActivatedReservoir(port, activePort, currentWindowId);
-                      wiar.setSink(sink);
-                      inputs.put(port, wiar);
-                      activeQueues.add(wiar);
-                      break activequeue;
-                    }
-                    else {
-                      expectingBeginWindow--;
-                      if (++receivedEndWindow == totalQueues) {
-                        processEndWindow(null);
-                        activeQueues.addAll(inputs.values());
-                        expectingBeginWindow = activeQueues.size();
-                        break activequeue;
-                      }
-                    }
-                  }
-                  else {
-                    logger.error("Catastrophic Error: Out of sequence tuple {} on port {} while expecting {}", Codec.getStringWindowId(t.getWindowId()), port, Codec.getStringWindowId(currentWindowId));
-                    System.exit(2);
-                  }
-                }
-                break;
-
-              case END_WINDOW:
-                buffers.remove();
-                if (t.getWindowId() == currentWindowId) {
-                  activePort.remove();
-                  endWindowDequeueTimes.put(activePort, System.currentTimeMillis());
+                  expectingBeginWindow--;
                   if (++receivedEndWindow == totalQueues) {
-                    assert (activeQueues.isEmpty());
-                    processEndWindow(t);
+                    processEndWindow(null);
                     activeQueues.addAll(inputs.values());
                     expectingBeginWindow = activeQueues.size();
                     break activequeue;
                   }
                 }
-                break;
+              }
+              else {
+                logger.error("Catastrophic Error: Out of sequence tuple {} on port {} while expecting {}", Codec.getStringWindowId(t.getWindowId()), port, Codec.getStringWindowId(currentWindowId));
+                System.exit(2);
+              }
+            }
+            break;
+
+          case END_WINDOW:
+            activeQueues.remove(--index);
+            if (t.getWindowId() == currentWindowId) {
+              activePort.remove();
+              endWindowDequeueTimes.put(activePort, System.currentTimeMillis());
+              if (++receivedEndWindow == totalQueues) {
+                assert (activeQueues.isEmpty());
+                processEndWindow(t);
+                activeQueues.addAll(inputs.values());
+                expectingBeginWindow = activeQueues.size();
+                break activequeue;
+              }
+            }
+            break;
+
+          case CHECKPOINT:
+            activePort.remove();
+            long checkpointWindow = t.getWindowId();
+            if (lastCheckpointWindowId < checkpointWindow) {
+              if (PROCESSING_MODE == ProcessingMode.EXACTLY_ONCE) {
+                lastCheckpointWindowId = checkpointWindow;
+              }
+              else if (!doCheckpoint) {
+                if (checkpointWindowCount == 0) {
+                  checkpoint(checkpointWindow);
+                  lastCheckpointWindowId = checkpointWindow;
+                }
+                else {
+                  doCheckpoint = true;
+                }
+              }
 
-              case CHECKPOINT:
-                activePort.remove();
-                long checkpointWindow = t.getWindowId();
-                if (lastCheckpointWindowId < checkpointWindow) {
-                  if (PROCESSING_MODE == ProcessingMode.EXACTLY_ONCE) {
-                    lastCheckpointWindowId = checkpointWindow;
-                  }
-                  else if (!doCheckpoint) {
-                    if (checkpointWindowCount == 0) {
-                      checkpoint(checkpointWindow);
-                      lastCheckpointWindowId = checkpointWindow;
-                    }
-                    else {
-                      doCheckpoint = true;
-                    }
-                  }
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(t);
+              }
+              controlTupleCount++;
+            }
+            break;
+
+          case RESET_WINDOW:
+            /**
+             * we will receive tuples which are equal to the number of input streams.
+             */
+            activePort.remove();
+            activeQueues.remove(--index);
+
+            int baseSeconds = t.getBaseSeconds();
+            tracker = null;
+            Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator();
+            while (trackerIterator.hasNext()) {
+              tracker = trackerIterator.next();
+              if (tracker.tuple.getBaseSeconds() == baseSeconds) {
+                break;
+              }
+            }
 
-                  for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(t);
-                  }
-                  controlTupleCount++;
-                }
+            if (tracker == null) {
+              tracker = new TupleTracker(t, totalQueues);
+              resetTupleTracker.add(tracker);
+            }
+            int trackerIndex = 0;
+            while (trackerIndex < tracker.ports.length) {
+              if (tracker.ports[trackerIndex] == null) {
+                tracker.ports[trackerIndex++] = activePort;
                 break;
+              }
+              else if (tracker.ports[trackerIndex] == activePort) {
+                break;
+              }
 
-              case RESET_WINDOW:
-                /**
-                 * we will receive tuples which are equal to the number of input streams.
-                 */
-                activePort.remove();
-                buffers.remove();
-
-                int baseSeconds = t.getBaseSeconds();
-                tracker = null;
-                Iterator<TupleTracker> trackerIterator = resetTupleTracker.iterator();
-                while (trackerIterator.hasNext()) {
-                  tracker = trackerIterator.next();
-                  if (tracker.tuple.getBaseSeconds() == baseSeconds) {
-                    break;
-                  }
-                }
+              trackerIndex++;
+            }
 
-                if (tracker == null) {
-                  tracker = new TupleTracker(t, totalQueues);
-                  resetTupleTracker.add(tracker);
+            if (trackerIndex == totalQueues) {
+              trackerIterator = resetTupleTracker.iterator();
+              while (trackerIterator.hasNext()) {
+                if (trackerIterator.next().tuple.getBaseSeconds() <= baseSeconds) {
+                  trackerIterator.remove();
                 }
-                int trackerIndex = 0;
-                while (trackerIndex < tracker.ports.length) {
-                  if (tracker.ports[trackerIndex] == null) {
-                    tracker.ports[trackerIndex++] = activePort;
-                    break;
-                  }
-                  else if (tracker.ports[trackerIndex] == activePort) {
-                    break;
-                  }
-
-                  trackerIndex++;
+              }
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(t);
+              }
+              controlTupleCount++;
+
+              assert (activeQueues.isEmpty());
+              activeQueues.addAll(inputs.values());
+              expectingBeginWindow = activeQueues.size();
+              break activequeue;
+            }
+            break;
+
+          case END_STREAM:
+            activePort.remove();
+            activeQueues.remove(--index);
+            for (Iterator<Entry<String, SweepableReservoir>> it = inputs.entrySet().iterator(); it.hasNext(); ) {
+              Entry<String, SweepableReservoir> e = it.next();
+              if (e.getValue() == activePort) {
+                if (!descriptor.inputPorts.isEmpty()) {
+                  descriptor.inputPorts.get(e.getKey()).component.setConnected(false);
                 }
-
-                if (trackerIndex == totalQueues) {
-                  trackerIterator = resetTupleTracker.iterator();
-                  while (trackerIterator.hasNext()) {
-                    if (trackerIterator.next().tuple.getBaseSeconds() <= baseSeconds) {
-                      trackerIterator.remove();
-                    }
-                  }
-                  for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(t);
+                it.remove();
+
+                /* check the deferred connection list for any new port that should be connected here */
+                Iterator<DeferredInputConnection> dici = deferredInputConnections.iterator();
+                while (dici.hasNext()) {
+                  DeferredInputConnection dic = dici.next();
+                  if (e.getKey().equals(dic.portname)) {
+                    connectInputPort(dic.portname, dic.reservoir);
+                    dici.remove();
+                    activeQueues.add(dic.reservoir);
+                    break activequeue;
                   }
-                  controlTupleCount++;
-
-                  assert (activeQueues.isEmpty());
-                  activeQueues.addAll(inputs.values());
-                  expectingBeginWindow = activeQueues.size();
-                  break activequeue;
                 }
+
                 break;
+              }
+            }
 
-              case END_STREAM:
-                activePort.remove();
-                buffers.remove();
-                for (Iterator<Entry<String, SweepableReservoir>> it = inputs.entrySet().iterator(); it.hasNext(); ) {
-                  Entry<String, SweepableReservoir> e = it.next();
-                  if (e.getValue() == activePort) {
-                    if (!descriptor.inputPorts.isEmpty()) {
-                      descriptor.inputPorts.get(e.getKey()).component.setConnected(false);
-                    }
-                    it.remove();
-
-                    /* check the deferred connection list for any new port that should be connected here */
-                    Iterator<DeferredInputConnection> dici = deferredInputConnections.iterator();
-                    while (dici.hasNext()) {
-                      DeferredInputConnection dic = dici.next();
-                      if (e.getKey().equals(dic.portname)) {
-                        connectInputPort(dic.portname, dic.reservoir);
-                        dici.remove();
-                        activeQueues.add(dic.reservoir);
-                        break activequeue;
-                      }
-                    }
+            /**
+             * We are not going to receive begin window on this ever!
+             */
+            expectingBeginWindow--;
+
+            /**
+             * Since one of the operators we care about it gone, we should relook at our ports.
+             * We need to make sure that the END_STREAM comes outside of the window.
+             */
+            totalQueues--;
+
+            boolean break_activequeue = false;
+            if (totalQueues == 0) {
+              alive = false;
+              break_activequeue = true;
+            }
+            else if (activeQueues.isEmpty()) {
+              assert (!inputs.isEmpty());
+              processEndWindow(null);
+              activeQueues.addAll(inputs.values());
+              expectingBeginWindow = activeQueues.size();
+              break_activequeue = true;
+            }
 
-                    break;
+            /**
+             * also make sure that we update the reset tuple tracker if this stream had delivered any reset tuples.
+             * Check all the reset buffers to see if current input port has already delivered reset tuple. If it has
+             * then we are waiting for something else to deliver the reset tuple, so just clear current reservoir
+             * from the list of tracked reservoirs. If the current input port has not delivered the reset tuple, and
+             * it's the only one which has not, then we consider it delivered and release the reset tuple downstream.
+             */
+            Tuple tuple = null;
+            for (trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
+              tracker = trackerIterator.next();
+
+              trackerIndex = 0;
+              while (trackerIndex < tracker.ports.length) {
+                if (tracker.ports[trackerIndex] == activePort) {
+                  SweepableReservoir[] ports = new SweepableReservoir[totalQueues];
+                  System.arraycopy(tracker.ports, 0, ports, 0, trackerIndex);
+                  if (trackerIndex < totalQueues) {
+                    System.arraycopy(tracker.ports, trackerIndex + 1, ports, trackerIndex, tracker.ports.length - trackerIndex - 1);
                   }
+                  tracker.ports = ports;
+                  break;
                 }
-
-                /**
-                 * We are not going to receive begin window on this ever!
-                 */
-                expectingBeginWindow--;
-
-                /**
-                 * Since one of the operators we care about it gone, we should relook at our ports.
-                 * We need to make sure that the END_STREAM comes outside of the window.
-                 */
-                totalQueues--;
-
-                boolean break_activequeue = false;
-                if (totalQueues == 0) {
-                  alive = false;
-                  break_activequeue = true;
-                }
-                else if (activeQueues.isEmpty()) {
-                  assert (!inputs.isEmpty());
-                  processEndWindow(null);
-                  activeQueues.addAll(inputs.values());
-                  expectingBeginWindow = activeQueues.size();
-                  break_activequeue = true;
-                }
-
-                /**
-                 * also make sure that we update the reset tuple tracker if this stream had delivered any reset tuples.
-                 * Check all the reset buffers to see if current input port has already delivered reset tuple. If it has
-                 * then we are waiting for something else to deliver the reset tuple, so just clear current reservoir
-                 * from the list of tracked reservoirs. If the current input port has not delivered the reset tuple, and
-                 * it's the only one which has not, then we consider it delivered and release the reset tuple downstream.
-                 */
-                Tuple tuple = null;
-                for (trackerIterator = resetTupleTracker.iterator(); trackerIterator.hasNext(); ) {
-                  tracker = trackerIterator.next();
-
-                  trackerIndex = 0;
-                  while (trackerIndex < tracker.ports.length) {
-                    if (tracker.ports[trackerIndex] == activePort) {
-                      SweepableReservoir[] ports = new SweepableReservoir[totalQueues];
-                      System.arraycopy(tracker.ports, 0, ports, 0, trackerIndex);
-                      if (trackerIndex < totalQueues) {
-                        System.arraycopy(tracker.ports, trackerIndex + 1, ports, trackerIndex, tracker.ports.length - trackerIndex - 1);
-                      }
-                      tracker.ports = ports;
-                      break;
-                    }
-                    else if (tracker.ports[trackerIndex] == null) {
-                      if (trackerIndex == totalQueues) { /* totalQueues is already adjusted above */
-                        if (tuple == null || tuple.getBaseSeconds() < tracker.tuple.getBaseSeconds()) {
-                          tuple = tracker.tuple;
-                        }
-
-                        trackerIterator.remove();
-                      }
-                      break;
-                    }
-                    else {
-                      tracker.ports = Arrays.copyOf(tracker.ports, totalQueues);
+                else if (tracker.ports[trackerIndex] == null) {
+                  if (trackerIndex == totalQueues) { /* totalQueues is already adjusted above */
+                    if (tuple == null || tuple.getBaseSeconds() < tracker.tuple.getBaseSeconds()) {
+                      tuple = tracker.tuple;
                     }
 
-                    trackerIndex++;
+                    trackerIterator.remove();
                   }
+                  break;
                 }
-
-                /*
-                 * Since we were waiting for a reset tuple on this stream, we should not any longer.
-                 */
-                if (tuple != null) {
-                  for (int s = sinks.length; s-- > 0; ) {
-                    sinks[s].put(tuple);
-                  }
-                  controlTupleCount++;
-                }
-
-                if (break_activequeue) {
-                  break activequeue;
+                else {
+                  tracker.ports = Arrays.copyOf(tracker.ports, totalQueues);
                 }
-                break;
 
-              default:
-                throw new UnhandledException("Unrecognized Control Tuple", new IllegalArgumentException(t.toString()));
+                trackerIndex++;
+              }
             }
-          }
-        }
 
-        if (activeQueues.isEmpty() && alive) {
-          logger.error("Catastrophic Error: Invalid State - the operator blocked forever!");
-          System.exit(2);
-        }
-        else {
-          boolean need2sleep = true;
-          for (SweepableReservoir cb : activeQueues) {
-            if (cb.size() > 0) {
-              need2sleep = false;
-              break;
+            /*
+             * Since we were waiting for a reset tuple on this stream, we should not any longer.
+             */
+            if (tuple != null) {
+              for (int s = sinks.length; s-- > 0; ) {
+                sinks[s].put(tuple);
+              }
+              controlTupleCount++;
             }
-          }
 
-          if (need2sleep) {
-            if (handleIdleTime) {
-              ((IdleTimeHandler) operator).handleIdleTime();
-            }
-            else {
-              Thread.sleep(spinMillis);
+            if (break_activequeue) {
+              break activequeue;
             }
-          }
+            break;
+
+          default:
+            throw new UnhandledException("Unrecognized Control Tuple", new IllegalArgumentException(t.toString()));
         }
       }
-      while (alive);
     }
-    catch (ShutdownException se) {
+
+    if (activeQueues.isEmpty() && alive) {
+      logger.error("Catastrophic Error: Invalid State - the operator blocked forever!");
+      System.exit(2);
+    }
+  }
+
+  /**
+   * Handle the exception which stopped the loop over the input ports; it is rethrown unless the node was asked to
+   * shut down.
+   */
+  private void stopped(Throwable cause)
+  {
+    if (cause instanceof ShutdownException) {
       logger.debug("Shutdown requested by the operator when alive = {}.", alive);
       alive = false;
+      return;
     }
-    catch (Throwable cause) {
-      synchronized (this) {
-        if (alive) {
-          DTThrowable.rethrow(cause);
-        }
-      }
-
-      Throwable rootCause = cause;
-      while (rootCause != null) {
-        if (rootCause instanceof InterruptedException) {
-          break;
-        }
-        rootCause = rootCause.getCause();
-      }
 
-      if (rootCause == null) {
+    synchronized (this) {
+      if (alive) {
         DTThrowable.rethrow(cause);
       }
-      else {
-        logger.debug("Ignoring InterruptedException after shutdown", cause);
+    }
+
+    Throwable rootCause = cause;
+    while (rootCause != null) {
+      if (rootCause instanceof InterruptedException) {
+        break;
       }
+      rootCause = rootCause.getCause();
+    }
+
+    if (rootCause == null) {
+      DTThrowable.rethrow(cause);
+    }
+    else {
+      logger.debug("Ignoring InterruptedException after shutdown", cause);
     }
+  }
 
+  /**
+   * Close the window the node was in when it stopped running.
+   */
+  private void finishRun()
+  {
     if (insideWindow) {
       endWindowEmitTime = System.currentTimeMillis();
       operator.endWindow();
@@ -564,15 +656,23 @@ public class GenericNode extends Node<Operator>
         }
       }
 
-      ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
       fixEndWindowDequeueTimesBeforeDeactivate();
-      reportStats(stats, currentWindowId);
-      stats.customMetrics = collectMetrics();
+      reportStats(currentWindowId, collectMetrics());
       handleRequests(currentWindowId);
     }
 
   }
 
+  private static boolean isIdle(ArrayList<SweepableReservoir> activeQueues)
+  {
+    for (int i = activeQueues.size(); i-- > 0;) {
+      if (activeQueues.get(i).size() > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * End window dequeue times may not have been saved for all the input ports during deactivate,
    * so save them for reporting. SPOI-1324.
@@ -588,12 +688,12 @@ public class GenericNode extends Node<Operator>
   }
 
   @Override
-  protected void reportStats(ContainerStats.OperatorStats stats, long windowId)
+  protected void reportStats(WindowStatsBuffer.Record stats, long windowId)
   {
-    ArrayList<ContainerStats.OperatorStats.PortStats> ipstats = new ArrayList<ContainerStats.OperatorStats.PortStats>();
+    stats.reportInputPorts();
     for (Entry<String, SweepableReservoir> e : inputs.entrySet()) {
       SweepableReservoir ar = e.getValue();
-      ContainerStats.OperatorStats.PortStats portStats = new ContainerStats.OperatorStats.PortStats(e.getKey());
+      WindowStatsBuffer.PortRecord portStats = stats.addInputPort(e.getKey());
       portStats.queueSize = ar.size();
       if(DATA_TUPLE_AWARE) {
         if (ar instanceof CircularBuffer) {
@@ -607,9 +707,7 @@ public class GenericNode extends Node<Operator>
       }
       portStats.tupleCount = ar.getCount(true);
       portStats.endWindowTimestamp = endWindowDequeueTimes.get(e.getValue());
-      ipstats.add(portStats);
     }
-    stats.inputPorts = ipstats;
     super.reportStats(stats, windowId);
   }
 
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import com.datatorrent.api.Context.OperatorContext.WaitStrategy;
+
+/**
+ * Applies the {@link WaitStrategy} of a node to the passes of its loop which find no work and keeps track of the
+ * time the node spends idle and spinning.<p>
+ * <br>
+ * The node calls {@link #idle()} after every pass which finds no work and {@link #busy()} after every pass which does.
+ * When {@link #idle()} returns true, the node announces with {@link WakeupSignal#prepare()} that it is about to park,
+ * checks for the work one last time and then either calls {@link #park(long)} or cancels.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class IdleStrategy
+{
+  /**
+   * Number of consecutive passes without work during which the node spins before it yields or parks.
+   */
+  public static final int SPIN_PASSES = 100;
+  private final WaitStrategy strategy;
+  private final WakeupSignal signal;
+  private int passes;
+  private boolean spinning;
+  /* the time at which the node became idle or the idle time was last accounted for, 0 while it is busy */
+  private long idleSince;
+  private long idleNanos;
+  private long spinNanos;
+
+  public IdleStrategy(WaitStrategy strategy, WakeupSignal signal)
+  {
+    this.strategy = strategy;
+    this.signal = signal;
+  }
+
+  public WaitStrategy getStrategy()
+  {
+    return strategy;
+  }
+
+  /**
+   * Wait according to the strategy after a pass which found no work.
+   *
+   * @return true if the node should park, false if it should go on with the next pass
+   */
+  public boolean idle()
+  {
+    if (idleSince == 0) {
+      idleSince = System.nanoTime();
+      passes = 0;
+      spinning = strategy != WaitStrategy.BLOCKING;
+    }
+
+    switch (strategy) {
+      case BUSY_SPIN:
+        return false;
+
+      case BLOCKING:
+        return true;
+
+      default:
+        if (passes < SPIN_PASSES) {
+          passes++;
+          return false;
+        }
+
+        if (spinning) {
+          account();
+          spinning = false;
+        }
+
+        if (strategy == WaitStrategy.SPIN_YIELD) {
+          Thread.yield();
+          return false;
+        }
+        return true;
+    }
+  }
+
+  /**
+   * Park the node until it is woken up by the reservoirs or the timeout elapses.
+   *
+   * @param nanos maximum number of nanoseconds to park for, 0 to park until woken up
+   * @throws InterruptedException if the node is interrupted while parked
+   */
+  public void park(long nanos) throws InterruptedException
+  {
+    if (nanos == 0) {
+      signal.park();
+    }
+    else {
+      signal.park(nanos);
+    }
+  }
+
+  /**
+   * Note the start of the idle time of a node which gives up its thread on the {@link NodeScheduler} instead of
+   * spinning or parking.
+   */
+  public void suspend()
+  {
+    if (idleSince == 0) {
+      idleSince = System.nanoTime();
+      spinning = false;
+    }
+  }
+
+  /**
+   * Note the end of the idle time after a pass which found work.
+   */
+  public void busy()
+  {
+    if (idleSince != 0) {
+      account();
+      idleSince = 0;
+    }
+  }
+
+  /**
+   * Report the nanoseconds the node spent idle and spinning since the last report, including the wait in progress.
+   *
+   * @param stats the stats to report them in
+   */
+  public void report(WindowStatsBuffer.Record stats)
+  {
+    account();
+    stats.idleNanos = idleNanos;
+    stats.spinNanos = spinNanos;
+    idleNanos = 0;
+    spinNanos = 0;
+  }
+
+  private void account()
+  {
+    if (idleSince != 0) {
+      long now = System.nanoTime();
+      idleNanos += now - idleSince;
+      if (spinning) {
+        spinNanos += now - idleSince;
+      }
+      idleSince = now;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "IdleStrategy{" + "strategy=" + strategy + ", idleNanos=" + idleNanos + ", spinNanos=" + spinNanos + '}';
+  }
+
+}
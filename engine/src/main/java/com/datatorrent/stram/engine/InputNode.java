@@ -16,10 +16,12 @@
 package com.datatorrent.stram.engine;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.Context.OperatorContext.WaitStrategy;
 import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator.IdleTimeHandler;
 import com.datatorrent.api.Operator.ProcessingMode;
@@ -27,7 +29,6 @@ import com.datatorrent.api.Operator.ShutdownException;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.DTThrowable;
 
-import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
 import com.datatorrent.stram.tuple.Tuple;
 
 /**
@@ -50,6 +51,7 @@ public class InputNode extends Node<InputOperator>
   public void connectInputPort(String port, SweepableReservoir reservoir)
   {
     if (Node.INPUT.equals(port)) {
+      reservoir.setWakeupSignal(signal);
       if (controlTuples == null) {
         controlTuples = reservoir;
       }
@@ -60,10 +62,12 @@ public class InputNode extends Node<InputOperator>
   }
 
   @Override
-  @SuppressWarnings(value = {"SleepWhileInLoop", "BroadCatchBlock", "TooBroadCatch"})
+  @SuppressWarnings(value = {"BroadCatchBlock", "TooBroadCatch"})
   public final void run()
   {
-    long spinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
+    /* the operator is asked for the tuples every spinMillis even if the node blocks */
+    long spinNanos = TimeUnit.MILLISECONDS.toNanos(context.getValue(OperatorContext.SPIN_MILLIS));
+    long parkNanos = idleStrategy.getStrategy() == WaitStrategy.BLOCKING ? 0 : spinNanos;
     final boolean handleIdleTime = operator instanceof IdleTimeHandler;
 
     boolean insideWindow = applicationWindowCount != 0;
@@ -90,16 +94,20 @@ public class InputNode extends Node<InputOperator>
               if (handleIdleTime) {
                 ((IdleTimeHandler)operator).handleIdleTime();
               }
-              else {
-                Thread.sleep(spinMillis);
+              else if (idleStrategy.idle()) {
+                park(spinNanos);
               }
             }
+            else {
+              idleStrategy.busy();
+            }
           }
-          else {
-            Thread.sleep(0);
+          else if (idleStrategy.idle()) {
+            park(parkNanos);
           }
         }
         else {
+          idleStrategy.busy();
           controlTuples.remove();
           switch (t.getType()) {
             case BEGIN_WINDOW:
@@ -140,11 +148,7 @@ public class InputNode extends Node<InputOperator>
                 }
               }
 
-              ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
-              reportStats(stats, currentWindowId);
-              if(!insideWindow){
-                stats.customMetrics = collectMetrics();
-              }
+              reportStats(currentWindowId, insideWindow ? null : collectMetrics());
               handleRequests(currentWindowId);
               break;
 
@@ -224,13 +228,25 @@ public class InputNode extends Node<InputOperator>
         }
       }
 
-      ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
-      reportStats(stats, currentWindowId);
-      stats.customMetrics = collectMetrics();
+      reportStats(currentWindowId, collectMetrics());
       handleRequests(currentWindowId);
     }
   }
 
+  /**
+   * Park after announcing it so that the control tuple added in between unparks us.
+   */
+  private void park(long nanos) throws InterruptedException
+  {
+    signal.prepare();
+    if (controlTuples.size() == 0 && !shutdown) {
+      idleStrategy.park(nanos);
+    }
+    else {
+      signal.cancel();
+    }
+  }
+
   @SuppressWarnings("unused")
   private static final Logger logger = LoggerFactory.getLogger(InputNode.class);
 }
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+/**
+ * Lock free ring for several producers and a single consumer.<p>
+ * <br>
+ * The producers claim the slots by advancing the producer index with a compare and set and fill them afterwards; the
+ * consumer stops at the claimed slot which is not filled yet the way it stops at the empty one.
+ * <br>
+ *
+ * @param <T> type of the elements
+ * @since 2.2.0
+ */
+public class MpscRing<T> extends SpscRing<T>
+{
+  public MpscRing(int capacity)
+  {
+    super(capacity);
+  }
+
+  @Override
+  public boolean offer(T e)
+  {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+
+    long tail;
+    do {
+      tail = indexes.get(TAIL);
+      if (tail - indexes.get(HEAD) > mask) {
+        return false;
+      }
+    }
+    while (!indexes.compareAndSet(TAIL, tail, tail + 1));
+
+    buffer.lazySet((int)tail & mask, e);
+    return true;
+  }
+
+}
@@ -16,6 +16,7 @@
 package com.datatorrent.stram.engine;
 
 import com.datatorrent.stram.tuple.Tuple;
+import com.datatorrent.api.Context.PortContext.QueueType;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.CircularBuffer;
 import java.util.HashMap;
@@ -30,15 +31,30 @@ import org.slf4j.LoggerFactory;
 public abstract class MuxReservoir
 {
   @SuppressWarnings("VolatileArrayField")
-  private volatile SubReservoir[] reservoirs = new SubReservoir[0];
-  private HashMap<String, SubReservoir> reservoirMap = new HashMap<String, SubReservoir>();
+  private volatile MuxSubReservoir[] reservoirs = new MuxSubReservoir[0];
+  private HashMap<String, MuxSubReservoir> reservoirMap = new HashMap<String, MuxSubReservoir>();
 
   public SweepableReservoir acquireReservoir(String id, int capacity)
   {
-    SubReservoir r = reservoirMap.get(id);
+    return acquireReservoir(id, capacity, QueueType.CIRCULAR_BUFFER);
+  }
+
+  /**
+   * Acquire the reservoir which keeps the tuples in the queue of the given type. The threads sweeping the reservoirs
+   * hand the tuples over to all of them, so any of the ring types gets the {@link MpscRing}.
+   *
+   * @param id id of the reservoir
+   * @param capacity capacity of the reservoir
+   * @param type type of the queue, used only when the reservoir is created
+   * @return the reservoir
+   */
+  public SweepableReservoir acquireReservoir(String id, int capacity, QueueType type)
+  {
+    MuxSubReservoir r = reservoirMap.get(id);
     if (r == null) {
-      reservoirMap.put(id, r = new SubReservoir(capacity));
-      SubReservoir[] newReservoirs = new SubReservoir[reservoirs.length + 1];
+      r = type == QueueType.CIRCULAR_BUFFER ? new SubReservoir(capacity) : new RingSubReservoir(id, capacity);
+      reservoirMap.put(id, r);
+      MuxSubReservoir[] newReservoirs = new MuxSubReservoir[reservoirs.length + 1];
       newReservoirs[reservoirs.length] = r;
       for (int i = reservoirs.length; i-- > 0;) {
         newReservoirs[i] = reservoirs[i];
@@ -51,9 +67,9 @@ public abstract class MuxReservoir
 
   public SweepableReservoir releaseReservoir(String id)
   {
-    SubReservoir r = reservoirMap.remove(id);
+    MuxSubReservoir r = reservoirMap.remove(id);
     if (r != null) {
-      SubReservoir[] newReservoirs = new SubReservoir[reservoirs.length - 1];
+      MuxSubReservoir[] newReservoirs = new MuxSubReservoir[reservoirs.length - 1];
 
       int j = 0;
       for (int i = 0; i < reservoirs.length; i++) {
@@ -70,10 +86,68 @@ public abstract class MuxReservoir
 
   public abstract Reservoir getMasterReservoir();
 
-  class SubReservoir extends CircularBuffer<Object> implements SweepableReservoir
+  /**
+   * Wake up the threads which sweep the reservoirs as there are tuples for them.
+   */
+  protected void wakeupReservoirs()
+  {
+    final MuxSubReservoir[] reservoirs = this.reservoirs;
+    for (int i = reservoirs.length; i-- > 0;) {
+      reservoirs[i].wakeup();
+    }
+  }
+
+  /**
+   * Hand the tuples waiting in the master reservoir over to all the reservoirs, as many as the fullest of them has
+   * room for.
+   */
+  private void distribute()
+  {
+    final Reservoir masterReservoir = getMasterReservoir();
+    synchronized (masterReservoir) {
+      /* find out the minimum remaining capacity in all the other buffers and consume those many tuples from bufferserver */
+      int min = masterReservoir.size();
+      if (min == 0) {
+        return;
+      }
+
+      final MuxSubReservoir[] reservoirs = this.reservoirs;
+      for (int i = reservoirs.length; i-- > 0;) {
+        if (reservoirs[i].remainingCapacity() < min) {
+          min = reservoirs[i].remainingCapacity();
+        }
+      }
+
+      while (min-- > 0) {
+        Object o = masterReservoir.remove();
+        for (int i = reservoirs.length; i-- > 0;) {
+          reservoirs[i].add(o);
+        }
+      }
+
+      /* the reservoirs are swept by the other threads which may be waiting for these tuples */
+      wakeupReservoirs();
+    }
+  }
+
+  /**
+   * The reservoir fed from the master reservoir.
+   */
+  interface MuxSubReservoir extends SweepableReservoir
+  {
+    int remainingCapacity();
+
+    boolean add(Object tuple);
+
+    void wakeup();
+
+  }
+
+  class SubReservoir extends CircularBuffer<Object> implements MuxSubReservoir
   {
     int count;
     private Sink<Object> sink;
+    private volatile WakeupSignal signal;
 
     SubReservoir(int capacity)
     {
@@ -91,10 +165,26 @@ public abstract class MuxReservoir
       }
     }
 
+    @Override
+    public void setWakeupSignal(WakeupSignal signal)
+    {
+      this.signal = signal;
+    }
+
+    /**
+     * Count the tuples waiting in the master reservoir as well since they are handed over to this reservoir as soon
+     * as it is swept.
+     */
+    @Override
+    public int size()
+    {
+      return super.size() + getMasterReservoir().size();
+    }
+
     @Override
     public Tuple sweep()
     {
-      final int size = size();
+      final int size = super.size();
       if (size > 0) {
         for (int i = 0; i < size; i++) {
           if (peekUnsafe() instanceof Tuple) {
@@ -107,29 +197,17 @@ public abstract class MuxReservoir
         count += size;
       }
 
-      final Reservoir masterReservoir = getMasterReservoir();
-      synchronized (masterReservoir) {
-        /* find out the minimum remaining capacity in all the other buffers and consume those many tuples from bufferserver */
-        int min = masterReservoir.size();
-        if (min == 0) {
-          return null;
-        }
-
-        for (int i = reservoirs.length; i-- > 0;) {
-          if (reservoirs[i].remainingCapacity() < min) {
-            min = reservoirs[i].remainingCapacity();
-          }
-        }
+      distribute();
+      return null;
+    }
 
-        while (min-- > 0) {
-          Object o = masterReservoir.remove();
-          for (int i = reservoirs.length; i-- > 0;) {
-            reservoirs[i].add(o);
-          }
-        }
+    @Override
+    public void wakeup()
+    {
+      WakeupSignal s = signal;
+      if (s != null) {
+        s.wakeup();
       }
-
-      return null;
     }
 
     @Override
@@ -147,5 +225,37 @@ public abstract class MuxReservoir
 
   }
 
+  /**
+   * The reservoir fed from the master reservoir which keeps the tuples in the {@link MpscRing}.
+   */
+  class RingSubReservoir extends RingReservoir implements MuxSubReservoir
+  {
+    RingSubReservoir(String id, int capacity)
+    {
+      super(id, newRing(QueueType.MPSC_RING, capacity));
+    }
+
+    /**
+     * Count the tuples waiting in the master reservoir as well since they are handed over to this reservoir as soon
+     * as it is swept.
+     */
+    @Override
+    public int size()
+    {
+      return super.size() + getMasterReservoir().size();
+    }
+
+    @Override
+    public Tuple sweep()
+    {
+      Tuple t = super.sweep();
+      if (t == null) {
+        distribute();
+      }
+      return t;
+    }
+
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(MuxReservoir.class);
 }
@@ -42,7 +42,6 @@ import com.datatorrent.api.StatsListener.OperatorRequest;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.OperatorDeployInfo;
-import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
 import com.datatorrent.stram.debug.MuxSink;
 import com.datatorrent.stram.plan.logical.Operators;
 import com.datatorrent.stram.plan.logical.Operators.PortContextPair;
@@ -83,6 +82,10 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   public long currentWindowId;
   protected long endWindowEmitTime;
   protected long lastSampleCpuTime;
+  /**
+   * CPU time the node used on the threads it ran on since the last sample, when it does not run on a thread of its own.
+   */
+  protected long unsampledCpuTime;
   protected ThreadMXBean tmb;
   protected HashMap<SweepableReservoir, Long> endWindowDequeueTimes; // end window dequeue time for input ports
   protected Checkpoint checkpoint;
@@ -92,6 +95,11 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   public final OperatorContext context;
   public final BlockingQueue<StatsListener.OperatorResponse> commandResponse;
   private final List<Field> metricFields;
+  /**
+   * signal with which the reservoirs wake up this node while it waits for the tuples.
+   */
+  protected final WakeupSignal signal = new WakeupSignal();
+  protected IdleStrategy idleStrategy;
 
   public Node(OPERATOR operator, OperatorContext context)
   {
@@ -273,6 +281,8 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
 
       });
     }
+
+    signal.wakeup();
   }
 
   @Override
@@ -354,21 +364,38 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     }
   }
 
-  protected void reportStats(ContainerStats.OperatorStats stats, long windowId)
+  /**
+   * Report the stats of the window which just ended to the heartbeat in the reusable record of the context.
+   *
+   * @param windowId the window
+   * @param customMetrics the custom metrics collected at the end of the window, null if there are none
+   */
+  protected void reportStats(long windowId, Map<String, Object> customMetrics)
+  {
+    WindowStatsBuffer.Record stats = context.claimStats();
+    stats.customMetrics = customMetrics;
+    reportStats(stats, windowId);
+  }
+
+  protected void reportStats(WindowStatsBuffer.Record stats, long windowId)
   {
-    stats.outputPorts = new ArrayList<ContainerStats.OperatorStats.PortStats>();
+    stats.reportOutputPorts();
     for (Entry<String, Sink<Object>> e : outputs.entrySet()) {
-      ContainerStats.OperatorStats.PortStats portStats = new ContainerStats.OperatorStats.PortStats(e.getKey());
+      WindowStatsBuffer.PortRecord portStats = stats.addOutputPort(e.getKey());
       portStats.tupleCount = e.getValue().getCount(true) - controlTupleCount;
       portStats.endWindowTimestamp = endWindowEmitTime;
-      stats.outputPorts.add(portStats);
     }
     controlTupleCount = 0;
 
     long currentCpuTime = tmb.getCurrentThreadCpuTime();
-    stats.cpuTimeUsed = currentCpuTime - lastSampleCpuTime;
+    stats.cpuTimeUsed = unsampledCpuTime + currentCpuTime - lastSampleCpuTime;
+    unsampledCpuTime = 0;
     lastSampleCpuTime = currentCpuTime;
 
+    if (idleStrategy != null) {
+      idleStrategy.report(stats);
+    }
+
     if (checkpoint != null) {
       stats.checkpoint = checkpoint;
       checkpoint = null;
@@ -377,6 +404,24 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     context.report(stats, windowId);
   }
 
+  /**
+   * Start counting the CPU time of the current thread toward the node, which runs on it until {@link #endCpuSlice()}.
+   * The node which shares the threads with the other nodes runs on a different thread each time, and the CPU times of
+   * the different threads cannot be subtracted from each other.
+   */
+  final void startCpuSlice()
+  {
+    lastSampleCpuTime = tmb.getCurrentThreadCpuTime();
+  }
+
+  /**
+   * Stop counting the CPU time of the current thread toward the node.
+   */
+  final void endCpuSlice()
+  {
+    unsampledCpuTime += tmb.getCurrentThreadCpuTime() - lastSampleCpuTime;
+  }
+
   protected void activateSinks()
   {
     int size = outputs.size();
@@ -480,6 +525,7 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
       APPLICATION_WINDOW_COUNT = IntMath.gcd(APPLICATION_WINDOW_COUNT, slidingWindowCount);
     }
     CHECKPOINT_WINDOW_COUNT = context.getValue(OperatorContext.CHECKPOINT_WINDOW_COUNT);
+    idleStrategy = new IdleStrategy(context.getValue(OperatorContext.WAIT_STRATEGY), signal);
     Collection<StatsListener> statsListeners = context.getValue(OperatorContext.STATS_LISTENERS);
 
     if (CHECKPOINT_WINDOW_COUNT % APPLICATION_WINDOW_COUNT != 0) {
@@ -495,7 +541,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
       CHECKPOINT_WINDOW_COUNT = 1;
     }
 
-    context.setThread(Thread.currentThread());
+    if (context.getTask() == null) {
+      context.setThread(Thread.currentThread());
+    }
     activateSinks();
     if (operator instanceof Operator.ActivationListener) {
       ((Operator.ActivationListener<OperatorContext>) operator).activate(context);
@@ -0,0 +1,300 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
+
+/**
+ * Runs the generic nodes of a container as tasks on a bounded work stealing pool instead of on a thread per node.<p>
+ * <br>
+ * A scheduled node makes at most {@link #PASSES} passes over its input ports and gives up the pool thread as soon as
+ * its reservoirs are empty. The reservoirs resubmit it through its {@link WakeupSignal} when the tuples, including the
+ * control tuples at the window boundaries, arrive. The nodes which handle the idle time are also resubmitted after
+ * {@link OperatorContext#SPIN_MILLIS} so that they get to handle it.
+ * <br>
+ * A scheduled node which blocks on a full downstream reservoir, or on the buffer server granting credits to its
+ * publisher, lets the pool compensate with an extra thread, so the other nodes still get to run. An operator which
+ * sleeps in its {@link com.datatorrent.api.Operator.IdleTimeHandler#handleIdleTime()} holds on to the pool thread
+ * meanwhile, so such operators are better off on a thread of their own.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class NodeScheduler
+{
+  /**
+   * Number of passes a node makes over its input ports before it lets the other nodes run.
+   */
+  public static final int PASSES = 64;
+  private final ForkJoinPool pool;
+  private final ScheduledThreadPoolExecutor timer;
+
+  public NodeScheduler(final String name, int threads)
+  {
+    pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+    {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+      {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName(name + "-" + thread.getPoolIndex());
+        return thread;
+      }
+
+    }, null, true);
+    timer = new ScheduledThreadPoolExecutor(1, name + "-timer");
+  }
+
+  /**
+   * Start running the node on the pool.
+   *
+   * @param node the node to run
+   * @param activation what is done to set up the node before it runs and to tear it down after it stops
+   * @return the task which runs the node
+   */
+  public Task schedule(GenericNode node, Activation activation)
+  {
+    Task task = new Task(node, activation);
+    node.context.setTask(task);
+    node.signal.setTask(task.resume);
+    pool.execute(task);
+    return task;
+  }
+
+  /**
+   * Stop the pool; the nodes are expected to have stopped running.
+   */
+  public void shutdown()
+  {
+    timer.shutdownNow();
+    pool.shutdown();
+  }
+
+  /**
+   * What the container does around running a node.
+   */
+  public interface Activation
+  {
+    /**
+     * Set up and activate the node before its first pass.
+     */
+    void setup();
+
+    /**
+     * Report the node which stopped running due to the given error or exception.
+     *
+     * @param cause the error or the exception
+     */
+    void failed(Throwable cause);
+
+    /**
+     * Deactivate and tear down the node after it stopped running.
+     */
+    void teardown();
+
+  }
+
+  /**
+   * Runs a node a few passes at a time. The task is resumed when the node is woken up after it gave up the pool thread;
+   * the node woken up while the task is still running is resumed after the task returns, so that it never runs on two
+   * threads at once.
+   */
+  public class Task implements Runnable
+  {
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int RESUMED = 2;
+    private final GenericNode node;
+    private final Activation activation;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private boolean started;
+    /**
+     * pool thread running the task and whether the task is to be interrupted whenever it runs, guarded by the task.
+     */
+    private Thread runner;
+    private boolean interrupted;
+    volatile int state;
+    /* run by the producers and the timer which win the wakeup signal */
+    final Runnable resume = new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        if (STATE.getAndSet(Task.this, RESUMED) == IDLE) {
+          submit();
+        }
+      }
+
+    };
+
+    Task(GenericNode node, Activation activation)
+    {
+      this.node = node;
+      this.activation = activation;
+    }
+
+    @Override
+    public void run()
+    {
+      if (isTerminated()) {
+        return;
+      }
+      state = RUNNING;
+
+      synchronized (this) {
+        runner = Thread.currentThread();
+        if (interrupted) {
+          runner.interrupt();
+        }
+      }
+      try {
+        runNode();
+      }
+      finally {
+        synchronized (this) {
+          /* the task resubmitted at the end may already be running on another pool thread */
+          if (runner == Thread.currentThread()) {
+            runner = null;
+          }
+        }
+        /* the interrupt is meant for this node, not for the next task the pool thread runs */
+        Thread.interrupted();
+      }
+    }
+
+    @SuppressWarnings({"UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
+    private void runNode()
+    {
+      boolean stopped;
+      node.startCpuSlice();
+      try {
+        if (started) {
+          node.idleStrategy.busy();
+        }
+        else {
+          started = true;
+          activation.setup();
+          node.startRun();
+        }
+        stopped = node.runPasses(PASSES);
+      }
+      catch (Throwable cause) {
+        activation.failed(cause);
+        stopped = true;
+      }
+      finally {
+        node.endCpuSlice();
+      }
+
+      if (stopped) {
+        try {
+          activation.teardown();
+        }
+        finally {
+          node.signal.setTask(null);
+          terminated.countDown();
+        }
+        return;
+      }
+
+      /* the node with more tuples lets the other nodes run before making more passes */
+      boolean again = !node.isIdle();
+      if (!again) {
+        node.idleStrategy.suspend();
+        node.signal.prepare();
+        if (node.isIdle() && !node.shutdown) {
+          if (node.isIdleTimeHandler()) {
+            timer.schedule(new Runnable()
+            {
+              @Override
+              public void run()
+              {
+                node.signal.wakeup();
+              }
+
+            }, node.context.getValue(OperatorContext.SPIN_MILLIS), TimeUnit.MILLISECONDS);
+          }
+        }
+        else {
+          again = node.signal.cancel();
+        }
+      }
+
+      if (!STATE.compareAndSet(this, RUNNING, IDLE) || again) {
+        submit();
+      }
+    }
+
+    private void submit()
+    {
+      try {
+        pool.execute(this);
+      }
+      catch (RejectedExecutionException ex) {
+        logger.warn("Node {} could not be resubmitted after the scheduler was shut down.", node, ex);
+      }
+    }
+
+    public boolean isTerminated()
+    {
+      return terminated.getCount() == 0;
+    }
+
+    /**
+     * Interrupt the pool thread while it runs the node, and every time it runs the node from now on, so that the node
+     * blocked on a full reservoir or on the credits of the buffer server stops waiting the way an operator thread does
+     * when it is interrupted.
+     */
+    public synchronized void interrupt()
+    {
+      interrupted = true;
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    /**
+     * Wait for the node to stop running.
+     *
+     * @param millis maximum number of milliseconds to wait for
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void join(long millis) throws InterruptedException
+    {
+      terminated.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Task{" + "node=" + node + ", terminated=" + isTerminated() + '}';
+    }
+
+  }
+
+  private static final AtomicIntegerFieldUpdater<Task> STATE = AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+  private static final Logger logger = LoggerFactory.getLogger(NodeScheduler.class);
+}
@@ -39,10 +39,10 @@ import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerSt
 public class OperatorContext extends BaseContext implements Context.OperatorContext
 {
   private Thread thread;
+  private volatile NodeScheduler.Task task;
   private long lastProcessedWindowId;
   private final int id;
-  // the size of the circular queue should be configurable. hardcoded to 1024 for now.
-  private final CircularBuffer<ContainerStats.OperatorStats> statsBuffer = new CircularBuffer<ContainerStats.OperatorStats>(1024);
+  private final WindowStatsBuffer statsBuffer = new WindowStatsBuffer();
   private final CircularBuffer<OperatorRequest> requests = new CircularBuffer<OperatorRequest>(1024);
   public final boolean stateless;
 
@@ -111,7 +111,18 @@ public class OperatorContext extends BaseContext implements Context.OperatorCont
     return lastProcessedWindowId;
   }
 
-  public void report(ContainerStats.OperatorStats stats, long windowId)
+  /**
+   * Get the reusable record to fill with the stats of the window which just ended. The record is reported to the
+   * heartbeat with {@link #report(WindowStatsBuffer.Record, long)}.
+   *
+   * @return the record
+   */
+  public WindowStatsBuffer.Record claimStats()
+  {
+    return statsBuffer.claim();
+  }
+
+  public void report(WindowStatsBuffer.Record stats, long windowId)
   {
     lastProcessedWindowId = windowId;
     stats.windowId = windowId;
@@ -119,10 +130,7 @@ public class OperatorContext extends BaseContext implements Context.OperatorCont
     stats.counters = this.counters;
     this.counters = null;
 
-    if (!statsBuffer.offer(stats)) {
-      statsBuffer.poll();
-      statsBuffer.offer(stats);
-    }
+    statsBuffer.publish();
   }
 
   public void request(OperatorRequest request)
@@ -141,6 +149,74 @@ public class OperatorContext extends BaseContext implements Context.OperatorCont
     this.thread = thread;
   }
 
+  public NodeScheduler.Task getTask()
+  {
+    return task;
+  }
+
+  public void setTask(NodeScheduler.Task task)
+  {
+    this.task = task;
+  }
+
+  /**
+   * @return true if the operator is running, either on its thread or on the {@link NodeScheduler}
+   */
+  public boolean isAlive()
+  {
+    NodeScheduler.Task t = task;
+    if (t != null) {
+      return !t.isTerminated();
+    }
+    Thread th = thread;
+    return th != null && th.isAlive();
+  }
+
+  /**
+   * @return true if the operator was running and has stopped
+   */
+  public boolean isTerminated()
+  {
+    NodeScheduler.Task t = task;
+    if (t != null) {
+      return t.isTerminated();
+    }
+    Thread th = thread;
+    return th != null && th.getState() == Thread.State.TERMINATED;
+  }
+
+  /**
+   * Wait for the operator to stop running.
+   *
+   * @param millis maximum number of milliseconds to wait for
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public void join(long millis) throws InterruptedException
+  {
+    NodeScheduler.Task t = task;
+    if (t != null) {
+      t.join(millis);
+    }
+    else if (thread != null) {
+      thread.join(millis);
+    }
+  }
+
+  /**
+   * Interrupt the thread of the operator; the operator on the {@link NodeScheduler} is interrupted only while the pool
+   * thread runs it.
+   */
+  public void interrupt()
+  {
+    NodeScheduler.Task t = task;
+    if (t != null) {
+      t.interrupt();
+    }
+    else if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
   @SuppressWarnings("FieldNameHidesFieldInSuperclass")
   private static final long serialVersionUID = 2013060671427L;
   @SuppressWarnings("unused")
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+/**
+ * {@link SpscRing} which can also hold primitive values.<p>
+ * <br>
+ * The value is kept in the array of longs next to the ring, at the slot of the marker element which tells what kind
+ * of value it is, so that the longs and the doubles pass through the ring without being boxed.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class PrimitiveRing extends SpscRing<Object>
+{
+  final long[] values;
+
+  /**
+   * @param capacity minimum number of elements the ring holds; rounded up to the power of two
+   */
+  public PrimitiveRing(int capacity)
+  {
+    super(capacity);
+    values = new long[mask + 1];
+  }
+
+  /**
+   * Add the primitive value to the ring unless it is full; called by the producer.
+   *
+   * @param marker the element which marks the kind of the value
+   * @param value the value, the raw bits for a double
+   * @return true if the value was added, false if the ring is full
+   */
+  public boolean offer(Object marker, long value)
+  {
+    final long tail = indexes.get(TAIL);
+    if (tail - cached[TAIL] > mask) {
+      cached[TAIL] = indexes.get(HEAD);
+      if (tail - cached[TAIL] > mask) {
+        return false;
+      }
+    }
+
+    final int offset = (int)tail & mask;
+    values[offset] = value;
+    /* the value is visible to the consumer which sees the marker */
+    buffer.lazySet(offset, marker);
+    indexes.set(TAIL, tail + 1);
+    return true;
+  }
+
+}
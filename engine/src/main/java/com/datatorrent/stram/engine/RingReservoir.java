@@ -0,0 +1,442 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.datatorrent.api.Context.PortContext.QueueType;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LongSink;
+import com.datatorrent.api.Sink;
+
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Reservoir which keeps the tuples in a lock free {@link SpscRing} or {@link MpscRing} instead of the circular buffer
+ * of the {@link DefaultReservoir}.<p>
+ * <br>
+ * The sweep hands the data tuples over to the sink in one batch, up to the first control tuple, and publishes the
+ * consumer index of the ring once every {@link #PUBLISH_INTERVAL} tuples instead of once for every tuple.
+ * <br>
+ * With the {@link PrimitiveRing} the longs and the doubles put with {@link #putLong(long)} and
+ * {@link #putDouble(double)} reach the sinks which are {@link LongSink} or {@link DoubleSink} without being boxed.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class RingReservoir implements SweepableReservoir
+{
+  /**
+   * Number of tuples the sweep hands over to the sink before it lets the producer reuse their slots.
+   */
+  public static final int PUBLISH_INTERVAL = 64;
+  /* number of times the producer yields to the consumer of the full ring before it sleeps */
+  private static final int YIELDS = 100;
+  /* stands in for the null tuples as the rings do not hold the nulls */
+  private static final Object NULL = new Object();
+  /* mark the slots of the primitive ring which hold the long and the double values */
+  private static final Object LONG = new Object();
+  private static final Object DOUBLE = new Object();
+  private final SpscRing<Object> ring;
+  private final long[] values;
+  private Sink<Object> sink;
+  private LongSink longSink;
+  private DoubleSink doubleSink;
+  private String id;
+  private int count;
+  private volatile WakeupSignal signal;
+
+  public RingReservoir(String id, SpscRing<Object> ring)
+  {
+    this.id = id;
+    this.ring = ring;
+    values = ring instanceof PrimitiveRing ? ((PrimitiveRing)ring).values : null;
+  }
+
+  /**
+   * Create the ring for the given queue type.
+   *
+   * @param type {@link QueueType#SPSC_RING} or {@link QueueType#MPSC_RING}
+   * @param capacity minimum number of tuples the ring holds
+   * @return the ring
+   */
+  public static SpscRing<Object> newRing(QueueType type, int capacity)
+  {
+    switch (type) {
+      case SPSC_RING:
+        return new SpscRing<Object>(capacity);
+
+      case MPSC_RING:
+        return new MpscRing<Object>(capacity);
+
+      default:
+        throw new IllegalArgumentException("No ring for the queue type " + type);
+    }
+  }
+
+  @Override
+  public Sink<Object> setSink(Sink<Object> sink)
+  {
+    try {
+      return this.sink;
+    }
+    finally {
+      this.sink = sink;
+      longSink = sink instanceof LongSink ? (LongSink)sink : null;
+      doubleSink = sink instanceof DoubleSink ? (DoubleSink)sink : null;
+    }
+  }
+
+  @Override
+  public void setWakeupSignal(WakeupSignal signal)
+  {
+    this.signal = signal;
+  }
+
+  /**
+   * Add the tuple to the reservoir.
+   *
+   * @param tuple the tuple
+   * @return true
+   * @throws IllegalStateException if the reservoir is full
+   */
+  public boolean add(Object tuple)
+  {
+    if (!ring.offer(tuple == null ? NULL : tuple)) {
+      throw new IllegalStateException("Collection is full");
+    }
+    wakeup();
+    return true;
+  }
+
+  /**
+   * Add the tuple to the reservoir unless it is full.
+   *
+   * @param tuple the tuple
+   * @return true if the tuple was added, false if the reservoir is full
+   */
+  public boolean offer(Object tuple)
+  {
+    if (ring.offer(tuple == null ? NULL : tuple)) {
+      wakeup();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Add the tuple to the reservoir, waiting for the room if it is full.
+   *
+   * @param tuple the tuple
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void put(Object tuple) throws InterruptedException
+  {
+    final Object e = tuple == null ? NULL : tuple;
+    if (!ring.offer(e)) {
+      block(e, 0);
+    }
+    wakeup();
+  }
+
+  /**
+   * Add the long to the reservoir, waiting for the room if it is full. It is boxed unless the ring is the
+   * {@link PrimitiveRing}.
+   *
+   * @param tuple the tuple
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void putLong(long tuple) throws InterruptedException
+  {
+    if (values == null) {
+      put(tuple);
+    }
+    else {
+      if (!((PrimitiveRing)ring).offer(LONG, tuple)) {
+        block(LONG, tuple);
+      }
+      wakeup();
+    }
+  }
+
+  /**
+   * Add the double to the reservoir, waiting for the room if it is full. It is boxed unless the ring is the
+   * {@link PrimitiveRing}.
+   *
+   * @param tuple the tuple
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void putDouble(double tuple) throws InterruptedException
+  {
+    if (values == null) {
+      put(tuple);
+    }
+    else {
+      final long bits = Double.doubleToRawLongBits(tuple);
+      if (!((PrimitiveRing)ring).offer(DOUBLE, bits)) {
+        block(DOUBLE, bits);
+      }
+      wakeup();
+    }
+  }
+
+  /**
+   * Add the tuples in the given range of the array to the reservoir, waiting for the room when it is full. The thread
+   * sweeping the reservoir is woken up once for the batch, or whenever it has to make the room. The {@link LazyTuple}s
+   * go in deserialized.
+   *
+   * @param tuples array containing the tuples
+   * @param offset index of the first tuple
+   * @param length number of tuples
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void putAll(Object[] tuples, int offset, int length) throws InterruptedException
+  {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      final Object tuple = LazyTuple.unwrap(tuples[i]);
+      final Object e = tuple == null ? NULL : tuple;
+      if (!ring.offer(e)) {
+        wakeup();
+        block(e, 0);
+      }
+    }
+    wakeup();
+  }
+
+  /**
+   * Wait for the room for the element, along with the value when the element marks a primitive.
+   */
+  private void block(Object e, long value) throws InterruptedException
+  {
+    if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+      /* the node on the scheduler lets the pool run the consumer on another thread while it waits for the room */
+      ForkJoinPool.managedBlock(new FullRingBlocker(e, value));
+    }
+    else {
+      waitFor(e, value);
+    }
+  }
+
+  private boolean offerSlot(Object e, long value)
+  {
+    return e == LONG || e == DOUBLE ? ((PrimitiveRing)ring).offer(e, value) : ring.offer(e);
+  }
+
+  private void waitFor(Object e, long value) throws InterruptedException
+  {
+    int yields = 0;
+    while (!offerSlot(e, value)) {
+      if (yields < YIELDS) {
+        yields++;
+        Thread.yield();
+      }
+      else {
+        Thread.sleep(1);
+      }
+    }
+  }
+
+  /**
+   * Wake up the thread sweeping the reservoir.
+   */
+  public void wakeup()
+  {
+    WakeupSignal s = signal;
+    if (s != null) {
+      s.wakeup();
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return ring.size();
+  }
+
+  public int capacity()
+  {
+    return ring.capacity();
+  }
+
+  public int remainingCapacity()
+  {
+    return ring.remainingCapacity();
+  }
+
+  /**
+   * @return the tuple at the head of the reservoir, null if the reservoir is empty or the tuple is null
+   */
+  public Object peek()
+  {
+    final int offset = (int)ring.indexes.get(SpscRing.HEAD) & ring.mask;
+    return unwrap(ring.peek(), offset);
+  }
+
+  @Override
+  public Object remove()
+  {
+    final int offset = (int)ring.indexes.get(SpscRing.HEAD) & ring.mask;
+    final Object e = ring.buffer.get(offset);
+    if (e == null) {
+      throw new IllegalStateException("Collection is empty");
+    }
+    final Object tuple = unwrap(e, offset);
+    ring.poll();
+    return tuple;
+  }
+
+  /**
+   * @return the tuple held in the slot with the given element, boxed if it is a primitive
+   */
+  private Object unwrap(Object e, int offset)
+  {
+    if (e == NULL) {
+      return null;
+    }
+    if (e == LONG) {
+      return values[offset];
+    }
+    if (e == DOUBLE) {
+      return Double.longBitsToDouble(values[offset]);
+    }
+    return e;
+  }
+
+  public void clear()
+  {
+    ring.clear();
+  }
+
+  @Override
+  public Tuple sweep()
+  {
+    final AtomicReferenceArray<Object> buffer = ring.buffer;
+    final int mask = ring.mask;
+    final long head = ring.indexes.get(SpscRing.HEAD);
+    long index = head;
+    Tuple control = null;
+    try {
+      Object e;
+      while ((e = buffer.get((int)index & mask)) != null) {
+        if (e instanceof Tuple) {
+          control = (Tuple)e;
+          break;
+        }
+        final int offset = (int)index++ & mask;
+        if (e == LONG) {
+          final long value = values[offset];
+          buffer.lazySet(offset, null);
+          if (longSink == null) {
+            sink.put(value);
+          }
+          else {
+            longSink.putLong(value);
+          }
+        }
+        else if (e == DOUBLE) {
+          final double value = Double.longBitsToDouble(values[offset]);
+          buffer.lazySet(offset, null);
+          if (doubleSink == null) {
+            sink.put(value);
+          }
+          else {
+            doubleSink.putDouble(value);
+          }
+        }
+        else {
+          buffer.lazySet(offset, null);
+          sink.put(e == NULL ? null : e);
+        }
+        if ((index & (PUBLISH_INTERVAL - 1)) == 0) {
+          ring.indexes.lazySet(SpscRing.HEAD, index);
+        }
+      }
+    }
+    finally {
+      if (index != head) {
+        ring.indexes.lazySet(SpscRing.HEAD, index);
+        count += index - head;
+      }
+    }
+
+    return control;
+  }
+
+  /**
+   * @return the id
+   */
+  public String getId()
+  {
+    return id;
+  }
+
+  /**
+   * @param id the id to set
+   */
+  public void setId(String id)
+  {
+    this.id = id;
+  }
+
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return count;
+    }
+    finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  private class FullRingBlocker implements ForkJoinPool.ManagedBlocker
+  {
+    private final Object e;
+    private final long value;
+
+    FullRingBlocker(Object e, long value)
+    {
+      this.e = e;
+      this.value = value;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException
+    {
+      waitFor(e, value);
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable()
+    {
+      return offerSlot(e, value);
+    }
+
+  }
+
+  @Override
+  public String toString()
+  {
+    return "RingReservoir{" + "sink=" + sink + ", id=" + id + ", count=" + count + ", ring=" + ring + '}';
+  }
+
+}
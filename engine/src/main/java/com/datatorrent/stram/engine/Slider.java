@@ -19,6 +19,7 @@ import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import com.datatorrent.api.*;
 import com.datatorrent.api.Context.OperatorContext;
@@ -165,7 +166,8 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
     if (unifier instanceof IdleTimeHandler) {
       ((IdleTimeHandler) unifier).handleIdleTime();
     }
-    else {
+    else if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+      /* on the scheduler the node is resubmitted after spinMillis instead of holding on to the pool thread */
       try {
         Thread.sleep(spinMillis);
       }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock free ring for a single producer and a single consumer.<p>
+ * <br>
+ * The producer and the consumer indexes are kept on cache lines of their own along with the copy of the other index
+ * each side caches, so that the producer and the consumer do not invalidate each other's cache lines on every element.
+ * The consumer tells an empty slot by the null in it, which lets it take a batch of elements and publish its index once
+ * for the batch. The ring does not hold null elements.
+ * <br>
+ *
+ * @param <T> type of the elements
+ * @since 2.2.0
+ */
+public class SpscRing<T>
+{
+  /* number of longs between the indexes, twice the cache line to defeat the adjacent line prefetch */
+  static final int PAD = 16;
+  /* positions of the producer and the consumer indexes in the padded array */
+  static final int TAIL = PAD;
+  static final int HEAD = 2 * PAD;
+  final AtomicReferenceArray<T> buffer;
+  final int mask;
+  final AtomicLongArray indexes = new AtomicLongArray(3 * PAD);
+  /* the copy of the consumer index cached by the producer, and the other way around */
+  final long[] cached = new long[3 * PAD];
+
+  /**
+   * @param capacity minimum number of elements the ring holds; rounded up to the power of two
+   */
+  public SpscRing(int capacity)
+  {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity " + capacity + " is not between 1 and " + (1 << 30));
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    buffer = new AtomicReferenceArray<T>(size);
+    mask = size - 1;
+  }
+
+  /**
+   * Add the element to the ring unless it is full; called by the producer.
+   *
+   * @param e the element
+   * @return true if the element was added, false if the ring is full
+   */
+  public boolean offer(T e)
+  {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+
+    final long tail = indexes.get(TAIL);
+    if (tail - cached[TAIL] > mask) {
+      cached[TAIL] = indexes.get(HEAD);
+      if (tail - cached[TAIL] > mask) {
+        return false;
+      }
+    }
+
+    buffer.lazySet((int)tail & mask, e);
+    /* a full store, so that the consumer about to wait is seen after the element is */
+    indexes.set(TAIL, tail + 1);
+    return true;
+  }
+
+  /**
+   * Remove the element at the head of the ring; called by the consumer.
+   *
+   * @return the element, null if the ring is empty
+   */
+  public T poll()
+  {
+    final long head = indexes.get(HEAD);
+    final int offset = (int)head & mask;
+    final T e = buffer.get(offset);
+    if (e != null) {
+      buffer.lazySet(offset, null);
+      indexes.lazySet(HEAD, head + 1);
+    }
+    return e;
+  }
+
+  /**
+   * @return the element at the head of the ring, null if the ring is empty
+   */
+  public T peek()
+  {
+    return buffer.get((int)indexes.get(HEAD) & mask);
+  }
+
+  public int size()
+  {
+    final long head = indexes.get(HEAD);
+    return (int)(indexes.get(TAIL) - head);
+  }
+
+  public boolean isEmpty()
+  {
+    return size() == 0;
+  }
+
+  public int capacity()
+  {
+    return mask + 1;
+  }
+
+  public int remainingCapacity()
+  {
+    return capacity() - size();
+  }
+
+  /**
+   * Remove all the elements; called by the consumer.
+   */
+  public void clear()
+  {
+    while (poll() != null) {
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "{" + "capacity=" + capacity() + ", size=" + size() + '}';
+  }
+
+}
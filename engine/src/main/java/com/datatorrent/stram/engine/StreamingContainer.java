@@ -17,7 +17,6 @@ package com.datatorrent.stram.engine;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.Thread.State;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
@@ -46,6 +45,7 @@ import org.apache.log4j.DTLoggerFactory;
 import org.apache.log4j.LogManager;
 
 import com.datatorrent.api.*;
+import com.datatorrent.api.Context.PortContext.QueueType;
 import com.datatorrent.api.DAG.Locality;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
@@ -54,7 +54,7 @@ import com.datatorrent.api.StatsListener.OperatorRequest;
 import com.datatorrent.api.annotation.Stateless;
 
 import com.datatorrent.bufferserver.server.Server;
-import com.datatorrent.bufferserver.storage.DiskStorage;
+import com.datatorrent.bufferserver.storage.MappedSegmentStorage;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
 import com.datatorrent.netlet.util.Slice;
@@ -87,6 +87,14 @@ import net.engio.mbassy.bus.config.BusConfiguration;
 public class StreamingContainer extends YarnContainerMain
 {
   public static final String PROP_APP_PATH = StreamingApplication.DT_PREFIX + Context.DAGContext.APPLICATION_PATH.getName();
+  /**
+   * Number of buffer server blocks which are spooled into one memory mapped segment file.
+   */
+  private static final int SPOOL_SEGMENT_BLOCKS = 4;
+  /**
+   * Largest memory mapped segment file, a single mapping cannot exceed 2 GB.
+   */
+  static final int MAX_SPOOL_SEGMENT_SIZE = Integer.MAX_VALUE - 8;
   private final transient String jvmName;
   private final String containerId;
   private final transient StreamingContainerUmbilicalProtocol umbilical;
@@ -107,6 +115,13 @@ public class StreamingContainer extends YarnContainerMain
   private volatile boolean exitHeartbeatLoop = false;
   private final Object heartbeatTrigger = new Object();
   public static DefaultEventLoop eventloop;
+  /**
+   * Event loops for the buffer server publishers and subscribers of this container, the first one is the process wide
+   * event loop.
+   */
+  private DefaultEventLoop[] eventloops = {eventloop};
+  private int nextEventloop;
+  private NodeScheduler scheduler;
   /**
    * List of listeners interested in listening into the status change of the nodes.
    */
@@ -161,6 +176,26 @@ public class StreamingContainer extends YarnContainerMain
 
     fastPublisherSubscriber = ctx.getValue(LogicalPlan.FAST_PUBLISHER_SUBSCRIBER);
 
+    int eventloopCount = ctx.getValue(LogicalPlan.CONTAINER_EVENT_LOOPS);
+    if (eventloopCount > 1) {
+      eventloops = new DefaultEventLoop[eventloopCount];
+      eventloops[0] = eventloop;
+      try {
+        for (int i = 1; i < eventloopCount; i++) {
+          eventloops[i] = new DefaultEventLoop("EventLoop" + i);
+          eventloops[i].start();
+        }
+      }
+      catch (IOException ex) {
+        throw new IllegalStateException("Failed to create event loops", ex);
+      }
+    }
+
+    int schedulerThreads = ctx.getValue(LogicalPlan.CONTAINER_SCHEDULER_THREADS);
+    if (schedulerThreads > 0) {
+      scheduler = new NodeScheduler("NodeScheduler", schedulerThreads);
+    }
+
     Map<Class<?>, Class<? extends StringCodec<?>>> codecs = ctx.getValue(Context.DAGContext.STRING_CODECS);
     StringCodecs.loadConverters(codecs);
 
@@ -184,9 +219,13 @@ public class StreamingContainer extends YarnContainerMain
           blockCount = bufferServerRAM / blocksize;
         }
         // start buffer server, if it was not set externally
-        bufferServer = new Server(0, blocksize * 1024 * 1024, blockCount);
+        long blockBytes = blocksize * 1024L * 1024L;
+        if (blockBytes > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Buffer server block of " + blocksize + " MB exceeds the maximum of " + (Integer.MAX_VALUE >> 20) + " MB");
+        }
+        bufferServer = new Server(0, (int)blockBytes, blockCount, ctx.getValue(LogicalPlan.BUFFER_SERVER_DELIVERY_THREADS));
         if (ctx.getValue(Context.DAGContext.BUFFER_SPOOLING)) {
-          bufferServer.setSpoolStorage(new DiskStorage());
+          bufferServer.setSpoolStorage(new MappedSegmentStorage(getSpoolSegmentSize(blockBytes)));
         }
         SocketAddress bindAddr = bufferServer.run(eventloop);
         logger.debug("Buffer server started: {}", bindAddr);
@@ -304,16 +343,16 @@ public class StreamingContainer extends YarnContainerMain
 
   public synchronized void deactivate()
   {
-    ArrayList<Thread> activeThreads = new ArrayList<Thread>();
+    ArrayList<OperatorContext> activeContexts = new ArrayList<OperatorContext>();
     ArrayList<Integer> activeOperators = new ArrayList<Integer>();
 
     for (Map.Entry<Integer, Node<?>> e : nodes.entrySet()) {
-      Thread t = e.getValue().context.getThread();
-      if (t == null || !t.isAlive()) {
+      OperatorContext context = e.getValue().context;
+      if (!context.isAlive()) {
         disconnectNode(e.getKey());
       }
       else {
-        activeThreads.add(t);
+        activeContexts.add(context);
         activeOperators.add(e.getKey());
         e.getValue().shutdown();
       }
@@ -321,10 +360,10 @@ public class StreamingContainer extends YarnContainerMain
 
     try {
       Iterator<Integer> iterator = activeOperators.iterator();
-      for (Thread t : activeThreads) {
-        t.join(1000);
-        if (!t.getState().equals(State.TERMINATED)) {
-          t.interrupt();
+      for (OperatorContext context : activeContexts) {
+        context.join(1000);
+        if (!context.isTerminated()) {
+          context.interrupt();
         }
         disconnectNode(iterator.next());
       }
@@ -512,15 +551,15 @@ public class StreamingContainer extends YarnContainerMain
       }
     }
 
-    ArrayList<Thread> joinList = new ArrayList<Thread>();
+    ArrayList<OperatorContext> joinList = new ArrayList<OperatorContext>();
     ArrayList<Integer> discoList = new ArrayList<Integer>();
     for (Integer operatorId : nodeList) {
-      Thread t = nodes.get(operatorId).context.getThread();
-      if (t == null || !t.isAlive()) {
+      OperatorContext context = nodes.get(operatorId).context;
+      if (!context.isAlive()) {
         disconnectNode(operatorId);
       }
       else {
-        joinList.add(t);
+        joinList.add(context);
         discoList.add(operatorId);
         nodes.get(operatorId).shutdown();
       }
@@ -528,10 +567,10 @@ public class StreamingContainer extends YarnContainerMain
 
     try {
       Iterator<Integer> iterator = discoList.iterator();
-      for (Thread t : joinList) {
-        t.join(1000);
-        if (!t.getState().equals(State.TERMINATED)) {
-          t.interrupt();
+      for (OperatorContext context : joinList) {
+        context.join(1000);
+        if (!context.isTerminated()) {
+          context.interrupt();
         }
         disconnectNode(iterator.next());
       }
@@ -570,6 +609,14 @@ public class StreamingContainer extends YarnContainerMain
       eventloop.stop();
     }
 
+    for (int i = 1; i < eventloops.length; i++) {
+      eventloops[i].stop();
+    }
+
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+
     gens.clear();
   }
 
@@ -619,6 +666,15 @@ public class StreamingContainer extends YarnContainerMain
           logger.warn("Requesting restart due to terminated event loop");
           msg.restartRequested = true;
         }
+        else if (bufferServer != null) {
+          msg.bufferServerStats = bufferServer.getStats();
+        }
+      }
+      for (int i = 1; i < eventloops.length; i++) {
+        if (!eventloops[i].isActive()) {
+          logger.warn("Requesting restart due to terminated event loop {}", eventloops[i]);
+          msg.restartRequested = true;
+        }
       }
       msg.memoryMBFree = ((int) (Runtime.getRuntime().freeMemory() / (1024 * 1024)));
       garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
@@ -647,14 +703,14 @@ public class StreamingContainer extends YarnContainerMain
           OperatorContext context = e.getValue().context;
           context.drainStats(hb.getOperatorStatsContainer());
 
-          if (context.getThread() == null || context.getThread().getState() != Thread.State.TERMINATED) {
+          if (!context.isTerminated()) {
             hb.setState(DeployState.ACTIVE);
           }
           else if (failedNodes.contains(hb.nodeId)) {
             hb.setState(DeployState.FAILED);
           }
           else {
-            logger.debug("Reporting SHUTDOWN state because thread is {} and failedNodes is {}", context.getThread(), failedNodes);
+            logger.debug("Reporting SHUTDOWN state because operator {} terminated and failedNodes is {}", hb.nodeId, failedNodes);
             hb.setState(DeployState.SHUTDOWN);
           }
 
@@ -713,8 +769,7 @@ public class StreamingContainer extends YarnContainerMain
         continue;
       }
 
-      Thread thread = node.context.getThread();
-      if (thread == null || !thread.isAlive()) {
+      if (!node.context.isAlive()) {
         if (flagInvalid) {
           logger.warn("Received request with invalid operator id {} ({})", req.getOperatorId(), req);
           req.setDeleted(true);
@@ -744,8 +799,7 @@ public class StreamingContainer extends YarnContainerMain
       lastCommittedWindowId = rsp.committedWindowId;
       OperatorRequest nr = null;
       for (Entry<Integer, Node<?>> e : nodes.entrySet()) {
-        final Thread thread = e.getValue().context.getThread();
-        if (thread == null || !thread.isAlive()) {
+        if (!e.getValue().context.isAlive()) {
           continue;
         }
 
@@ -889,6 +943,16 @@ public class StreamingContainer extends YarnContainerMain
     }
   }
 
+  /**
+   * Assign the event loops to the buffer server connections in round robin fashion.
+   */
+  private DefaultEventLoop getEventLoop()
+  {
+    DefaultEventLoop el = eventloops[nextEventloop];
+    nextEventloop = (nextEventloop + 1) % eventloops.length;
+    return el;
+  }
+
   private HashMap.SimpleEntry<String, ComponentContextPair<Stream, StreamContext>> deployBufferServerPublisher(
     String connIdentifier, StreamCodec<?> streamCodec, long finishedWindowId, int queueCapacity, OperatorDeployInfo.OutputDeployInfo nodi)
     throws UnknownHostException
@@ -901,7 +965,7 @@ public class StreamingContainer extends YarnContainerMain
     bssc.setSinkId(sinkIdentifier);
     bssc.setFinishedWindowId(finishedWindowId);
     bssc.put(StreamContext.CODEC, streamCodec);
-    bssc.put(StreamContext.EVENT_LOOP, eventloop);
+    bssc.put(StreamContext.EVENT_LOOP, getEventLoop());
     bssc.setBufferServerAddress(InetSocketAddress.createUnresolved(nodi.bufferServerHost, nodi.bufferServerPort));
     if (NetUtils.isLocalAddress(bssc.getBufferServerAddress().getAddress())) {
       bssc.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nodi.bufferServerPort));
@@ -1100,7 +1164,10 @@ public class StreamingContainer extends YarnContainerMain
             String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
             context.setPortId(nidi.portName);
             context.put(StreamContext.CODEC, streamCodec);
-            context.put(StreamContext.EVENT_LOOP, eventloop);
+            context.put(StreamContext.EVENT_LOOP, getEventLoop());
+            context.put(PortContext.DESERIALIZE_AHEAD, getValue(PortContext.DESERIALIZE_AHEAD, nidi, ndi));
+            context.put(PortContext.DESERIALIZE_LAZILY, getValue(PortContext.DESERIALIZE_LAZILY, nidi, ndi));
+            context.put(PortContext.SPIN_MILLIS, getValue(PortContext.SPIN_MILLIS, nidi, ndi));
             context.setPartitions(nidi.partitionMask, nidi.partitionKeys);
             //context.setSourceId(sourceIdentifier);
             context.setSourceId(connIdentifier);
@@ -1134,7 +1201,18 @@ public class StreamingContainer extends YarnContainerMain
                   queueCapacity = outputQueueCapacity;
                 }
 
-                stream = new InlineStream(queueCapacity);
+                InputPort<?> inputPort = node.getPortMappingDescriptor().inputPorts.get(nidi.portName).component;
+                QueueType queueType = getValue(PortContext.QUEUE_TYPE, nidi, ndi);
+                if (inputPort instanceof LongInputPort || inputPort instanceof DoubleInputPort) {
+                  /* the longs and the doubles reach the primitive ports without being boxed */
+                  stream = new InlineRingStream(new PrimitiveRing(queueCapacity));
+                }
+                else if (queueType == QueueType.CIRCULAR_BUFFER) {
+                  stream = new InlineStream(queueCapacity);
+                }
+                else {
+                  stream = new InlineRingStream(RingReservoir.newRing(queueType, queueCapacity));
+                }
                 if (checkpoint.windowId >= 0) {
                   node.connectInputPort(nidi.portName, new WindowIdActivatedReservoir(sinkIdentifier, (SweepableReservoir) stream, checkpoint.windowId));
                 }
@@ -1203,7 +1281,7 @@ public class StreamingContainer extends YarnContainerMain
         generators.put(ndi.id, windowGenerator);
 
         Node<?> node = nodes.get(ndi.id);
-        SweepableReservoir reservoir = windowGenerator.acquireReservoir(String.valueOf(ndi.id), 1024);
+        SweepableReservoir reservoir = windowGenerator.acquireReservoir(String.valueOf(ndi.id), 1024, getValue(PortContext.QUEUE_TYPE, ndi));
         if (ndi.checkpoint.windowId >= 0) {
           node.connectInputPort(Node.INPUT, new WindowIdActivatedReservoir(Integer.toString(ndi.id), reservoir, ndi.checkpoint.windowId));
         }
@@ -1329,103 +1407,13 @@ public class StreamingContainer extends YarnContainerMain
       }
 
       final Node<?> node = nodes.get(ndi.id);
-      new Thread(Integer.toString(ndi.id).concat("/").concat(ndi.name).concat(":").concat(node.getOperator().getClass().getSimpleName()))
-      {
-        @Override
-        public void run()
-        {
-          HashSet<OperatorDeployInfo> setOperators = new HashSet<OperatorDeployInfo>();
-          OperatorDeployInfo currentdi = ndi;
-          try {
-            /* primary operator initialization */
-            setupNode(currentdi);
-            setOperators.add(currentdi);
-
-            /* lets go for OiO operator initialization */
-            List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
-            if (oioNodeIdList != null) {
-              for (Integer oioNodeId : oioNodeIdList) {
-                currentdi = nodeMap.get(oioNodeId);
-                setupNode(currentdi);
-                setOperators.add(currentdi);
-              }
-            }
-
-            currentdi = null;
-
-            for (int i = setOperators.size(); i-- > 0; ) {
-              signal.countDown();
-            }
-
-            node.run(); /* this is a blocking call */
-          }
-          catch (Error error) {
-            int[] operators;
-            if (currentdi == null) {
-              logger.error("Voluntary container termination due to an error in operator set {}.", setOperators, error);
-              operators = new int[setOperators.size()];
-              int i = 0;
-              for (Iterator<OperatorDeployInfo> it = setOperators.iterator(); it.hasNext(); i++) {
-                operators[i] = it.next().id;
-              }
-            }
-            else {
-              logger.error("Voluntary container termination due to an error in operator {}.", currentdi, error);
-              operators = new int[]{currentdi.id};
-            }
-            umbilical.reportError(containerId, operators, "Voluntary container termination due to an error. " + ExceptionUtils.getStackTrace(error));
-            System.exit(1);
-          }
-          catch (Exception ex) {
-            if (currentdi == null) {
-              failedNodes.add(ndi.id);
-              logger.error("Operator set {} stopped running due to an exception.", setOperators, ex);
-              int[] operators = new int[]{ndi.id};
-              umbilical.reportError(containerId, operators, "Stopped running due to an exception. " + ExceptionUtils.getStackTrace(ex));
-            }
-            else {
-              failedNodes.add(currentdi.id);
-              logger.error("Abandoning deployment of operator {} due to setup failure.", currentdi, ex);
-              int[] operators = new int[]{currentdi.id};
-              umbilical.reportError(containerId, operators, "Abandoning deployment due to setup failure. " + ExceptionUtils.getStackTrace(ex));
-            }
-          }
-          finally {
-            if (setOperators.contains(ndi)) {
-              try {
-                teardownNode(ndi);
-              }
-              catch (Exception ex) {
-                failedNodes.add(ndi.id);
-                logger.error("Shutdown of operator {} failed due to an exception.", ndi, ex);
-              }
-            }
-            else {
-              signal.countDown();
-            }
-
-            List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
-            if (oioNodeIdList != null) {
-              for (Integer oioNodeId : oioNodeIdList) {
-                OperatorDeployInfo oiodi = nodeMap.get(oioNodeId);
-                if (setOperators.contains(oiodi)) {
-                  try {
-                    teardownNode(oiodi);
-                  }
-                  catch (Exception ex) {
-                    failedNodes.add(oiodi.id);
-                    logger.error("Shutdown of operator {} failed due to an exception.", oiodi, ex);
-                  }
-                }
-                else {
-                  signal.countDown();
-                }
-              }
-            }
-          }
-        }
-
-      }.start();
+      NodeActivation activation = new NodeActivation(ndi, nodeMap, signal);
+      if (scheduler != null && node instanceof GenericNode) {
+        scheduler.schedule((GenericNode)node, activation);
+      }
+      else {
+        new Thread(activation, Integer.toString(ndi.id).concat("/").concat(ndi.name).concat(":").concat(node.getOperator().getClass().getSimpleName())).start();
+      }
     }
 
     /**
@@ -1454,6 +1442,138 @@ public class StreamingContainer extends YarnContainerMain
     }
   }
 
+  /**
+   * Sets up the node along with the operators deployed in the same thread, runs it and tears them down after it stops,
+   * either on a thread of its own or on the {@link NodeScheduler}.
+   */
+  private class NodeActivation implements Runnable, NodeScheduler.Activation
+  {
+    private final OperatorDeployInfo ndi;
+    private final Map<Integer, OperatorDeployInfo> nodeMap;
+    private final CountDownLatch signal;
+    private final HashSet<OperatorDeployInfo> setOperators = new HashSet<OperatorDeployInfo>();
+    private OperatorDeployInfo currentdi;
+
+    NodeActivation(OperatorDeployInfo ndi, Map<Integer, OperatorDeployInfo> nodeMap, CountDownLatch signal)
+    {
+      this.ndi = ndi;
+      this.nodeMap = nodeMap;
+      this.signal = signal;
+    }
+
+    @Override
+    @SuppressWarnings({"UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
+    public void run()
+    {
+      try {
+        setup();
+        nodes.get(ndi.id).run(); /* this is a blocking call */
+      }
+      catch (Throwable cause) {
+        failed(cause);
+      }
+      finally {
+        teardown();
+      }
+    }
+
+    @Override
+    public void setup()
+    {
+      currentdi = ndi;
+      /* primary operator initialization */
+      setupNode(currentdi);
+      setOperators.add(currentdi);
+
+      /* lets go for OiO operator initialization */
+      List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
+      if (oioNodeIdList != null) {
+        for (Integer oioNodeId : oioNodeIdList) {
+          currentdi = nodeMap.get(oioNodeId);
+          setupNode(currentdi);
+          setOperators.add(currentdi);
+        }
+      }
+
+      currentdi = null;
+
+      for (int i = setOperators.size(); i-- > 0; ) {
+        signal.countDown();
+      }
+    }
+
+    @Override
+    public void failed(Throwable cause)
+    {
+      if (cause instanceof Error) {
+        int[] operators;
+        if (currentdi == null) {
+          logger.error("Voluntary container termination due to an error in operator set {}.", setOperators, cause);
+          operators = new int[setOperators.size()];
+          int i = 0;
+          for (Iterator<OperatorDeployInfo> it = setOperators.iterator(); it.hasNext(); i++) {
+            operators[i] = it.next().id;
+          }
+        }
+        else {
+          logger.error("Voluntary container termination due to an error in operator {}.", currentdi, cause);
+          operators = new int[]{currentdi.id};
+        }
+        umbilical.reportError(containerId, operators, "Voluntary container termination due to an error. " + ExceptionUtils.getStackTrace(cause));
+        System.exit(1);
+      }
+      else if (currentdi == null) {
+        failedNodes.add(ndi.id);
+        logger.error("Operator set {} stopped running due to an exception.", setOperators, cause);
+        int[] operators = new int[]{ndi.id};
+        umbilical.reportError(containerId, operators, "Stopped running due to an exception. " + ExceptionUtils.getStackTrace(cause));
+      }
+      else {
+        failedNodes.add(currentdi.id);
+        logger.error("Abandoning deployment of operator {} due to setup failure.", currentdi, cause);
+        int[] operators = new int[]{currentdi.id};
+        umbilical.reportError(containerId, operators, "Abandoning deployment due to setup failure. " + ExceptionUtils.getStackTrace(cause));
+      }
+    }
+
+    @Override
+    public void teardown()
+    {
+      if (setOperators.contains(ndi)) {
+        try {
+          teardownNode(ndi);
+        }
+        catch (Exception ex) {
+          failedNodes.add(ndi.id);
+          logger.error("Shutdown of operator {} failed due to an exception.", ndi, ex);
+        }
+      }
+      else {
+        signal.countDown();
+      }
+
+      List<Integer> oioNodeIdList = oioGroups.get(ndi.id);
+      if (oioNodeIdList != null) {
+        for (Integer oioNodeId : oioNodeIdList) {
+          OperatorDeployInfo oiodi = nodeMap.get(oioNodeId);
+          if (setOperators.contains(oiodi)) {
+            try {
+              teardownNode(oiodi);
+            }
+            catch (Exception ex) {
+              failedNodes.add(oiodi.id);
+              logger.error("Shutdown of operator {} failed due to an exception.", oiodi, ex);
+            }
+          }
+          else {
+            signal.countDown();
+          }
+        }
+      }
+    }
+
+  }
+
   private void groupInputStreams(HashMap<String, ArrayList<String>> groupedInputStreams, OperatorDeployInfo ndi)
   {
     for (OperatorDeployInfo.InputDeployInfo nidi : ndi.inputs) {
@@ -1581,6 +1701,22 @@ public class StreamingContainer extends YarnContainerMain
     DTLoggerFactory.getInstance().changeLoggersLevel(request.getTargetChanges());
   }
 
+  /**
+   * Size of the memory mapped segments which spool the buffer server blocks of the given size. A segment holds
+   * {@link #SPOOL_SEGMENT_BLOCKS} blocks, or as many of them as fit in {@link #MAX_SPOOL_SEGMENT_SIZE} bytes.
+   *
+   * @param blockBytes size of the buffer server block in bytes
+   * @return size of the segment in bytes
+   * @throws IllegalArgumentException if a single block does not fit in a segment
+   */
+  static int getSpoolSegmentSize(long blockBytes)
+  {
+    if (blockBytes <= 0 || blockBytes > MAX_SPOOL_SEGMENT_SIZE) {
+      throw new IllegalArgumentException("Buffer server block of " + blockBytes + " bytes does not fit in a spool segment of at most " + MAX_SPOOL_SEGMENT_SIZE + " bytes");
+    }
+    return (int)(Math.min(SPOOL_SEGMENT_BLOCKS, MAX_SPOOL_SEGMENT_SIZE / blockBytes) * blockBytes);
+  }
+
   private final StreamCodec<Object> nonSerializingStreamCodec = new StreamCodec<Object>()
   {
     @Override
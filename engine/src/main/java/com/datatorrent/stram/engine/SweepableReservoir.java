@@ -40,6 +40,13 @@ public interface SweepableReservoir extends Reservoir
    */
   public Tuple sweep();
 
+  /**
+   * Set the signal with which the thread sweeping this reservoir is woken up when the tuples are added to it.
+   *
+   * @param signal The signal of the sweeping thread or null
+   */
+  public void setWakeupSignal(WakeupSignal signal);
+
   /**
    * Get the count of tuples consumed.
    *
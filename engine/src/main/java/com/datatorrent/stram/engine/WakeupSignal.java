@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lets the thread sweeping the reservoirs park while they are all empty and the threads adding the tuples to them
+ * wake it up.<p>
+ * <br>
+ * The consumer announces that it is about to park with {@link #prepare()}, checks the reservoirs one last time and
+ * then either parks or cancels. The producers call {@link #wakeup()} after adding the tuples, which costs a volatile
+ * read unless the consumer is parked, so either the consumer sees the tuples or the producer sees the consumer parked.
+ * <br>
+ * A consumer which runs as a task on the {@link NodeScheduler} does not park; it registers the task which resubmits it
+ * instead, and exactly one of the producers and the consumer cancelling the park gets to run it.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class WakeupSignal
+{
+  private static final AtomicIntegerFieldUpdater<WakeupSignal> PARKED = AtomicIntegerFieldUpdater.newUpdater(WakeupSignal.class, "parked");
+  private Thread thread;
+  private volatile Runnable task;
+  private volatile int parked;
+
+  /**
+   * Run the given task instead of unparking the consumer when it is woken up.
+   *
+   * @param task the task which resumes the consumer, null to unpark the consumer thread
+   */
+  public void setTask(Runnable task)
+  {
+    this.task = task;
+  }
+
+  /**
+   * Announce that the calling thread is about to park.
+   */
+  public void prepare()
+  {
+    thread = Thread.currentThread();
+    parked = 1;
+  }
+
+  /**
+   * Park the thread which called {@link #prepare()} until it is woken up or the timeout elapses.
+   *
+   * @param nanos maximum number of nanoseconds to park for
+   * @throws InterruptedException if the thread is interrupted while parked
+   */
+  public void park(long nanos) throws InterruptedException
+  {
+    LockSupport.parkNanos(this, nanos);
+    parked = 0;
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * Park the thread which called {@link #prepare()} until it is woken up.
+   *
+   * @throws InterruptedException if the thread is interrupted while parked
+   */
+  public void park() throws InterruptedException
+  {
+    LockSupport.park(this);
+    parked = 0;
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * Call off parking after {@link #prepare()} as the reservoirs are not empty anymore.
+   *
+   * @return true if the park was called off, false if a producer woke up the consumer in the meantime
+   */
+  public boolean cancel()
+  {
+    return PARKED.compareAndSet(this, 1, 0);
+  }
+
+  /**
+   * Wake up the consumer if it is parked or about to park.
+   */
+  public void wakeup()
+  {
+    if (parked != 0 && PARKED.compareAndSet(this, 1, 0)) {
+      Runnable t = task;
+      if (t == null) {
+        LockSupport.unpark(thread);
+      }
+      else {
+        t.run();
+      }
+    }
+  }
+
+}
@@ -289,6 +289,13 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
       super(n);
     }
 
+    @Override
+    public void put(Tuple e) throws InterruptedException
+    {
+      super.put(e);
+      wakeupReservoirs();
+    }
+
   }
 
   private static final Logger logger = LoggerFactory.getLogger(WindowGenerator.class);
@@ -78,6 +78,12 @@ public class WindowIdActivatedReservoir implements SweepableReservoir
     }
   }
 
+  @Override
+  public void setWakeupSignal(WakeupSignal signal)
+  {
+    reservoir.setWakeupSignal(signal);
+  }
+
   @Override
   public Tuple sweep()
   {
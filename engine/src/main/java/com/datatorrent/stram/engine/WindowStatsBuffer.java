@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import com.datatorrent.api.Stats.Checkpoint;
+
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+
+/**
+ * Ring of reusable records holding the stats of the windows which the node processed since the last heartbeat.<p>
+ * <br>
+ * The node fills the next record in place at the end of every window, so reporting the stats does not allocate on the
+ * node thread. The heartbeat thread drains the filled records into the {@link ContainerStats.OperatorStats} it sends
+ * to the master, with the same values the node used to report, and hands the records back to the node. The ring
+ * starts small and grows up to {@link #MAX_CAPACITY} records when the heartbeat falls behind, after which the stats
+ * of the oldest window are dropped.
+ * <br>
+ *
+ * @since 2.2.0
+ */
+public class WindowStatsBuffer
+{
+  /**
+   * Maximum number of windows whose stats are kept between the heartbeats.
+   */
+  public static final int MAX_CAPACITY = 1024;
+  private static final int INITIAL_CAPACITY = 4;
+  private static final PortRecord[] NO_PORTS = new PortRecord[0];
+  private Record[] records;
+  /* index of the oldest filled record, advanced by the heartbeat or by the node dropping the oldest record */
+  private volatile long head;
+  /* index of the record the node fills next, advanced by the node only */
+  private volatile long tail;
+
+  public WindowStatsBuffer()
+  {
+    records = newRecords(INITIAL_CAPACITY);
+  }
+
+  private static Record[] newRecords(int capacity)
+  {
+    Record[] array = new Record[capacity];
+    for (int i = capacity; i-- > 0;) {
+      array[i] = new Record();
+    }
+    return array;
+  }
+
+  /**
+   * Get the record to fill with the stats of the window which just ended; called by the node. The record is cleared
+   * and belongs to the node until it is published with {@link #publish()}.
+   *
+   * @return the record
+   */
+  public Record claim()
+  {
+    if (tail - head == records.length) {
+      makeRoom();
+    }
+    Record record = records[(int)tail & (records.length - 1)];
+    record.clear();
+    return record;
+  }
+
+  private synchronized void makeRoom()
+  {
+    final int capacity = records.length;
+    if (tail - head < capacity) {
+      /* the heartbeat drained the records in the meantime */
+      return;
+    }
+    if (capacity < MAX_CAPACITY) {
+      Record[] array = new Record[capacity << 1];
+      for (long i = head; i < tail; i++) {
+        array[(int)i & (array.length - 1)] = records[(int)i & (capacity - 1)];
+      }
+      for (int i = array.length; i-- > 0;) {
+        if (array[i] == null) {
+          array[i] = new Record();
+        }
+      }
+      records = array;
+    }
+    else {
+      head++;
+    }
+  }
+
+  /**
+   * Make the record returned by the last {@link #claim()} visible to the heartbeat; called by the node.
+   */
+  public void publish()
+  {
+    tail++;
+  }
+
+  /**
+   * Add the stats of the published records to the collection, oldest first, and release the records; called by the
+   * heartbeat.
+   *
+   * @param stats collection to add the stats to
+   * @return the number of stats added
+   */
+  public synchronized int drainTo(Collection<? super ContainerStats.OperatorStats> stats)
+  {
+    final long end = tail;
+    int count = 0;
+    for (long i = head; i < end; i++, count++) {
+      stats.add(records[(int)i & (records.length - 1)].toOperatorStats());
+    }
+    head = end;
+    return count;
+  }
+
+  /**
+   * @return the number of records holding the stats which were not drained yet
+   */
+  public int size()
+  {
+    return (int)(tail - head);
+  }
+
+  /**
+   * @return the number of records the ring holds before it grows or drops the oldest stats
+   */
+  public synchronized int capacity()
+  {
+    return records.length;
+  }
+
+  /**
+   * Reusable counterpart of the {@link ContainerStats.OperatorStats} of a window.
+   */
+  public static class Record
+  {
+    public long windowId;
+    public Checkpoint checkpoint;
+    public long cpuTimeUsed;
+    public long idleNanos;
+    public long spinNanos;
+    public Object counters;
+    public Map<String, Object> customMetrics;
+    private PortRecord[] inputPorts = NO_PORTS;
+    private PortRecord[] outputPorts = NO_PORTS;
+    /* number of ports filled, -1 when the node did not report the ports */
+    private int inputCount;
+    private int outputCount;
+
+    void clear()
+    {
+      windowId = 0;
+      checkpoint = null;
+      cpuTimeUsed = 0;
+      idleNanos = 0;
+      spinNanos = 0;
+      counters = null;
+      customMetrics = null;
+      inputCount = -1;
+      outputCount = -1;
+    }
+
+    /**
+     * Start reporting the input ports; the ports are added with {@link #addInputPort(String)}.
+     */
+    public void reportInputPorts()
+    {
+      inputCount = 0;
+    }
+
+    /**
+     * Start reporting the output ports; the ports are added with {@link #addOutputPort(String)}.
+     */
+    public void reportOutputPorts()
+    {
+      outputCount = 0;
+    }
+
+    /**
+     * @param id the name of the port
+     * @return the cleared record to fill with the stats of the next input port
+     */
+    public PortRecord addInputPort(String id)
+    {
+      if (inputCount == inputPorts.length) {
+        inputPorts = grow(inputPorts);
+      }
+      return inputPorts[inputCount++].reset(id);
+    }
+
+    /**
+     * @param id the name of the port
+     * @return the cleared record to fill with the stats of the next output port
+     */
+    public PortRecord addOutputPort(String id)
+    {
+      if (outputCount == outputPorts.length) {
+        outputPorts = grow(outputPorts);
+      }
+      return outputPorts[outputCount++].reset(id);
+    }
+
+    private static PortRecord[] grow(PortRecord[] ports)
+    {
+      PortRecord[] array = new PortRecord[ports.length == 0 ? 2 : ports.length << 1];
+      System.arraycopy(ports, 0, array, 0, ports.length);
+      for (int i = ports.length; i < array.length; i++) {
+        array[i] = new PortRecord();
+      }
+      return array;
+    }
+
+    @SuppressWarnings("deprecation")
+    ContainerStats.OperatorStats toOperatorStats()
+    {
+      ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
+      stats.windowId = windowId;
+      stats.checkpoint = checkpoint;
+      stats.cpuTimeUsed = cpuTimeUsed;
+      stats.idleNanos = idleNanos;
+      stats.spinNanos = spinNanos;
+      stats.counters = counters;
+      stats.customMetrics = customMetrics;
+      stats.inputPorts = toPortStats(inputPorts, inputCount);
+      stats.outputPorts = toPortStats(outputPorts, outputCount);
+      return stats;
+    }
+
+    private static ArrayList<ContainerStats.OperatorStats.PortStats> toPortStats(PortRecord[] ports, int count)
+    {
+      if (count < 0) {
+        return null;
+      }
+      ArrayList<ContainerStats.OperatorStats.PortStats> list = new ArrayList<ContainerStats.OperatorStats.PortStats>(count);
+      for (int i = 0; i < count; i++) {
+        list.add(ports[i].toPortStats());
+      }
+      return list;
+    }
+
+  }
+
+  /**
+   * Reusable counterpart of the {@link ContainerStats.OperatorStats.PortStats} of a window.
+   */
+  public static class PortRecord
+  {
+    public String id;
+    public int tupleCount;
+    public long endWindowTimestamp;
+    public int queueSize;
+
+    PortRecord reset(String id)
+    {
+      this.id = id;
+      tupleCount = 0;
+      endWindowTimestamp = 0;
+      queueSize = 0;
+      return this;
+    }
+
+    ContainerStats.OperatorStats.PortStats toPortStats()
+    {
+      ContainerStats.OperatorStats.PortStats stats = new ContainerStats.OperatorStats.PortStats(id);
+      stats.tupleCount = tupleCount;
+      stats.endWindowTimestamp = endWindowTimestamp;
+      stats.queueSize = queueSize;
+      return stats;
+    }
+
+  }
+
+}
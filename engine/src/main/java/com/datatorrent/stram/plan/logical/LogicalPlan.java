@@ -96,6 +96,24 @@ public class LogicalPlan implements Serializable, DAG
    * Then it can be moved back to DAGContext.
    */
   public static Attribute<Boolean> FAST_PUBLISHER_SUBSCRIBER = new Attribute<Boolean>(false);
+  /**
+   * Number of threads the buffer server in each container uses to deliver the data to the subscribers. The data
+   * published on a port is always delivered by the same thread.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_DELIVERY_THREADS = new Attribute<Integer>(1);
+  /**
+   * Number of event loops each container uses for the connections of its buffer server publishers and subscribers.
+   * The connections are assigned to the event loops in round robin fashion. The first event loop also serves the
+   * buffer server running in the container.
+   */
+  public static Attribute<Integer> CONTAINER_EVENT_LOOPS = new Attribute<Integer>(1);
+  /**
+   * Number of threads on which each container runs its generic operators and unifiers cooperatively. The operators
+   * are run as tasks which are scheduled when the tuples arrive on their input ports instead of on a thread of their
+   * own. The input operators always get a thread of their own. The default value of 0 gives every operator a thread
+   * of its own.
+   */
+  public static Attribute<Integer> CONTAINER_SCHEDULER_THREADS = new Attribute<Integer>(0);
   public static Attribute<Long> HDFS_TOKEN_LIFE_TIME = new Attribute<Long>(604800000l);
   public static Attribute<Long> RM_TOKEN_LIFE_TIME = new Attribute<Long>(YarnConfiguration.DELEGATION_TOKEN_MAX_LIFETIME_DEFAULT);
   public static Attribute<String> KEY_TAB_FILE = new Attribute<String>((String) null, new StringCodec.String2String());
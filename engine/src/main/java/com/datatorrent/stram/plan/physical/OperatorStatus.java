@@ -46,6 +46,8 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
   {
     public String portName;
     public long totalTuples;
+    public long totalBufferServerBytes;
+    public long totalBufferServerBlockedNanos;
     public String recordingId;
     public final TimedMovingAverageLong tuplesPMSMA;
     public final TimedMovingAverageLong bufferServerBytesPMSMA;
@@ -69,6 +71,8 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
   public final VersionedLong tuplesEmittedPSMA = statsRevs.newVersionedLong();
   public String recordingId;
   public final TimedMovingAverageLong cpuNanosPMSMA;
+  public long totalIdleNanos;
+  public long totalSpinNanos;
   public final MovingAverageLong latencyMA;
   public final Map<String, PortStatus> inputPortStatusList = new ConcurrentHashMap<String, PortStatus>();
   public final Map<String, PortStatus> outputPortStatusList = new ConcurrentHashMap<String, PortStatus>();
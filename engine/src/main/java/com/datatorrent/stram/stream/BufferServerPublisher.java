@@ -16,20 +16,31 @@
 package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
-import static java.lang.Thread.sleep;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.DirectStreamCodec;
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.StreamCodec;
 
 import com.datatorrent.bufferserver.client.Publisher;
 import com.datatorrent.bufferserver.packet.*;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+import com.datatorrent.stram.codec.DirectStatefulStreamCodec;
+import com.datatorrent.stram.codec.StableStatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+import com.datatorrent.stram.engine.BlockedTimeCounterStream;
 import com.datatorrent.stram.engine.ByteCounterStream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.tuple.Tuple;
@@ -44,36 +55,62 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * @since 0.3.2
  */
-public class BufferServerPublisher extends Publisher implements ByteCounterStream
+public class BufferServerPublisher extends Publisher implements ByteCounterStream, BlockedTimeCounterStream
 {
+  /**
+   * initial capacity of the buffers the tuples are framed in before they are published.
+   */
+  public static final int BATCH_BUFFER_CAPACITY = 64 * 1024;
+  /* the message type followed by the partition */
+  private static final int PAYLOAD_HEADER_SIZE = 5;
   private StreamCodec<Object> serde;
+  private DirectStreamCodec<Object> directSerde;
   private final AtomicLong publishedByteCount;
   private EventLoop eventloop;
   private int count;
   private StatefulStreamCodec<Object> statefulSerde;
+  private DirectStatefulStreamCodec<Object> directStatefulSerde;
+  private StableStatefulStreamCodec<Object> stableStatefulSerde;
+  /* the state snapshot is due ahead of the first tuple after the checkpoint */
+  private boolean snapshotPending;
+  /*
+   * The tuples are framed in the batch buffer one after another, the ones from batchOffset up to the position of the
+   * buffer are yet to be published. The buffers published from are reused once the client copied all the data out.
+   */
+  private ByteBuffer batch;
+  private int batchOffset;
+  private int batchCapacity = BATCH_BUFFER_CAPACITY;
+  private final ArrayList<ByteBuffer> publishedBuffers = new ArrayList<ByteBuffer>();
+  private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+  /* size of the length prepended to the last payload written directly, most likely the same for the next one */
+  private int lengthSize = 1;
 
   public BufferServerPublisher(String sourceId, int queueCapacity)
   {
-    super(sourceId, queueCapacity);
+    super(sourceId, queueCapacity, DEFAULT_CREDIT_WINDOW);
     this.publishedByteCount = new AtomicLong(0);
+    batch = ByteBuffer.allocate(batchCapacity);
   }
 
   /**
+   * Frames the tuple in the batch buffer, the batch is published at the end of each window.
    *
    * @param payload
    */
   @Override
-  @SuppressWarnings("SleepWhileInLoop")
   public void put(Object payload)
   {
     count++;
-    byte[] array;
     if (payload instanceof Tuple) {
       final Tuple t = (Tuple)payload;
 
+      byte[] array;
       switch (t.getType()) {
         case CHECKPOINT:
-          if (statefulSerde != null) {
+          if (stableStatefulSerde != null) {
+            snapshotPending = true;
+          }
+          else if (statefulSerde != null) {
             statefulSerde.resetState();
           }
           array = WindowIdTuple.getSerializedTuple((int)t.getWindowId());
@@ -100,34 +137,221 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
         default:
           throw new UnsupportedOperationException("this data type is not handled in the stream");
       }
+
+      int size = array.length;
+      int offset = reserve(VarInt.getSize(size) + size);
+      offset = VarInt.write(size, batch.array(), offset);
+      System.arraycopy(array, 0, batch.array(), offset, size);
+      batch.position(offset + size);
+
+      if (t.getType() == MessageType.END_WINDOW || t.getType() == MessageType.END_STREAM) {
+        flush();
+      }
     }
-    else {
-      if (statefulSerde == null) {
-        array = PayloadTuple.getSerializedTuple(serde.getPartition(payload), serde.toByteArray(payload));
+    else if (payload instanceof LazyTuple) {
+      LazyTuple lazy = (LazyTuple)payload;
+      if (forwardable(lazy)) {
+        writePayload(lazy.getPartition(), lazy.getSlice());
       }
       else {
-        DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+        writeData(lazy.get());
+      }
+    }
+    else {
+      writeData(payload);
+    }
+  }
+
+  private void writeData(Object payload)
+  {
+    if (snapshotPending) {
+      /*
+       * the buffer server purges the data up to the window following the checkpoint, so the subscribers which recover
+       * from the checkpoint rebuild the state from the snapshot written after it.
+       */
+      snapshotPending = false;
+      Slice snapshot = stableStatefulSerde.snapshotState();
+      if (snapshot != null) {
+        writeMessage(MessageType.CODEC_STATE_VALUE, snapshot);
+      }
+    }
+
+    if (directStatefulSerde != null) {
+      int frameOffset = writeDirect(payload, directStatefulSerde.getPartition(payload), directStatefulSerde);
+      Slice state = directStatefulSerde.drainState();
+      if (state != null) {
         /*
-         * if there is any state write that for the subscriber before we write the data.
+         * the state has to reach the subscriber before the data, so move the data after the state.
          */
-        if (dsp.state != null) {
-          write(DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state));
+        byte[] frame = Arrays.copyOfRange(batch.array(), frameOffset, batch.position());
+        batch.position(frameOffset);
+        writeMessage(MessageType.CODEC_STATE_VALUE, state);
+        int offset = reserve(frame.length);
+        System.arraycopy(frame, 0, batch.array(), offset, frame.length);
+        batch.position(offset + frame.length);
+      }
+    }
+    else if (statefulSerde != null) {
+      DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+      /*
+       * if there is any state write that for the subscriber before we write the data.
+       */
+      if (dsp.state != null) {
+        writeMessage(MessageType.CODEC_STATE_VALUE, dsp.state);
+      }
+      /*
+       * Now that the state if any has been sent, we can proceed with the actual data we want to send.
+       */
+      writePayload(statefulSerde.getPartition(payload), dsp.data);
+    }
+    else if (directSerde != null) {
+      writeDirect(payload, directSerde.getPartition(payload), directSerde);
+    }
+    else {
+      writePayload(serde.getPartition(payload), serde.toByteArray(payload));
+    }
+  }
+
+  /**
+   * The bytes of a lazy tuple can be sent again untouched if this stream serializes with a codec of the same class as
+   * the one which serialized them. Stateful codecs are ruled out as their bytes depend on the state of the stream.
+   */
+  private boolean forwardable(LazyTuple lazy)
+  {
+    return serde != null && serde.getClass() == lazy.getCodec().getClass();
+  }
+
+  /**
+   * Makes sure the batch buffer has the space for a message and prepends the length of the message.
+   *
+   * @param frameSize size of the message along with its length
+   * @return offset in the batch buffer the message goes to
+   */
+  private int reserve(int frameSize)
+  {
+    if (batch.remaining() < frameSize) {
+      nextBatch(frameSize);
+    }
+    return batch.position();
+  }
+
+  private void writeMessage(byte type, Slice data)
+  {
+    int size = 1 + data.length;
+    int offset = reserve(VarInt.getSize(size) + size);
+    byte[] array = batch.array();
+    offset = VarInt.write(size, array, offset);
+    array[offset++] = type;
+    System.arraycopy(data.buffer, data.offset, array, offset, data.length);
+    batch.position(offset + data.length);
+  }
+
+  private void writePayload(int partition, Slice data)
+  {
+    int size = PAYLOAD_HEADER_SIZE + data.length;
+    int offset = reserve(VarInt.getSize(size) + size);
+    byte[] array = batch.array();
+    offset = writePayloadHeader(array, VarInt.write(size, array, offset), partition);
+    System.arraycopy(data.buffer, data.offset, array, offset, data.length);
+    batch.position(offset + data.length);
+  }
+
+  /**
+   * Lets the codec serialize the tuple right after the header of the payload. The space for the length is reserved
+   * ahead of the header as the size of the serialized tuple is not known yet, and the tuple is moved only when the size
+   * of its length turns out to differ from the one of the previous tuple.
+   *
+   * @return offset in the batch buffer the message starts at
+   */
+  private int writeDirect(Object payload, int partition, DirectStreamCodec<Object> codec)
+  {
+    while (true) {
+      int frameOffset = batch.position();
+      int headerOffset = frameOffset + lengthSize;
+      if (batch.limit() - headerOffset > PAYLOAD_HEADER_SIZE) {
+        batch.position(headerOffset + PAYLOAD_HEADER_SIZE);
+        try {
+          codec.writeTo(payload, batch);
+          int size = batch.position() - headerOffset;
+          int newLengthSize = VarInt.getSize(size);
+          if (frameOffset + newLengthSize + size <= batch.limit()) {
+            byte[] array = batch.array();
+            if (newLengthSize != lengthSize) {
+              System.arraycopy(array, headerOffset + PAYLOAD_HEADER_SIZE, array, frameOffset + newLengthSize + PAYLOAD_HEADER_SIZE, size - PAYLOAD_HEADER_SIZE);
+              lengthSize = newLengthSize;
+            }
+            writePayloadHeader(array, VarInt.write(size, array, frameOffset), partition);
+            batch.position(frameOffset + newLengthSize + size);
+            return frameOffset;
+          }
+          lengthSize = newLengthSize;
         }
-        /*
-         * Now that the state if any has been sent, we can proceed with the actual data we want to send.
-         */
-        array = PayloadTuple.getSerializedTuple(statefulSerde.getPartition(payload), dsp.data);
+        catch (BufferOverflowException ex) {
+          logger.trace("tuple overflows the batch buffer {}", batch);
+        }
+        batch.position(frameOffset);
       }
+
+      /*
+       * a fresh buffer does not have the room for the tuple, so the next one needs to be larger.
+       */
+      nextBatch(frameOffset == 0 ? batch.capacity() << 1 : 0);
     }
+  }
 
-    try {
-      while (!write(array)) {
-        sleep(5);
+  private static int writePayloadHeader(byte[] array, int offset, int partition)
+  {
+    array[offset++] = MessageType.PAYLOAD_VALUE;
+    array[offset++] = (byte)partition;
+    array[offset++] = (byte)(partition >> 8);
+    array[offset++] = (byte)(partition >> 16);
+    array[offset++] = (byte)(partition >> 24);
+    return offset;
+  }
+
+  /**
+   * Publishes what is framed in the current batch buffer and switches to a buffer which the client is done with.
+   *
+   * @param minCapacity number of the bytes the next buffer needs to be able to hold
+   */
+  private void nextBatch(int minCapacity)
+  {
+    flush();
+    if (batchOffset > 0) {
+      publishedBuffers.add(batch);
+    }
+
+    if (minCapacity > batchCapacity) {
+      batchCapacity = Integer.highestOneBit(minCapacity - 1) << 1;
+      freeBuffers.clear();
+    }
+
+    if (!publishedBuffers.isEmpty() && isSendQueueEmpty()) {
+      for (ByteBuffer buffer : publishedBuffers) {
+        if (buffer.capacity() == batchCapacity) {
+          freeBuffers.add(buffer);
+        }
       }
-      publishedByteCount.addAndGet(array.length);
+      publishedBuffers.clear();
     }
-    catch (InterruptedException ie) {
-      throw new RuntimeException(ie);
+
+    batch = freeBuffers.poll();
+    if (batch == null) {
+      batch = ByteBuffer.allocate(batchCapacity);
+    }
+    else {
+      batch.clear();
+    }
+    batchOffset = 0;
+  }
+
+  private void flush()
+  {
+    int length = batch.position() - batchOffset;
+    if (length > 0) {
+      publish(batch.array(), batchOffset, length);
+      publishedByteCount.addAndGet(length);
+      batchOffset = batch.position();
     }
   }
 
@@ -153,12 +377,6 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     eventloop.disconnect(this);
   }
 
-  @Override
-  public void onMessage(byte[] buffer, int offset, int size)
-  {
-    throw new RuntimeException("OutputStream is not supposed to receive anything!");
-  }
-
   @Override
   @SuppressWarnings("unchecked")
   public void setup(StreamContext context)
@@ -172,6 +390,16 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     }
     else {
       serde = (StreamCodec<Object>)codec;
+      if (codec instanceof DirectStreamCodec) {
+        directSerde = (DirectStreamCodec<Object>)codec;
+      }
+    }
+
+    if (statefulSerde instanceof DirectStatefulStreamCodec) {
+      directStatefulSerde = (DirectStatefulStreamCodec<Object>)statefulSerde;
+    }
+    if (statefulSerde instanceof StableStatefulStreamCodec) {
+      stableStatefulSerde = (StableStatefulStreamCodec<Object>)statefulSerde;
     }
   }
 
@@ -18,11 +18,15 @@ package com.datatorrent.stram.stream;
 import java.net.InetSocketAddress;
 import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.Context.PortContext;
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 
@@ -31,11 +35,13 @@ import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.netlet.EventLoop;
 import com.datatorrent.netlet.util.CircularBuffer;
+import com.datatorrent.stram.codec.StableStatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.engine.WakeupSignal;
 import com.datatorrent.stram.engine.WindowGenerator;
 import com.datatorrent.stram.tuple.*;
 
@@ -61,6 +67,8 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   private final ArrayDeque<CircularBuffer<Slice>> backlog;
   private int lastWindowId = WindowGenerator.MAX_WINDOW_ID;
   private final AtomicLong readByteCount;
+  private volatile Decoder decoder;
+  private boolean lazy;
 
   public BufferServerSubscriber(String id, int queueCapacity)
   {
@@ -117,6 +125,14 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
         offeredFragments.add(f);
       }
     }
+
+    if (decoder != null) {
+      decoder.wakeup();
+    }
+    else {
+      /* the fragments are decoded by the threads sweeping the reservoirs */
+      wakeupReservoirs();
+    }
   }
 
   @Override
@@ -134,6 +150,20 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       serde = (StreamCodec<Object>)codec;
     }
     baseSeconds = context.getFinishedWindowId() & 0xffffffff00000000L;
+
+    if (context.getValue(PortContext.DESERIALIZE_LAZILY)) {
+      if (serde == null) {
+        logger.warn("Tuples on {} are deserialized eagerly as the codec {} is stateful", context.getId(), statefulSerde);
+      }
+      else {
+        lazy = true;
+      }
+    }
+
+    if (context.getValue(PortContext.DESERIALIZE_AHEAD)) {
+      decoder = new Decoder(TimeUnit.MILLISECONDS.toNanos(context.getValue(PortContext.SPIN_MILLIS)));
+      decoder.start();
+    }
   }
 
   @Override
@@ -145,6 +175,16 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   @Override
   public void teardown()
   {
+    if (decoder != null) {
+      decoder.interrupt();
+      try {
+        decoder.join();
+      }
+      catch (InterruptedException ex) {
+        throw new RuntimeException(ex);
+      }
+      decoder = null;
+    }
   }
 
   @SuppressWarnings("VolatileArrayField")
@@ -208,9 +248,124 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     return readByteCount.get();
   }
 
+  /**
+   * Deserializes as many of the fragments received from the buffer server as all the reservoirs have the room for and
+   * adds the tuples to each of the reservoirs.
+   *
+   * @return number of the fragments consumed
+   */
+  int decode()
+  {
+    synchronized (backlog) {
+      /* find out the minimum remaining capacity in all the other buffers and consume those many tuples from bufferserver */
+      int min = polledFragments.size();
+      if (min == 0) {
+        if (offeredFragments == polledFragments) {
+          if (suspended) {
+            resumeRead();
+            suspended = false;
+          }
+          return 0;
+        }
+        polledFragments = backlog.remove();
+        min = polledFragments.size();
+      }
+
+      for (int i = reservoirs.length; i-- > 0;) {
+        if (reservoirs[i].remainingCapacity() < min) {
+          min = reservoirs[i].remainingCapacity();
+        }
+      }
+
+      int decoded = min;
+      while (min-- > 0) {
+        Slice fm = polledFragments.pollUnsafe();
+        com.datatorrent.bufferserver.packet.Tuple data = com.datatorrent.bufferserver.packet.Tuple.getTuple(fm.buffer, fm.offset, fm.length);
+        Object o;
+        switch (data.getType()) {
+          case NO_MESSAGE:
+            freeFragments.offer(fm);
+            continue;
+
+          case CODEC_STATE:
+            dsp.state = data.getData();
+            freeFragments.offer(fm);
+            continue;
+
+          case RESET_WINDOW:
+            baseSeconds = (long)data.getBaseSeconds() << 32;
+            if (lastWindowId < WindowGenerator.MAX_WINDOW_ID) {
+              freeFragments.offer(fm);
+              continue;
+            }
+            o = new ResetWindowTuple(baseSeconds | data.getWindowWidth());
+            break;
+
+          case PAYLOAD:
+            if (lazy) {
+              o = new LazyTuple(serde, data.getData(), data.getPartition());
+            }
+            else if (statefulSerde == null) {
+              o = serde.fromByteArray(data.getData());
+            }
+            else {
+              dsp.data = data.getData();
+              o = statefulSerde.fromDataStatePair(dsp);
+            }
+            break;
+
+          case CHECKPOINT:
+            if (statefulSerde != null && !(statefulSerde instanceof StableStatefulStreamCodec)) {
+              statefulSerde.resetState();
+            }
+            o = new CheckpointTuple(baseSeconds | data.getWindowId());
+            break;
+
+          case END_WINDOW:
+            //logger.debug("received {}", data);
+            o = new EndWindowTuple(baseSeconds | (lastWindowId = data.getWindowId()));
+            break;
+
+          case END_STREAM:
+            o = new EndStreamTuple(baseSeconds | data.getWindowId());
+            break;
+
+          case BEGIN_WINDOW:
+            o = new Tuple(data.getType(), baseSeconds | data.getWindowId());
+            break;
+
+          default:
+            throw new IllegalArgumentException("Unhandled Message Type " + data.getType());
+        }
+
+        freeFragments.offer(fm);
+        for (int i = reservoirs.length; i-- > 0;) {
+          reservoirs[i].add(o);
+        }
+      }
+
+      if (decoded > 0) {
+        wakeupReservoirs();
+      }
+      return decoded;
+    }
+  }
+
+  private void wakeupReservoirs()
+  {
+    BufferReservoir[] lReservoirs = reservoirs;
+    for (int i = lReservoirs.length; i-- > 0;) {
+      WakeupSignal signal = lReservoirs[i].signal;
+      if (signal != null) {
+        signal.wakeup();
+      }
+    }
+  }
+
   class BufferReservoir extends CircularBuffer<Object> implements SweepableReservoir
   {
     private Sink<Object> sink;
+    private volatile WakeupSignal signal;
     int count;
 
     BufferReservoir(int capacity)
@@ -229,10 +384,29 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       }
     }
 
+    @Override
+    public void setWakeupSignal(WakeupSignal signal)
+    {
+      this.signal = signal;
+    }
+
+    /**
+     * Count the fragments waiting to be decoded by the thread sweeping the reservoir as well, so that the thread does
+     * not wait for the tuples which are only to be decoded by it.
+     */
+    @Override
+    public int size()
+    {
+      if (decoder == null) {
+        return super.size() + polledFragments.size() + (offeredFragments == polledFragments ? 0 : 1);
+      }
+      return super.size();
+    }
+
     @Override
     public Tuple sweep()
     {
-      final int size = size();
+      final int size = super.size();
       if (size > 0) {
         for (int i = 0; i < size; i++) {
           if (peekUnsafe() instanceof Tuple) {
@@ -245,88 +419,13 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
         count += size;
       }
 
-      synchronized (backlog) {
-        /* find out the minimum remaining capacity in all the other buffers and consume those many tuples from bufferserver */
-        int min = polledFragments.size();
-        if (min == 0) {
-          if (offeredFragments == polledFragments) {
-            if (suspended) {
-              resumeRead();
-              suspended = false;
-            }
-            return null;
-          }
-          polledFragments = backlog.remove();
-          min = polledFragments.size();
-        }
-
-        for (int i = reservoirs.length; i-- > 0;) {
-          if (reservoirs[i].remainingCapacity() < min) {
-            min = reservoirs[i].remainingCapacity();
-          }
-        }
-
-        while (min-- > 0) {
-          Slice fm = polledFragments.pollUnsafe();
-          com.datatorrent.bufferserver.packet.Tuple data = com.datatorrent.bufferserver.packet.Tuple.getTuple(fm.buffer, fm.offset, fm.length);
-          Object o;
-          switch (data.getType()) {
-            case NO_MESSAGE:
-              freeFragments.offer(fm);
-              continue;
-
-            case CODEC_STATE:
-              dsp.state = data.getData();
-              freeFragments.offer(fm);
-              continue;
-
-            case RESET_WINDOW:
-              baseSeconds = (long)data.getBaseSeconds() << 32;
-              if (lastWindowId < WindowGenerator.MAX_WINDOW_ID) {
-                freeFragments.offer(fm);
-                continue;
-              }
-              o = new ResetWindowTuple(baseSeconds | data.getWindowWidth());
-              break;
-
-            case PAYLOAD:
-              if (statefulSerde == null) {
-                o = serde.fromByteArray(data.getData());
-              }
-              else {
-                dsp.data = data.getData();
-                o = statefulSerde.fromDataStatePair(dsp);
-              }
-              break;
-
-            case CHECKPOINT:
-              if (statefulSerde != null) {
-                statefulSerde.resetState();
-              }
-              o = new CheckpointTuple(baseSeconds | data.getWindowId());
-              break;
-
-            case END_WINDOW:
-              //logger.debug("received {}", data);
-              o = new EndWindowTuple(baseSeconds | (lastWindowId = data.getWindowId()));
-              break;
-
-            case END_STREAM:
-              o = new EndStreamTuple(baseSeconds | data.getWindowId());
-              break;
-
-            case BEGIN_WINDOW:
-              o = new Tuple(data.getType(), baseSeconds | data.getWindowId());
-              break;
-
-            default:
-              throw new IllegalArgumentException("Unhandled Message Type " + data.getType());
-          }
-
-          freeFragments.offer(fm);
-          for (int i = reservoirs.length; i-- > 0;) {
-            reservoirs[i].add(o);
-          }
+      if (decoder == null) {
+        decode();
+      }
+      else {
+        decoder.check();
+        if (size > 0) {
+          decoder.wakeup();
         }
       }
 
@@ -348,5 +447,73 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
 
   }
 
+  /**
+   * Thread which deserializes the tuples ahead of the operators sweeping the reservoirs. The tuples are decoded in the
+   * order they arrive as the state of the codec depends on it.
+   */
+  class Decoder extends Thread
+  {
+    private final long parkNanos;
+    private volatile boolean idle;
+    private volatile Throwable error;
+
+    Decoder(long parkNanos)
+    {
+      super("Decoder-" + BufferServerSubscriber.this);
+      setDaemon(true);
+      this.parkNanos = parkNanos;
+    }
+
+    @Override
+    @SuppressWarnings({"UseSpecificCatch", "BroadCatchBlock", "TooBroadCatch"})
+    public void run()
+    {
+      try {
+        while (!isInterrupted()) {
+          if (decode() == 0) {
+            /*
+             * announce that we are about to park before checking one last time, so that the fragment or the room
+             * showing up in between unparks us.
+             */
+            idle = true;
+            if (decode() == 0) {
+              LockSupport.parkNanos(this, parkNanos);
+            }
+            idle = false;
+          }
+        }
+      }
+      catch (Throwable ex) {
+        logger.error("Deserialization of the tuples failed on {}", BufferServerSubscriber.this, ex);
+        error = ex;
+      }
+    }
+
+    void wakeup()
+    {
+      if (idle) {
+        LockSupport.unpark(this);
+      }
+    }
+
+    /**
+     * Rethrows the failure to deserialize on the thread of the operator.
+     */
+    void check()
+    {
+      Throwable cause = error;
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      if (cause != null) {
+        throw new RuntimeException(cause);
+      }
+    }
+
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(BufferServerSubscriber.class);
 }
@@ -21,7 +21,6 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import static java.lang.Thread.sleep;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
@@ -30,11 +29,15 @@ import com.esotericsoftware.kryo.io.Output;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.LazyTuple;
+
+import com.datatorrent.bufferserver.client.Credits;
+import com.datatorrent.bufferserver.client.Publisher;
 import com.datatorrent.bufferserver.packet.*;
 import com.datatorrent.netlet.EventLoop;
 import com.datatorrent.netlet.Listener;
 import com.datatorrent.netlet.Listener.ClientListener;
-import com.datatorrent.stram.engine.Stream;
+import com.datatorrent.stram.engine.BlockedTimeCounterStream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.tuple.Tuple;
 
@@ -43,13 +46,17 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * @since 0.3.2
  */
-public class FastPublisher extends Kryo implements ClientListener, Stream
+public class FastPublisher extends Kryo implements ClientListener, BlockedTimeCounterStream
 {
   public static final int BUFFER_CAPACITY = 8 * 1024;
   private SelectionKey key;
   private EventLoop eventloop;
   private int count;
-  private long spinMillis;
+  /**
+   * credits granted by the server, also used to wait for the event loop to free the buffers.
+   */
+  private final Credits credits = new Credits();
+  private final ByteBuffer creditBuffer = ByteBuffer.allocate(1024);
   protected final int lastIndex;
   protected final ByteBuffer[] readBuffers;
   protected ByteBuffer readBuffer;
@@ -59,6 +66,15 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   private int writeIndex;
   private final String id;
   private boolean write = true;
+  private final Credits.Condition writeBufferSent = new Credits.Condition()
+  {
+    @Override
+    public boolean isMet()
+    {
+      return writeIndex != readIndex;
+    }
+
+  };
 
   public FastPublisher(String id, int streamingWindowThroughput)
   {
@@ -91,8 +107,24 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   {
     SocketChannel channel = (SocketChannel)key.channel();
     int read;
-    if ((read = channel.read(ByteBuffer.allocate(1))) > 0) {
-      throw new RuntimeException("Publisher " + this + " is not supposed to receive any data");
+    if ((read = channel.read(creditBuffer)) > 0) {
+      creditBuffer.flip();
+      while (creditBuffer.remaining() > 1) {
+        /*
+         * the credit messages are a few bytes long, so their size fits in a single byte.
+         */
+        int offset = creditBuffer.position();
+        int size = creditBuffer.get(offset++);
+        if (size < 0 || creditBuffer.get(offset) != MessageType.CREDIT_VALUE) {
+          throw new RuntimeException("Publisher " + this + " is not supposed to receive any data but the credits");
+        }
+        if (creditBuffer.limit() < offset + size) {
+          break;
+        }
+        credits.grant(new CreditTuple(creditBuffer.array(), offset, size).getCredit());
+        creditBuffer.position(offset + size);
+      }
+      creditBuffer.compact();
     }
     else if (read == -1) {
       try {
@@ -134,6 +166,7 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
         else {
           readIndex++;
         }
+        credits.signal();
       }
       readBuffer = readBuffers[readIndex];
     }
@@ -144,6 +177,7 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   public void handleException(Exception cce, EventLoop el)
   {
     logger.debug("Generically handling", cce);
+    credits.fail(cce);
   }
 
   @Override
@@ -161,7 +195,6 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   @Override
   public void setup(StreamContext context)
   {
-    spinMillis = 5; // somehow get it context.getValue(PortContext.SPIN_MILLIS, 5);
   }
 
   @Override
@@ -177,7 +210,8 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
     eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
 
     logger.debug("registering publisher: {} {} windowId={} server={}", new Object[] {context.getSourceId(), context.getId(), context.getFinishedWindowId(), context.getBufferServerAddress()});
-    byte[] serializedRequest = PublishRequestTuple.getSerializedRequest(com.datatorrent.bufferserver.packet.Tuple.FAST_VERSION, id, context.getFinishedWindowId());
+    credits.grant(Publisher.DEFAULT_CREDIT_WINDOW);
+    byte[] serializedRequest = PublishRequestTuple.getSerializedRequest(com.datatorrent.bufferserver.packet.Tuple.FAST_VERSION, id, context.getFinishedWindowId(), Publisher.DEFAULT_CREDIT_WINDOW);
     assert (serializedRequest.length < 128);
     writeBuffers[0].put((byte)serializedRequest.length);
     writeBuffers[0].put(serializedRequest);
@@ -199,9 +233,9 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   long item;
 
   @Override
-  @SuppressWarnings("SleepWhileInLoop")
   public void put(Object tuple)
   {
+    credits.await();
     if (tuple instanceof Tuple) {
       final Tuple t = (Tuple)tuple;
 
@@ -281,9 +315,11 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
       synchronized (readBuffers) {
         readBuffers[writeIndex].limit(writeBuffer.position());
       }
+      credits.take(array.length + 2);
     }
     else {
       count++;
+      tuple = LazyTuple.unwrap(tuple);
       int hashcode = tuple.hashCode();
 
       int wi = writeIndex;
@@ -476,6 +512,7 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
           readBuffers[index].limit(BUFFER_CAPACITY);
         }
       }
+      credits.take(size + 2);
     }
 
     if (!write) {
@@ -484,7 +521,6 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
     }
   }
 
-  @SuppressWarnings("SleepWhileInLoop")
   public void advanceWriteBuffer()
   {
     if (writeIndex == lastIndex) {
@@ -494,17 +530,21 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
       writeIndex++;
     }
 
-    try {
-      while (writeIndex == readIndex) {
-        sleep(spinMillis);
-      }
-
-      writeBuffer = writeBuffers[writeIndex];
-      writeBuffer.clear();
-    }
-    catch (InterruptedException ie) {
-      throw new RuntimeException(ie);
+    /*
+     * wait for the event loop to send the buffer, it signals as it moves on to the next one.
+     */
+    if (writeIndex == readIndex) {
+      credits.await(writeBufferSent);
     }
+
+    writeBuffer = writeBuffers[writeIndex];
+    writeBuffer.clear();
+  }
+
+  @Override
+  public long getBlockedNanos(boolean reset)
+  {
+    return credits.getBlockedNanos(reset);
   }
 
   @Override
@@ -1879,12 +1919,14 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
   @Override
   public void connected()
   {
+    credits.clearFailure();
     write = false;
   }
 
   @Override
   public void disconnected()
   {
+    credits.fail(new IOException("Publisher " + id + " disconnected"));
     write = true;
   }
 
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LongSink;
+
+import com.datatorrent.stram.engine.RingReservoir;
+import com.datatorrent.stram.engine.SpscRing;
+import com.datatorrent.stram.engine.Stream;
+import com.datatorrent.stram.engine.StreamContext;
+
+/**
+ * The {@link InlineStream} which queues the tuples in a lock free ring instead of the circular buffer. With the
+ * {@link com.datatorrent.stram.engine.PrimitiveRing} it carries the longs and the doubles without boxing them.
+ *
+ * @since 2.2.0
+ */
+public class InlineRingStream extends RingReservoir implements Stream, BatchSink<Object>, LongSink, DoubleSink
+{
+  public InlineRingStream(SpscRing<Object> ring)
+  {
+    super("InlineRingStream", ring);
+  }
+
+  @Override
+  public void setup(StreamContext context)
+  {
+    setId(context.getId());
+  }
+
+  @Override
+  public void activate(StreamContext context)
+  {
+  }
+
+  @Override
+  public void deactivate()
+  {
+    clear();
+  }
+
+  @Override
+  public void teardown()
+  {
+    clear();
+  }
+
+  @Override
+  public void put(Object tuple)
+  {
+    try {
+      super.put(LazyTuple.unwrap(tuple));
+    }
+    catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putLong(long tuple)
+  {
+    try {
+      super.putLong(tuple);
+    }
+    catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putDouble(double tuple)
+  {
+    try {
+      super.putDouble(tuple);
+    }
+    catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putAll(Object[] tuples, int offset, int length)
+  {
+    try {
+      super.putAll(tuples, offset, length);
+    }
+    catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "InlineRingStream{" + super.toString() + '}';
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(InlineRingStream.class);
+}
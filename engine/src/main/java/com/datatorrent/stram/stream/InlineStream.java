@@ -18,6 +18,9 @@ package com.datatorrent.stram.stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.LazyTuple;
+
 import com.datatorrent.stram.engine.DefaultReservoir;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
@@ -30,7 +33,7 @@ import com.datatorrent.stram.engine.SweepableReservoir;
  *
  * @since 0.3.2
  */
-public class InlineStream extends DefaultReservoir implements Stream, SweepableReservoir
+public class InlineStream extends DefaultReservoir implements Stream, SweepableReservoir, BatchSink<Object>
 {
   public InlineStream(int capacity)
   {
@@ -78,7 +81,19 @@ public class InlineStream extends DefaultReservoir implements Stream, SweepableR
   public void put(Object tuple)
   {
     try {
-      super.put(tuple);
+      super.put(LazyTuple.unwrap(tuple));
+    }
+    catch (InterruptedException ie) {
+      logger.debug("Interrupted", ie);
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public void putAll(Object[] tuples, int offset, int length)
+  {
+    try {
+      super.putAll(tuples, offset, length);
     }
     catch (InterruptedException ie) {
       logger.debug("Interrupted", ie);
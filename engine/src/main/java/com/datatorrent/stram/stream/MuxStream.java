@@ -21,6 +21,9 @@ import java.util.HashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LongSink;
 import com.datatorrent.api.Sink;
 
 import com.datatorrent.stram.engine.Stream;
@@ -31,7 +34,7 @@ import com.datatorrent.stram.engine.StreamContext;
  *
  * @since 0.3.2
  */
-public class MuxStream implements Stream.MultiSinkCapableStream
+public class MuxStream implements Stream.MultiSinkCapableStream, BatchSink<Object>, LongSink, DoubleSink
 {
   public static final String MULTI_SINK_ID_CONCAT_SEPARATOR = ", ";
   private HashMap<String, Sink<Object>> outputs = new HashMap<String, Sink<Object>>();
@@ -118,6 +121,43 @@ public class MuxStream implements Stream.MultiSinkCapableStream
     }
   }
 
+  @Override
+  public void putLong(long tuple)
+  {
+    count++;
+    for (int i = sinks.length; i-- > 0;) {
+      if (sinks[i] instanceof LongSink) {
+        ((LongSink)sinks[i]).putLong(tuple);
+      }
+      else {
+        sinks[i].put(tuple);
+      }
+    }
+  }
+
+  @Override
+  public void putDouble(double tuple)
+  {
+    count++;
+    for (int i = sinks.length; i-- > 0;) {
+      if (sinks[i] instanceof DoubleSink) {
+        ((DoubleSink)sinks[i]).putDouble(tuple);
+      }
+      else {
+        sinks[i].put(tuple);
+      }
+    }
+  }
+
+  @Override
+  public void putAll(Object[] tuples, int offset, int length)
+  {
+    count += length;
+    for (int i = sinks.length; i-- > 0;) {
+      BatchSink.Util.putAll(sinks[i], tuples, offset, length);
+    }
+  }
+
   @Override
   public int getCount(boolean reset)
   {
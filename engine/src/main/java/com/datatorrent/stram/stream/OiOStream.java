@@ -15,10 +15,14 @@
  */
 package com.datatorrent.stram.stream;
 
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LongSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.engine.WakeupSignal;
 import com.datatorrent.stram.tuple.Tuple;
 
 /**
@@ -26,9 +30,11 @@ import com.datatorrent.stram.tuple.Tuple;
  *
  * @since 0.3.5
  */
-public class OiOStream implements Stream, SweepableReservoir
+public class OiOStream implements Stream, SweepableReservoir, LongSink, DoubleSink
 {
   private Sink<Object> sink;
+  private LongSink longSink;
+  private DoubleSink doubleSink;
   private Sink<Tuple> control;
   private int count;
 
@@ -65,7 +71,31 @@ public class OiOStream implements Stream, SweepableReservoir
     }
     else {
       count++;
-      sink.put(t);
+      sink.put(LazyTuple.unwrap(t));
+    }
+  }
+
+  @Override
+  public void putLong(long tuple)
+  {
+    count++;
+    if (longSink == null) {
+      sink.put(tuple);
+    }
+    else {
+      longSink.putLong(tuple);
+    }
+  }
+
+  @Override
+  public void putDouble(double tuple)
+  {
+    count++;
+    if (doubleSink == null) {
+      sink.put(tuple);
+    }
+    else {
+      doubleSink.putDouble(tuple);
     }
   }
 
@@ -90,9 +120,19 @@ public class OiOStream implements Stream, SweepableReservoir
     }
     finally {
       this.sink = sink;
+      longSink = sink instanceof LongSink ? (LongSink)sink : null;
+      doubleSink = sink instanceof DoubleSink ? (DoubleSink)sink : null;
     }
   }
 
+  /**
+   * The tuples are processed on the thread which puts them, so there is no one to wake up.
+   */
+  @Override
+  public void setWakeupSignal(WakeupSignal signal)
+  {
+  }
+
   @Override
   public Tuple sweep()
   {
@@ -16,8 +16,15 @@
 package com.datatorrent.stram.stream;
 
 import com.datatorrent.stram.tuple.Tuple;
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LongSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
+import com.datatorrent.stram.codec.DoubleStreamCodec;
+import com.datatorrent.stram.codec.LongStreamCodec;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
@@ -26,13 +33,16 @@ import java.util.Set;
  * @param <T>
  * @since 0.3.2
  */
-public class PartitionAwareSink<T> implements Sink<T>
+public class PartitionAwareSink<T> implements BatchSink<T>, LongSink, DoubleSink
 {
   private final StreamCodec<T> serde;
   private final Set<Integer> partitions;
   private final int mask;
   private volatile Sink<T> output;
   private int count;
+  /* the tuples of the batch which belong to the partitions */
+  @SuppressWarnings("unchecked")
+  private T[] batch = (T[])new Object[0];
 
   /**
    *
@@ -60,9 +70,76 @@ public class PartitionAwareSink<T> implements Sink<T>
       count++;
       output.put(payload);
     }
-    else if (partitions.contains(serde.getPartition(payload) & mask)) {
+    else {
+      @SuppressWarnings("unchecked")
+      T tuple = (T)LazyTuple.unwrap(payload);
+      if (partitions.contains(serde.getPartition(tuple) & mask)) {
+        count++;
+        output.put(tuple);
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putLong(long tuple)
+  {
+    int partition = serde instanceof LongStreamCodec ? ((LongStreamCodec)serde).getPartition(tuple) : serde.getPartition((T)Long.valueOf(tuple));
+    if (partitions.contains(partition & mask)) {
       count++;
-      output.put(payload);
+      if (output instanceof LongSink) {
+        ((LongSink)output).putLong(tuple);
+      }
+      else {
+        output.put((T)Long.valueOf(tuple));
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putDouble(double tuple)
+  {
+    int partition = serde instanceof DoubleStreamCodec ? ((DoubleStreamCodec)serde).getPartition(tuple) : serde.getPartition((T)Double.valueOf(tuple));
+    if (partitions.contains(partition & mask)) {
+      count++;
+      if (output instanceof DoubleSink) {
+        ((DoubleSink)output).putDouble(tuple);
+      }
+      else {
+        output.put((T)Double.valueOf(tuple));
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void putAll(T[] tuples, int offset, int length)
+  {
+    if (batch.length < length) {
+      batch = (T[])new Object[length];
+    }
+
+    int n = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      T payload = tuples[i];
+      if (payload instanceof Tuple) {
+        batch[n++] = payload;
+      }
+      else {
+        T tuple = (T)LazyTuple.unwrap(payload);
+        if (partitions.contains(serde.getPartition(tuple) & mask)) {
+          batch[n++] = tuple;
+        }
+      }
+    }
+
+    count += n;
+    try {
+      BatchSink.Util.putAll(output, batch, 0, n);
+    }
+    finally {
+      Arrays.fill(batch, 0, n, null);
     }
   }
 
@@ -26,6 +26,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import com.datatorrent.api.annotation.RecordField;
+import com.datatorrent.bufferserver.util.BufferServerStats;
 
 @XmlRootElement(name = "container")
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -48,6 +49,7 @@ public class ContainerInfo {
   public long gcCollectionTime;
   @RecordField(type = "stats")
   public long gcCollectionCount;
+  public BufferServerStats bufferServerStats;
   @RecordField(type = "meta", publish = false)
   public String containerLogsUrl;
   public long startedTime = -1;
@@ -66,6 +66,10 @@ public class OperatorInfo
   @RecordField(type = "stats")
   public double cpuPercentageMA;
   @RecordField(type = "stats")
+  public long totalIdleNanos;
+  @RecordField(type = "stats")
+  public long totalSpinNanos;
+  @RecordField(type = "stats")
   public long latencyMA;
   public String status;
   public long lastHeartbeat;
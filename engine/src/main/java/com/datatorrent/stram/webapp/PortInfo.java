@@ -34,6 +34,7 @@ public class PortInfo
   public long totalTuples;
   public long tuplesPSMA;
   public long bufferServerBytesPSMA;
+  public long totalBufferServerBlockedNanos;
   public long queueSizeMA;
   public String recordingId;
 }
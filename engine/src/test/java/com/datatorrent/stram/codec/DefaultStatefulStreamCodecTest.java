@@ -16,9 +16,12 @@
 package com.datatorrent.stram.codec;
 
 import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.JavaSerializer;
@@ -146,6 +149,102 @@ public class DefaultStatefulStreamCodecTest
     Assert.assertEquals(dsp1.state, dsp2.state);
   }
 
+  @Test
+  public void testWriteTo()
+  {
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    DefaultStatefulStreamCodec<Object> decoder = new DefaultStatefulStreamCodec<Object>();
+
+    TestClass tc = new TestClass("hello!", 42);
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    buffer.position(10);
+    coder.writeTo(tc, buffer);
+    DataStatePair dsp = new DataStatePair();
+    dsp.data = new Slice(buffer.array(), 10, buffer.position() - 10);
+    dsp.state = coder.drainState();
+    Assert.assertNotNull("state for the new class", dsp.state);
+    Assert.assertNull("state drained", coder.drainState());
+    Assert.assertEquals(tc, decoder.fromDataStatePair(dsp));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(1024);
+    coder.writeTo(tc, direct);
+    Assert.assertNull("no new state", coder.drainState());
+    direct.flip();
+    byte[] bytes = new byte[direct.remaining()];
+    direct.get(bytes);
+    Assert.assertEquals("same bytes written to direct buffer", dsp.data, new Slice(bytes));
+
+    ByteBuffer small = ByteBuffer.allocate(1024);
+    small.position(1020);
+    try {
+      coder.writeTo(tc, small);
+      Assert.fail("tuple does not fit in the buffer");
+    }
+    catch (BufferOverflowException ex) {
+      Assert.assertEquals("position unchanged", 1020, small.position());
+    }
+
+    small.position(0);
+    small.limit(4);
+    try {
+      coder.writeTo(tc, small);
+      Assert.fail("tuple does not fit within the limit");
+    }
+    catch (BufferOverflowException ex) {
+      Assert.assertEquals("position unchanged", 0, small.position());
+    }
+
+    small.limit(1024);
+    coder.writeTo(tc, small);
+    Assert.assertEquals("same bytes written after overflow", dsp.data, new Slice(small.array(), 0, small.position()));
+  }
+
+  @Test
+  public void testSnapshotState()
+  {
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    DefaultStatefulStreamCodec<Object> decoder = new DefaultStatefulStreamCodec<Object>();
+    Assert.assertNull("no state yet", coder.snapshotState());
+
+    TestClass tc = new TestClass("hello!", 42);
+    DataStatePair dsp = coder.toDataStatePair(tc);
+    Assert.assertEquals(tc, decoder.fromDataStatePair(dsp));
+
+    dsp = coder.toDataStatePair(tc);
+    Assert.assertNull("state already delivered", dsp.state);
+    dsp.state = coder.snapshotState();
+    Assert.assertNotNull("snapshot", dsp.state);
+    Assert.assertEquals("snapshot applied again", tc, decoder.fromDataStatePair(dsp));
+
+    DefaultStatefulStreamCodec<Object> recovered = new DefaultStatefulStreamCodec<Object>();
+    dsp.state = coder.snapshotState();
+    Assert.assertEquals("state rebuilt from snapshot", tc, recovered.fromDataStatePair(dsp));
+
+    coder.resetState();
+    Assert.assertNull("no state after reset", coder.snapshotState());
+  }
+
+  @Test(expected = KryoException.class, timeout = 10000)
+  public void testUnknownClassInState()
+  {
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    DataStatePair dsp = coder.toDataStatePair(new TestClass("hello!", 42));
+
+    Output output = new Output(4096, Integer.MAX_VALUE);
+    coder.writeClassAndObject(output, new ClassIdPair(1000, "com.datatorrent.NoSuchClass"));
+    dsp.state = new Slice(output.toBytes());
+    new DefaultStatefulStreamCodec<Object>().fromDataStatePair(dsp);
+  }
+
+  @Test(expected = KryoException.class, timeout = 10000)
+  public void testMalformedData()
+  {
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    DataStatePair dsp = coder.toDataStatePair(new TestClass("hello!", 42));
+    dsp.state = null;
+    new DefaultStatefulStreamCodec<Object>().fromDataStatePair(dsp);
+  }
+
   public static class TestTuple
   {
     final Integer finalField;
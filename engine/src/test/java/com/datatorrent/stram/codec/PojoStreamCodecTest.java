@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.beans.IntrospectionException;
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ *
+ */
+public class PojoStreamCodecTest
+{
+  public static class Record
+  {
+    public boolean flag;
+    public byte b;
+    public short s;
+    public char c;
+    public int i;
+    public long l;
+    public float f;
+    public double d;
+    public String name;
+    public Integer boxed;
+    public transient int skipped;
+    private List<String> tags;
+    private long timestamp;
+
+    public List<String> getTags()
+    {
+      return tags;
+    }
+
+    public void setTags(List<String> tags)
+    {
+      this.tags = tags;
+    }
+
+    public long getTimestamp()
+    {
+      return timestamp;
+    }
+
+    public void setTimestamp(long timestamp)
+    {
+      this.timestamp = timestamp;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return i;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      Record other = (Record)obj;
+      return flag == other.flag && b == other.b && s == other.s && c == other.c && i == other.i && l == other.l
+              && f == other.f && d == other.d && (name == null ? other.name == null : name.equals(other.name))
+              && (boxed == null ? other.boxed == null : boxed.equals(other.boxed))
+              && (tags == null ? other.tags == null : tags.equals(other.tags)) && timestamp == other.timestamp;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Record{" + "i=" + i + ", name=" + name + ", tags=" + tags + ", timestamp=" + timestamp + '}';
+    }
+
+  }
+
+  public static class ExtendedRecord extends Record
+  {
+    public int extra;
+  }
+
+  static class HiddenRecord
+  {
+    int i;
+  }
+
+  static Record newRecord(int i)
+  {
+    Record record = new Record();
+    record.flag = true;
+    record.b = (byte)i;
+    record.s = (short)-i;
+    record.c = 'c';
+    record.i = i;
+    record.l = Long.MAX_VALUE - i;
+    record.f = i / 3f;
+    record.d = -i / 7d;
+    record.name = "record " + i;
+    record.boxed = i;
+    record.tags = new ArrayList<String>(Arrays.asList("a", "b"));
+    record.setTimestamp(System.currentTimeMillis());
+    return record;
+  }
+
+  @Test
+  public void testGeneratedSerializer() throws IntrospectionException
+  {
+    PojoStreamCodec<Record> codec = new PojoStreamCodec<Record>(Record.class);
+    PojoStreamCodec.Serializer serializer = PojoStreamCodec.generate(Record.class);
+    Assert.assertNotNull("serializer generated", serializer);
+    Assert.assertSame("serializer class generated once", serializer.getClass(), PojoStreamCodec.generate(Record.class).getClass());
+
+    Record record = newRecord(42);
+    record.skipped = 1;
+    Slice slice = codec.toByteArray(record);
+    Assert.assertEquals("generated", PojoStreamCodec.GENERATED, slice.buffer[slice.offset]);
+
+    Record copy = (Record)new PojoStreamCodec<Record>(Record.class).fromByteArray(slice);
+    Assert.assertEquals(record, copy);
+    Assert.assertEquals("transient field", 0, copy.skipped);
+
+    Record empty = new Record();
+    Assert.assertEquals(empty, codec.fromByteArray(codec.toByteArray(empty)));
+
+    ArrayList<String> properties = new ArrayList<String>();
+    for (PojoStreamCodec.Property property : PojoStreamCodec.getProperties(Record.class)) {
+      properties.add(property.name);
+    }
+    Assert.assertEquals(Arrays.asList("b", "boxed", "c", "d", "f", "flag", "i", "l", "name", "s", "tags", "timestamp"), properties);
+  }
+
+  @Test
+  public void testSmallerThanKryo()
+  {
+    Record record = newRecord(7);
+    record.tags = null;
+    Slice generated = new PojoStreamCodec<Record>(Record.class).toByteArray(record);
+    Slice kryo = new DefaultStatefulStreamCodec<Record>().toDataStatePair(record).data;
+    Assert.assertTrue("generated " + generated.length + " kryo " + kryo.length, generated.length < kryo.length);
+  }
+
+  @Test
+  public void testKryoFallback()
+  {
+    PojoStreamCodec<Record> codec = new PojoStreamCodec<Record>(Record.class);
+    ExtendedRecord extended = new ExtendedRecord();
+    extended.i = 3;
+    extended.extra = 5;
+    Slice slice = codec.toByteArray(extended);
+    Assert.assertEquals("kryo", PojoStreamCodec.KRYO, slice.buffer[slice.offset]);
+    ExtendedRecord copy = (ExtendedRecord)codec.fromByteArray(slice);
+    Assert.assertEquals(3, copy.i);
+    Assert.assertEquals(5, copy.extra);
+
+    Assert.assertNull(codec.fromByteArray(codec.toByteArray(null)));
+
+    Assert.assertNull("serializer not generated", PojoStreamCodec.generate(HiddenRecord.class));
+    PojoStreamCodec<HiddenRecord> hidden = new PojoStreamCodec<HiddenRecord>(HiddenRecord.class);
+    HiddenRecord hiddenRecord = new HiddenRecord();
+    hiddenRecord.i = 9;
+    Assert.assertEquals(9, ((HiddenRecord)hidden.fromByteArray(hidden.toByteArray(hiddenRecord))).i);
+  }
+
+  @Test
+  public void testWriteTo()
+  {
+    PojoStreamCodec<Record> codec = new PojoStreamCodec<Record>(Record.class);
+    Record record = newRecord(1);
+    Slice slice = codec.toByteArray(record);
+
+    ByteBuffer small = ByteBuffer.allocate(slice.length - 1);
+    small.position(3);
+    try {
+      codec.writeTo(record, small);
+      Assert.fail("BufferOverflowException expected");
+    }
+    catch (BufferOverflowException ex) {
+      Assert.assertEquals("position unchanged", 3, small.position());
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    buffer.position(3);
+    codec.writeTo(record, buffer);
+    Assert.assertEquals(3 + slice.length, buffer.position());
+    Assert.assertEquals(record, codec.fromByteArray(new Slice(buffer.array(), 3, slice.length)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testJavaSerialization() throws IOException, ClassNotFoundException
+  {
+    PojoStreamCodec<Record> codec = new PojoStreamCodec<Record>(Record.class);
+    Record record = newRecord(11);
+    Slice slice = codec.toByteArray(record);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(bos);
+    oos.writeObject(codec);
+    oos.close();
+
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+    PojoStreamCodec<Record> copy = (PojoStreamCodec<Record>)ois.readObject();
+    Assert.assertEquals(Record.class, copy.getTupleClass());
+    Assert.assertEquals(record, copy.fromByteArray(slice));
+  }
+
+}
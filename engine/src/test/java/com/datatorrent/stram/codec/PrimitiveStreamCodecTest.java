@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * Tests the codecs of the primitive ports.
+ */
+public class PrimitiveStreamCodecTest
+{
+  static final long[] LONGS = {0, 1, -1, 63, -64, 64, 127, 128, 1444000000000L, Long.MAX_VALUE, Long.MIN_VALUE};
+  static final double[] DOUBLES = {0, -0.0, 1.5, -2.25, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY};
+
+  @Test
+  public void testLong()
+  {
+    LongStreamCodec codec = new LongStreamCodec();
+    ByteBuffer buffer = ByteBuffer.allocate(256);
+    for (long l : LONGS) {
+      Slice slice = codec.toByteArray(l);
+      Assert.assertEquals("toByteArray " + l, l, codec.fromByteArray(slice));
+      Assert.assertEquals("partition " + l, Long.valueOf(l).hashCode(), codec.getPartition(l));
+
+      int position = buffer.position();
+      codec.writeTo(l, buffer);
+      Assert.assertEquals("length " + l, slice.length, buffer.position() - position);
+      Assert.assertEquals("writeTo " + l, l, codec.fromByteArray(new Slice(buffer.array(), position, slice.length)));
+    }
+
+    Assert.assertEquals("small value", 1, codec.toByteArray(-64L).length);
+    Assert.assertEquals("timestamp", 6, codec.toByteArray(1444000000000L).length);
+  }
+
+  @Test
+  public void testDouble()
+  {
+    DoubleStreamCodec codec = new DoubleStreamCodec();
+    ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    for (double d : DOUBLES) {
+      Slice slice = codec.toByteArray(d);
+      Assert.assertEquals("length " + d, 8, slice.length);
+      Assert.assertEquals("toByteArray " + d, d, codec.fromByteArray(slice));
+      Assert.assertEquals("partition " + d, Double.valueOf(d).hashCode(), codec.getPartition(d));
+
+      int position = buffer.position();
+      codec.writeTo(d, buffer);
+      Assert.assertEquals("writeTo " + d, d, codec.fromByteArray(new Slice(buffer.array(), position, 8)));
+    }
+  }
+
+  @Test
+  public void testOverflow()
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(12);
+    buffer.position(5);
+    try {
+      new LongStreamCodec().writeTo(Long.MIN_VALUE, buffer);
+      Assert.fail("long overflow");
+    }
+    catch (BufferOverflowException ex) {
+      Assert.assertEquals("position after long overflow", 5, buffer.position());
+    }
+
+    try {
+      new DoubleStreamCodec().writeTo(1.5, buffer);
+      Assert.fail("double overflow");
+    }
+    catch (BufferOverflowException ex) {
+      Assert.assertEquals("position after double overflow", 5, buffer.position());
+    }
+  }
+
+}
@@ -15,17 +15,28 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Assert;
 
 import org.junit.Test;
 
 import com.datatorrent.api.Attribute.AttributeMap.DefaultAttributeMap;
 import com.datatorrent.api.*;
+import com.datatorrent.api.Context.OperatorContext.WaitStrategy;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
 import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
 import com.datatorrent.stram.tuple.EndStreamTuple;
 import com.datatorrent.stram.tuple.EndWindowTuple;
 import com.datatorrent.stram.tuple.Tuple;
@@ -208,4 +219,277 @@ public class GenericNodeTest
     Assert.assertEquals(Thread.State.TERMINATED, t.getState());
   }
 
+  @Test
+  public void testWakeup() throws InterruptedException
+  {
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    /* the node would not notice the tuples for a minute unless it is woken up */
+    attributes.put(Context.OperatorContext.SPIN_MILLIS, 60000);
+    deliverWindow(attributes);
+  }
+
+  @Test
+  public void testWaitStrategies() throws InterruptedException
+  {
+    for (WaitStrategy strategy : WaitStrategy.values()) {
+      DefaultAttributeMap attributes = new DefaultAttributeMap();
+      attributes.put(Context.OperatorContext.SPIN_MILLIS, 60000);
+      attributes.put(Context.OperatorContext.WAIT_STRATEGY, strategy);
+      com.datatorrent.stram.engine.OperatorContext context = deliverWindow(attributes);
+
+      ArrayList<ContainerStats.OperatorStats> stats = new ArrayList<ContainerStats.OperatorStats>();
+      context.drainStats(stats);
+      Assert.assertEquals(strategy + " stats", 1, stats.size());
+      ContainerStats.OperatorStats os = stats.get(0);
+      Assert.assertTrue(strategy + " idle " + os, os.idleNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+      switch (strategy) {
+        case BUSY_SPIN:
+          Assert.assertEquals(strategy + " spin " + os, os.idleNanos, os.spinNanos);
+          break;
+
+        case BLOCKING:
+          Assert.assertEquals(strategy + " spin " + os, 0, os.spinNanos);
+          break;
+
+        default:
+          Assert.assertTrue(strategy + " spin " + os, os.spinNanos < os.idleNanos);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Operator which uses up the given CPU time on its thread at the end of each window.
+   */
+  public static class BusyOperator extends GenericOperator
+  {
+    final long nanos;
+    final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+    BusyOperator(long millis)
+    {
+      nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public void endWindow()
+    {
+      super.endWindow();
+      threads.add(Thread.currentThread().getName());
+      ThreadMXBean tmb = ManagementFactory.getThreadMXBean();
+      long end = tmb.getCurrentThreadCpuTime() + nanos;
+      while (tmb.getCurrentThreadCpuTime() < end) {
+      }
+    }
+
+  }
+
+  @Test
+  public void testScheduledNodeCpuTime() throws InterruptedException
+  {
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final CountDownLatch tornDown = new CountDownLatch(2);
+    NodeScheduler scheduler = new NodeScheduler("NodeScheduler", 1);
+    try {
+      /* the nodes share the thread, the busy one uses up much more CPU time on it than the measured one */
+      BusyOperator measured = new BusyOperator(1);
+      com.datatorrent.stram.engine.OperatorContext context = new com.datatorrent.stram.engine.OperatorContext(1, new DefaultAttributeMap(), null);
+      DefaultReservoir reservoir = schedule(scheduler, new GenericNode(measured, context), failure, tornDown);
+      DefaultReservoir busyReservoir = schedule(scheduler, new GenericNode(new BusyOperator(20), new com.datatorrent.stram.engine.OperatorContext(2, new DefaultAttributeMap(), null)), failure, tornDown);
+
+      ArrayList<ContainerStats.OperatorStats> stats = new ArrayList<ContainerStats.OperatorStats>();
+      for (int window = 0; window < 20; window++) {
+        busyReservoir.add(new Tuple(MessageType.BEGIN_WINDOW, window));
+        busyReservoir.add(new EndWindowTuple(window));
+        reservoir.add(new Tuple(MessageType.BEGIN_WINDOW, window));
+        reservoir.add(new EndWindowTuple(window));
+        Thread.sleep(10);
+      }
+      reservoir.add(new EndStreamTuple(20));
+      busyReservoir.add(new EndStreamTuple(20));
+      Assert.assertTrue("nodes torn down", tornDown.await(10, TimeUnit.SECONDS));
+      context.drainStats(stats);
+
+      Assert.assertNull("node failed", failure.get());
+      Assert.assertTrue("stats of the windows " + stats.size(), stats.size() >= 20);
+      long total = 0;
+      for (ContainerStats.OperatorStats os : stats) {
+        Assert.assertTrue("cpu time used " + os.cpuTimeUsed + " on " + measured.threads, os.cpuTimeUsed >= 0);
+        total += os.cpuTimeUsed;
+      }
+      Assert.assertTrue("cpu time used " + total + " on " + measured.threads, total >= TimeUnit.MILLISECONDS.toNanos(20) && total < TimeUnit.MILLISECONDS.toNanos(200));
+    }
+    finally {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Schedule a node reading from a single input port.
+   *
+   * @return the reservoir of the input port
+   */
+  private static DefaultReservoir schedule(NodeScheduler scheduler, final GenericNode gn, final AtomicReference<Throwable> failure, final CountDownLatch tornDown)
+  {
+    gn.setId(gn.context.getId());
+    DefaultReservoir reservoir = new DefaultReservoir("ip1Res", 1024);
+    gn.connectInputPort("ip1", reservoir);
+    scheduler.schedule(gn, new NodeScheduler.Activation()
+    {
+      @Override
+      public void setup()
+      {
+        gn.activate();
+      }
+
+      @Override
+      public void failed(Throwable cause)
+      {
+        failure.set(cause);
+      }
+
+      @Override
+      public void teardown()
+      {
+        gn.deactivate();
+        tornDown.countDown();
+      }
+
+    });
+    return reservoir;
+  }
+
+  @Test
+  public void testInterruptScheduledNode() throws InterruptedException
+  {
+    com.datatorrent.stram.engine.OperatorContext context = new com.datatorrent.stram.engine.OperatorContext(0, new DefaultAttributeMap(), null);
+    final GenericNode gn = new GenericNode(new GenericOperator(), context);
+    gn.setId(1);
+    DefaultReservoir reservoir = new DefaultReservoir("ip1Res", 1024);
+    gn.connectInputPort("ip1", reservoir);
+    final DefaultReservoir downstream = new DefaultReservoir("downstream", 1);
+    while (downstream.offer(42)) {
+    }
+    gn.connectOutputPort("op", new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        try {
+          downstream.put(tuple);
+        }
+        catch (InterruptedException ex) {
+          throw new RuntimeException(ex);
+        }
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    });
+
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final CountDownLatch tornDown = new CountDownLatch(1);
+    NodeScheduler scheduler = new NodeScheduler("NodeScheduler", 1);
+    try {
+      scheduler.schedule(gn, new NodeScheduler.Activation()
+      {
+        @Override
+        public void setup()
+        {
+          gn.activate();
+        }
+
+        @Override
+        public void failed(Throwable cause)
+        {
+          failure.set(cause);
+        }
+
+        @Override
+        public void teardown()
+        {
+          gn.deactivate();
+          tornDown.countDown();
+        }
+
+      });
+
+      /* the node blocks on the full downstream reservoir */
+      reservoir.add(new Tuple(MessageType.BEGIN_WINDOW, 0x1L));
+      Thread.sleep(100);
+      gn.shutdown();
+      context.join(100);
+      Assert.assertTrue("node blocked after the shutdown", context.isAlive());
+
+      context.interrupt();
+      context.join(5000);
+      Assert.assertTrue("node stopped once interrupted", context.isTerminated());
+      Assert.assertTrue("node torn down", tornDown.await(0, TimeUnit.SECONDS));
+      Assert.assertNull("node failed", failure.get());
+    }
+    finally {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Run a node with the given attributes through a window whose tuples arrive while it waits for them.
+   */
+  private static com.datatorrent.stram.engine.OperatorContext deliverWindow(DefaultAttributeMap attributes) throws InterruptedException
+  {
+    final ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(16);
+    com.datatorrent.stram.engine.OperatorContext context = new com.datatorrent.stram.engine.OperatorContext(0, attributes, null);
+    final GenericNode gn = new GenericNode(new GenericOperator(), context);
+    gn.setId(1);
+    DefaultReservoir reservoir = new DefaultReservoir("ip1Res", 1024);
+    gn.connectInputPort("ip1", reservoir);
+    gn.connectOutputPort("op", new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        queue.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    });
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+
+    };
+    t.start();
+
+    Thread.sleep(100);
+    reservoir.add(new Tuple(MessageType.BEGIN_WINDOW, 0x1L));
+    Assert.assertNotNull("begin window", queue.poll(5, TimeUnit.SECONDS));
+
+    Thread.sleep(100);
+    reservoir.add(42);
+    Assert.assertEquals("tuple", 42, queue.poll(5, TimeUnit.SECONDS));
+
+    reservoir.add(new EndWindowTuple(0x1L));
+    Assert.assertNotNull("end window", queue.poll(5, TimeUnit.SECONDS));
+    reservoir.add(new EndStreamTuple(0x1L));
+    t.join(5000);
+    Assert.assertEquals(Thread.State.TERMINATED, t.getState());
+    return context;
+  }
+
 }
@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.PortContext.QueueType;
+import com.datatorrent.api.DoubleSink;
+import com.datatorrent.api.LongSink;
+import com.datatorrent.api.Sink;
+
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Tests the lock free rings and the reservoir built on them.
+ */
+public class RingReservoirTest
+{
+  static final int TUPLES = 100000;
+
+  static class CollectingSink implements Sink<Object>
+  {
+    final List<Object> tuples = new ArrayList<Object>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      tuples.add(tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return tuples.size();
+    }
+
+  }
+
+  @Test
+  public void testCapacity()
+  {
+    SpscRing<Object> ring = new SpscRing<Object>(5);
+    Assert.assertEquals("capacity", 8, ring.capacity());
+    for (int i = 0; i < 8; i++) {
+      Assert.assertTrue("offered " + i, ring.offer(i));
+    }
+    Assert.assertFalse("full", ring.offer(8));
+    Assert.assertEquals("size", 8, ring.size());
+    Assert.assertEquals("head", 0, ring.poll());
+    Assert.assertTrue("room after poll", ring.offer(8));
+    ring.clear();
+    Assert.assertTrue("empty", ring.isEmpty());
+    Assert.assertNull("poll empty", ring.poll());
+  }
+
+  @Test
+  public void testSweep()
+  {
+    RingReservoir reservoir = new RingReservoir("test", RingReservoir.newRing(QueueType.SPSC_RING, 16));
+    CollectingSink sink = new CollectingSink();
+    reservoir.setSink(sink);
+
+    reservoir.add(1);
+    reservoir.add(null);
+    reservoir.add(new EndWindowTuple(1));
+    reservoir.add(2);
+
+    Tuple t = reservoir.sweep();
+    Assert.assertNotNull("control tuple", t);
+    Assert.assertEquals("data tuples before the control tuple", 2, sink.tuples.size());
+    Assert.assertEquals("first tuple", 1, sink.tuples.get(0));
+    Assert.assertNull("null tuple", sink.tuples.get(1));
+    Assert.assertEquals("count", 2, reservoir.getCount(false));
+    Assert.assertSame("control tuple stays", t, reservoir.sweep());
+    Assert.assertSame("removed control tuple", t, reservoir.remove());
+
+    Assert.assertNull("no control tuple", reservoir.sweep());
+    Assert.assertEquals("data tuples", 3, sink.tuples.size());
+    Assert.assertEquals("count", 3, reservoir.getCount(true));
+    Assert.assertEquals("empty", 0, reservoir.size());
+  }
+
+  /**
+   * Records the primitives along with the way they arrived.
+   */
+  static class PrimitiveSink extends CollectingSink implements LongSink, DoubleSink
+  {
+    final List<String> kinds = new ArrayList<String>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      kinds.add("object");
+      super.put(tuple);
+    }
+
+    @Override
+    public void putLong(long tuple)
+    {
+      kinds.add("long");
+      tuples.add(tuple);
+    }
+
+    @Override
+    public void putDouble(double tuple)
+    {
+      kinds.add("double");
+      tuples.add(tuple);
+    }
+
+  }
+
+  @Test
+  public void testPrimitives() throws InterruptedException
+  {
+    RingReservoir reservoir = new RingReservoir("test", new PrimitiveRing(4));
+    PrimitiveSink sink = new PrimitiveSink();
+    reservoir.setSink(sink);
+
+    reservoir.putLong(1);
+    reservoir.putDouble(2.5);
+    reservoir.put(3L);
+    EndWindowTuple endWindow = new EndWindowTuple(1);
+    reservoir.put(endWindow);
+
+    Assert.assertSame("control tuple", endWindow, reservoir.sweep());
+    Assert.assertEquals("tuples", Arrays.<Object>asList(1L, 2.5, 3L), sink.tuples);
+    Assert.assertEquals("kinds", Arrays.asList("long", "double", "object"), sink.kinds);
+    Assert.assertSame("removed control tuple", endWindow, reservoir.remove());
+
+    reservoir.putLong(4);
+    Assert.assertEquals("boxed head", 4L, reservoir.peek());
+    Assert.assertEquals("boxed removed", 4L, reservoir.remove());
+    reservoir.putDouble(5.5);
+    Assert.assertNull("no control tuple", reservoir.sweep());
+    Assert.assertEquals("count", 4, reservoir.getCount(true));
+
+    /* the sinks which do not take primitives get them boxed */
+    CollectingSink objects = new CollectingSink();
+    reservoir.setSink(objects);
+    reservoir.putLong(6);
+    reservoir.putDouble(7.5);
+    Assert.assertNull("no control tuple", reservoir.sweep());
+    Assert.assertEquals("boxed tuples", Arrays.<Object>asList(6L, 7.5), objects.tuples);
+
+    /* the other rings take primitives boxed */
+    reservoir = new RingReservoir("test", RingReservoir.newRing(QueueType.SPSC_RING, 4));
+    reservoir.setSink(sink);
+    sink.tuples.clear();
+    sink.kinds.clear();
+    reservoir.putLong(8);
+    Assert.assertNull("no control tuple", reservoir.sweep());
+    Assert.assertEquals("kinds", Arrays.asList("object"), sink.kinds);
+  }
+
+  @Test
+  public void testSpsc() throws InterruptedException
+  {
+    testConcurrent(QueueType.SPSC_RING, 1);
+  }
+
+  @Test
+  public void testMpsc() throws InterruptedException
+  {
+    testConcurrent(QueueType.MPSC_RING, 4);
+  }
+
+  /**
+   * Put the tuples from the given number of threads into a small reservoir and check that the consumer gets each of
+   * them once and in the order each producer put them.
+   */
+  private void testConcurrent(QueueType type, int producers) throws InterruptedException
+  {
+    final RingReservoir reservoir = new RingReservoir("test", RingReservoir.newRing(type, 64));
+    CollectingSink sink = new CollectingSink();
+    reservoir.setSink(sink);
+
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      threads[p] = new Thread("producer-" + p)
+      {
+        @Override
+        public void run()
+        {
+          try {
+            for (int i = 0; i < TUPLES; i++) {
+              reservoir.put(new long[] {producer, i});
+            }
+          }
+          catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+          }
+        }
+
+      };
+      threads[p].start();
+    }
+
+    long deadline = System.currentTimeMillis() + 30000;
+    while (sink.tuples.size() < producers * TUPLES && System.currentTimeMillis() < deadline) {
+      reservoir.sweep();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals("tuples", producers * TUPLES, sink.tuples.size());
+    long[] next = new long[producers];
+    for (Object o : sink.tuples) {
+      long[] tuple = (long[])o;
+      Assert.assertEquals("order of producer " + tuple[0], next[(int)tuple[0]]++, tuple[1]);
+    }
+  }
+
+}
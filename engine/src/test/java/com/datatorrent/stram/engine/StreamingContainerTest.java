@@ -17,7 +17,10 @@ package com.datatorrent.stram.engine;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -26,7 +29,14 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.common.util.BaseOperator;
 import com.datatorrent.api.Context.DAGContext;
+import com.datatorrent.api.Context.PortContext;
+import com.datatorrent.api.Context.PortContext.QueueType;
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultOutputPort;
 import com.datatorrent.api.InputOperator;
+import com.datatorrent.api.LongInputPort;
+import com.datatorrent.api.LongOutputPort;
 import com.datatorrent.api.Operator.CheckpointListener;
 
 import com.datatorrent.stram.StramLocalCluster;
@@ -55,6 +65,211 @@ public class StreamingContainerTest
     Assert.assertFalse("No Committed Windows", myCommittedWindowIds.isEmpty());
   }
 
+  @Test
+  public void testSpoolSegmentSize()
+  {
+    final long mb = 1024 * 1024;
+    Assert.assertEquals("segment of 64 MB blocks", 256 * mb, StreamingContainer.getSpoolSegmentSize(64 * mb));
+    /* four 1 GB blocks would overflow the int and exceed a single mapping */
+    Assert.assertEquals("segment of 1 GB blocks", 1024 * mb, StreamingContainer.getSpoolSegmentSize(1024 * mb));
+    Assert.assertEquals("segment of 768 MB blocks", 1536 * mb, StreamingContainer.getSpoolSegmentSize(768 * mb));
+    try {
+      StreamingContainer.getSpoolSegmentSize(2048 * mb);
+      Assert.fail("segment of 2 GB blocks");
+    }
+    catch (IllegalArgumentException ex) {
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("does not fit"));
+    }
+  }
+
+  @Test
+  public void testScheduledOperators() throws IOException, ClassNotFoundException
+  {
+    LogicalPlan lp = new LogicalPlan();
+    lp.setAttribute(LogicalPlan.CONTAINER_SCHEDULER_THREADS, 2);
+    CountingInputOperator input = lp.addOperator("input", new CountingInputOperator());
+    PassThroughOperator first = lp.addOperator("first", new PassThroughOperator());
+    PassThroughOperator second = lp.addOperator("second", new PassThroughOperator());
+    CollectorOperator collector = lp.addOperator("collector", new CollectorOperator());
+    lp.addStream("input", input.output, first.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.addStream("first", first.output, second.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.addStream("second", second.output, collector.input).setLocality(Locality.CONTAINER_LOCAL);
+    /* small reservoirs make the scheduled operators block on the full ones */
+    lp.setInputPortAttribute(second.input, PortContext.QUEUE_CAPACITY, 16);
+    lp.setInputPortAttribute(collector.input, PortContext.QUEUE_CAPACITY, 16);
+
+    PassThroughOperator.threads.clear();
+    CollectorOperator.collected.clear();
+    StramLocalCluster lc = new StramLocalCluster(lp);
+    lc.run(30000);
+
+    Assert.assertEquals("collected tuples", CountingInputOperator.COUNT, CollectorOperator.collected.size());
+    for (int i = 0; i < CountingInputOperator.COUNT; i++) {
+      Assert.assertEquals("tuple in order", i, (int)CollectorOperator.collected.get(i));
+    }
+    Assert.assertFalse("scheduled operators ran", PassThroughOperator.threads.isEmpty());
+    for (String thread : PassThroughOperator.threads) {
+      Assert.assertTrue("operator ran on the scheduler " + thread, thread.startsWith("NodeScheduler-"));
+    }
+  }
+
+  @Test
+  public void testRingQueues() throws IOException, ClassNotFoundException
+  {
+    LogicalPlan lp = new LogicalPlan();
+    CountingInputOperator input = lp.addOperator("input", new CountingInputOperator());
+    PassThroughOperator first = lp.addOperator("first", new PassThroughOperator());
+    PassThroughOperator second = lp.addOperator("second", new PassThroughOperator());
+    CollectorOperator collector = lp.addOperator("collector", new CollectorOperator());
+    lp.addStream("input", input.output, first.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.addStream("first", first.output, second.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.addStream("second", second.output, collector.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.setAttribute(input, PortContext.QUEUE_TYPE, QueueType.MPSC_RING);
+    lp.setInputPortAttribute(first.input, PortContext.QUEUE_TYPE, QueueType.SPSC_RING);
+    lp.setInputPortAttribute(second.input, PortContext.QUEUE_TYPE, QueueType.SPSC_RING);
+    lp.setInputPortAttribute(second.input, PortContext.QUEUE_CAPACITY, 16);
+    lp.setInputPortAttribute(collector.input, PortContext.QUEUE_TYPE, QueueType.MPSC_RING);
+    lp.setInputPortAttribute(collector.input, PortContext.QUEUE_CAPACITY, 16);
+
+    CollectorOperator.collected.clear();
+    StramLocalCluster lc = new StramLocalCluster(lp);
+    lc.run(30000);
+
+    Assert.assertEquals("collected tuples", CountingInputOperator.COUNT, CollectorOperator.collected.size());
+    for (int i = 0; i < CountingInputOperator.COUNT; i++) {
+      Assert.assertEquals("tuple in order", i, (int)CollectorOperator.collected.get(i));
+    }
+  }
+
+  @Test
+  public void testPrimitivePorts() throws IOException, ClassNotFoundException
+  {
+    LogicalPlan lp = new LogicalPlan();
+    LongInputOperator input = lp.addOperator("input", new LongInputOperator());
+    LongPassThroughOperator first = lp.addOperator("first", new LongPassThroughOperator());
+    LongPassThroughOperator second = lp.addOperator("second", new LongPassThroughOperator());
+    LongCollectorOperator collector = lp.addOperator("collector", new LongCollectorOperator());
+    lp.addStream("input", input.output, first.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.addStream("first", first.output, second.input).setLocality(Locality.THREAD_LOCAL);
+    lp.addStream("second", second.output, collector.input).setLocality(Locality.CONTAINER_LOCAL);
+    lp.setInputPortAttribute(collector.input, PortContext.QUEUE_CAPACITY, 16);
+
+    LongCollectorOperator.collected.clear();
+    LongCollectorOperator.unboxed = 0;
+    StramLocalCluster lc = new StramLocalCluster(lp);
+    lc.run(30000);
+
+    Assert.assertEquals("collected tuples", LongInputOperator.COUNT, LongCollectorOperator.collected.size());
+    for (int i = 0; i < LongInputOperator.COUNT; i++) {
+      Assert.assertEquals("tuple in order", i, (long)LongCollectorOperator.collected.get(i));
+    }
+    Assert.assertEquals("unboxed tuples", LongInputOperator.COUNT, LongCollectorOperator.unboxed);
+  }
+
+  private static class LongInputOperator extends BaseOperator implements InputOperator
+  {
+    static final int COUNT = 10000;
+    public final transient LongOutputPort output = new LongOutputPort();
+    private long count;
+
+    @Override
+    public void emitTuples()
+    {
+      if (count == COUNT) {
+        BaseOperator.shutdown();
+      }
+      output.emit(count++);
+    }
+
+  }
+
+  private static class LongPassThroughOperator extends BaseOperator
+  {
+    public final transient LongOutputPort output = new LongOutputPort();
+    public final transient LongInputPort input = new LongInputPort()
+    {
+      @Override
+      public void process(long tuple)
+      {
+        output.emit(tuple);
+      }
+
+    };
+
+  }
+
+  private static class LongCollectorOperator extends BaseOperator
+  {
+    static final List<Long> collected = Collections.synchronizedList(new ArrayList<Long>());
+    static volatile int unboxed;
+    public final transient LongInputPort input = new LongInputPort()
+    {
+      @Override
+      public void putLong(long tuple)
+      {
+        unboxed++;
+        super.putLong(tuple);
+      }
+
+      @Override
+      public void process(long tuple)
+      {
+        collected.add(tuple);
+      }
+
+    };
+
+  }
+
+  private static class CountingInputOperator extends BaseOperator implements InputOperator
+  {
+    static final int COUNT = 10000;
+    public final transient DefaultOutputPort<Integer> output = new DefaultOutputPort<Integer>();
+    private int count;
+
+    @Override
+    public void emitTuples()
+    {
+      if (count == COUNT) {
+        BaseOperator.shutdown();
+      }
+      output.emit(count++);
+    }
+
+  }
+
+  private static class PassThroughOperator extends BaseOperator
+  {
+    static final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+    public final transient DefaultOutputPort<Integer> output = new DefaultOutputPort<Integer>();
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        threads.add(Thread.currentThread().getName());
+        output.emit(tuple);
+      }
+
+    };
+
+  }
+
+  private static class CollectorOperator extends BaseOperator
+  {
+    static final List<Integer> collected = Collections.synchronizedList(new ArrayList<Integer>());
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        collected.add(tuple);
+      }
+
+    };
+
+  }
+
   private static class CommitAwareOperator extends BaseOperator implements CheckpointListener, InputOperator
   {
     public static ArrayList<Long> committedWindowIds;
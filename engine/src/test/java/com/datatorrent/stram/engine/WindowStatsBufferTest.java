@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.stram.api.Checkpoint;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+
+/**
+ * Tests the reusable records of the window stats.
+ */
+public class WindowStatsBufferTest
+{
+  @Test
+  public void testDrain()
+  {
+    WindowStatsBuffer buffer = new WindowStatsBuffer();
+    Checkpoint checkpoint = new Checkpoint(1, 0, 0);
+
+    WindowStatsBuffer.Record record = buffer.claim();
+    record.windowId = 1;
+    record.checkpoint = checkpoint;
+    record.cpuTimeUsed = 2;
+    record.idleNanos = 3;
+    record.spinNanos = 4;
+    record.customMetrics = Collections.<String, Object>singletonMap("metric", 5);
+    record.reportInputPorts();
+    WindowStatsBuffer.PortRecord port = record.addInputPort("input");
+    port.tupleCount = 6;
+    port.queueSize = 7;
+    port.endWindowTimestamp = 8;
+    record.reportOutputPorts();
+    for (int i = 0; i < 3; i++) {
+      port = record.addOutputPort("output" + i);
+      port.tupleCount = i;
+      port.endWindowTimestamp = 9;
+    }
+    buffer.publish();
+
+    /* the input node does not report the input ports */
+    record = buffer.claim();
+    record.windowId = 2;
+    record.reportOutputPorts();
+    buffer.publish();
+
+    ArrayList<ContainerStats.OperatorStats> stats = new ArrayList<ContainerStats.OperatorStats>();
+    Assert.assertEquals("drained", 2, buffer.drainTo(stats));
+    Assert.assertEquals("size", 0, buffer.size());
+
+    ContainerStats.OperatorStats os = stats.get(0);
+    Assert.assertEquals("window", 1, os.windowId);
+    Assert.assertSame("checkpoint", checkpoint, os.checkpoint);
+    Assert.assertEquals("cpu", 2, os.cpuTimeUsed);
+    Assert.assertEquals("idle", 3, os.idleNanos);
+    Assert.assertEquals("spin", 4, os.spinNanos);
+    Assert.assertEquals("metrics", Collections.<String, Object>singletonMap("metric", 5), os.customMetrics);
+    Assert.assertEquals("input ports", 1, os.inputPorts.size());
+    Assert.assertEquals("input port", "input", os.inputPorts.get(0).id);
+    Assert.assertEquals("input tuples", 6, os.inputPorts.get(0).tupleCount);
+    Assert.assertEquals("queue size", 7, os.inputPorts.get(0).queueSize);
+    Assert.assertEquals("dequeue time", 8, os.inputPorts.get(0).endWindowTimestamp);
+    Assert.assertEquals("output ports", 3, os.outputPorts.size());
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("output port", "output" + i, os.outputPorts.get(i).id);
+      Assert.assertEquals("output tuples", i, os.outputPorts.get(i).tupleCount);
+      Assert.assertEquals("emit time", 9, os.outputPorts.get(i).endWindowTimestamp);
+    }
+
+    os = stats.get(1);
+    Assert.assertEquals("window", 2, os.windowId);
+    Assert.assertNull("checkpoint", os.checkpoint);
+    Assert.assertNull("metrics", os.customMetrics);
+    Assert.assertNull("input ports", os.inputPorts);
+    Assert.assertTrue("output ports", os.outputPorts.isEmpty());
+  }
+
+  @Test
+  public void testReuse()
+  {
+    WindowStatsBuffer buffer = new WindowStatsBuffer();
+    ArrayList<ContainerStats.OperatorStats> stats = new ArrayList<ContainerStats.OperatorStats>();
+
+    /* the records drained by every heartbeat are the ones the node fills after it */
+    int capacity = buffer.capacity();
+    WindowStatsBuffer.Record[] records = new WindowStatsBuffer.Record[capacity];
+    for (int i = 0; i < capacity; i++) {
+      records[i] = buffer.claim();
+      buffer.publish();
+    }
+    buffer.drainTo(stats);
+    for (int heartbeat = 0; heartbeat < 3; heartbeat++) {
+      for (int i = 0; i < capacity; i++) {
+        WindowStatsBuffer.Record record = buffer.claim();
+        Assert.assertSame("reused record", records[i], record);
+        Assert.assertEquals("cleared record", 0, record.windowId);
+        record.windowId = heartbeat * capacity + i;
+        buffer.publish();
+      }
+      stats.clear();
+      Assert.assertEquals("drained", capacity, buffer.drainTo(stats));
+      Assert.assertEquals("first window", heartbeat * capacity, stats.get(0).windowId);
+    }
+    Assert.assertEquals("capacity", capacity, buffer.capacity());
+  }
+
+  @Test
+  public void testOverflow()
+  {
+    WindowStatsBuffer buffer = new WindowStatsBuffer();
+    final int windows = WindowStatsBuffer.MAX_CAPACITY + 10;
+    for (int i = 0; i < windows; i++) {
+      buffer.claim().windowId = i;
+      buffer.publish();
+    }
+    Assert.assertEquals("capacity", WindowStatsBuffer.MAX_CAPACITY, buffer.capacity());
+
+    /* the stats of the oldest windows are dropped */
+    ArrayList<ContainerStats.OperatorStats> stats = new ArrayList<ContainerStats.OperatorStats>();
+    Assert.assertEquals("drained", WindowStatsBuffer.MAX_CAPACITY, buffer.drainTo(stats));
+    for (int i = 0; i < stats.size(); i++) {
+      Assert.assertEquals("window", windows - WindowStatsBuffer.MAX_CAPACITY + i, stats.get(i).windowId);
+    }
+  }
+
+}
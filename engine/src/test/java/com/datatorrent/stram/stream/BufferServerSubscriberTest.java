@@ -17,19 +17,32 @@ package com.datatorrent.stram.stream;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.Context.PortContext;
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 
+import com.datatorrent.bufferserver.packet.DataTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.WindowIdTuple;
 import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.tuple.Tuple;
 
 /**
  *
@@ -121,5 +134,265 @@ public class BufferServerSubscriberTest
     Assert.assertEquals("10  received", 10, list.size());
   }
 
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testDeserializeAhead() throws InterruptedException
+  {
+    final List<Object> list = new ArrayList<Object>();
+    final Set<Thread> decoders = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        decoders.add(Thread.currentThread());
+        if (fragment.buffer[fragment.offset] < 0) {
+          /* an error, like a class missing for the codec, is delivered to the operator as well */
+          throw new NoClassDefFoundError("negative tuple");
+        }
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[]{(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return 0;
+      }
+
+    };
+
+    Sink<Object> sink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, myserde);
+    context.put(PortContext.DESERIALIZE_AHEAD, true);
+    context.put(PortContext.SPIN_MILLIS, 1);
+
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 5)
+    {
+      @Override
+      public void suspendRead()
+      {
+        logger.debug("read suspended");
+      }
+
+      @Override
+      public void resumeRead()
+      {
+        logger.debug("read resumed");
+      }
+
+    };
+    bss.setup(context);
+
+    SweepableReservoir reservoir = bss.acquireReservoir("sink", 3);
+    reservoir.setSink(sink);
+
+    for (byte i = 0; i < 100; i++) {
+      byte buffer[] = PayloadTuple.getSerializedTuple(0, myserde.toByteArray(i));
+      bss.onMessage(buffer, 0, buffer.length);
+    }
+
+    for (int i = 0; i < 1000 && list.size() < 100; i++) {
+      if (reservoir.sweep() == null && reservoir.size() == 0) {
+        Thread.sleep(1);
+      }
+    }
+
+    Assert.assertEquals("all received", 100, list.size());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("received in order", (byte)i, list.get(i));
+    }
+    Assert.assertFalse("deserialized ahead of the operator", decoders.contains(Thread.currentThread()));
+
+    byte buffer[] = PayloadTuple.getSerializedTuple(0, myserde.toByteArray((byte)-1));
+    bss.onMessage(buffer, 0, buffer.length);
+    try {
+      for (int i = 0; i < 1000; i++) {
+        reservoir.sweep();
+        Thread.sleep(1);
+      }
+      Assert.fail("failure to deserialize delivered to the operator");
+    }
+    catch (NoClassDefFoundError ex) {
+      Assert.assertEquals("negative tuple", ex.getMessage());
+    }
+    finally {
+      bss.teardown();
+    }
+  }
+
+  @Test
+  public void testDeserializeLazily()
+  {
+    final AtomicInteger deserialized = new AtomicInteger();
+    final List<Object> list = new ArrayList<Object>();
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        deserialized.incrementAndGet();
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[]{(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return (Byte)o % 2;
+      }
+
+    };
+
+    Sink<Object> sink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, myserde);
+    context.put(PortContext.DESERIALIZE_LAZILY, true);
+
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 16);
+    bss.setup(context);
+    SweepableReservoir reservoir = bss.acquireReservoir("sink", 16);
+    reservoir.setSink(sink);
+
+    for (byte i = 0; i < 10; i++) {
+      byte buffer[] = PayloadTuple.getSerializedTuple(myserde.getPartition(i), myserde.toByteArray(i));
+      bss.onMessage(buffer, 0, buffer.length);
+    }
+
+    reservoir.sweep();
+    reservoir.sweep();
+    Assert.assertEquals("10 received", 10, list.size());
+    Assert.assertEquals("none deserialized", 0, deserialized.get());
+
+    for (int i = 0; i < 10; i++) {
+      LazyTuple lazy = (LazyTuple)list.get(i);
+      Assert.assertEquals("partition without deserializing", i % 2, lazy.getPartition());
+      Assert.assertEquals("serialized bytes", myserde.toByteArray((byte)i), lazy.getSlice());
+      Assert.assertFalse("not deserialized", lazy.isDeserialized());
+    }
+    Assert.assertEquals("none deserialized", 0, deserialized.get());
+
+    Assert.assertEquals("deserialized on access", (byte)3, LazyTuple.unwrap(list.get(3)));
+    Assert.assertEquals("deserialized once", (byte)3, ((LazyTuple)list.get(3)).get());
+    Assert.assertEquals("one deserialized", 1, deserialized.get());
+  }
+
+  @Test
+  public void testStableCodecState()
+  {
+    final List<Object> list = new ArrayList<Object>();
+    Sink<Object> sink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    DefaultStatefulStreamCodec<Object> coder = new DefaultStatefulStreamCodec<Object>();
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, coder);
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 16);
+    bss.setup(context);
+    SweepableReservoir reservoir = bss.acquireReservoir("sink", 16);
+    reservoir.setSink(sink);
+
+    DataStatePair dsp = coder.toDataStatePair(new ArrayList<Integer>(Arrays.asList(1)));
+    Assert.assertNotNull("class registered", dsp.state);
+    deliver(bss, DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state));
+    deliver(bss, PayloadTuple.getSerializedTuple(0, dsp.data));
+
+    byte[] checkpoint = WindowIdTuple.getSerializedTuple(1);
+    checkpoint[0] = MessageType.CHECKPOINT_VALUE;
+    deliver(bss, checkpoint);
+
+    dsp = coder.toDataStatePair(new ArrayList<Integer>(Arrays.asList(2)));
+    Assert.assertNull("registration kept across the checkpoint", dsp.state);
+    deliver(bss, PayloadTuple.getSerializedTuple(0, dsp.data));
+
+    Slice snapshot = coder.snapshotState();
+    Assert.assertNotNull("snapshot", snapshot);
+    deliver(bss, DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, snapshot));
+    deliver(bss, PayloadTuple.getSerializedTuple(0, dsp.data));
+
+    drain(reservoir);
+    Assert.assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(2)), list);
+
+    /* subscriber which recovers from the checkpoint rebuilds the state from the snapshot */
+    list.clear();
+    BufferServerSubscriber recovered = new BufferServerSubscriber("recovered", 16);
+    recovered.setup(context);
+    reservoir = recovered.acquireReservoir("sink", 16);
+    reservoir.setSink(sink);
+    deliver(recovered, DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, snapshot));
+    deliver(recovered, PayloadTuple.getSerializedTuple(0, dsp.data));
+    drain(reservoir);
+    Assert.assertEquals(Arrays.asList(Arrays.asList(2)), list);
+  }
+
+  private static void deliver(BufferServerSubscriber bss, byte[] buffer)
+  {
+    bss.onMessage(buffer, 0, buffer.length);
+  }
+
+  private static void drain(SweepableReservoir reservoir)
+  {
+    for (int i = 0; i < 8; i++) {
+      Tuple t = reservoir.sweep();
+      if (t != null) {
+        reservoir.remove();
+      }
+    }
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(BufferServerSubscriberTest.class);
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2015 DataTorrent, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.PortContext.QueueType;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.Sink;
+
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.engine.RingReservoir;
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Tests the batches emitted through the streams.
+ */
+public class MuxStreamTest
+{
+  static class CollectingSink implements Sink<Object>
+  {
+    final List<Object> tuples = new ArrayList<Object>();
+
+    @Override
+    public void put(Object tuple)
+    {
+      tuples.add(tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return tuples.size();
+    }
+
+  }
+
+  @Test
+  public void testEmitAll()
+  {
+    InlineStream inline = new InlineStream(16);
+    CollectingSink inlineSink = new CollectingSink();
+    inline.setSink(inlineSink);
+
+    InlineRingStream ring = new InlineRingStream(RingReservoir.newRing(QueueType.SPSC_RING, 16));
+    CollectingSink ringSink = new CollectingSink();
+    ring.setSink(ringSink);
+
+    /* the even numbers go to the ring */
+    PartitionAwareSink<Object> partition = new PartitionAwareSink<Object>(new DefaultStatefulStreamCodec<Object>(), Collections.singleton(0), 1, ring);
+
+    MuxStream mux = new MuxStream();
+    mux.setSink("inline", inline);
+    mux.setSink("ring", partition);
+    mux.activate(null);
+
+    DefaultOutputPort<Object> port = new DefaultOutputPort<Object>();
+    port.setSink(mux);
+
+    EndWindowTuple endWindow = new EndWindowTuple(1);
+    Object[] batch = new Object[] {-1, 0, 1, 2, 3, endWindow, 4, 5, -1};
+    port.emitAll(batch, 1, batch.length - 2);
+    Assert.assertEquals("emitted", 7, mux.getCount(true));
+    Assert.assertEquals("partitioned", 4, partition.getCount(true));
+
+    Tuple t = inline.sweep();
+    Assert.assertSame("inline control tuple", endWindow, t);
+    inline.remove();
+    Assert.assertNull("inline sweep", inline.sweep());
+    Assert.assertEquals("inline tuples", Arrays.<Object>asList(0, 1, 2, 3, 4, 5), inlineSink.tuples);
+
+    t = ring.sweep();
+    Assert.assertSame("ring control tuple", endWindow, t);
+    ring.remove();
+    Assert.assertNull("ring sweep", ring.sweep());
+    Assert.assertEquals("ring tuples", Arrays.<Object>asList(0, 2, 4), ringSink.tuples);
+  }
+
+  @Test
+  public void testEmitAllFull() throws InterruptedException
+  {
+    final InlineStream inline = new InlineStream(4);
+    final CollectingSink sink = new CollectingSink();
+    inline.setSink(sink);
+
+    final DefaultOutputPort<Integer> port = new DefaultOutputPort<Integer>();
+    port.setSink(inline);
+
+    final Integer[] batch = new Integer[1000];
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = i;
+    }
+
+    Thread producer = new Thread("producer")
+    {
+      @Override
+      public void run()
+      {
+        port.emitAll(batch);
+      }
+
+    };
+    producer.start();
+
+    long deadline = System.currentTimeMillis() + 10000;
+    while (sink.tuples.size() < batch.length && System.currentTimeMillis() < deadline) {
+      inline.sweep();
+    }
+    producer.join();
+
+    Assert.assertEquals("tuples", Arrays.<Object>asList((Object[])batch), sink.tuples);
+  }
+
+}